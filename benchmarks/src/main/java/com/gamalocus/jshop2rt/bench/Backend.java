@@ -0,0 +1,47 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.BytecodeCompiler;
+import com.gamalocus.jshop2rt.Domain;
+import com.gamalocus.jshop2rt.InterpretedDomain;
+import com.gamalocus.jshop2rt.Model;
+
+/**
+ * The ways a parsed domain can be turned into one to plan with.
+ */
+public enum Backend {
+    /**
+     * The Java code produced for the domain, compiled in memory.
+     */
+    SOURCE {
+        @Override
+        public Domain build(Model model) throws Exception {
+            return DomainCompiler.compile(model);
+        }
+    },
+    /**
+     * The domain interpreted from the model, see {@link InterpretedDomain}.
+     */
+    INTERPRETED {
+        @Override
+        public Domain build(Model model) {
+            return new InterpretedDomain(model);
+        }
+    },
+    /**
+     * The class files emitted straight from the model, see
+     * {@link BytecodeCompiler}.
+     */
+    BYTECODE {
+        @Override
+        public Domain build(Model model) {
+            return BytecodeCompiler.compile(model);
+        }
+    };
+
+    /**
+     * @param model the domain as parsed.
+     * @return the domain to plan with.
+     * @throws Exception if the domain cannot be compiled.
+     */
+    public abstract Domain build(Model model) throws Exception;
+}
@@ -0,0 +1,109 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.DoubleCost;
+import com.gamalocus.jshop2rt.JSHOP2;
+import com.gamalocus.jshop2rt.PlanSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plans for every {@link Example}, and for the generated problems of every
+ * {@link Scenario} at the smallest scales, with the domain built by each
+ * {@link Backend}, both whole and restricted to what the problem can reach,
+ * and with the domain compiled from source also with the static atoms of the
+ * state kept in {@link com.gamalocus.jshop2rt.StaticFacts}, and checks that
+ * all of them find the same plans as the whole domain compiled from source
+ * does. Prints the time it took to build each domain, and exits
+ * with status 1 if any of the plans differ.
+ * <p>
+ * Usage: <code>BackendCheck [max-plans]</code>
+ */
+public class BackendCheck {
+    private static final int RECURSION_LIMIT = 100000;
+    private static final boolean[] SLICES = {false, true};
+    private static final String STATIC_FACTS = Backend.SOURCE + "/static";
+
+    public static void main(String[] args) throws Exception {
+        final int maxPlans = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        boolean same = true;
+
+        for (Example example : Example.values()) {
+            List<String> names = new ArrayList<>();
+            List<List<String>> plans = new ArrayList<>();
+            StringBuilder times = new StringBuilder();
+            for (boolean slice : SLICES) {
+                for (Backend backend : Backend.values()) {
+                    final long start = System.nanoTime();
+                    final BenchmarkProblem problem = example.load(backend, slice);
+                    times.append(String.format(" %s=%.1fms", name(backend, slice), (System.nanoTime() - start) / 1e6));
+                    names.add(name(backend, slice));
+                    plans.add(plans(problem, maxPlans));
+                }
+            }
+            names.add(STATIC_FACTS);
+            plans.add(plans(example.load().withStaticFacts(), maxPlans));
+            same &= report(example.toString(), names, plans, times);
+        }
+
+        for (Scenario scenario : Scenario.values()) {
+            for (int scale = 1; scale <= 2; scale++) {
+                final ProblemGenerator generator = scenario.generator(scale, 1);
+                List<String> names = new ArrayList<>();
+                List<List<String>> plans = new ArrayList<>();
+                for (boolean slice : SLICES) {
+                    for (Backend backend : Backend.values()) {
+                        names.add(name(backend, slice));
+                        plans.add(plans(generator.load(backend, slice), Math.min(maxPlans, 5)));
+                    }
+                }
+                names.add(STATIC_FACTS);
+                plans.add(plans(generator.load().withStaticFacts(), Math.min(maxPlans, 5)));
+                same &= report(scenario + "/" + scale, names, plans, new StringBuilder());
+            }
+        }
+
+        if (!same)
+            System.exit(1);
+    }
+
+    /**
+     * @return the plans found, each with its cost, up to a given number.
+     */
+    private static List<String> plans(BenchmarkProblem problem, int maxPlans) {
+        final List<String> retVal = new ArrayList<>();
+        PlanSink sink = plan -> {
+            retVal.add(plan.toString(problem.domain) + " " + plan.getCost());
+            return retVal.size() < maxPlans;
+        };
+        JSHOP2 planner = new JSHOP2(problem.tasks, RECURSION_LIMIT, new DoubleCost(0), problem.domain, problem.state, sink);
+        while (planner.run()) ;
+        return retVal;
+    }
+
+    /**
+     * @return the name of a backend, marked if the domain is restricted.
+     */
+    private static String name(Backend backend, boolean slice) {
+        return slice ? backend + "/slice" : backend.toString();
+    }
+
+    /**
+     * To print whether each backend found the same plans as the first one.
+     *
+     * @param names the names of the backends, in the order of their plans.
+     * @return whether they all did.
+     */
+    private static boolean report(String name, List<String> names, List<List<String>> plans, StringBuilder times) {
+        boolean retVal = true;
+        StringBuilder s = new StringBuilder(name).append(": ").append(plans.get(0).size()).append(" plans");
+        for (int i = 1; i < plans.size(); i++) {
+            if (!plans.get(i).equals(plans.get(0))) {
+                s.append(", ").append(names.get(i)).append(" differs");
+                retVal = false;
+            }
+        }
+        System.out.println(s.append(retVal ? ", same" : "").append(times));
+        return retVal;
+    }
+}
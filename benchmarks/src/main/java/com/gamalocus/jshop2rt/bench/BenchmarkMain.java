@@ -0,0 +1,45 @@
+package com.gamalocus.jshop2rt.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Runs the benchmarks like the main class of JMH does, taking the same
+ * command line options, but always with the GC profiler, so that the
+ * allocation per operation (<code>gc.alloc.rate.norm</code>) is reported next
+ * to the throughput and the average time.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()) {
+            //-- Nothing to run; let JMH print what was asked for.
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        if (!hasGCProfiler(cmd))
+            options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * @return whether the GC profiler was asked for on the command line.
+     */
+    private static boolean hasGCProfiler(Options cmd) {
+        for (ProfilerConfig profiler : cmd.getProfilers()) {
+            if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,201 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.Domain;
+import com.gamalocus.jshop2rt.Model;
+import com.gamalocus.jshop2rt.Predicate;
+import com.gamalocus.jshop2rt.Reachability;
+import com.gamalocus.jshop2rt.State;
+import com.gamalocus.jshop2rt.StaticFacts;
+import com.gamalocus.jshop2rt.TaskList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A domain, built by one of the {@link Backend}s, with a problem to plan for.
+ * <p>
+ * The planner puts the state and the task list back the way they were once it
+ * is done, whether it ran out of plans or was stopped by its sink, so they can
+ * be planned for over and over without being copied.
+ */
+public final class BenchmarkProblem {
+    public final Domain domain;
+    public final State state;
+    public final TaskList tasks;
+    /**
+     * The number of atoms in the initial state.
+     */
+    public final int atoms;
+    /**
+     * The atoms the initial state was made of.
+     */
+    private final List<Predicate> facts;
+
+    private BenchmarkProblem(Domain domainIn, State stateIn, TaskList tasksIn, int atomsIn, List<Predicate> factsIn) {
+        domain = domainIn;
+        state = stateIn;
+        tasks = tasksIn;
+        atoms = atomsIn;
+        facts = factsIn;
+    }
+
+    /**
+     * @return the same problem, with a new initial state in which the atoms
+     * whose heads are static are kept in {@link StaticFacts}.
+     */
+    public BenchmarkProblem withStaticFacts() {
+        final StaticFacts statics = new StaticFacts(domain, facts);
+        State s = new State(domain, statics);
+        int n = statics.size();
+        for (Predicate p : facts) {
+            if (!statics.isStatic(p.head) && s.add(p))
+                n++;
+        }
+        return new BenchmarkProblem(domain, s, tasks, n, facts);
+    }
+
+    /**
+     * To parse and compile a domain, and parse the first problem in it.
+     *
+     * @param domainSource  the <code>defdomain</code>.
+     * @param problemSource the <code>defproblem</code>.
+     * @return the compiled domain, with the initial state and the goal tasks
+     * of the problem.
+     * @throws Exception if the domain or the problem cannot be parsed, or the
+     *                   domain cannot be compiled.
+     */
+    public static BenchmarkProblem load(String domainSource, String problemSource) throws Exception {
+        return load(domainSource, problemSource, Backend.SOURCE);
+    }
+
+    /**
+     * To parse a domain, and build it with a given backend, and parse the
+     * first problem in it.
+     *
+     * @param domainSource  the <code>defdomain</code>.
+     * @param problemSource the <code>defproblem</code>.
+     * @param backend       how to build the domain.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the domain or the problem cannot be parsed, or the
+     *                   domain cannot be compiled.
+     */
+    public static BenchmarkProblem load(String domainSource, String problemSource, Backend backend)
+            throws Exception {
+        return load(domainSource, problemSource, backend, false);
+    }
+
+    /**
+     * To parse a domain, and build it with a given backend, and parse the
+     * first problem in it, possibly restricting the domain to what the problem
+     * can reach, see {@link Reachability}.
+     *
+     * @param domainSource  the <code>defdomain</code>.
+     * @param problemSource the <code>defproblem</code>.
+     * @param backend       how to build the domain.
+     * @param slice         whether to build only the part of the domain
+     *                      reachable from the tasks of the problem, and leave
+     *                      the atoms that cannot be read out of the state.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the domain or the problem cannot be parsed, or the
+     *                   domain cannot be compiled.
+     */
+    public static BenchmarkProblem load(String domainSource, String problemSource, Backend backend, boolean slice)
+            throws Exception {
+        if (slice)
+            return loadSlice(domainSource, problemSource, backend);
+
+        final ProblemModel model = new ProblemModel(domainSource + "\n" + problemSource);
+
+        //-- The output of the model is replaced by the code of the problem, so
+        //-- compile the domain first.
+        model.domain();
+        final Domain domain = backend.build(model);
+        model.problem();
+
+        //-- The constant symbols of the problem.
+        for (String name : model.constants)
+            domain.addConstant(name);
+
+        State state = new State(domain);
+        int atoms = 0;
+        for (Predicate p : model.states.getFirst()) {
+            if (state.add(p))
+                atoms++;
+        }
+
+        return new BenchmarkProblem(domain, state, model.taskLists.getFirst(), atoms, model.states.getFirst());
+    }
+
+    /**
+     * To parse a domain and its problem, and build with a given backend only
+     * the part of the domain reachable from the tasks of the problem.
+     */
+    private static BenchmarkProblem loadSlice(String domainSource, String problemSource, Backend backend)
+            throws Exception {
+        final ProblemModel model = new ProblemModel(domainSource + "\n" + problemSource);
+        model.domain();
+        model.problem();
+
+        //-- The restricted model has its own output, and all the constant
+        //-- symbols, those of the problem included.
+        final TaskList tasks = model.taskLists.getFirst();
+        final Reachability.Closure closure = new Reachability(model).closure(tasks);
+        final Domain domain = backend.build(model.restrict(closure));
+
+        State state = new State(domain);
+        int atoms = 0;
+        List<Predicate> facts = new ArrayList<>();
+        for (Predicate p : model.states.getFirst()) {
+            if (closure.canRead(p)) {
+                facts.add(p);
+                if (state.add(p))
+                    atoms++;
+            }
+        }
+
+        return new BenchmarkProblem(domain, state, tasks, atoms, facts);
+    }
+
+    /**
+     * To read a file of one of the examples, which are packaged as resources.
+     *
+     * @param directory the directory of the example under <code>examples/</code>.
+     * @param file      the name of the file.
+     * @return the contents of the file.
+     * @throws IOException if there is no such file.
+     */
+    static String example(String directory, String file) throws IOException {
+        final String path = String.format("/examples/%s/%s", directory, file);
+        try (InputStream in = BenchmarkProblem.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException(String.format("Example %s not found.", path));
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A model that keeps the problems it parses rather than generating code
+     * for them.
+     */
+    private static final class ProblemModel extends Model {
+        private LinkedList<List<Predicate>> states;
+        private LinkedList<TaskList> taskLists;
+
+        ProblemModel(String input) {
+            super(input, DomainCompiler.PACKAGE);
+        }
+
+        @Override
+        public void commandToCode(LinkedList<List<Predicate>> statesIn, LinkedList<TaskList> taskListsIn) {
+            states = statesIn;
+            taskLists = taskListsIn;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gamalocus.jshop2rt.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes problems for the <code>blocks</code> domain: a number of blocks
+ * stacked into random towers, to be restacked into other random towers.
+ */
+public class BlocksGenerator extends ProblemGenerator {
+    private final int blocks;
+
+    /**
+     * @param blocksIn the number of blocks.
+     * @param seed     the seed of the random problems.
+     */
+    public BlocksGenerator(int blocksIn, long seed) {
+        super("blocks", seed);
+        if (blocksIn < 1) {
+            throw new IllegalArgumentException(String.format("Number of blocks must be positive, was %d.", blocksIn));
+        }
+        blocks = blocksIn;
+    }
+
+    @Override
+    protected void generate(Random random, List<String> atoms, List<String> tasks) {
+        for (int i = 1; i <= blocks; i++)
+            atoms.add(atom("block", "b" + i));
+        atoms.addAll(towers(random));
+
+        tasks.add("(achieve-goals (" + String.join(" ", towers(random)) + "))");
+    }
+
+    /**
+     * @return the atoms of all the blocks stacked into random towers.
+     */
+    private List<String> towers(Random random) {
+        List<String> order = new ArrayList<>();
+        for (int i = 1; i <= blocks; i++)
+            order.add("b" + i);
+        Collections.shuffle(order, random);
+
+        //-- Each block starts a new tower with a chance of one in three, so that
+        //-- the towers are three blocks high on average.
+        List<String> retVal = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            final String block = order.get(i);
+            if (i == 0 || random.nextInt(3) == 0) {
+                if (i != 0)
+                    retVal.add(atom("clear", order.get(i - 1)));
+                retVal.add(atom("on-table", block));
+            } else {
+                retVal.add(atom("on", block, order.get(i - 1)));
+            }
+        }
+        retVal.add(atom("clear", order.get(blocks - 1)));
+        return retVal;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("blocks=%d %s", blocks, super.toString());
+    }
+}
@@ -0,0 +1,34 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.Domain;
+import com.gamalocus.jshop2rt.Model;
+import org.codehaus.janino.SimpleCompiler;
+
+/**
+ * Compiles the code a {@link Model} generated for a domain in memory.
+ */
+final class DomainCompiler {
+    /**
+     * The package the domains are compiled into.
+     */
+    static final String PACKAGE = "bench.domains";
+
+    private DomainCompiler() {
+    }
+
+    /**
+     * To compile a domain.
+     *
+     * @param model the model, after {@link Model#domain()}, and before
+     *              anything else was parsed into it.
+     * @return the domain, with the constant symbols of the model added to it.
+     * @throws Exception if the domain cannot be compiled.
+     */
+    static Domain compile(Model model) throws Exception {
+        SimpleCompiler compiler = new SimpleCompiler();
+        compiler.setParentClassLoader(DomainCompiler.class.getClassLoader());
+        compiler.cook(model.getOutput());
+        final Class<?> c = compiler.getClassLoader().loadClass(PACKAGE + "." + model.getName());
+        return (Domain) c.getConstructor(Model.class).newInstance(model);
+    }
+}
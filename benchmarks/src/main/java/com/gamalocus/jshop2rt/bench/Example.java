@@ -0,0 +1,78 @@
+package com.gamalocus.jshop2rt.bench;
+
+/**
+ * The example domains and problems under <code>examples/</code> that can be
+ * planned for without any external code, packaged as resources of the
+ * benchmark jar.
+ * <p>
+ * Left out are <code>freecell</code> and <code>test</code>, which call Java
+ * classes of their own, and <code>rover</code>, whose problem spells the
+ * names of the tasks and atoms in upper case where the domain spells them in
+ * lower case, which the planner cannot plan for at all. The same goes for
+ * some of the atoms of <code>logistics</code>, so that it has no plan, and is
+ * only useful as a search that fails. {@link RoverGenerator} and
+ * {@link LogisticsGenerator} make problems for these domains that do have
+ * plans.
+ */
+public enum Example {
+    BASIC("basic", "basic", "problem"),
+    BLOCKS("blocks", "blocks", "problem"),
+    BLOCKS_SMALL("blocks", "blocks", "smallproblem"),
+    FORALL("forall", "forall", "problem"),
+    LOGISTICS("logistics", "logistics", "problem"),
+    MADRTS("madrts", "madrts", "problem"),
+    OLDBLOCKS("oldblocks", "oldblocks", "problem"),
+    PROPAGATION("propagation", "propagation", "problem");
+
+    private final String directory;
+    private final String domainFile;
+    private final String problemFile;
+
+    Example(String directoryIn, String domainFileIn, String problemFileIn) {
+        directory = directoryIn;
+        domainFile = domainFileIn;
+        problemFile = problemFileIn;
+    }
+
+    /**
+     * To parse and compile the domain of this example, and parse its first
+     * problem.
+     *
+     * @return the compiled domain, with the initial state and the goal tasks
+     * of the problem.
+     * @throws Exception if the example cannot be read, parsed or compiled.
+     */
+    public BenchmarkProblem load() throws Exception {
+        return load(Backend.SOURCE);
+    }
+
+    /**
+     * To parse the domain of this example, and build it with a given backend,
+     * and parse its first problem.
+     *
+     * @param backend how to build the domain.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the example cannot be read, parsed or compiled.
+     */
+    public BenchmarkProblem load(Backend backend) throws Exception {
+        return load(backend, false);
+    }
+
+    /**
+     * To parse the domain of this example, and build it with a given backend,
+     * possibly restricted to what its first problem can reach, and parse the
+     * problem.
+     *
+     * @param backend how to build the domain.
+     * @param slice   whether to build only the part of the domain reachable
+     *                from the tasks of the problem.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the example cannot be read, parsed or compiled.
+     */
+    public BenchmarkProblem load(Backend backend, boolean slice) throws Exception {
+        return BenchmarkProblem.load(BenchmarkProblem.example(directory, domainFile),
+                BenchmarkProblem.example(directory, problemFile), backend, slice);
+    }
+}
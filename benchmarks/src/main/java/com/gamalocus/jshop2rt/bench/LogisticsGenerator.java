@@ -0,0 +1,70 @@
+package com.gamalocus.jshop2rt.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes problems for the <code>logistics</code> domain: packages at random
+ * locations of a number of cities, to be delivered to other random locations.
+ * Each city has {@link #LOCATIONS} locations, the first of which is its
+ * airport, and a truck, and there is an airplane for every
+ * {@link #CITIES_PER_AIRPLANE} cities.
+ */
+public class LogisticsGenerator extends ProblemGenerator {
+    static final int LOCATIONS = 3;
+    static final int CITIES_PER_AIRPLANE = 4;
+
+    private final int packages;
+    private final int cities;
+
+    /**
+     * @param packagesIn the number of packages.
+     * @param citiesIn   the number of cities.
+     * @param seed       the seed of the random problems.
+     */
+    public LogisticsGenerator(int packagesIn, int citiesIn, long seed) {
+        super("logistics", seed);
+        if (packagesIn < 1 || citiesIn < 1) {
+            throw new IllegalArgumentException(String.format("Number of packages and cities must be positive, was %d and %d.",
+                    packagesIn, citiesIn));
+        }
+        packages = packagesIn;
+        cities = citiesIn;
+    }
+
+    @Override
+    protected void generate(Random random, List<String> atoms, List<String> tasks) {
+        List<String> locations = new ArrayList<>();
+        for (int c = 1; c <= cities; c++) {
+            final String city = "city" + c;
+            atoms.add(atom("airport", location(c, 1)));
+            atoms.add(atom("truck", "truck" + c, city));
+            atoms.add(atom("truck-at", "truck" + c, location(c, 1 + random.nextInt(LOCATIONS))));
+            for (int l = 1; l <= LOCATIONS; l++) {
+                atoms.add(atom("in-city", location(c, l), city));
+                locations.add(location(c, l));
+            }
+        }
+
+        final int airplanes = (cities + CITIES_PER_AIRPLANE - 1) / CITIES_PER_AIRPLANE;
+        for (int a = 1; a <= airplanes; a++)
+            atoms.add(atom("airplane-at", "plane" + a, location(1 + random.nextInt(cities), 1)));
+
+        StringBuilder goals = new StringBuilder("(:unordered");
+        for (int p = 1; p <= packages; p++) {
+            atoms.add(atom("obj-at", "package" + p, locations.get(random.nextInt(locations.size()))));
+            goals.append(' ').append(atom("obj-at", "package" + p, locations.get(random.nextInt(locations.size()))));
+        }
+        tasks.add(goals.append(')').toString());
+    }
+
+    private static String location(int city, int location) {
+        return String.format("loc%d-%d", city, location);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("packages=%d cities=%d %s", packages, cities, super.toString());
+    }
+}
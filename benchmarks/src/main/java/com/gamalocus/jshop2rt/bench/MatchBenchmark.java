@@ -0,0 +1,126 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.Precondition;
+import com.gamalocus.jshop2rt.Predicate;
+import com.gamalocus.jshop2rt.State;
+import com.gamalocus.jshop2rt.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.gamalocus.jshop2rt.bench.MicroDomain.atom;
+import static com.gamalocus.jshop2rt.bench.MicroDomain.number;
+import static com.gamalocus.jshop2rt.bench.MicroDomain.variable;
+
+/**
+ * Finding the bindings of atoms, with {@link State#iterator(Predicate)}, and
+ * of the conjunction <code>((link ?x ?y) (link ?y ?z))</code>, the generated
+ * precondition of a method, with ever more atoms to match them against. Each
+ * operation finds all the bindings, except {@link #conjunctionUnboundFirst()},
+ * since a conjunction of two unbound atoms has quadratically many candidates.
+ * With <code>indexed</code>, the domain declares the <code>link</code> atoms
+ * indexed by their first argument.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class MatchBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private MicroDomain micro;
+    private State state;
+    /**
+     * <code>(link k k+1)</code>, with <code>k</code> in the middle of the chain.
+     */
+    private Predicate ground;
+    /**
+     * <code>(link k ?0)</code>.
+     */
+    private Predicate partial;
+    /**
+     * <code>(link ?0 ?1)</code>.
+     */
+    private Predicate unbound;
+    /**
+     * The bindings of <code>(chain k k+2)</code>, <code>(chain k ?1)</code>
+     * and <code>(chain ?0 ?1)</code> to the head of the method.
+     */
+    private Term[] chainGround, chainPartial, chainUnbound;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        micro = new MicroDomain(indexed);
+        state = micro.state(size);
+
+        final int k = size / 2;
+        ground = atom(micro.link, number(k), number(k + 1));
+        partial = atom(micro.link, number(k), variable(0));
+        unbound = atom(micro.link, variable(0), variable(1));
+
+        final int chain = micro.chain.head.head;
+        chainGround = micro.chain.unify(atom(chain, number(k), number(k + 2)));
+        chainPartial = micro.chain.unify(atom(chain, number(k), variable(1)));
+        chainUnbound = micro.chain.unify(atom(chain, variable(0), variable(1)));
+    }
+
+    @Benchmark
+    public int atomGround() {
+        return count(state.iterator(ground));
+    }
+
+    @Benchmark
+    public int atomPartial() {
+        return count(state.iterator(partial));
+    }
+
+    @Benchmark
+    public int atomUnbound() {
+        return count(state.iterator(unbound));
+    }
+
+    @Benchmark
+    public int conjunctionGround() {
+        return count(micro.chain.getIterator(state, chainGround.clone(), 0));
+    }
+
+    @Benchmark
+    public int conjunctionPartial() {
+        return count(micro.chain.getIterator(state, chainPartial.clone(), 0));
+    }
+
+    @Benchmark
+    public Term[] conjunctionUnboundFirst() {
+        return micro.chain.getIterator(state, chainUnbound.clone(), 0).nextBinding(state);
+    }
+
+    private static int count(State.MyIterator e) {
+        int retVal = 0;
+        while (e.nextBinding() != null)
+            retVal++;
+        return retVal;
+    }
+
+    private int count(Precondition p) {
+        int retVal = 0;
+        while (p.nextBinding(state) != null)
+            retVal++;
+        return retVal;
+    }
+}
@@ -0,0 +1,138 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.Domain;
+import com.gamalocus.jshop2rt.Method;
+import com.gamalocus.jshop2rt.Model;
+import com.gamalocus.jshop2rt.Operator;
+import com.gamalocus.jshop2rt.Predicate;
+import com.gamalocus.jshop2rt.State;
+import com.gamalocus.jshop2rt.StaticFacts;
+import com.gamalocus.jshop2rt.Term;
+import com.gamalocus.jshop2rt.TermConstant;
+import com.gamalocus.jshop2rt.TermList;
+import com.gamalocus.jshop2rt.TermNumber;
+import com.gamalocus.jshop2rt.TermVariable;
+
+/**
+ * A small generated domain, and states of any size for it, to benchmark the
+ * primitives of the planner with.
+ * <p>
+ * The states are a chain of <code>size</code> numbers: the atoms
+ * <code>(link i i+1)</code> and <code>(at i)</code> for every
+ * <code>i</code> from 0 to <code>size - 1</code>, all under the same two
+ * heads, so that the lists of atoms the planner scans are as long as the
+ * state is large. The <code>link</code> atoms are static, and the
+ * <code>at</code> atoms are fluent. The domain can declare the
+ * <code>link</code> atoms indexed by their first argument, in which case the
+ * planner only scans those with the right one whenever it is bound.
+ */
+final class MicroDomain {
+    private static final String SOURCE = String.join("\n",
+            "(defdomain micro (",
+            "%s",
+            "  (:operator (!move ?x ?y)",
+            "    ((at ?x))",
+            "    ((at ?x))",
+            "    ((at ?y)))",
+            "  (:method (chain ?x ?z)",
+            "    ((link ?x ?y) (link ?y ?z))",
+            "    ((!move ?x ?y) (!move ?y ?z)))",
+            "))");
+
+    final Domain domain;
+    /**
+     * The head of the <code>link</code> atoms.
+     */
+    final int link;
+    /**
+     * The head of the <code>at</code> atoms.
+     */
+    final int at;
+    /**
+     * The operator for <code>!move</code>.
+     */
+    final Operator move;
+    /**
+     * The method for <code>chain</code>, whose precondition is a conjunction.
+     */
+    final Method chain;
+
+    /**
+     * The pragma that indexes the <code>link</code> atoms.
+     */
+    private static final String INDEX = "  (:index (link ?x ?y) 0)";
+
+    MicroDomain() throws Exception {
+        this(false);
+    }
+
+    /**
+     * @param indexed whether the <code>link</code> atoms are indexed by their
+     *                first argument.
+     */
+    MicroDomain(boolean indexed) throws Exception {
+        Model model = new Model(String.format(SOURCE, indexed ? INDEX : ""), DomainCompiler.PACKAGE);
+        model.domain();
+        domain = DomainCompiler.compile(model);
+        link = ((TermConstant) domain.getTermConstant("link")).getIndex();
+        at = ((TermConstant) domain.getTermConstant("at")).getIndex();
+        move = domain.getOperators(domain.getPrimitiveTaskIndex("!move"))[0];
+        chain = domain.getMethods("chain")[0];
+    }
+
+    /**
+     * @return a state with the chain of the given size.
+     */
+    State state(int size) {
+        State retVal = new State(domain);
+        for (int i = 0; i < size; i++) {
+            retVal.add(atom(link, number(i), number(i + 1)));
+            retVal.add(atom(at, number(i)));
+        }
+        return retVal;
+    }
+
+    /**
+     * @return a state with the chain of the given size, whose
+     * <code>link</code> atoms are kept in {@link StaticFacts}.
+     */
+    State staticState(int size) {
+        java.util.List<Predicate> links = new java.util.ArrayList<>();
+        for (int i = 0; i < size; i++)
+            links.add(atom(link, number(i), number(i + 1)));
+
+        State retVal = new State(domain, new StaticFacts(domain, links));
+        for (int i = 0; i < size; i++)
+            retVal.add(atom(at, number(i)));
+        return retVal;
+    }
+
+    /**
+     * @return the atom, or task atom, with the given head and arguments. The
+     * number of variables is one more than the largest index of the
+     * variables among them.
+     */
+    static Predicate atom(int head, Term... args) {
+        int varCount = 0;
+        for (Term arg : args) {
+            if (arg instanceof TermVariable)
+                varCount = Math.max(varCount, ((TermVariable) arg).getIndex() + 1);
+        }
+        return new Predicate(head, varCount, list(args));
+    }
+
+    static TermList list(Term... terms) {
+        TermList retVal = TermList.NIL;
+        for (int i = terms.length - 1; i >= 0; i--)
+            retVal = new TermList(terms[i], retVal);
+        return retVal;
+    }
+
+    static TermNumber number(int i) {
+        return new TermNumber(i);
+    }
+
+    static TermVariable variable(int index) {
+        return new TermVariable(index);
+    }
+}
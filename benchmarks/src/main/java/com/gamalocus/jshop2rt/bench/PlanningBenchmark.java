@@ -0,0 +1,85 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.CountingPlanSink;
+import com.gamalocus.jshop2rt.DoubleCost;
+import com.gamalocus.jshop2rt.FirstPlanSink;
+import com.gamalocus.jshop2rt.JSHOP2;
+import com.gamalocus.jshop2rt.Plan;
+import com.gamalocus.jshop2rt.PlanSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans for each of the bundled examples from start to finish, the domain
+ * having been built by each {@link Backend} once per trial.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PlanningBenchmark {
+    /**
+     * The recursion limit of the planners.
+     */
+    private static final int RECURSION_LIMIT = 100000;
+
+    @Param
+    public Example example;
+
+    /**
+     * The number of plans after which {@link #allPlans()} stops. Only the
+     * large blocks problem has more plans than this, far too many to find them
+     * all.
+     */
+    @Param("100")
+    public long maxPlans;
+
+    @Param
+    public Backend backend;
+
+    private BenchmarkProblem problem;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        problem = example.load(backend);
+    }
+
+    /**
+     * @return the first plan, or <code>null</code> if there is none.
+     */
+    @Benchmark
+    public Plan firstPlan() {
+        FirstPlanSink sink = new FirstPlanSink();
+        plan(sink);
+        return sink.getPlan();
+    }
+
+    /**
+     * @return the number of plans found.
+     */
+    @Benchmark
+    public long allPlans() {
+        CountingPlanSink sink = new CountingPlanSink(maxPlans);
+        plan(sink);
+        return sink.getCount();
+    }
+
+    private void plan(PlanSink sink) {
+        JSHOP2 planner = new JSHOP2(problem.tasks, RECURSION_LIMIT, new DoubleCost(0), problem.domain, problem.state, sink);
+        while (planner.run()) ;
+    }
+}
@@ -0,0 +1,121 @@
+package com.gamalocus.jshop2rt.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes problems of a given size for one of the example domains, to see how
+ * the planner scales with it.
+ * <p>
+ * The problems are random, but the same seed always makes the same problem.
+ * They can be had as <code>defproblem</code> text, e.g., to plan for them
+ * outside of the benchmarks, or parsed, with the domain compiled, as the
+ * {@link BenchmarkProblem} the planner takes.
+ */
+public abstract class ProblemGenerator {
+    /**
+     * The directory of the example the domain is in, which is also the name
+     * of the domain and of its file.
+     */
+    private final String domain;
+    private final long seed;
+
+    /**
+     * To initialize this generator.
+     *
+     * @param domainIn the directory of the example the domain is in.
+     * @param seedIn   the seed of the random problems.
+     */
+    protected ProblemGenerator(String domainIn, long seedIn) {
+        domain = domainIn;
+        seed = seedIn;
+    }
+
+    /**
+     * To make the atoms of the initial state and the goal tasks of the
+     * problem.
+     *
+     * @param random the source of randomness, the only one to use.
+     * @param atoms  where to add the atoms to, one per element.
+     * @param tasks  where to add the tasks to, one per element.
+     */
+    protected abstract void generate(Random random, List<String> atoms, List<String> tasks);
+
+    /**
+     * @param name the name of the problem.
+     * @return the problem as a <code>defproblem</code>.
+     */
+    public String toDefproblem(String name) {
+        List<String> atoms = new ArrayList<>();
+        List<String> tasks = new ArrayList<>();
+        generate(new Random(seed), atoms, tasks);
+
+        StringBuilder s = new StringBuilder();
+        s.append("(defproblem ").append(name).append(' ').append(domain).append('\n');
+        s.append(" (\n");
+        for (String atom : atoms)
+            s.append("  ").append(atom).append('\n');
+        s.append(" )\n");
+        s.append(" (\n");
+        for (String task : tasks)
+            s.append("  ").append(task).append('\n');
+        s.append(" )\n");
+        s.append(")\n");
+        return s.toString();
+    }
+
+    /**
+     * To compile the domain, and parse the problem.
+     *
+     * @return the compiled domain, with the initial state and the goal tasks
+     * of the problem.
+     * @throws Exception if the domain cannot be read or compiled.
+     */
+    public BenchmarkProblem load() throws Exception {
+        return load(Backend.SOURCE);
+    }
+
+    /**
+     * To build the domain with a given backend, and parse the problem.
+     *
+     * @param backend how to build the domain.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the domain cannot be read or compiled.
+     */
+    public BenchmarkProblem load(Backend backend) throws Exception {
+        return load(backend, false);
+    }
+
+    /**
+     * To build the domain with a given backend, possibly restricted to what
+     * the problem can reach, and parse the problem.
+     *
+     * @param backend how to build the domain.
+     * @param slice   whether to build only the part of the domain reachable
+     *                from the tasks of the problem.
+     * @return the domain, with the initial state and the goal tasks of the
+     * problem.
+     * @throws Exception if the domain cannot be read or compiled.
+     */
+    public BenchmarkProblem load(Backend backend, boolean slice) throws Exception {
+        return BenchmarkProblem.load(BenchmarkProblem.example(domain, domain), toDefproblem("generated"), backend,
+                slice);
+    }
+
+    /**
+     * @return the atom or task with the given name and arguments.
+     */
+    protected static String atom(String name, Object... args) {
+        StringBuilder s = new StringBuilder("(").append(name);
+        for (Object arg : args)
+            s.append(' ').append(arg);
+        return s.append(')').toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(seed=%d)", getClass().getSimpleName(), seed);
+    }
+}
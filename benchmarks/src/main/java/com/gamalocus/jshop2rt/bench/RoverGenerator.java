@@ -0,0 +1,159 @@
+package com.gamalocus.jshop2rt.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Makes problems for the <code>rover</code> domain: rovers on a random
+ * connected map of waypoints, to collect soil and rock samples at about a
+ * third of the waypoints each, and to take images of objectives, one for
+ * every four waypoints, and send it all to the lander.
+ * <p>
+ * Every rover can drive along every path between two waypoints, and see
+ * along it. Each kind of equipment is on at least one rover, and on any other
+ * with a chance of one in two, and every rover equipped for imaging has a
+ * camera of its own.
+ */
+public class RoverGenerator extends ProblemGenerator {
+    private static final String[] MODES = {"colour", "high_res", "low_res"};
+
+    private final int rovers;
+    private final int waypoints;
+
+    /**
+     * @param roversIn    the number of rovers.
+     * @param waypointsIn the number of waypoints, at least two.
+     * @param seed        the seed of the random problems.
+     */
+    public RoverGenerator(int roversIn, int waypointsIn, long seed) {
+        super("rover", seed);
+        if (roversIn < 1 || waypointsIn < 2) {
+            throw new IllegalArgumentException(String.format("Need at least one rover and two waypoints, was %d and %d.",
+                    roversIn, waypointsIn));
+        }
+        rovers = roversIn;
+        waypoints = waypointsIn;
+    }
+
+    @Override
+    protected void generate(Random random, List<String> atoms, List<String> tasks) {
+        for (String mode : MODES)
+            atoms.add(atom("mode", mode));
+        for (int w = 0; w < waypoints; w++)
+            atoms.add(atom("waypoint", waypoint(w)));
+
+        //-- A random tree, so that every waypoint can be reached, and up to
+        //-- half as many paths again.
+        List<int[]> paths = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int w = 1; w < waypoints; w++) {
+            final int from = random.nextInt(w);
+            paths.add(new int[]{from, w});
+            seen.add(from * waypoints + w);
+        }
+        for (int i = 0; i < waypoints / 2; i++) {
+            final int a = random.nextInt(waypoints);
+            final int b = random.nextInt(waypoints);
+            if (a != b && seen.add(Math.min(a, b) * waypoints + Math.max(a, b)))
+                paths.add(new int[]{a, b});
+        }
+        for (int[] path : paths) {
+            atoms.add(atom("visible", waypoint(path[0]), waypoint(path[1])));
+            atoms.add(atom("visible", waypoint(path[1]), waypoint(path[0])));
+        }
+
+        atoms.add(atom("lander", "general"));
+        atoms.add(atom("at_lander", "general", waypoint(random.nextInt(waypoints))));
+        atoms.add(atom("channel_free", "general"));
+
+        final int objectives = Math.max(1, waypoints / 4);
+        for (int o = 0; o < objectives; o++) {
+            atoms.add(atom("objective", "objective" + o));
+            final int visibleFrom = 1 + random.nextInt(3);
+            for (int i = 0; i < visibleFrom; i++)
+                atoms.add(atom("visible_from", "objective" + o, waypoint(random.nextInt(waypoints))));
+        }
+
+        //-- The modes supported by any camera.
+        List<String> modes = new ArrayList<>();
+        for (int r = 0; r < rovers; r++) {
+            final String rover = "rover" + r;
+            final String store = rover + "store";
+            atoms.add(atom("rover", rover));
+            atoms.add(atom("available", rover));
+            atoms.add(atom("at", rover, waypoint(random.nextInt(waypoints))));
+            atoms.add(atom("store", store));
+            atoms.add(atom("store_of", store, rover));
+            atoms.add(atom("empty", store));
+            for (int[] path : paths) {
+                atoms.add(atom("can_traverse", rover, waypoint(path[0]), waypoint(path[1])));
+                atoms.add(atom("can_traverse", rover, waypoint(path[1]), waypoint(path[0])));
+            }
+
+            if (equipped(random, r, 0))
+                atoms.add(atom("equipped_for_soil_analysis", rover));
+            if (equipped(random, r, 1))
+                atoms.add(atom("equipped_for_rock_analysis", rover));
+            if (equipped(random, r, 2)) {
+                final String camera = "camera" + r;
+                atoms.add(atom("equipped_for_imaging", rover));
+                atoms.add(atom("camera", camera));
+                atoms.add(atom("on_board", camera, rover));
+                atoms.add(atom("calibration_target", camera, "objective" + random.nextInt(objectives)));
+                final int first = random.nextInt(MODES.length);
+                for (int m = 0; m < MODES.length; m++) {
+                    if (m == first || random.nextBoolean()) {
+                        atoms.add(atom("supports", camera, MODES[m]));
+                        if (!modes.contains(MODES[m]))
+                            modes.add(MODES[m]);
+                    }
+                }
+            }
+        }
+
+        for (int w : sample(random, waypoints / 3)) {
+            atoms.add(atom("at_soil_sample", waypoint(w)));
+            tasks.add(atom("get_soil_data", waypoint(w)));
+        }
+        for (int w : sample(random, waypoints / 3)) {
+            atoms.add(atom("at_rock_sample", waypoint(w)));
+            tasks.add(atom("get_rock_data", waypoint(w)));
+        }
+        for (int o = 0; o < objectives; o++)
+            tasks.add(atom("get_image_data", "objective" + o, modes.get(random.nextInt(modes.size()))));
+    }
+
+    /**
+     * @return whether the given rover has the given kind of equipment.
+     */
+    private boolean equipped(Random random, int rover, int kind) {
+        //-- The chance is taken either way, so that the problem does not
+        //-- change more than it has to when the number of rovers does.
+        final boolean chance = random.nextBoolean();
+        return rover == kind % rovers || chance;
+    }
+
+    /**
+     * @return the given number of distinct waypoints, at least one.
+     */
+    private List<Integer> sample(Random random, int count) {
+        List<Integer> retVal = new ArrayList<>();
+        for (int w = 0; w < waypoints; w++)
+            retVal.add(w);
+        Collections.shuffle(retVal, random);
+        return retVal.subList(0, Math.max(1, count));
+    }
+
+    private static String waypoint(int w) {
+        return "waypoint" + w;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rovers=%d waypoints=%d %s", rovers, waypoints, super.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.DoubleCost;
+import com.gamalocus.jshop2rt.FirstPlanSink;
+import com.gamalocus.jshop2rt.JSHOP2;
+import com.gamalocus.jshop2rt.Plan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans for the generated problems of each {@link Scenario} to the first plan,
+ * at doubling scales, so that the time and, with the GC profiler, the
+ * allocation per plan can be charted against the scale. For a quick sweep
+ * that stops where the planner gets too slow, see {@link ScalingSweep}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+    @Param
+    public Scenario scenario;
+
+    @Param({"1", "2", "4", "8"})
+    public int scale;
+
+    @Param("1")
+    public long seed;
+
+    private BenchmarkProblem problem;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        problem = scenario.generator(scale, seed).load();
+    }
+
+    @Benchmark
+    public Plan firstPlan() {
+        FirstPlanSink sink = new FirstPlanSink();
+        JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain, problem.state, sink);
+        while (planner.run()) ;
+        return sink.getPlan();
+    }
+}
@@ -0,0 +1,122 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.DoubleCost;
+import com.gamalocus.jshop2rt.FirstPlanSink;
+import com.gamalocus.jshop2rt.JSHOP2;
+import com.gamalocus.jshop2rt.Plan;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plans for the generated problems of each {@link Scenario} at doubling
+ * scales, until a plan takes longer than the time budget, and prints the time
+ * and the allocation per plan as CSV.
+ * <p>
+ * The last two columns are the growth exponents of the time and the
+ * allocation against the number of atoms in the state, since the previous
+ * scale: 1 is linear, 2 quadratic. Growth that is worse than
+ * {@value #SUPERLINEAR} is marked with a <code>*</code>.
+ * <p>
+ * Usage: <code>ScalingSweep [budget-ms [seed [scenario...]]]</code>
+ */
+public class ScalingSweep {
+    private static final double SUPERLINEAR = 1.2;
+    private static final int REPEAT = 5;
+
+    public static void main(String[] args) throws Exception {
+        final long budget = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        List<Scenario> scenarios = Arrays.asList(Scenario.values());
+        if (args.length > 2) {
+            Scenario[] chosen = new Scenario[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                chosen[i - 2] = Scenario.valueOf(args[i].toUpperCase());
+            scenarios = Arrays.asList(chosen);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.println("scenario,scale,problem,atoms,steps,ms,allocated_mb,time_exponent,allocation_exponent");
+        for (Scenario scenario : scenarios) {
+            //-- Warm up on the smallest problem, so that the first point is
+            //-- not mostly the JIT compiler.
+            final BenchmarkProblem smallest = scenario.generator(1, seed).load();
+            for (int i = 0; i < 10 * REPEAT; i++)
+                measure(threads, smallest);
+
+            Point previous = null;
+            for (int scale = 1; ; scale *= 2) {
+                final ProblemGenerator generator = scenario.generator(scale, seed);
+                final BenchmarkProblem problem = generator.load();
+
+                //-- Once to warm up, and to see whether it is worth repeating.
+                Point point = measure(threads, problem);
+                if (point.nanos <= budget * 1000000L / REPEAT) {
+                    long[] nanos = new long[REPEAT];
+                    long[] bytes = new long[REPEAT];
+                    for (int i = 0; i < REPEAT; i++) {
+                        point = measure(threads, problem);
+                        nanos[i] = point.nanos;
+                        bytes[i] = point.bytes;
+                    }
+                    Arrays.sort(nanos);
+                    Arrays.sort(bytes);
+                    point = new Point(problem.atoms, point.steps, nanos[REPEAT / 2], bytes[REPEAT / 2]);
+                }
+
+                System.out.printf("%s,%d,%s,%d,%d,%.3f,%.3f,%s,%s%n",
+                        scenario, scale, generator, point.atoms, point.steps,
+                        point.nanos / 1e6, point.bytes / (1024.0 * 1024.0),
+                        exponent(previous, point, previous == null ? 0 : previous.nanos, point.nanos),
+                        exponent(previous, point, previous == null ? 0 : previous.bytes, point.bytes));
+                if (point.nanos > budget * 1000000L)
+                    break;
+                previous = point;
+            }
+        }
+    }
+
+    /**
+     * To plan once for the first plan.
+     */
+    private static Point measure(com.sun.management.ThreadMXBean threads, BenchmarkProblem problem) {
+        final long thread = Thread.currentThread().getId();
+        final long bytes = threads.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+
+        FirstPlanSink sink = new FirstPlanSink();
+        JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain, problem.state, sink);
+        while (planner.run()) ;
+
+        final long nanos = System.nanoTime() - start;
+        final Plan plan = sink.getPlan();
+        return new Point(problem.atoms, plan == null ? 0 : plan.size(), nanos,
+                threads.getThreadAllocatedBytes(thread) - bytes);
+    }
+
+    /**
+     * @return the exponent of the growth of a measure against the number of
+     * atoms, or an empty string if it cannot be told.
+     */
+    private static String exponent(Point previous, Point point, long before, long after) {
+        if (previous == null || previous.atoms == point.atoms || before <= 0 || after <= 0)
+            return "";
+        final double retVal = Math.log((double) after / before) / Math.log((double) point.atoms / previous.atoms);
+        return String.format("%.2f%s", retVal, retVal > SUPERLINEAR ? "*" : "");
+    }
+
+    private static final class Point {
+        final int atoms;
+        final int steps;
+        final long nanos;
+        final long bytes;
+
+        Point(int atomsIn, int stepsIn, long nanosIn, long bytesIn) {
+            atoms = atomsIn;
+            steps = stepsIn;
+            nanos = nanosIn;
+            bytes = bytesIn;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gamalocus.jshop2rt.bench;
+
+/**
+ * The generated problems, by scale: doubling the scale roughly doubles the
+ * number of objects, and the number of goals with it.
+ */
+public enum Scenario {
+    /**
+     * 25 blocks per unit of scale.
+     */
+    BLOCKS {
+        @Override
+        public ProblemGenerator generator(int scale, long seed) {
+            return new BlocksGenerator(25 * scale, seed);
+        }
+    },
+    /**
+     * 5 packages and 1 city per unit of scale, and one more city.
+     */
+    LOGISTICS {
+        @Override
+        public ProblemGenerator generator(int scale, long seed) {
+            return new LogisticsGenerator(5 * scale, 1 + scale, seed);
+        }
+    },
+    /**
+     * 4 waypoints per unit of scale, and a rover per two.
+     */
+    ROVER {
+        @Override
+        public ProblemGenerator generator(int scale, long seed) {
+            return new RoverGenerator(Math.max(1, scale / 2), 4 * scale, seed);
+        }
+    };
+
+    /**
+     * @param scale the scale, at least 1.
+     * @param seed  the seed of the random problems.
+     * @return the generator of the problems of the given scale.
+     */
+    public abstract ProblemGenerator generator(int scale, long seed);
+}
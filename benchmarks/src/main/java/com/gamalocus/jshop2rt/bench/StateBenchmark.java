@@ -0,0 +1,136 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.DelAddAtomic;
+import com.gamalocus.jshop2rt.Predicate;
+import com.gamalocus.jshop2rt.State;
+import com.gamalocus.jshop2rt.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import static com.gamalocus.jshop2rt.bench.MicroDomain.atom;
+import static com.gamalocus.jshop2rt.bench.MicroDomain.number;
+
+/**
+ * Changes to a {@link State}, each undone within the same operation, with
+ * ever more atoms under the head that is changed, and clones of the state,
+ * with its static atoms copied or shared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class StateBenchmark {
+    private static final Term[] NO_BINDING = new Term[0];
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private MicroDomain micro;
+    private State state;
+    /**
+     * The same state, with its <code>link</code> atoms in static facts.
+     */
+    private State staticState;
+    /**
+     * An atom that is not in the state.
+     */
+    private Predicate absent;
+    /**
+     * An atom in the middle of the state.
+     */
+    private Predicate middle;
+    /**
+     * To delete the atom in the middle, remembering where it was.
+     */
+    private DelAddAtomic delMiddle;
+    /**
+     * The binding of <code>(!move middle size)</code>.
+     */
+    private Term[] move;
+    @SuppressWarnings("rawtypes")
+    private final Vector[] delAdd = new Vector[4];
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        micro = new MicroDomain();
+        state = micro.state(size);
+        staticState = micro.staticState(size);
+        absent = atom(micro.link, number(size), number(size + 1));
+        middle = atom(micro.link, number(size / 2), number(size / 2 + 1));
+        delMiddle = new DelAddAtomic(middle);
+        move = micro.move.unify(atom(micro.move.head.head, number(size / 2), number(size)));
+    }
+
+    /**
+     * To add an atom that is already in the state, which only looks it up.
+     */
+    @Benchmark
+    public boolean addExisting() {
+        return state.add(middle);
+    }
+
+    /**
+     * To add an atom at the end of its list and delete it again.
+     */
+    @Benchmark
+    public int addDel() {
+        state.add(absent);
+        return state.del(absent);
+    }
+
+    /**
+     * To delete an atom from the middle of its list, and undo that, which puts
+     * it back where it was.
+     */
+    @Benchmark
+    public boolean delUndo() {
+        for (int i = 0; i < 4; i++)
+            delAdd[i] = new Vector<>();
+        final boolean retVal = delMiddle.del(state, NO_BINDING, delAdd);
+        state.undo(delAdd);
+        return retVal;
+    }
+
+    /**
+     * To apply <code>(!move middle size)</code>, which deletes an
+     * <code>at</code> atom from the middle of its list and adds one at the
+     * end, and undo it.
+     */
+    @Benchmark
+    public boolean operatorApply() {
+        final boolean retVal = micro.move.apply(move, state, delAdd);
+        state.undo(delAdd);
+        return retVal;
+    }
+
+    /**
+     * To clone the state, copying all its atoms.
+     */
+    @Benchmark
+    public Object cloneState() {
+        return state.clone();
+    }
+
+    /**
+     * To clone the state whose <code>link</code> atoms are static facts, which
+     * copies only the <code>at</code> atoms.
+     */
+    @Benchmark
+    public Object cloneStatic() {
+        return staticState.clone();
+    }
+}
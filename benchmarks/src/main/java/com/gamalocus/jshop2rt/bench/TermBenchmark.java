@@ -0,0 +1,114 @@
+package com.gamalocus.jshop2rt.bench;
+
+import com.gamalocus.jshop2rt.Predicate;
+import com.gamalocus.jshop2rt.Term;
+import com.gamalocus.jshop2rt.TermConstant;
+import com.gamalocus.jshop2rt.TermList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.gamalocus.jshop2rt.bench.MicroDomain.list;
+import static com.gamalocus.jshop2rt.bench.MicroDomain.number;
+import static com.gamalocus.jshop2rt.bench.MicroDomain.variable;
+
+/**
+ * Unifying, hashing and comparing nested lists of the form
+ * <code>((c (0)) (c (1)) ...)</code> of ever more elements.
+ * <p>
+ * These operations recurse down the list, so the lists stop at 100000
+ * elements, and the forks get a large stack.
+ * <p>
+ * {@link #findUnifierMixed()} unifies a pattern with as many flat atoms
+ * instead, whose arguments are constants, numbers and lists, so that
+ * unification goes through every kind of term the way it does when matching
+ * a precondition against a state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+@State(Scope.Thread)
+public class TermBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /**
+     * The list, and an equal copy of it.
+     */
+    private TermList list, copy;
+    /**
+     * <code>(predicate ((?0 (0)) (?0 (1)) ...))</code>, which unifies with the
+     * list, binding <code>?0</code> to <code>c</code> and then comparing it
+     * with the first element of every other element.
+     */
+    private Predicate pattern;
+    /**
+     * The arguments of the atoms <code>(c&lt;i mod 4&gt; &lt;i mod 3&gt;
+     * (c&lt;i mod 5&gt; &lt;i&gt;))</code>, and
+     * <code>(predicate (c0 ?0 (c0 ?1)))</code>, which unifies with one atom
+     * in twenty, and fails at a constant, either at the top or in the list,
+     * with the others.
+     */
+    private Term[] atoms;
+    private Predicate mixedPattern;
+
+    @Setup(Level.Trial)
+    public void load() {
+        list = nested(number(-1));
+        copy = nested(number(-1));
+        pattern = new Predicate(0, 1, nested(variable(0)));
+
+        atoms = new Term[size];
+        for (int i = 0; i < size; i++)
+            atoms[i] = list(constant(i % 4), number(i % 3), list(constant(i % 5), number(i)));
+        mixedPattern = new Predicate(0, 2, list(constant(0), variable(0), list(constant(0), variable(1))));
+    }
+
+    private static TermConstant constant(int index) {
+        return new TermConstant(index, "c" + index);
+    }
+
+    private TermList nested(Term first) {
+        TermList retVal = TermList.NIL;
+        for (int i = size - 1; i >= 0; i--)
+            retVal = new TermList(list(first, list(number(i))), retVal);
+        return retVal;
+    }
+
+    @Benchmark
+    public Term[] findUnifier() {
+        return pattern.findUnifier(list);
+    }
+
+    @Benchmark
+    public int findUnifierMixed() {
+        int retVal = 0;
+        for (Term atom : atoms)
+            if (mixedPattern.findUnifier(atom) != null)
+                retVal++;
+        return retVal;
+    }
+
+    @Benchmark
+    public int hashCodeNested() {
+        return list.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsNested() {
+        return list.equals(copy);
+    }
+}
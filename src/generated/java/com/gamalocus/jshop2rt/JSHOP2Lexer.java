@@ -35,8 +35,8 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
         literals.put(new ANTLRHashString("nil", this), new Integer(8));
         literals.put(new ANTLRHashString("call", this), new Integer(26));
         literals.put(new ANTLRHashString("member", this), new Integer(33));
-        literals.put(new ANTLRHashString("stdlib", this), new Integer(42));
-        literals.put(new ANTLRHashString("def-problem-set", this), new Integer(41));
+        literals.put(new ANTLRHashString("stdlib", this), new Integer(45));
+        literals.put(new ANTLRHashString("def-problem-set", this), new Integer(44));
         literals.put(new ANTLRHashString("or", this), new Integer(22));
         literals.put(new ANTLRHashString("defproblem", this), new Integer(5));
         literals.put(new ANTLRHashString("assign", this), new Integer(25));
@@ -161,7 +161,19 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
                             break;
                         }
                         default:
-                            if ((LA(1) == ':') && (LA(2) == '-')) {
+                            if ((LA(1) == ':') && (LA(2) == 'i') && (LA(3) == 'm')) {
+                                mIMMEDIATE(true);
+                                theRetToken = _returnToken;
+                            } else if ((LA(1) == ':') && (LA(2) == 'i') && (LA(3) == 'n')) {
+                                mINDEX(true);
+                                theRetToken = _returnToken;
+                            } else if ((LA(1) == ':') && (LA(2) == 's') && (LA(3) == 'o')) {
+                                mSORT(true);
+                                theRetToken = _returnToken;
+                            } else if ((LA(1) == ':') && (LA(2) == 's') && (LA(3) == 't')) {
+                                mSTATIC(true);
+                                theRetToken = _returnToken;
+                            } else if ((LA(1) == ':') && (LA(2) == '-')) {
                                 mAXIOM(true);
                                 theRetToken = _returnToken;
                             } else if ((LA(1) == '<') && (LA(2) == '=')) {
@@ -179,12 +191,12 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
                             } else if ((LA(1) == '+') && (_tokenSet_0.member(LA(2)))) {
                                 mPLUS(true);
                                 theRetToken = _returnToken;
+                            } else if ((LA(1) == ':') && (LA(2) == 'c')) {
+                                mCARDINALITY(true);
+                                theRetToken = _returnToken;
                             } else if ((LA(1) == ':') && (LA(2) == 'f')) {
                                 mFIRST(true);
                                 theRetToken = _returnToken;
-                            } else if ((LA(1) == ':') && (LA(2) == 'i')) {
-                                mIMMEDIATE(true);
-                                theRetToken = _returnToken;
                             } else if ((LA(1) == ':') && (LA(2) == 'm')) {
                                 mMETHOD(true);
                                 theRetToken = _returnToken;
@@ -194,9 +206,6 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
                             } else if ((LA(1) == ':') && (LA(2) == 'p')) {
                                 mPROTECTION(true);
                                 theRetToken = _returnToken;
-                            } else if ((LA(1) == ':') && (LA(2) == 's')) {
-                                mSORT(true);
-                                theRetToken = _returnToken;
                             } else if ((LA(1) == ':') && (LA(2) == 'u')) {
                                 mUNORDERED(true);
                                 theRetToken = _returnToken;
@@ -520,6 +529,21 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
         _returnToken = _token;
     }
 
+    public final void mCARDINALITY(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
+        int _ttype;
+        Token _token = null;
+        int _begin = text.length();
+        _ttype = CARDINALITY;
+        int _saveIndex;
+
+        match(":cardinality-hint");
+        if (_createToken && _token == null && _ttype != Token.SKIP) {
+            _token = makeToken(_ttype);
+            _token.setText(new String(text.getBuffer(), _begin, text.length() - _begin));
+        }
+        _returnToken = _token;
+    }
+
     public final void mFIRST(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
         int _ttype;
         Token _token = null;
@@ -550,6 +574,21 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
         _returnToken = _token;
     }
 
+    public final void mINDEX(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
+        int _ttype;
+        Token _token = null;
+        int _begin = text.length();
+        _ttype = INDEX;
+        int _saveIndex;
+
+        match(":index");
+        if (_createToken && _token == null && _ttype != Token.SKIP) {
+            _token = makeToken(_ttype);
+            _token.setText(new String(text.getBuffer(), _begin, text.length() - _begin));
+        }
+        _returnToken = _token;
+    }
+
     public final void mMETHOD(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
         int _ttype;
         Token _token = null;
@@ -610,6 +649,21 @@ public class JSHOP2Lexer extends antlr.CharScanner implements JSHOP2TokenTypes,
         _returnToken = _token;
     }
 
+    public final void mSTATIC(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
+        int _ttype;
+        Token _token = null;
+        int _begin = text.length();
+        _ttype = STATIC;
+        int _saveIndex;
+
+        match(":static");
+        if (_createToken && _token == null && _ttype != Token.SKIP) {
+            _token = makeToken(_ttype);
+            _token.setText(new String(text.getBuffer(), _begin, text.length() - _begin));
+        }
+        _returnToken = _token;
+    }
+
     public final void mUNORDERED(boolean _createToken) throws RecognitionException, CharStreamException, TokenStreamException {
         int _ttype;
         Token _token = null;
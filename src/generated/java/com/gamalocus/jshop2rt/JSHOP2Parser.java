@@ -53,6 +53,9 @@ public class JSHOP2Parser extends antlr.LLkParser implements JSHOP2TokenTypes {
             "NOTEQ",
             "PLUS",
             "POWER",
+            "INDEX",
+            "STATIC",
+            "CARDINALITY",
             "\"def-problem-set\"",
             "\"stdlib\"",
             "WS",
@@ -462,6 +465,8 @@ public class JSHOP2Parser extends antlr.LLkParser implements JSHOP2TokenTypes {
             op();
         } else if ((LA(1) == LP) && (LA(2) == AXIOM)) {
             axiom();
+        } else if ((LA(1) == LP) && ((LA(2) >= INDEX && LA(2) <= CARDINALITY))) {
+            pragma();
         } else {
             throw new NoViableAltException(LT(1), getFilename());
         }
@@ -751,6 +756,21 @@ public class JSHOP2Parser extends antlr.LLkParser implements JSHOP2TokenTypes {
         axiom.setSourcePos(lineFrom.getLine(), lineFrom.getColumn(), lineTo.getLine(), lineFrom.getLine());
     }
 
+    public final void pragma() throws RecognitionException, TokenStreamException {
+
+
+        if ((LA(1) == LP) && (LA(2) == INDEX)) {
+            indexDecl();
+        } else if ((LA(1) == LP) && (LA(2) == STATIC)) {
+            staticDecl();
+        } else if ((LA(1) == LP) && (LA(2) == CARDINALITY)) {
+            cardinalityDecl();
+        } else {
+            throw new NoViableAltException(LT(1), getFilename());
+        }
+
+    }
+
     public final List terml() throws RecognitionException, TokenStreamException {
         List retVal;
 
@@ -1611,4 +1631,88 @@ public class JSHOP2Parser extends antlr.LLkParser implements JSHOP2TokenTypes {
         return retVal;
     }
 
+    public final void indexDecl() throws RecognitionException, TokenStreamException {
+
+        Token h = null;
+        Token n = null;
+
+
+        //-- The number of arguments of the atoms.
+        int arity = 0;
+
+        match(LP);
+        match(INDEX);
+        match(LP);
+        h = LT(1);
+        match(ID);
+        {
+            _loop64:
+            do {
+                if ((LA(1) == VARID)) {
+                    match(VARID);
+
+                    arity++;
+
+                } else {
+                    break _loop64;
+                }
+
+            } while (true);
+        }
+        match(RP);
+        n = LT(1);
+        match(NUM);
+        match(RP);
+
+        domain.addIndex(h.getText(), arity, n.getText(), n.getLine(), n.getColumn());
+
+    }
+
+    public final void staticDecl() throws RecognitionException, TokenStreamException {
+
+        Token h = null;
+
+        match(LP);
+        match(STATIC);
+        {
+            int _cnt67 = 0;
+            _loop67:
+            do {
+                if ((LA(1) == ID)) {
+                    h = LT(1);
+                    match(ID);
+
+                    domain.addStatic(h.getText(), h.getLine(), h.getColumn());
+
+                } else {
+                    if (_cnt67 >= 1) {
+                        break _loop67;
+                    } else {
+                        throw new NoViableAltException(LT(1), getFilename());
+                    }
+                }
+
+                _cnt67++;
+            } while (true);
+        }
+        match(RP);
+    }
+
+    public final void cardinalityDecl() throws RecognitionException, TokenStreamException {
+
+        Token h = null;
+        Token n = null;
+
+        match(LP);
+        match(CARDINALITY);
+        h = LT(1);
+        match(ID);
+        n = LT(1);
+        match(NUM);
+        match(RP);
+
+        domain.addCardinalityHint(h.getText(), n.getText(), n.getLine(), n.getColumn());
+
+    }
+
 }
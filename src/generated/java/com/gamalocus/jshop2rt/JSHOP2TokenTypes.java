@@ -42,8 +42,11 @@ public interface JSHOP2TokenTypes {
     int NOTEQ = 38;
     int PLUS = 39;
     int POWER = 40;
-    int DEFPROBLEMSET = 41;
-    int STDLIB = 42;
-    int WS = 43;
-    int COMMENT = 44;
+    int INDEX = 41;
+    int STATIC = 42;
+    int CARDINALITY = 43;
+    int DEFPROBLEMSET = 44;
+    int STDLIB = 45;
+    int WS = 46;
+    int COMMENT = 47;
 }
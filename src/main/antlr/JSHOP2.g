@@ -156,6 +156,8 @@ pde :
   op
 |
   axiom
+|
+  pragma
 ;
 
 //-------------------------------- Method ---------------------------
@@ -912,6 +914,59 @@ fid returns [String retVal] :
     }
 ;
 
+//------------------------------- Pragma ----------------------------
+
+//-- Pragmas change how the plans for a domain are found, not which plans
+//-- there are, though cardinality hints may change the order they are found
+//-- in, see Model.addCardinalityHint().
+pragma :
+  indexDecl
+|
+  staticDecl
+|
+  cardinalityDecl
+;
+
+//-- (:index (head ?arg ...) n): index the atoms of a head in the state of the
+//-- world by their n-th argument, counting from 0.
+indexDecl :
+  {
+    //-- The number of arguments of the atoms.
+    int arity = 0;
+  }
+  LP INDEX LP h:ID
+    (
+      VARID
+        {
+          arity++;
+        }
+    )*
+  RP n:NUM RP
+    {
+      domain.addIndex(h.getText(), arity, n.getText(), n.getLine(), n.getColumn());
+    }
+;
+
+//-- (:static head ...): no operator deletes or adds the atoms of the heads.
+staticDecl :
+  LP STATIC
+    (
+      h:ID
+        {
+          domain.addStatic(h.getText(), h.getLine(), h.getColumn());
+        }
+    )+
+  RP
+;
+
+//-- (:cardinality-hint head n): there are about n atoms of the head.
+cardinalityDecl :
+  LP CARDINALITY h:ID n:NUM RP
+    {
+      domain.addCardinalityHint(h.getText(), n.getText(), n.getLine(), n.getColumn());
+    }
+;
+
 //------------------------------- Lexer -----------------------------
 
 class JSHOP2Lexer extends Lexer;
@@ -963,12 +1018,15 @@ PLUS        : '+' WS;
 POWER       : '^';
 RP          : ')';
 
+CARDINALITY : ":cardinality-hint";
 FIRST       : ":first";
 IMMEDIATE   : ":immediate";
+INDEX       : ":index";
 METHOD      : ":method";
 OPERATOR    : ":operator";
 PROTECTION  : ":protection";
 SORT        : ":sort-by";
+STATIC      : ":static";
 UNORDERED   : ":unordered";
 
 //-- Whitespace (ignored)
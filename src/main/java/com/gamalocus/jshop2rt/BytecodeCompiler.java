@@ -0,0 +1,320 @@
+package com.gamalocus.jshop2rt;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles domains straight to class files: the classes are emitted from the
+ * operators, methods and axioms of a parsed {@link Model} by their
+ * <code>toClassFile</code> functions, without producing Java code and
+ * compiling it. Each domain compiled gets a class loader of its own, so that
+ * its classes are unloaded together with it.
+ * <p>
+ * The classes behave just like those compiled from the code produced by
+ * {@link Model#close(int)}, with two differences. Conjunctions and
+ * disjunctions are {@link PreconditionConjunction}s and
+ * {@link PreconditionDisjunction}s rather than classes of their own. And the
+ * domain class extends {@link InterpretedDomain}, which provides the external
+ * code calls and comparators.
+ * <p>
+ * The operators, methods and axioms are created by head, the first time each
+ * head is asked for, see {@link Domain#getMethods(int)}, so their classes
+ * are only loaded if the problem uses them.
+ */
+public final class BytecodeCompiler implements Opcodes {
+    /**
+     * The estimated size of the bytecode that creates and returns the array
+     * of elements of one head, not counting the elements.
+     */
+    private static final int HEAD_SIZE = 16;
+    /**
+     * The estimated size of the bytecode that creates and stores one element.
+     */
+    private static final int ELEMENT_SIZE = 14;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * To compile a domain, with the classes of its external code calls and
+     * comparators loaded by the class loader of the planner.
+     *
+     * @param model the domain as parsed.
+     * @return the domain.
+     */
+    public static Domain compile(Model model) {
+        return compile(model, BytecodeCompiler.class.getClassLoader());
+    }
+
+    /**
+     * To compile a domain.
+     *
+     * @param model  the domain as parsed.
+     * @param parent the class loader of the planner, and of the classes of the
+     *               external code calls and comparators.
+     * @return the domain.
+     */
+    public static Domain compile(Model model, ClassLoader parent) {
+        final String className = getClassName(model).replace('/', '.');
+        try {
+            return (Domain) new DomainClassLoader(parent, toClassFiles(model)).loadClass(className)
+                    .getConstructor(Model.class).newInstance(model);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(String.format("Cannot construct domain %s.", className), e);
+        }
+    }
+
+    /**
+     * To emit the class files of a domain.
+     *
+     * @param model the domain as parsed.
+     * @return the bytes of the class files, by the binary names of the classes.
+     * The domain class takes the model as the only argument of its
+     * constructor, like the class produced by {@link Model#close(int)}.
+     */
+    public static Map<String, byte[]> toClassFiles(Model model) {
+        final String className = getClassName(model);
+        Map<String, byte[]> retVal = new LinkedHashMap<>();
+
+        //-- The classes that represent the operators, methods and axioms.
+        final java.util.List<String> primitiveTasks = model.getPrimitiveTasks();
+        String[] ops = new String[model.operators.size()];
+        for (int i = 0; i < ops.length; i++) {
+            InternalOperator op = model.operators.get(i);
+            ops[i] = className + "$Operator" + op.getCnt();
+            retVal.put(ops[i].replace('/', '.'), op.toClassFile(ops[i], String.format(
+                    "Operator #%d for primitive task %s", -1, primitiveTasks.get(op.getHead().head))));
+        }
+
+        final java.util.List<String> compoundTasks = model.getCompoundTasks();
+        String[] methods = new String[model.getMethods().size()];
+        for (int i = 0; i < methods.length; i++) {
+            InternalMethod me = model.getMethods().get(i);
+            methods[i] = className + "$Method" + me.getCnt();
+            retVal.put(methods[i].replace('/', '.'), me.toClassFile(methods[i], String.format(
+                    "Method %d for compound task %s", -1, compoundTasks.get(me.getHead().head))));
+        }
+
+        final java.util.List<String> constants = model.constants();
+        String[] axioms = new String[model.axioms.size()];
+        for (int i = 0; i < axioms.length; i++) {
+            InternalAxiom ax = model.axioms.get(i);
+            axioms[i] = className + "$Axiom" + ax.getCnt();
+            retVal.put(axioms[i].replace('/', '.'), ax.toClassFile(axioms[i], String.format(
+                    "Branch %d for axiom %s", -1, constants.get(ax.getHead().head))));
+        }
+
+        //-- The class that represents the domain itself. Its constructor passes
+        //-- its own class loader on, for the external code calls and comparators,
+        //-- and then creates the operators, methods and axioms.
+        ClassWriter cw = BytecodeEmitter.newClass(className, InterpretedDomain.class);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", BytecodeEmitter.descriptor(void.class, Model.class),
+                null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitLdcInsn(Type.getObjectType(className));
+        BytecodeEmitter e = new BytecodeEmitter(mv, 0, -1, 2);
+        e.invoke(Class.class, "getClassLoader", ClassLoader.class);
+        e.push(false);
+        e.construct(InterpretedDomain.class, Model.class, ClassLoader.class, boolean.class);
+
+        //-- The arrays of operators, methods and axioms, by head, which are
+        //-- filled in by the functions below as the heads are first asked for.
+        allocate(e, "methods", Method.class, compoundTasks.size());
+        allocate(e, "ops", Operator.class, primitiveTasks.size());
+        allocate(e, "axioms", Axiom.class, constants.size());
+        mv.visitInsn(RETURN);
+        e.end();
+
+        factoryMethod(cw, className, "createMethods", Method.class, compoundTasks.size(), model.getMethods(), methods);
+        factoryMethod(cw, className, "createOperators", Operator.class, primitiveTasks.size(), model.operators, ops);
+        factoryMethod(cw, className, "createAxioms", Axiom.class, constants.size(), model.axioms, axioms);
+        cw.visitEnd();
+        retVal.put(className.replace('/', '.'), cw.toByteArray());
+
+        return retVal;
+    }
+
+    /**
+     * To emit the function of the domain that creates its operators, methods
+     * or axioms of a given head, which overrides the one of {@link Domain}.
+     * The heads are split among helper methods, each kept under
+     * {@link Model#getChunkSize()} the way the generated Java code is split by
+     * {@link CodeChunks}, which return <code>null</code> if the head is not
+     * theirs. Nothing is emitted if there are no elements at all.
+     *
+     * @param cw         the class of the domain.
+     * @param className  the internal name of the class of the domain.
+     * @param function   the name of the function.
+     * @param type       the type of the elements.
+     * @param size       the number of heads.
+     * @param elements   the elements, in the order they appear.
+     * @param classNames the internal names of the classes of the elements.
+     */
+    private static void factoryMethod(ClassWriter cw, String className, String function, Class<?> type, int size,
+                                      java.util.List<? extends InternalElement> elements, String[] classNames) {
+        if (classNames.length == 0)
+            return;
+
+        java.util.List<java.util.List<String>> byHead = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            byHead.add(new ArrayList<>());
+        for (int i = 0; i < classNames.length; i++)
+            byHead.get(elements.get(i).getHead().head).add(classNames[i]);
+
+        final String descriptor = BytecodeEmitter.descriptor(arrayOf(type), int.class);
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, function, descriptor, null, null);
+        mv.visitCode();
+
+        java.util.List<Integer> heads = new ArrayList<>();
+        int chunkSize = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (byHead.get(i).isEmpty())
+                continue;
+
+            final int headSize = HEAD_SIZE + ELEMENT_SIZE * byHead.get(i).size();
+            if (!heads.isEmpty() && chunkSize + headSize > Model.getChunkSize()) {
+                callHelper(mv, cw, className, function + count++, descriptor, type, heads, byHead);
+                heads.clear();
+                chunkSize = 0;
+            }
+            heads.add(i);
+            chunkSize += headSize;
+        }
+        if (!heads.isEmpty())
+            callHelper(mv, cw, className, function + count, descriptor, type, heads, byHead);
+
+        //-- The heads without elements.
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(InterpretedDomain.class), function, descriptor, false);
+        mv.visitInsn(ARETURN);
+        new BytecodeEmitter(mv, 0, -1, 2).end();
+    }
+
+    /**
+     * To emit a helper method of the function that creates the operators,
+     * methods or axioms of a given head, and the bytecode that calls it and
+     * returns what it returns unless that is <code>null</code>.
+     *
+     * @param mv         the function.
+     * @param cw         the class of the domain.
+     * @param className  the internal name of the class of the domain.
+     * @param name       the name of the helper method.
+     * @param descriptor the descriptor of the function and the helper.
+     * @param type       the type of the elements.
+     * @param heads      the heads the helper creates the elements of.
+     * @param byHead     the internal names of the classes of the elements of
+     *                   every head.
+     */
+    private static void callHelper(MethodVisitor mv, ClassWriter cw, String className, String name, String descriptor,
+                                   Class<?> type, java.util.List<Integer> heads,
+                                   java.util.List<java.util.List<String>> byHead) {
+        final Label other = new Label();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, className, name, descriptor, false);
+        mv.visitInsn(DUP);
+        mv.visitJumpInsn(IFNULL, other);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(other);
+        mv.visitInsn(POP);
+
+        MethodVisitor helper = cw.visitMethod(ACC_PRIVATE, name, descriptor, null, null);
+        helper.visitCode();
+        BytecodeEmitter e = new BytecodeEmitter(helper, 0, -1, 2);
+
+        final int[] keys = new int[heads.size()];
+        final Label[] cases = new Label[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = heads.get(i);
+            cases[i] = new Label();
+        }
+        final Label none = new Label();
+
+        helper.visitVarInsn(ILOAD, 1);
+        helper.visitLookupSwitchInsn(none, keys, cases);
+        for (int i = 0; i < keys.length; i++) {
+            helper.visitLabel(cases[i]);
+            final java.util.List<String> classNames = byHead.get(keys[i]);
+            e.newArray(type, classNames.size());
+            for (int j = 0; j < classNames.size(); j++) {
+                e.element(j);
+                helper.visitTypeInsn(NEW, classNames.get(j));
+                helper.visitInsn(DUP);
+                helper.visitVarInsn(ALOAD, 0);
+                helper.visitMethodInsn(INVOKESPECIAL, classNames.get(j), "<init>",
+                        BytecodeEmitter.descriptor(void.class, Domain.class), false);
+                e.store();
+            }
+            helper.visitInsn(ARETURN);
+        }
+        helper.visitLabel(none);
+        helper.visitInsn(ACONST_NULL);
+        helper.visitInsn(ARETURN);
+        e.end();
+    }
+
+    /**
+     * To emit the bytecode that allocates one of the arrays of the domain
+     * that hold its operators, methods or axioms, by head.
+     *
+     * @param e     the constructor of the domain.
+     * @param field the name of the array.
+     * @param type  the type of the elements.
+     * @param size  the number of heads.
+     */
+    private static void allocate(BytecodeEmitter e, String field, Class<?> type, int size) {
+        e.mv.visitVarInsn(ALOAD, 0);
+        e.newArray(arrayOf(type), size);
+        e.mv.visitFieldInsn(PUTFIELD, Type.getInternalName(Domain.class), field,
+                Type.getDescriptor(arrayOf(arrayOf(type))));
+    }
+
+    /**
+     * @return the type of arrays of a given type.
+     */
+    private static Class<?> arrayOf(Class<?> type) {
+        return java.lang.reflect.Array.newInstance(type, 0).getClass();
+    }
+
+    /**
+     * @return the internal name of the domain class.
+     */
+    private static String getClassName(Model model) {
+        final String pkg = model.getOutputPackage();
+        return pkg.isEmpty() ? model.getName() : pkg.replace('.', '/') + '/' + model.getName();
+    }
+
+    /**
+     * Defines the classes of one domain.
+     */
+    private static final class DomainClassLoader extends ClassLoader {
+        /**
+         * The class files, by the binary names of the classes.
+         */
+        private final Map<String, byte[]> classes;
+
+        DomainClassLoader(ClassLoader parent, Map<String, byte[]> classesIn) {
+            super(parent);
+            classes = classesIn;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final byte[] b = classes.get(name);
+            if (b == null)
+                throw new ClassNotFoundException(name);
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.gamalocus.jshop2rt;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * The method whose bytecode is being emitted by the <code>toBytecode</code>
+ * functions of the compile-time objects, each of which leaves the object it
+ * creates at run time on the operand stack, just like the Java code produced
+ * by its <code>toCode</code> function evaluates to it.
+ * <p>
+ * The generated code refers to the domain as <code>owner</code> and to the
+ * current binding as <code>unifier</code>. Here, these are either local
+ * variables or, in the case of the domain, the field of the domain element.
+ */
+final class BytecodeEmitter implements Opcodes {
+    /**
+     * The method the bytecode is emitted to.
+     */
+    final MethodVisitor mv;
+
+    /**
+     * The local variable with the domain, or -1 if the domain is to be read
+     * from the <code>owner</code> field of the domain element.
+     */
+    private final int owner;
+
+    /**
+     * The local variable with the current binding.
+     */
+    private int unifier;
+
+    /**
+     * The first local variable that is not in use yet.
+     */
+    private int nextLocal;
+
+    /**
+     * To emit bytecode to a method.
+     *
+     * @param mvIn       the method.
+     * @param ownerIn    the local variable with the domain, or -1 to read it
+     *                   from the field of the domain element.
+     * @param unifierIn  the local variable with the current binding, or -1 if
+     *                   there is none.
+     * @param firstLocal the first local variable that is not in use.
+     */
+    BytecodeEmitter(MethodVisitor mvIn, int ownerIn, int unifierIn, int firstLocal) {
+        mv = mvIn;
+        owner = ownerIn;
+        unifier = unifierIn;
+        nextLocal = firstLocal;
+    }
+
+    /**
+     * To push the domain.
+     */
+    void owner() {
+        if (owner == -1) {
+            mv.visitVarInsn(ALOAD, 0);
+            getField(DomainElement.class, "owner", Domain.class);
+        } else
+            mv.visitVarInsn(ALOAD, owner);
+    }
+
+    /**
+     * To push the current binding.
+     */
+    void unifier() {
+        mv.visitVarInsn(ALOAD, unifier);
+    }
+
+    /**
+     * To make the current binding an empty one of a given size, like the
+     * code produced by <code>DelAddForAll.getInitCode</code> does.
+     *
+     * @param size the number of variables in the binding.
+     */
+    void emptyUnifier(int size) {
+        if (unifier == -1)
+            unifier = nextLocal++;
+
+        push(size);
+        mv.visitTypeInsn(ANEWARRAY, Type.getInternalName(Term.class));
+        mv.visitVarInsn(ASTORE, unifier);
+    }
+
+    /**
+     * To push an <code>int</code> constant.
+     */
+    void push(int value) {
+        if (value >= -1 && value <= 5)
+            mv.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            mv.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            mv.visitIntInsn(SIPUSH, value);
+        else
+            mv.visitLdcInsn(value);
+    }
+
+    /**
+     * To push a <code>boolean</code> constant.
+     */
+    void push(boolean value) {
+        mv.visitInsn(value ? ICONST_1 : ICONST_0);
+    }
+
+    /**
+     * To push a <code>double</code> or <code>String</code> constant.
+     */
+    void push(Object value) {
+        mv.visitLdcInsn(value);
+    }
+
+    /**
+     * To create an object, the arguments of the constructor of which are
+     * then to be pushed, and the constructor called by
+     * {@link #construct(Class, Class[])}.
+     */
+    void newObject(Class<?> type) {
+        mv.visitTypeInsn(NEW, Type.getInternalName(type));
+        mv.visitInsn(DUP);
+    }
+
+    /**
+     * To call the constructor of an object created by
+     * {@link #newObject(Class)}.
+     *
+     * @param type   the class of the object.
+     * @param params the types of the parameters of the constructor.
+     */
+    void construct(Class<?> type, Class<?>... params) {
+        mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(type), "<init>", descriptor(void.class, params), false);
+    }
+
+    /**
+     * To call a public instance function.
+     *
+     * @param type   the class that declares the function.
+     * @param name   the name of the function.
+     * @param result the type of the result of the function.
+     * @param params the types of the parameters of the function.
+     */
+    void invoke(Class<?> type, String name, Class<?> result, Class<?>... params) {
+        mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(type), name, descriptor(result, params), false);
+    }
+
+    /**
+     * To push a static field.
+     */
+    void getStatic(Class<?> type, String name, Class<?> fieldType) {
+        mv.visitFieldInsn(GETSTATIC, Type.getInternalName(type), name, Type.getDescriptor(fieldType));
+    }
+
+    /**
+     * To replace the object on top of the stack with one of its fields.
+     */
+    void getField(Class<?> type, String name, Class<?> fieldType) {
+        mv.visitFieldInsn(GETFIELD, Type.getInternalName(type), name, Type.getDescriptor(fieldType));
+    }
+
+    /**
+     * To check the type of the object on top of the stack.
+     */
+    void checkCast(Class<?> type) {
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+    }
+
+    /**
+     * To create an array, the elements of which are then to be stored by
+     * {@link #element(int)} and {@link #store()}.
+     *
+     * @param type   the type of the elements.
+     * @param length the length of the array.
+     */
+    void newArray(Class<?> type, int length) {
+        push(length);
+        mv.visitTypeInsn(ANEWARRAY, Type.getInternalName(type));
+    }
+
+    /**
+     * To get ready to store an element of the array on top of the stack. The
+     * element is then to be pushed, and stored by {@link #store()}.
+     *
+     * @param index the index of the element.
+     */
+    void element(int index) {
+        mv.visitInsn(DUP);
+        push(index);
+    }
+
+    /**
+     * To store the element pushed after {@link #element(int)}.
+     */
+    void store() {
+        mv.visitInsn(AASTORE);
+    }
+
+    /**
+     * To end the method.
+     */
+    void end() {
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * To start a public class.
+     *
+     * @param className  the internal name of the class.
+     * @param superClass the class it extends.
+     * @return the class, the methods of which are then to be added.
+     */
+    static ClassWriter newClass(String className, Class<?> superClass) {
+        ClassWriter retVal = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        retVal.visit(V12, ACC_PUBLIC | ACC_SUPER, className, null, Type.getInternalName(superClass), null);
+        return retVal;
+    }
+
+    /**
+     * To start the constructor of a domain element, which takes the domain as
+     * its only argument, with the arguments of the constructor of its base
+     * class yet to be pushed after the domain.
+     *
+     * @param cw the class of the domain element.
+     * @return the constructor, with the domain as <code>owner</code>.
+     */
+    static BytecodeEmitter elementConstructor(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", descriptor(void.class, Domain.class), null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        return new BytecodeEmitter(mv, 1, -1, 2);
+    }
+
+    /**
+     * To add the <code>toString</code> function to a class.
+     *
+     * @param cw    the class.
+     * @param value what the function returns.
+     */
+    static void toStringMethod(ClassWriter cw, String value) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "toString", descriptor(String.class), null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(value);
+        mv.visitInsn(ARETURN);
+        new BytecodeEmitter(mv, -1, -1, 1).end();
+    }
+
+    /**
+     * To add the function that returns an iterator over the bindings that
+     * satisfy a given precondition of a domain element to its class.
+     *
+     * @param cw    the class.
+     * @param pres  the preconditions of the element.
+     * @param which whether to choose the precondition by the argument
+     *              <code>which</code>, rather than always take the first.
+     */
+    static void getIteratorMethod(ClassWriter cw, LogicalPrecondition[] pres, boolean which) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getIterator",
+                descriptor(Precondition.class, State.class, Term[].class, int.class), null, null);
+        mv.visitCode();
+        BytecodeEmitter e = new BytecodeEmitter(mv, -1, 2, 4);
+
+        if (!which)
+            e.returnIterator(pres[0]);
+        else if (pres.length > 0) {
+            final Label[] cases = new Label[pres.length];
+            for (int i = 0; i < cases.length; i++)
+                cases[i] = new Label();
+            final Label other = new Label();
+
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitTableSwitchInsn(0, cases.length - 1, other, cases);
+            for (int i = 0; i < cases.length; i++) {
+                mv.visitLabel(cases[i]);
+                e.returnIterator(pres[i]);
+            }
+            mv.visitLabel(other);
+        }
+
+        if (which) {
+            mv.visitInsn(ACONST_NULL);
+            mv.visitInsn(ARETURN);
+        }
+        e.end();
+    }
+
+    /**
+     * To create a precondition, reset it and return it.
+     */
+    private void returnIterator(LogicalPrecondition pre) {
+        pre.toBytecode(this);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 1);
+        invoke(Precondition.class, "reset", void.class, State.class);
+        mv.visitInsn(ARETURN);
+    }
+
+    /**
+     * To add the function that returns the label of a given branch of a
+     * domain element to its class.
+     *
+     * @param cw     the class.
+     * @param labels the labels of the branches.
+     */
+    static void getLabelMethod(ClassWriter cw, String[] labels) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getLabel", descriptor(String.class, int.class), null, null);
+        mv.visitCode();
+
+        if (labels.length > 0) {
+            final Label[] cases = new Label[labels.length];
+            for (int i = 0; i < cases.length; i++)
+                cases[i] = new Label();
+            final Label other = new Label();
+
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitTableSwitchInsn(0, cases.length - 1, other, cases);
+            for (int i = 0; i < cases.length; i++) {
+                mv.visitLabel(cases[i]);
+                mv.visitLdcInsn(labels[i]);
+                mv.visitInsn(ARETURN);
+            }
+            mv.visitLabel(other);
+        }
+
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        new BytecodeEmitter(mv, -1, -1, 2).end();
+    }
+
+    /**
+     * @return the descriptor of a function.
+     */
+    static String descriptor(Class<?> result, Class<?>... params) {
+        Type[] types = new Type[params.length];
+        for (int i = 0; i < params.length; i++)
+            types[i] = Type.getType(params[i]);
+        return Type.getMethodDescriptor(Type.getType(result), types);
+    }
+}
@@ -0,0 +1,130 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.ArrayList;
+
+/**
+ * The statements of the body of a generated method, which are split into
+ * helper methods if the body would otherwise be larger than
+ * {@link Model#getChunkSize()}. HotSpot never compiles methods larger than
+ * 8000 bytes of bytecode, and javac refuses those larger than 64K, which the
+ * bodies that grow with the size of the domain or the problem can easily be.
+ * <p>
+ * The size of the bytecode is estimated from the length of the code, at
+ * about one byte for every two characters other than white space and
+ * comments, which is close for the code generated.
+ */
+final class CodeChunks {
+    private static final String endl = CompileTimeObject.endl;
+
+    /**
+     * The statements, split into chunks each of which fits in a method.
+     */
+    private final java.util.List<String> chunks = new ArrayList<>();
+
+    /**
+     * The statements of the chunk being filled.
+     */
+    private StringBuilder chunk = new StringBuilder();
+
+    /**
+     * The estimated size of the chunk being filled.
+     */
+    private int chunkSize = 0;
+
+    /**
+     * To add a statement to the body.
+     *
+     * @param statement the statement, indented and with its line end, possibly
+     *                  preceded by comment lines.
+     */
+    void add(String statement) {
+        final int size = estimate(statement);
+        if (chunkSize > 0 && chunkSize + size > Model.getChunkSize()) {
+            chunks.add(chunk.toString());
+            chunk = new StringBuilder();
+            chunkSize = 0;
+        }
+
+        chunk.append(statement);
+        chunkSize += size;
+    }
+
+    /**
+     * To produce the code of the body.
+     *
+     * @param header  the header of the helper methods, with <code>%d</code>
+     *                for the index of the helper.
+     * @param call    the statement that calls a helper method, indented and
+     *                with <code>%d</code> for the index of the helper.
+     * @param helpers where the helper methods, if any, are to be appended.
+     * @return the statements of the body if they fit in one method, or the
+     * calls to the helper methods that hold them otherwise. The body is then
+     * empty again, to be reused.
+     */
+    String toCode(String header, String call, StringBuilder helpers) {
+        return toCode(header, call, "", helpers);
+    }
+
+    /**
+     * To produce the code of the body of a function that returns a value.
+     *
+     * @param header  the header of the helper methods, with <code>%d</code>
+     *                for the index of the helper.
+     * @param call    the statement that calls a helper method, indented and
+     *                with <code>%d</code> for the index of the helper.
+     * @param footer  the statements that end each helper method, indented and
+     *                with their line ends.
+     * @param helpers where the helper methods, if any, are to be appended.
+     * @return the statements of the body if they fit in one method, or the
+     * calls to the helper methods that hold them otherwise. The body is then
+     * empty again, to be reused.
+     */
+    String toCode(String header, String call, String footer, StringBuilder helpers) {
+        chunks.add(chunk.toString());
+        chunk = new StringBuilder();
+        chunkSize = 0;
+
+        StringBuilder retVal = new StringBuilder();
+        if (chunks.size() == 1) {
+            retVal.append(chunks.get(0));
+        } else {
+            final String tabs = header.substring(0, indent(header));
+            for (int i = 0; i < chunks.size(); i++) {
+                retVal.append(String.format(call, i)).append(endl);
+                helpers.append(String.format(header, i)).append(endl);
+                helpers.append(tabs).append('{').append(endl);
+                helpers.append(chunks.get(i)).append(footer);
+                helpers.append(tabs).append('}').append(endl).append(endl);
+            }
+        }
+        chunks.clear();
+
+        return retVal.toString();
+    }
+
+    /**
+     * To estimate the size of the bytecode of some code.
+     *
+     * @param code the code, made of whole lines.
+     * @return the estimated size, in bytes.
+     */
+    static int estimate(String code) {
+        int retVal = 0;
+        for (String line : code.split("\n")) {
+            line = line.trim();
+            if (!line.startsWith("//"))
+                retVal += line.replaceAll("\\s", "").length();
+        }
+        return retVal / 2;
+    }
+
+    /**
+     * @return the number of tabs a line starts with.
+     */
+    private static int indent(String line) {
+        int retVal = 0;
+        while (retVal < line.length() && line.charAt(retVal) == '\t')
+            retVal++;
+        return retVal;
+    }
+}
@@ -0,0 +1,307 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.Arrays;
+
+/**
+ * A plan encoded as an array of integers, for storing large numbers of plans
+ * cheaply.
+ * <p>
+ * The array starts with the number of steps in the plan. Each step follows as
+ * the index of its primitive task, its argument list and its cost, where
+ * terms are encoded as follows:
+ * <ul>
+ * <li>A constant symbol is its index in the {@link Domain}, which is never
+ * negative.</li>
+ * <li>A number is {@link #TAG_INT} followed by its value if it is an integer,
+ * {@link #TAG_NUMBER} followed by the two halves of its bits otherwise.</li>
+ * <li><code>NIL</code> is {@link #TAG_NIL}.</li>
+ * <li>Any other list is {@link #TAG_LIST} followed by the number of its
+ * elements, the elements, and the term that ends the list, which is
+ * <code>NIL</code> unless the list is dotted.</li>
+ * </ul>
+ * Only ground plans can be encoded, i.e., plans in which no step contains
+ * variables or calls.
+ * <p>
+ * A step is identified by the head of its primitive task, rather than by the
+ * index of the operator that achieved it, since a {@link Plan} only keeps the
+ * ground task. A plan whose primitive task has several operators therefore
+ * does not tell which of them was used, before or after it is encoded.
+ */
+public final class CompactPlan {
+    /**
+     * Tag of a number that is not an integer.
+     */
+    static final int TAG_NUMBER = -1;
+    /**
+     * Tag of <code>NIL</code>.
+     */
+    static final int TAG_NIL = -2;
+    /**
+     * Tag of a list that is not <code>NIL</code>.
+     */
+    static final int TAG_LIST = -3;
+    /**
+     * Tag of an integer number.
+     */
+    static final int TAG_INT = -4;
+    /**
+     * Tag of a variable symbol, followed by its index. Only used in traces,
+     * see {@link SearchTrace}.
+     */
+    static final int TAG_VARIABLE = -5;
+    /**
+     * Tag of a term that cannot be encoded, i.e., a code call whose arguments
+     * are not bound yet. Only used in traces, and decoded as <code>NIL</code>.
+     */
+    static final int TAG_UNKNOWN = -6;
+
+    /**
+     * The encoded plan.
+     */
+    private final int[] code;
+
+    /**
+     * To initialize this object.
+     *
+     * @param codeIn the encoded plan. Not copied.
+     */
+    CompactPlan(int[] codeIn) {
+        code = codeIn;
+    }
+
+    /**
+     * To encode a plan.
+     *
+     * @param plan the plan to be encoded.
+     * @return the encoded plan.
+     * @throws IllegalArgumentException if the plan is not ground.
+     */
+    public static CompactPlan encode(Plan plan) {
+        //-- Collect the steps first to last.
+        PlanStep[] steps = new PlanStep[plan.size()];
+        for (PlanStep step = plan.getLastStep(); step != null; step = step.getPrevious())
+            steps[step.getLength() - 1] = step;
+
+        //-- Most steps are short, so start with a few integers per step.
+        Encoder e = new Encoder(1 + steps.length * 8, true);
+        e.put(steps.length);
+        for (PlanStep step : steps) {
+            e.put(step.getOperator().head);
+            e.putTerm(step.getOperator().param);
+            e.putTerm(step.getOperatorCost());
+        }
+
+        return new CompactPlan(e.toArray());
+    }
+
+    /**
+     * To decode this plan.
+     *
+     * @param domain      the domain whose constant symbols the plan refers to.
+     *                    The constant symbols of the problem must have been
+     *                    added to it with {@link Domain#addConstant(String)}.
+     * @param initialCost the cost of the empty plan. Not modified.
+     * @return the decoded plan.
+     * @throws java.util.NoSuchElementException if the plan refers to a
+     *                                          constant symbol the domain does not know.
+     */
+    public Plan decode(Domain domain, Cost initialCost) {
+        Decoder d = new Decoder(domain, code, 0);
+        Plan plan = new Plan(initialCost);
+
+        final int size = d.next();
+        for (int i = 0; i < size; i++) {
+            final int head = d.next();
+            final Term param = d.term();
+            plan.addStep(new Predicate(head, 0, param), d.term());
+        }
+
+        return plan;
+    }
+
+    /**
+     * @return the number of steps in this plan.
+     */
+    public int size() {
+        return code[0];
+    }
+
+    /**
+     * @return a copy of the encoded plan.
+     */
+    public int[] toArray() {
+        return code.clone();
+    }
+
+    /**
+     * @return the encoded plan itself, not to be modified.
+     */
+    int[] getCode() {
+        return code;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CompactPlan && Arrays.equals(code, ((CompactPlan) obj).code);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(code);
+    }
+
+    /**
+     * Growable array of integers to encode a plan into.
+     */
+    static class Encoder {
+        /**
+         * Whether only ground terms may be encoded.
+         */
+        private final boolean ground;
+        private int[] buf;
+        private int size;
+
+        Encoder(int capacity, boolean groundIn) {
+            buf = new int[capacity];
+            ground = groundIn;
+        }
+
+        /**
+         * To empty the array, keeping its capacity.
+         */
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the array itself, of which the first {@link #size()}
+         * integers are used.
+         */
+        int[] buffer() {
+            return buf;
+        }
+
+        void set(int i, int value) {
+            buf[i] = value;
+        }
+
+        void put(int i) {
+            if (size == buf.length)
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[size++] = i;
+        }
+
+        void putTerm(Term t) {
+            if (t instanceof TermConstant) {
+                put(((TermConstant) t).getIndex());
+            } else if (t instanceof TermNumber) {
+                final double number = ((TermNumber) t).getNumber();
+                if (number == (int) number && Double.doubleToLongBits(number) != Double.doubleToLongBits(-0.0)) {
+                    put(TAG_INT);
+                    put((int) number);
+                } else {
+                    final long bits = Double.doubleToLongBits(number);
+                    put(TAG_NUMBER);
+                    put((int) (bits >>> 32));
+                    put((int) bits);
+                }
+            } else if (t instanceof TermList) {
+                List l = ((TermList) t).getList();
+                if (l == null) {
+                    put(TAG_NIL);
+                    return;
+                }
+
+                //-- Reserve room for the number of elements.
+                put(TAG_LIST);
+                final int countAt = size;
+                put(0);
+
+                //-- Write the elements as long as the tail is a list.
+                int count = 0;
+                Term tail;
+                while (true) {
+                    putTerm(l.getHead());
+                    count++;
+                    tail = l.getTail();
+                    if (!(tail instanceof TermList) || tail.isNil())
+                        break;
+                    l = ((TermList) tail).getList();
+                }
+                buf[countAt] = count;
+
+                putTerm(tail);
+            } else if (ground) {
+                throw new IllegalArgumentException(String.format("Cannot encode term %s, plan is not ground.", t));
+            } else if (t instanceof TermVariable) {
+                put(TAG_VARIABLE);
+                put(((TermVariable) t).getIndex());
+            } else {
+                put(TAG_UNKNOWN);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /**
+     * Reads terms back from an encoded plan.
+     */
+    static class Decoder {
+        private final Domain domain;
+        private final int[] code;
+        private int pos;
+
+        Decoder(Domain domainIn, int[] codeIn, int posIn) {
+            domain = domainIn;
+            code = codeIn;
+            pos = posIn;
+        }
+
+        int next() {
+            return code[pos++];
+        }
+
+        int position() {
+            return pos;
+        }
+
+        Term term() {
+            final int tag = next();
+            if (tag >= 0)
+                return domain.getTermConstant(tag);
+
+            switch (tag) {
+                case TAG_INT:
+                    return new TermNumber(next());
+                case TAG_NUMBER:
+                    final long high = next();
+                    return new TermNumber(Double.longBitsToDouble((high << 32) | (next() & 0xffffffffL)));
+                case TAG_NIL:
+                case TAG_UNKNOWN:
+                    return TermList.NIL;
+                case TAG_VARIABLE:
+                    return new TermVariable(next());
+                case TAG_LIST:
+                    final int count = next();
+                    Term[] elements = new Term[count];
+                    for (int i = 0; i < count; i++)
+                        elements[i] = term();
+
+                    //-- Build the list back to front.
+                    Term retVal = term();
+                    for (int i = count - 1; i >= 0; i--)
+                        retVal = new TermList(elements[i], retVal);
+                    return retVal;
+                default:
+                    throw new IllegalArgumentException(String.format("Corrupt plan: Unknown tag %d at %d.", tag, pos - 1));
+            }
+        }
+    }
+}
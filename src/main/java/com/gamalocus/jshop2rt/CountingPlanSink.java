@@ -0,0 +1,49 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * Plan sink that only counts the plans found, without keeping any of them.
+ * Optionally, the search can be stopped once a given number of plans has
+ * been found.
+ */
+public class CountingPlanSink implements PlanSink {
+    /**
+     * The number of plans after which the search is stopped.
+     */
+    private final long limit;
+
+    /**
+     * The number of plans found so far.
+     */
+    private long count;
+
+    /**
+     * To initialize a sink that counts all the plans there are.
+     */
+    public CountingPlanSink() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * To initialize a sink that stops the search after a given number of
+     * plans.
+     *
+     * @param limitIn the number of plans after which the search is stopped.
+     */
+    public CountingPlanSink(long limitIn) {
+        if (limitIn < 1) {
+            throw new IllegalArgumentException(String.format("Plan limit must be positive, was %d.", limitIn));
+        }
+        limit = limitIn;
+    }
+
+    public boolean planFound(Plan plan) {
+        return ++count < limit;
+    }
+
+    /**
+     * @return the number of plans found so far.
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gamalocus.jshop2rt;
 
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -84,6 +85,17 @@ public class DelAddAtomic extends DelAddElement {
         atom.setVarCount(varCount);
     }
 
+    /**
+     * To record the head of the atom to be deleted/added.
+     */
+    @Override
+    boolean collectChanges(BitSet heads) {
+        if (atom.isVar())
+            return false;
+        heads.set(atom.head);
+        return true;
+    }
+
     /**
      * This function produces Java code to create this atomic delete/add
      * element.
@@ -91,4 +103,14 @@ public class DelAddAtomic extends DelAddElement {
     public String toCode(String label) {
         return "new DelAddAtomic(" + atom.toCode(label) + ")";
     }
+
+    DelAddElement instantiate(InterpretedDomain owner) {
+        return new DelAddAtomic(atom.instantiate(owner));
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(DelAddAtomic.class);
+        atom.toBytecode(e);
+        e.construct(DelAddAtomic.class, Predicate.class);
+    }
 }
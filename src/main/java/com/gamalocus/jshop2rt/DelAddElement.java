@@ -1,6 +1,7 @@
 package com.gamalocus.jshop2rt;
 
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -59,4 +60,43 @@ public abstract class DelAddElement extends CompileTimeObject implements Seriali
      * @param varCount the number of variables.
      */
     public abstract void setVarCount(int varCount);
+
+    /**
+     * To create this delete/add element at run time, without generating code
+     * for it.
+     *
+     * @param owner the domain this element is part of.
+     * @return the delete/add element at run time.
+     */
+    abstract DelAddElement instantiate(InterpretedDomain owner);
+
+    /**
+     * To emit the bytecode that creates this delete/add element at run time.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    abstract void toBytecode(BytecodeEmitter e);
+
+    /**
+     * To record the heads of the atoms this delete/add element reads from the
+     * state of the world, for {@link Reachability}. Only <code>ForAll</code>
+     * elements read any, therefore, this function does nothing.
+     *
+     * @param uses where the heads are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+    }
+
+    /**
+     * To record the heads of the atoms this delete/add element deletes or
+     * adds, for {@link StaticFacts}. Protections change no atoms, therefore,
+     * this function records nothing.
+     *
+     * @param heads where the heads are recorded.
+     * @return whether the heads of all the atoms are known, i.e., none of the
+     * atoms is a variable.
+     */
+    boolean collectChanges(BitSet heads) {
+        return true;
+    }
 }
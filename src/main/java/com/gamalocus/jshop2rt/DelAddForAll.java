@@ -1,5 +1,6 @@
 package com.gamalocus.jshop2rt;
 
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -230,6 +231,30 @@ public class DelAddForAll extends DelAddElement {
         for (Predicate atom : atoms) atom.setVarCount(varCount);
     }
 
+    /**
+     * To record the heads of the atoms the logical expression of this
+     * <code>ForAll</code> delete/add element reads.
+     */
+    @Override
+    void collectUses(Reachability.Uses uses) {
+        exp.collectUses(uses);
+    }
+
+    /**
+     * To record the heads of the atoms to be deleted/added.
+     */
+    @Override
+    boolean collectChanges(BitSet heads) {
+        boolean retVal = true;
+        for (Predicate atom : atoms) {
+            if (atom.isVar())
+                retVal = false;
+            else
+                heads.set(atom.head);
+        }
+        return retVal;
+    }
+
     /**
      * This function produces Java code to create this <code>ForAll</code>
      * delete/add element.
@@ -237,4 +262,35 @@ public class DelAddForAll extends DelAddElement {
     public String toCode(String label) {
         return "new DelAddForAll(" + exp.toCode(label) + ", atoms" + cnt + ")";
     }
+
+    /**
+     * To create this <code>ForAll</code> delete/add element at run time. Like
+     * the code produced by <code>getInitCode</code>, the precondition is
+     * created with an empty unifier.
+     */
+    DelAddElement instantiate(InterpretedDomain owner) {
+        Predicate[] atomsIn = new Predicate[atoms.length];
+        for (int i = 0; i < atoms.length; i++)
+            atomsIn[i] = atoms[i].instantiate(owner);
+
+        return new DelAddForAll(exp.toPrecondition(owner, new Term[exp.getVarCount()]), atomsIn);
+    }
+
+    /**
+     * Like the code produced by <code>getInitCode</code>, the precondition is
+     * created with an empty unifier.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.emptyUnifier(exp.getVarCount());
+
+        e.newObject(DelAddForAll.class);
+        exp.toBytecode(e);
+        e.newArray(Predicate.class, atoms.length);
+        for (int i = 0; i < atoms.length; i++) {
+            e.element(i);
+            atoms[i].toBytecode(e);
+            e.store();
+        }
+        e.construct(DelAddForAll.class, Precondition.class, Predicate[].class);
+    }
 }
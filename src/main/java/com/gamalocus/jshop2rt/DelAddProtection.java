@@ -77,4 +77,14 @@ public class DelAddProtection extends DelAddElement {
     public String toCode(String label) {
         return "new DelAddProtection(" + atom.toCode(label) + ")";
     }
+
+    DelAddElement instantiate(InterpretedDomain owner) {
+        return new DelAddProtection(atom.instantiate(owner));
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(DelAddProtection.class);
+        atom.toBytecode(e);
+        e.construct(DelAddProtection.class, Predicate.class);
+    }
 }
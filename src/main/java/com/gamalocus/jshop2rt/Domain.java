@@ -1,11 +1,20 @@
 package com.gamalocus.jshop2rt;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Each domain at run time is represented as a class derived from this
  * abstract class.
  * <p>
+ * The operators, methods and axioms of a domain are created for each head the
+ * first time they are asked for, by {@link #createOperators(int)},
+ * {@link #createMethods(int)} and {@link #createAxioms(int)}, so that the
+ * classes of those a problem never uses are never loaded. Once created, they
+ * are read without locking.
+ * <p>
  * FIXME Initialize most variables through constructor and tag them as final.
  *
  * @author Okhtay Ilghami
@@ -13,15 +22,65 @@ import java.util.*;
  * @version 1.0.3
  */
 public class Domain  {
+    private static final VarHandle OPS = MethodHandles.arrayElementVarHandle(Operator[][].class);
+    private static final VarHandle METHODS = MethodHandles.arrayElementVarHandle(Method[][].class);
+    private static final VarHandle AXIOMS = MethodHandles.arrayElementVarHandle(Axiom[][].class);
+    private static final VarHandle CONSTANTS = MethodHandles.arrayElementVarHandle(TermConstant[].class);
+
+    private static final Operator[] NO_OPERATORS = new Operator[0];
+    private static final Method[] NO_METHODS = new Method[0];
+    private static final Axiom[] NO_AXIOMS = new Axiom[0];
 
+    /**
+     * To create a domain from its model.
+     * <p>
+     * The constant symbols of the model are numbered from 0, in the order of
+     * {@link Model#constants()}, so that each is associated with the same
+     * integer as in the model, and the constant counter starts after the last
+     * of them. This used to start the counter at
+     * {@link Model#getConstantsSize()}, the number of constant symbols of the
+     * domain description, which was never set and so always 0, and number the
+     * constants from there: the integers are the same as before. The number
+     * is now set, when the domain is closed, but only the code generated for
+     * the problems uses it, to tell their constant symbols from those of the
+     * domain description.
+     *
+     * @param model the model of the domain, after {@link Model#domain()}.
+     */
     public Domain(Model model) {
         primitiveTasks = model.getPrimitiveTasks().toArray(new String[0]);
         compoundTasks = model.getCompoundTasks().toArray(new String[0]);
-        int ms = (maxTermConstantIndex = model.getConstantsSize());
-        for (int i = 0; i < ms; i++)
-            model.constants.forEach(this::addConstant);
+        constants = model.constants().toArray(new String[0]);
+        primitiveTaskIndexes = indexes(primitiveTasks);
+        compoundTaskIndexes = indexes(compoundTasks);
+
+        //-- The constant symbols of the domain, in a single pass, so that they
+        //-- are associated with the same integers as in the model. Subclasses
+        //-- that initialize them again find them all there already.
+        termConstants = new TermConstant[constants.length];
+        initializeTermConstants();
+
+        //-- The pragmas of the domain.
+        declaredStatic = model.getDeclaredStaticHeads();
+        indexes = new int[model.constants.size()];
+        Arrays.fill(indexes, -1);
+        model.getIndexes().forEach((head, arg) -> indexes[head] = arg);
     }
 
+    /**
+     * The heads declared static by the <code>:static</code> pragmas of the
+     * domain description.
+     */
+    private final BitSet declaredStatic;
+
+    /**
+     * The argument the atoms of each head are indexed by in the state of the
+     * world, from the <code>:index</code> pragmas of the domain description,
+     * indexed by the head, -1 for the heads that are not indexed. It is shared
+     * by the states of the domain, and is not to be modified.
+     */
+    final int[] indexes;
+
     /**
      * To represent the constant symbols that we already know exist, so that
      * there will be no duplicate copies of those symbols. In other words, all
@@ -33,21 +92,29 @@ public class Domain  {
      * <p>
      * These <code>String</code>s are only used to print
      * the constant symbols, since the constant symbols are mapped to integers
-     * at compile time. The same integers are used to index this map.
+     * at compile time. The same integers are used to index this array.
      * <p>
-     * Note: This was rewritten from an array to a map, to support a
-     * dynamically changing set of constants.
+     * Constants are added, and removed, while planners read them, so the
+     * elements are written under the lock of this object with release
+     * semantics, and read without locking with acquire semantics. When the
+     * array is full it is replaced by a larger copy, rather than grown in
+     * place. The elements of the removed constants are <code>null</code>.
      * <p>
      * The constants with names from the constants array will always be
-     * present in this map.
+     * present in this array.
      */
-    protected final Map<Integer, TermConstant> termConstants =
-            new HashMap<>();
+    private volatile TermConstant[] termConstants;
     /**
      * Convenience table for lookup by name.
      */
-    protected final Map<String, TermConstant> termConstantsByName =
-            new HashMap<>();
+    private final Map<String, TermConstant> termConstantsByName =
+            new ConcurrentHashMap<>();
+    /**
+     * The integers associated with the names of the compound tasks and the
+     * primitive tasks, for lookup by name.
+     */
+    private final Map<String, Integer> compoundTaskIndexes;
+    private final Map<String, Integer> primitiveTaskIndexes;
     /**
      * The <code>String</code> names of compound tasks that appear in the
      * domain description. These <code>String</code>s are only used to print the
@@ -65,7 +132,9 @@ public class Domain  {
     /**
      * The operators in this domain. The array is indexed by first the primitive
      * task each operator can achieve, and second the order the operators that
-     * achieve the same primitive task appear in the domain description.
+     * achieve the same primitive task appear in the domain description. The
+     * operators of a primitive task are <code>null</code> until
+     * {@link #getOperators(int)} creates them.
      */
     public Operator[][] ops;
 
@@ -79,13 +148,17 @@ public class Domain  {
     /**
      * The axioms in this domain. The array is indexed by first the
      * predicate each axiom can prove, and second the order the axioms that
-     * prove the same predicate appear in the domain description.
+     * prove the same predicate appear in the domain description. The axioms
+     * of a predicate are <code>null</code> until {@link #getAxioms(int)}
+     * creates them.
      */
     protected Axiom[][] axioms;
     /**
      * The methods in this domain. The array is indexed by first the compound
      * task each method can decompose, and second the order the methods that
-     * decompose the same compound task appear in the domain description.
+     * decompose the same compound task appear in the domain description. The
+     * methods of a compound task are <code>null</code> until
+     * {@link #getMethods(int)} creates them.
      */
     protected Method[][] methods;
     /**
@@ -98,9 +171,20 @@ public class Domain  {
     protected TermVariable[] termVariables;
 
     /**
-     * Counter for unique constant ids.
+     * Counter for unique constant ids, only changed under the lock of this
+     * object.
      */
-    protected int maxTermConstantIndex = 0;
+    protected volatile int maxTermConstantIndex = 0;
+
+    /**
+     * @return the index of each name in an array of names.
+     */
+    private static Map<String, Integer> indexes(String[] names) {
+        Map<String, Integer> retVal = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++)
+            retVal.putIfAbsent(names[i], i);
+        return retVal;
+    }
 
     /**
      * To return the correponding existing variable symbol.
@@ -135,7 +219,9 @@ public class Domain  {
      * @return the corresponding existing constant symbol, or <code>null</code> if no such symbol exists.
      */
     public TermConstant getTermConstant(int index) {
-        TermConstant t = termConstants.get(index);
+        final TermConstant[] table = termConstants;
+        final TermConstant t = index >= 0 && index < table.length ?
+                (TermConstant) CONSTANTS.getAcquire(table, index) : null;
         if (t == null) {
             throw new NoSuchElementException(String.format("No constant with index %d.", index));
         }
@@ -170,30 +256,43 @@ public class Domain  {
      * the two domain instances.
      */
     public void initializeTermConstants(Domain other) {
-        termConstants.clear();
-        termConstantsByName.clear();
-        for (TermConstant t : other.termConstants.values()) {
-            termConstants.put(t.getIndex(), t);
-            termConstantsByName.put(t.getName(), t);
+        final TermConstant[] table;
+        final int max;
+        synchronized (other) {
+            table = other.termConstants.clone();
+            max = other.maxTermConstantIndex;
+        }
+
+        synchronized (this) {
+            termConstantsByName.clear();
+            termConstants = table;
+            for (TermConstant t : table) {
+                if (t != null)
+                    termConstantsByName.put(t.getName(), t);
+            }
+            maxTermConstantIndex = max;
         }
     }
 
     /**
      * Expands the list of problem constants by adding the given name.
      */
-    public void addConstant(String name) {
+    public synchronized void addConstant(String name) {
         // Make sure it doesn't already exist.
-        TermConstant t = termConstantsByName.get(name);
-        if (t == null) {
-            int i = maxTermConstantIndex++;
-            TermConstant cc = new TermConstant(i, name);
-            termConstants.put(i, cc);
-            termConstantsByName.put(name, cc);
-        } else {
+        if (termConstantsByName.containsKey(name))
             return;
-        }
 
+        final int i = maxTermConstantIndex++;
+        TermConstant[] table = termConstants;
+        if (i >= table.length)
+            table = Arrays.copyOf(table, Math.max(i + 1, 2 * table.length));
 
+        //-- The constant is in the array before the array is published, and
+        //-- in both before it can be found by its name.
+        TermConstant cc = new TermConstant(i, name);
+        CONSTANTS.setRelease(table, i, cc);
+        termConstants = table;
+        termConstantsByName.put(name, cc);
     }
 
     /**
@@ -203,13 +302,15 @@ public class Domain  {
      * @return <code>true</code> if the constant was removed,
      * <code>false</code> if nothing happened.
      */
-    public boolean removeConstant(int index) {
+    public synchronized boolean removeConstant(int index) {
         if (index < constants.length) {
             return false;
         }
 
-        final TermConstant t = termConstants.remove(index);
+        final TermConstant[] table = termConstants;
+        final TermConstant t = index < table.length ? table[index] : null;
         if (t != null) {
+            CONSTANTS.setRelease(table, index, null);
             if (termConstantsByName.remove(t.getName()) != t) {
                 throw new AssertionError(String.format("Constant %s existed only in index table.",
                         t.getName()));
@@ -221,14 +322,156 @@ public class Domain  {
     }
 
     /**
-     * This function returns the axioms in this domain.
+     * This function returns the axioms in this domain, all of which are
+     * created if they have not been already.
      *
      * @return the axioms in this domain.
      */
     public Axiom[][] getAxioms() {
+        for (int i = 0; i < axioms.length; i++)
+            getAxioms(i);
         return axioms;
     }
 
+    /**
+     * To return the operators that can achieve a primitive task, creating
+     * them the first time.
+     *
+     * @param head the integer associated with the primitive task.
+     * @return the operators, in the order they appear in the domain
+     * description.
+     */
+    public Operator[] getOperators(int head) {
+        final Operator[] retVal = (Operator[]) OPS.getAcquire(ops, head);
+        return retVal != null ? retVal : initOperators(head);
+    }
+
+    /**
+     * To return the methods that can decompose a compound task, creating them
+     * the first time.
+     *
+     * @param head the integer associated with the compound task.
+     * @return the methods, in the order they appear in the domain
+     * description.
+     */
+    public Method[] getMethods(int head) {
+        final Method[] retVal = (Method[]) METHODS.getAcquire(methods, head);
+        return retVal != null ? retVal : initMethods(head);
+    }
+
+    /**
+     * To return the axioms that can prove the predicates that start with a
+     * constant symbol, creating them the first time.
+     *
+     * @param head the integer associated with the constant symbol.
+     * @return the axioms, in the order they appear in the domain description.
+     */
+    public Axiom[] getAxioms(int head) {
+        final Axiom[] retVal = (Axiom[]) AXIOMS.getAcquire(axioms, head);
+        return retVal != null ? retVal : initAxioms(head);
+    }
+
+    /**
+     * To classify the heads of the atoms as static or fluent, see
+     * {@link Model#getStaticHeads()}. All the operators are created to do so.
+     *
+     * @return the integers associated with the constant symbols known so far
+     * that are static heads. If any operator deletes or adds a list that is a
+     * variable, or an atom that is a variable, no head is static but those
+     * declared so.
+     */
+    public BitSet getStaticHeads() {
+        BitSet retVal = (BitSet) declaredStatic.clone();
+        BitSet fluent = new BitSet();
+        for (int i = 0; i < ops.length; i++)
+            for (Operator o : getOperators(i))
+                if (!o.collectChanges(fluent))
+                    return retVal;
+
+        retVal.set(0, maxTermConstantIndex);
+        retVal.andNot(fluent);
+        retVal.or(declaredStatic);
+        return retVal;
+    }
+
+    /**
+     * @param head the integer associated with a constant symbol.
+     * @return the argument the atoms that start with the constant symbol are
+     * indexed by in the state of the world, see
+     * {@link Model#addIndex(String, int, String, int, int)}, or -1 if they are
+     * not indexed.
+     */
+    public int getIndexedArgument(int head) {
+        return head < indexes.length ? indexes[head] : -1;
+    }
+
+    //-- The operators, methods and axioms of a head are created only once, by
+    //-- whichever thread first asks for them, and then published with release
+    //-- semantics so that they are seen fully constructed by the others.
+
+    private synchronized Operator[] initOperators(int head) {
+        Operator[] retVal = ops[head];
+        if (retVal == null) {
+            retVal = createOperators(head);
+            OPS.setRelease(ops, head, retVal);
+        }
+        return retVal;
+    }
+
+    private synchronized Method[] initMethods(int head) {
+        Method[] retVal = methods[head];
+        if (retVal == null) {
+            retVal = createMethods(head);
+            METHODS.setRelease(methods, head, retVal);
+        }
+        return retVal;
+    }
+
+    private synchronized Axiom[] initAxioms(int head) {
+        Axiom[] retVal = axioms[head];
+        if (retVal == null) {
+            retVal = createAxioms(head);
+            AXIOMS.setRelease(axioms, head, retVal);
+        }
+        return retVal;
+    }
+
+    /**
+     * To create the operators that can achieve a primitive task. The domains
+     * that do not set their operators up front override this function.
+     *
+     * @param head the integer associated with the primitive task.
+     * @return the operators, in the order they appear in the domain
+     * description.
+     */
+    protected Operator[] createOperators(int head) {
+        return NO_OPERATORS;
+    }
+
+    /**
+     * To create the methods that can decompose a compound task. The domains
+     * that do not set their methods up front override this function.
+     *
+     * @param head the integer associated with the compound task.
+     * @return the methods, in the order they appear in the domain
+     * description.
+     */
+    protected Method[] createMethods(int head) {
+        return NO_METHODS;
+    }
+
+    /**
+     * To create the axioms that can prove the predicates that start with a
+     * constant symbol. The domains that do not set their axioms up front
+     * override this function.
+     *
+     * @param head the integer associated with the constant symbol.
+     * @return the axioms, in the order they appear in the domain description.
+     */
+    protected Axiom[] createAxioms(int head) {
+        return NO_AXIOMS;
+    }
+
     /**
      * This function returns the <code>String</code> representation of a given
      * constant symbol that appears in the domain description, the problem
@@ -238,18 +481,21 @@ public class Domain  {
      * @return the <code>String</code> representation of the constant symbol.
      */
     public String getConstant(int idx) {
-        TermConstant t = termConstants.get(idx);
-        if (t == null) {
-            throw new NoSuchElementException(String.format("No constant with index %d.", idx));
-        }
-        return t.getName();
+        return getTermConstant(idx).getName();
     }
 
     /**
-     * Returns all defined termconstants.
+     * Returns all defined termconstants, in the order of their integers.
      */
     public Collection<TermConstant> getTermConstants() {
-        return Collections.unmodifiableCollection(termConstants.values());
+        final TermConstant[] table = termConstants;
+        final java.util.List<TermConstant> retVal = new ArrayList<>(table.length);
+        for (int i = 0; i < table.length; i++) {
+            final TermConstant t = (TermConstant) CONSTANTS.getAcquire(table, i);
+            if (t != null)
+                retVal.add(t);
+        }
+        return Collections.unmodifiableList(retVal);
     }
 
     /**
@@ -273,12 +519,8 @@ public class Domain  {
     }
 
     public int getPrimitiveTaskIndex(String primitiveTaskName) {
-        for (int i = 0; i < primitiveTasks.length; ++i) {
-            if (primitiveTasks[i].equals(primitiveTaskName)) {
-                return i;
-            }
-        }
-        return -1;
+        final Integer retVal = primitiveTaskIndexes.get(primitiveTaskName);
+        return retVal != null ? retVal : -1;
     }
 
     /**
@@ -289,15 +531,11 @@ public class Domain  {
         if (i == -1) {
             throw new NoSuchElementException(String.format("No composite task with name %s.", compoundTaskName));
         }
-        return methods[i];
+        return getMethods(i);
     }
 
     protected int getCompoundTaskIndex(String compoundTaskName) {
-        for (int i = 0; i < compoundTasks.length; ++i) {
-            if (compoundTasks[i].equals(compoundTaskName)) {
-                return i;
-            }
-        }
-        return -1;
+        final Integer retVal = compoundTaskIndexes.get(compoundTaskName);
+        return retVal != null ? retVal : -1;
     }
 }
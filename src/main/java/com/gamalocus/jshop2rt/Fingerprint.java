@@ -0,0 +1,137 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * Computes 64-bit hashes of terms, predicates and task networks, for use as
+ * keys where the 32-bit <code>hashCode()</code> of these objects would collide
+ * too often, e.g., in a {@link NogoodCache}.
+ * <p>
+ * The hashes are deterministic, i.e., they do not depend on object identity,
+ * so equal structures have equal hashes in different runs.
+ */
+final class Fingerprint {
+    private static final long CONSTANT = 0x9E3779B97F4A7C15L;
+    private static final long NUMBER = 0xC2B2AE3D27D4EB4FL;
+    private static final long NIL = 0x165667B19E3779F9L;
+    private static final long LIST = 0xD6E8FEB86659FD93L;
+    private static final long VARIABLE = 0xFF51AFD7ED558CCDL;
+    private static final long CALL = 0xC4CEB9FE1A85EC53L;
+    private static final long ATOM = 0x27D4EB2F165667C5L;
+    private static final long ORDERED = 0x85EBCA77C2B2AE63L;
+    private static final long UNORDERED = 0x94D049BB133111EBL;
+    private static final long CHOSEN = 0xBF58476D1CE4E5B9L;
+
+    private Fingerprint() {
+    }
+
+    /**
+     * The finalizer of <code>SplitMix64</code>, to spread the bits of a value
+     * over the whole hash.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the hash of a term.
+     */
+    static long of(Term t) {
+        if (t instanceof TermConstant)
+            return mix(CONSTANT + ((TermConstant) t).getIndex());
+        if (t instanceof TermNumber)
+            return mix(NUMBER ^ Double.doubleToLongBits(((TermNumber) t).getNumber()));
+        if (t instanceof TermVariable)
+            return mix(VARIABLE + ((TermVariable) t).getIndex());
+        if (t instanceof TermList)
+            return of(((TermList) t).getList());
+        if (t instanceof TermCall) {
+            //-- By the name of the function and the arguments, so that equal
+            //-- calls hash alike in every domain they are made in.
+            final TermCall call = (TermCall) t;
+            return mix(CALL + call.getFunc().hashCode() * 31L + of(call.getArgs()));
+        }
+        return 0;
+    }
+
+    /**
+     * @return the hash of a list, the same as that of the list term made of
+     * it.
+     */
+    private static long of(List list) {
+        long h = NIL;
+        for (List l = list; l != null; ) {
+            h = mix(h * 31 + LIST + of(l.getHead()));
+            final Term tail = l.getTail();
+            if (tail instanceof TermList) {
+                l = ((TermList) tail).getList();
+            } else {
+                //-- A dotted list.
+                h = mix(h * 31 + of(tail));
+                l = null;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return the hash of a predicate.
+     */
+    static long of(Predicate p) {
+        return of(p.head, p.param);
+    }
+
+    /**
+     * @return the hash of the predicate with the given head and argument
+     * list.
+     */
+    static long of(int head, Term param) {
+        return mix(head * CONSTANT + of(param));
+    }
+
+    /**
+     * To calculate the hash of a task network, together with the position in
+     * it of the task list a frame of the planner is working on.
+     * <p>
+     * Empty task lists are skipped, since they do not change what remains to be
+     * done. An empty chosen task list is treated as the whole task network,
+     * since the planner moves on to the whole task network right away in that
+     * case.
+     *
+     * @param tasks  the whole task network.
+     * @param chosen the task list being worked on, part of <code>tasks</code>.
+     * @return the hash.
+     */
+    static long of(TaskList tasks, TaskList chosen) {
+        if (chosen.isEmpty())
+            chosen = tasks;
+        return of(tasks, chosen, new boolean[1]);
+    }
+
+    /**
+     * @param empty set to <code>true</code> if the task list turns out to be
+     *              empty, in which case the return value is meaningless.
+     */
+    private static long of(TaskList tl, TaskList chosen, boolean[] empty) {
+        long h;
+        final TaskList[] subtasks = tl.getSubtasks();
+        if (subtasks == null) {
+            final TaskAtom t = tl.getTask();
+            h = mix(ATOM + of(t.getHead()) + (t.isImmediate() ? 1 : 0) + (t.isPrimitive() ? 2 : 0));
+            empty[0] = false;
+        } else {
+            h = tl.isOrdered() ? ORDERED : UNORDERED;
+            boolean allEmpty = true;
+            for (TaskList subtask : subtasks) {
+                final long sub = of(subtask, chosen, empty);
+                if (!empty[0]) {
+                    h = mix(h * 31 + sub);
+                    allEmpty = false;
+                }
+            }
+            empty[0] = allEmpty;
+        }
+
+        return tl == chosen ? mix(h ^ CHOSEN) : h;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * Plan sink that keeps the first plan found and stops the search right
+ * after it.
+ */
+public class FirstPlanSink implements PlanSink {
+    /**
+     * The first plan found, or <code>null</code> if none has been found yet.
+     */
+    private Plan plan;
+
+    public boolean planFound(Plan planIn) {
+        plan = (Plan) planIn.clone();
+        return false;
+    }
+
+    /**
+     * @return the first plan found, or <code>null</code> if no plan has been
+     * found (yet).
+     */
+    public Plan getPlan() {
+        return plan;
+    }
+}
@@ -1,5 +1,8 @@
 package com.gamalocus.jshop2rt;
 
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
 import java.util.Vector;
 
 /**
@@ -52,6 +55,29 @@ public class InternalAxiom extends InternalElement {
             pre.setVarCount(getHead().getVarCount());
     }
 
+    /**
+     * To record the heads of the atoms the branches of this axiom read, for
+     * {@link Reachability}.
+     *
+     * @param uses where the heads are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+        for (LogicalPrecondition pre : branches)
+            pre.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the branches of this axiom by the cardinality
+     * hints of the domain.
+     *
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head, -1 for the heads whose atoms are not to be moved.
+     */
+    void orderConjuncts(int[] hints) {
+        for (LogicalPrecondition pre : branches)
+            pre.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code needed to implement this axiom.
      */
@@ -142,4 +168,68 @@ public class InternalAxiom extends InternalElement {
         //-- resulting string.
         return s + "\t\t}" + endl + "\t}" + endl + endl;
     }
+
+    /**
+     * This function creates the axiom at run time without producing any code
+     * for it. The axiom behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param domain the domain the axiom is part of.
+     * @param label  the label of the axiom.
+     * @return the axiom.
+     */
+    Axiom instantiate(final InterpretedDomain domain, String label) {
+        final LogicalPrecondition[] p = branches.toArray(new LogicalPrecondition[0]);
+        final String[] l = labels.toArray(new String[0]);
+        final String name = label + ' ' + getSourcePosForToString();
+
+        return new Axiom(domain, getHead().instantiate(domain), p.length) {
+            @Override
+            public String toString() {
+                return name;
+            }
+
+            public Precondition getIterator(State state, Term[] unifier, int which) {
+                if (which < 0 || which >= p.length)
+                    return null;
+
+                Precondition retVal = p[which].toPrecondition(domain, unifier);
+                retVal.reset(state);
+                return retVal;
+            }
+
+            public String getLabel(int which) {
+                return which < 0 || which >= l.length ? null : l[which];
+            }
+        };
+    }
+
+    /**
+     * This function emits the class file of a class that implements this
+     * axiom at run time, which behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param className the internal name of the class.
+     * @param label     the label of the axiom.
+     * @return the class file.
+     */
+    byte[] toClassFile(String className, String label) {
+        ClassWriter cw = BytecodeEmitter.newClass(className, Axiom.class);
+
+        //-- The constructor, which calls the constructor of the base class
+        //-- (class 'Axiom') with the number of branches of this axiom.
+        BytecodeEmitter e = BytecodeEmitter.elementConstructor(cw);
+        getHead().toBytecode(e);
+        e.push(branches.size());
+        e.construct(Axiom.class, Domain.class, Predicate.class, int.class);
+        e.mv.visitInsn(Opcodes.RETURN);
+        e.end();
+
+        BytecodeEmitter.toStringMethod(cw, label + ' ' + getSourcePosForToString());
+        BytecodeEmitter.getIteratorMethod(cw, branches.toArray(new LogicalPrecondition[0]), true);
+        BytecodeEmitter.getLabelMethod(cw, labels.toArray(new String[0]));
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
 }
@@ -1,5 +1,8 @@
 package com.gamalocus.jshop2rt;
 
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
 import java.util.Vector;
 
 /**
@@ -72,6 +75,31 @@ public class InternalMethod extends InternalElement {
             tl.setVarCount(getHead().getVarCount());
     }
 
+    /**
+     * To record the tasks this method decomposes its task into, and the heads
+     * of the atoms its preconditions read, for {@link Reachability}.
+     *
+     * @param uses where the tasks and heads are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+        for (LogicalPrecondition pre : pres)
+            pre.collectUses(uses);
+        for (TaskList tl : subs)
+            tl.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the preconditions of this method by the
+     * cardinality hints of the domain.
+     *
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head, -1 for the heads whose atoms are not to be moved.
+     */
+    void orderConjuncts(int[] hints) {
+        for (LogicalPrecondition pre : pres)
+            pre.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code needed to implement this method.
      */
@@ -195,4 +223,83 @@ public class InternalMethod extends InternalElement {
         //-- resulting string.
         return s + "\t\t}" + endl + "\t}" + endl + endl;
     }
+
+    /**
+     * This function creates the method at run time without producing any code
+     * for it. The method behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param domain the domain the method is part of.
+     * @param label  the label of the method.
+     * @return the method.
+     */
+    Method instantiate(final InterpretedDomain domain, String label) {
+        final LogicalPrecondition[] p = pres.toArray(new LogicalPrecondition[0]);
+        final String[] l = labels.toArray(new String[0]);
+        final String name = label + ' ' + getSourcePosForToString();
+
+        Method retVal = new Method(domain, getHead().instantiate(domain)) {
+            @Override
+            public String toString() {
+                return name;
+            }
+
+            public Precondition getIterator(State state, Term[] unifier, int which) {
+                if (which < 0 || which >= p.length)
+                    return null;
+
+                Precondition retVal = p[which].toPrecondition(domain, unifier);
+                retVal.reset(state);
+                return retVal;
+            }
+
+            public String getLabel(int which) {
+                return which < 0 || which >= l.length ? null : l[which];
+            }
+        };
+
+        //-- The task lists of the decompositions are created only once.
+        TaskList[] subsIn = new TaskList[subs.size()];
+        for (int i = 0; i < subsIn.length; i++)
+            subsIn[i] = subs.get(i).instantiate(domain);
+        retVal.setSubs(subsIn);
+
+        return retVal;
+    }
+
+    /**
+     * This function emits the class file of a class that implements this
+     * method at run time, which behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param className the internal name of the class.
+     * @param label     the label of the method.
+     * @return the class file.
+     */
+    byte[] toClassFile(String className, String label) {
+        ClassWriter cw = BytecodeEmitter.newClass(className, Method.class);
+
+        //-- The constructor, which calls the constructor of the base class
+        //-- (class 'Method') and then sets the possible decompositions.
+        BytecodeEmitter e = BytecodeEmitter.elementConstructor(cw);
+        getHead().toBytecode(e);
+        e.construct(Method.class, Domain.class, Predicate.class);
+        e.mv.visitVarInsn(Opcodes.ALOAD, 0);
+        e.newArray(TaskList.class, subs.size());
+        for (int i = 0; i < subs.size(); i++) {
+            e.element(i);
+            subs.get(i).toBytecode(e);
+            e.store();
+        }
+        e.invoke(Method.class, "setSubs", void.class, TaskList[].class);
+        e.mv.visitInsn(Opcodes.RETURN);
+        e.end();
+
+        BytecodeEmitter.toStringMethod(cw, label + ' ' + getSourcePosForToString());
+        BytecodeEmitter.getIteratorMethod(cw, pres.toArray(new LogicalPrecondition[0]), true);
+        BytecodeEmitter.getLabelMethod(cw, labels.toArray(new String[0]));
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
 }
@@ -1,5 +1,9 @@
 package com.gamalocus.jshop2rt;
 
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -102,6 +106,55 @@ public class InternalOperator extends InternalElement {
                 ((DelAddElement) add.get(i)).setVarCount(getHead().getVarCount());
     }
 
+    /**
+     * To record the heads of the atoms the precondition of this operator, and
+     * the <code>ForAll</code> elements of its delete and add lists, read, for
+     * {@link Reachability}.
+     *
+     * @param uses where the heads are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+        pre.collectUses(uses);
+
+        //-- The delete and add lists that are variables do not read anything.
+        if (del.get(0) == null)
+            for (int i = 1; i < del.size(); i++)
+                ((DelAddElement) del.get(i)).collectUses(uses);
+        if (add.get(0) == null)
+            for (int i = 1; i < add.size(); i++)
+                ((DelAddElement) add.get(i)).collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the precondition of this operator by the
+     * cardinality hints of the domain.
+     *
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head, -1 for the heads whose atoms are not to be moved.
+     */
+    void orderConjuncts(int[] hints) {
+        pre.orderConjuncts(hints);
+    }
+
+    /**
+     * To record the heads of the atoms this operator deletes or adds, for
+     * {@link StaticFacts}. The heads that are known are recorded even if some
+     * are not, so that the heads declared static can be checked against them.
+     *
+     * @param heads where the heads are recorded.
+     * @return whether the heads of all the atoms are known, i.e., neither the
+     * delete list nor the add list, nor any atom in them, is a variable.
+     */
+    boolean collectChanges(BitSet heads) {
+        boolean retVal = del.get(0) == null && add.get(0) == null;
+
+        for (int i = 1; i < del.size(); i++)
+            retVal &= ((DelAddElement) del.get(i)).collectChanges(heads);
+        for (int i = 1; i < add.size(); i++)
+            retVal &= ((DelAddElement) add.get(i)).collectChanges(heads);
+        return retVal;
+    }
+
     public final String toCode(String label) {
         return toCode(label, false);
     }
@@ -312,4 +365,108 @@ public class InternalOperator extends InternalElement {
         //-- Close the class definition and return the resulting string.
         return s.toString();
     }
+
+    /**
+     * This function creates the operator at run time without producing any
+     * code for it. The operator behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param domain the domain the operator is part of.
+     * @param label  the label of the operator.
+     * @return the operator.
+     */
+    Operator instantiate(final InterpretedDomain domain, String label) {
+        final Integer delIdx = (Integer) del.get(0);
+        final Integer addIdx = (Integer) add.get(0);
+        final String name = label + ' ' + getSourcePosForToString();
+
+        Operator retVal = new Operator(domain, getHead().instantiate(domain), delIdx == null ? -1 : delIdx,
+                addIdx == null ? -1 : addIdx, cost.instantiate(domain)) {
+            @Override
+            public String toString() {
+                return name;
+            }
+
+            public Precondition getIterator(State state, Term[] unifier, int which) {
+                Precondition p = pre.toPrecondition(domain, unifier);
+                p.reset(state);
+                return p;
+            }
+        };
+
+        //-- If the delete list is a real list, set it.
+        if (delIdx == null)
+            retVal.setDel(instantiate(domain, del));
+
+        //-- If the add list is a real list, set it.
+        if (addIdx == null)
+            retVal.setAdd(instantiate(domain, add));
+
+        return retVal;
+    }
+
+    /**
+     * To create the elements of a delete or add list at run time, skipping
+     * the first element of the <code>Vector</code>.
+     */
+    private static DelAddElement[] instantiate(InterpretedDomain owner, Vector<?> list) {
+        DelAddElement[] retVal = new DelAddElement[list.size() - 1];
+        for (int i = 1; i < list.size(); i++)
+            retVal[i - 1] = ((DelAddElement) list.get(i)).instantiate(owner);
+
+        return retVal;
+    }
+
+    /**
+     * This function emits the class file of a class that implements this
+     * operator at run time, which behaves just like the class produced by
+     * <code>toCode</code> does.
+     *
+     * @param className the internal name of the class.
+     * @param label     the label of the operator.
+     * @return the class file.
+     */
+    byte[] toClassFile(String className, String label) {
+        final Integer delIdx = (Integer) del.get(0);
+        final Integer addIdx = (Integer) add.get(0);
+        ClassWriter cw = BytecodeEmitter.newClass(className, Operator.class);
+
+        //-- The constructor, which calls the constructor of the base class
+        //-- (class 'Operator') and then sets the delete and add lists if they are
+        //-- real lists.
+        BytecodeEmitter e = BytecodeEmitter.elementConstructor(cw);
+        getHead().toBytecode(e);
+        e.push(delIdx == null ? -1 : delIdx);
+        e.push(addIdx == null ? -1 : addIdx);
+        cost.toBytecode(e);
+        e.construct(Operator.class, Domain.class, Predicate.class, int.class, int.class, Term.class);
+        if (delIdx == null)
+            toBytecode(e, del, "setDel");
+        if (addIdx == null)
+            toBytecode(e, add, "setAdd");
+        e.mv.visitInsn(Opcodes.RETURN);
+        e.end();
+
+        BytecodeEmitter.toStringMethod(cw, label + ' ' + getSourcePosForToString());
+        BytecodeEmitter.getIteratorMethod(cw, new LogicalPrecondition[]{pre}, false);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * To emit the bytecode that sets the delete or add list of the operator
+     * being constructed, skipping the first element of the
+     * <code>Vector</code>.
+     */
+    private static void toBytecode(BytecodeEmitter e, Vector<?> list, String setter) {
+        e.mv.visitVarInsn(Opcodes.ALOAD, 0);
+        e.newArray(DelAddElement.class, list.size() - 1);
+        for (int i = 1; i < list.size(); i++) {
+            e.element(i - 1);
+            ((DelAddElement) list.get(i)).toBytecode(e);
+            e.store();
+        }
+        e.invoke(Operator.class, setter, void.class, DelAddElement[].class);
+    }
 }
@@ -0,0 +1,271 @@
+package com.gamalocus.jshop2rt;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A domain at run time that is built directly from the domain description
+ * parsed into a {@link Model}, rather than from the code produced for it. Its
+ * operators, methods and axioms, and the preconditions they return, behave
+ * just like the classes produced for them do, so the plans found are the same.
+ * <p>
+ * Nothing is compiled or loaded, which makes creating the domain as quick as
+ * parsing it. The compiled domain is still the one to use where planning
+ * speed matters.
+ */
+public class InterpretedDomain extends Domain {
+    /**
+     * The prefix of the code calls implemented in the standard library.
+     */
+    private static final String STD_LIB = "StdLib.";
+
+    /**
+     * The implementations of the code calls in this domain, by the
+     * <code>String</code> the parser uses for them. Filled in by the
+     * constructor only, since planners that share this domain read it at the
+     * same time.
+     */
+    private final Map<String, Calculate> calculates = new HashMap<>();
+
+    /**
+     * The comparators of the <code>:sort-by</code> logical preconditions in
+     * this domain, by the <code>String</code> the parser uses for them.
+     */
+    private final Map<String, Comparator<Term[]>> comparators = new HashMap<>();
+
+    /**
+     * The operators, methods and axioms of the model, by head, which are
+     * created as they are first asked for, or <code>null</code> if they are
+     * left to a subclass.
+     */
+    private final java.util.List<java.util.List<InternalOperator>> opsByHead;
+    private final java.util.List<java.util.List<InternalMethod>> methodsByHead;
+    private final java.util.List<java.util.List<InternalAxiom>> axiomsByHead;
+
+    /**
+     * To create the domain described by a model, with the classes of its
+     * external code calls and comparators loaded by the class loader of the
+     * planner.
+     *
+     * @param model the domain as parsed.
+     */
+    public InterpretedDomain(Model model) {
+        this(model, InterpretedDomain.class.getClassLoader());
+    }
+
+    /**
+     * To create the domain described by a model.
+     *
+     * @param model  the domain as parsed.
+     * @param loader the class loader of the classes of the external code calls
+     *               and comparators.
+     */
+    public InterpretedDomain(Model model, ClassLoader loader) {
+        this(model, loader, true);
+    }
+
+    /**
+     * To create the domain described by a model, possibly leaving its
+     * operators, methods and axioms to a subclass.
+     *
+     * @param model    the domain as parsed.
+     * @param loader   the class loader of the classes of the external code
+     *                 calls and comparators.
+     * @param elements whether to create the operators, methods and axioms.
+     */
+    protected InterpretedDomain(Model model, ClassLoader loader, boolean elements) {
+        super(model);
+
+        //-- The names of the symbols, as in the constructor of a compiled domain.
+        constants = model.constants().toArray(new String[0]);
+        compoundTasks = model.getCompoundTasks().toArray(new String[0]);
+        primitiveTasks = model.getPrimitiveTasks().toArray(new String[0]);
+
+        initializeTermVariables(model.varsMaxSize);
+        initializeTermConstants();
+
+        //-- The objects that a compiled domain has as fields.
+        final String owner = String.format("((%s)owner).", model.getName());
+        for (String imp : model.getCalcs())
+            calculates.put(owner + "calculate" + imp, (Calculate) newInstance(model, loader, imp));
+        //-- Those of the standard library too, so that this map is never
+        //-- changed once the domain is shared.
+        for (Field f : StdLib.class.getFields()) {
+            if (Modifier.isStatic(f.getModifiers()) && Calculate.class.isAssignableFrom(f.getType())) {
+                try {
+                    calculates.put(STD_LIB + f.getName(), (Calculate) f.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(String.format("Standard code call %s is not accessible.", f.getName()), e);
+                }
+            }
+        }
+
+        for (java.util.List<String> comparator : model.getComparators()) {
+            final int[] args = new int[comparator.size() - 2];
+            for (int i = 0; i < args.length; i++)
+                args[i] = Integer.parseInt(comparator.get(i + 2));
+
+            @SuppressWarnings("unchecked")
+            Comparator<Term[]> c = (Comparator<Term[]>) newInstance(model, loader, comparator.get(0), args);
+            comparators.put(owner + comparator.get(1), c);
+        }
+
+        //-- The arrays of operators, methods and axioms, by head, which are
+        //-- filled in as the heads are first asked for.
+        ops = new Operator[primitiveTasks.length][];
+        methods = new Method[compoundTasks.length][];
+        axioms = new Axiom[constants.length][];
+        if (!elements) {
+            opsByHead = null;
+            methodsByHead = null;
+            axiomsByHead = null;
+            return;
+        }
+
+        opsByHead = byHead(model.operators, primitiveTasks.length);
+        methodsByHead = byHead(model.getMethods(), compoundTasks.length);
+        axiomsByHead = byHead(model.axioms, constants.length);
+    }
+
+    /**
+     * To group the operators, methods or axioms of a model by head.
+     *
+     * @param elements the elements, in the order they appear in the domain
+     *                 description.
+     * @param size     the number of heads.
+     * @return the elements of each head, in the order they appear.
+     */
+    private static <T extends InternalElement> java.util.List<java.util.List<T>> byHead(
+            java.util.List<T> elements, int size) {
+        java.util.List<java.util.List<T>> retVal = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            retVal.add(new ArrayList<>());
+        for (T element : elements)
+            retVal.get(element.getHead().head).add(element);
+        return retVal;
+    }
+
+    @Override
+    protected Operator[] createOperators(int head) {
+        if (opsByHead == null)
+            return super.createOperators(head);
+
+        final java.util.List<InternalOperator> elements = opsByHead.get(head);
+        Operator[] retVal = new Operator[elements.size()];
+        for (int i = 0; i < retVal.length; i++)
+            retVal[i] = elements.get(i).instantiate(this,
+                    String.format("Operator #%d for primitive task %s", -1, primitiveTasks[head]));
+        return retVal;
+    }
+
+    @Override
+    protected Method[] createMethods(int head) {
+        if (methodsByHead == null)
+            return super.createMethods(head);
+
+        final java.util.List<InternalMethod> elements = methodsByHead.get(head);
+        Method[] retVal = new Method[elements.size()];
+        for (int i = 0; i < retVal.length; i++)
+            retVal[i] = elements.get(i).instantiate(this,
+                    String.format("Method %d for compound task %s", -1, compoundTasks[head]));
+        return retVal;
+    }
+
+    @Override
+    protected Axiom[] createAxioms(int head) {
+        if (axiomsByHead == null)
+            return super.createAxioms(head);
+
+        final java.util.List<InternalAxiom> elements = axiomsByHead.get(head);
+        Axiom[] retVal = new Axiom[elements.size()];
+        for (int i = 0; i < retVal.length; i++)
+            retVal[i] = elements.get(i).instantiate(this,
+                    String.format("Branch %d for axiom %s", -1, constants[head]));
+        return retVal;
+    }
+
+    /**
+     * To return the implementation of a code call.
+     *
+     * @param func the <code>String</code> the parser uses for the code call.
+     * @return the implementation of the code call.
+     */
+    Calculate getCalculate(String func) {
+        final Calculate retVal = calculates.get(func);
+        if (retVal == null)
+            throw new IllegalArgumentException(String.format("No code call %s.", func));
+        return retVal;
+    }
+
+    /**
+     * To create a call term at run time.
+     *
+     * @param args the argument list.
+     * @param func the <code>String</code> the parser uses for the code call.
+     * @return the call term.
+     */
+    public TermCall newTermCall(List args, String func) {
+        return new TermCall(args, getCalculate(func), func);
+    }
+
+    /**
+     * To return the comparator of a <code>:sort-by</code> logical
+     * precondition.
+     *
+     * @param func the <code>String</code> the parser uses for the comparator.
+     * @return the comparator.
+     */
+    public Comparator<Term[]> getComparator(String func) {
+        Comparator<Term[]> retVal = comparators.get(func);
+        if (retVal == null)
+            throw new IllegalArgumentException(String.format("No comparator %s.", func));
+        return retVal;
+    }
+
+    /**
+     * To create an object of a class named in the domain description. The
+     * name is looked up the way the code of a compiled domain would: in its
+     * own package, then in the package of the planner, then as is.
+     *
+     * @param model     the domain as parsed.
+     * @param loader    the class loader of the class.
+     * @param className the name of the class.
+     * @param args      the <code>int</code> arguments of the constructor.
+     * @return the new object.
+     */
+    private static Object newInstance(Model model, ClassLoader loader, String className, int... args) {
+        final String[] names = {
+                model.getOutputPackage() + "." + className,
+                InterpretedDomain.class.getPackage().getName() + "." + className,
+                className};
+
+        for (String name : names) {
+            final Class<?> c;
+            try {
+                c = Class.forName(name, true, loader);
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+
+            final Class<?>[] types = new Class<?>[args.length];
+            final Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                types[i] = int.class;
+                values[i] = args[i];
+            }
+
+            try {
+                return c.getConstructor(types).newInstance(values);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(String.format("Cannot create %s for domain %s.",
+                        name, model.getName()), e);
+            }
+        }
+
+        throw new IllegalStateException(String.format("No class %s for domain %s.", className, model.getName()));
+    }
+}
@@ -3,8 +3,9 @@ package com.gamalocus.jshop2rt;
 import com.gamalocus.jshop2rt.Predicate.Namespace;
 
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -121,6 +122,19 @@ class InternalVars implements Serializable {
  * @version 1.0.3
  */
 public class JSHOP2 {
+    /**
+     * The number of planners created so far, to give each planner an id.
+     */
+    private static final AtomicLong plannerCount = new AtomicLong();
+    /**
+     * To measure the bytes allocated by a thread, or <code>null</code> if the
+     * virtual machine cannot.
+     */
+    private static final com.sun.management.ThreadMXBean allocationBean = allocationBean();
+    /**
+     * The id of this planner, as recorded in its events.
+     */
+    private final long id = plannerCount.incrementAndGet();
     /**
      * We add the identity hash code to the logger name to be able to differentiate the output of several
      * planners running simultaneously.
@@ -141,9 +155,45 @@ public class JSHOP2 {
     private final int recursionLimit;
     /**
      * The plans are stored in this variable as a list of type
-     * <code>Plan</code>.
+     * <code>Plan</code>, unless a different {@link PlanSink} was given.
      */
     private final LinkedList<Plan> plans = new LinkedList<>();
+    /**
+     * Receives the plans as they are found.
+     */
+    private final PlanSink sink;
+    /**
+     * The number of plans found so far.
+     */
+    private long plansFound;
+    /**
+     * The task networks known to fail from a given state, or <code>null</code>
+     * if failures are not cached.
+     */
+    private NogoodCache nogoods;
+    /**
+     * The metrics to count the work of this planner in, or <code>null</code>.
+     */
+    private PlannerMetrics metrics;
+    /**
+     * The trace to record the steps of the search in, or <code>null</code>.
+     */
+    private SearchTrace trace;
+    /**
+     * The profiler to attribute the time spent to the decomposition path, or
+     * <code>null</code>.
+     */
+    private SearchProfiler profiler;
+    /**
+     * The durations of the slices in nanoseconds, or <code>null</code> if
+     * they are not recorded.
+     */
+    private LogHistogram sliceNanos;
+    /**
+     * The bytes allocated by the slices, or <code>null</code> if they are not
+     * recorded.
+     */
+    private LogHistogram sliceBytes;
     /**
      * The current state of the world.
      */
@@ -158,12 +208,13 @@ public class JSHOP2 {
     private final Plan currentPlan;
     /**
      * A boolean indicating if we should collect info about what preconditions fail and succeed.
+     * Off unless asked for, see {@link #setCollectingPreconditionStats(boolean)}.
      */
-    private final boolean registerFailAndSuccess = true;
+    private boolean registerFailAndSuccess;
     /**
      * A summary of failures/successes
      */
-    private final Map<String, Stats> summary = new ConcurrentHashMap<>();
+    private final PreconditionStats summary = new PreconditionStats();
 
     /**
      * This function finds plan(s) for a given initial task list.
@@ -183,8 +234,30 @@ public class JSHOP2 {
      * @param stateIn          the initial state of the world.
      */
     public JSHOP2(TaskList tasksIn, int recursionLimitIn, Cost initialCostIn, Domain domainIn, State stateIn) {
+        this(tasksIn, recursionLimitIn, initialCostIn, domainIn, stateIn, null);
+    }
+
+    /**
+     * This function finds plan(s) for a given initial task list, handing them
+     * to the given sink as they are found.
+     * <p>
+     * You must call {@link #run()} repeatedly to actually find plans.
+     *
+     * @param tasksIn          the initial task list to be achieved.
+     * @param recursionLimitIn the maximum recursion level. This is to avoid infinite recursion.
+     * @param initialCostIn    Cost object describing the initial cost of the plan. Must also take care of conversion
+     *                         from Term to internal representation.
+     * @param domainIn         the planning domain.
+     * @param stateIn          the initial state of the world.
+     * @param sinkIn           receives the plans as they are found, and decides when to stop
+     *                         the search. If <code>null</code>, all plans are kept, and may be
+     *                         retrieved by calling {@link #getPlans()}.
+     */
+    public JSHOP2(TaskList tasksIn, int recursionLimitIn, Cost initialCostIn, Domain domainIn, State stateIn,
+                  PlanSink sinkIn) {
         domain = domainIn;
         state = stateIn;
+        sink = sinkIn != null ? sinkIn : new PlanListSink(plans);
 
         //-- Initialize the current plan to an empty one.
         currentPlan = new Plan(initialCostIn);
@@ -212,26 +285,253 @@ public class JSHOP2 {
         return buf.toString();
     }
 
+    /**
+     * @return the id of this planner, unique within this virtual machine. It
+     * identifies the planner in the Flight Recorder events it emits, see
+     * {@link PlannerEvents}.
+     */
+    public long getId() {
+        return id;
+    }
+
     public boolean isActive() {
         return !stack.isEmpty();
     }
 
+    /**
+     * @return the plans found so far. Always empty if the planner was given
+     * its own {@link PlanSink}.
+     */
     public LinkedList<Plan> getPlans() {
         return plans;
     }
 
+    /**
+     * @return the cache of failed task networks, or <code>null</code> if
+     * failures are not cached.
+     */
+    public NogoodCache getNogoodCache() {
+        return nogoods;
+    }
+
+    /**
+     * To cache the task networks for which no plan could be found from a given
+     * state of the world, so that the search does not explore them again when
+     * it reaches them through another order of decomposition. This finds the
+     * same plans, only faster, as long as the preconditions of the domain
+     * depend on nothing but the state of the world. See {@link NogoodCache}.
+     * <p>
+     * Each time a task network is entered, its hash is calculated, which takes
+     * time linear in the size of the task network.
+     *
+     * @param nogoodsIn the cache to use, or <code>null</code> to stop caching.
+     */
+    public void setNogoodCache(NogoodCache nogoodsIn) {
+        nogoods = nogoodsIn;
+    }
+
+    /**
+     * @return the metrics this planner is counted in, or <code>null</code>.
+     */
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * To count the work of this planner in the given metrics, which may be
+     * shared with other planners. The state of the world of this planner is
+     * attached to them as well, see {@link State#setMetrics(PlannerMetrics)}.
+     *
+     * @param metricsIn the metrics, or <code>null</code> to stop counting.
+     */
+    public void setMetrics(PlannerMetrics metricsIn) {
+        metrics = metricsIn;
+        state.setMetrics(metricsIn);
+    }
+
+    /**
+     * @return the trace the steps of the search are recorded in, or
+     * <code>null</code>.
+     */
+    public SearchTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * To record the steps of the search in the given trace from now on. The
+     * goal tasks are recorded in it right away.
+     *
+     * @param traceIn the trace, or <code>null</code> to stop recording.
+     */
+    public void setTrace(SearchTrace traceIn) {
+        trace = traceIn;
+        if (trace != null)
+            trace.setGoalTasks(tasks);
+    }
+
+    /**
+     * @return the profiler the time spent is attributed in, or
+     * <code>null</code>.
+     */
+    public SearchProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * To attribute the time spent and the bindings found to the decomposition
+     * path in the given profiler. Must be set before the first call to
+     * {@link #run()}, if at all.
+     *
+     * @param profilerIn the profiler, or <code>null</code>.
+     */
+    public void setProfiler(SearchProfiler profilerIn) {
+        profiler = profilerIn;
+    }
+
+    /**
+     * @return <code>true</code> if the duration of and the bytes allocated by
+     * each slice are recorded.
+     */
+    public boolean isRecordingSlices() {
+        return sliceNanos != null;
+    }
+
+    /**
+     * To record the duration of each slice, and the bytes it allocates if the
+     * virtual machine can measure that, in histograms, to see the tail
+     * latency of the slices. Turning recording off discards the histograms.
+     *
+     * @param record whether to record.
+     */
+    public void setRecordingSlices(boolean record) {
+        if (!record) {
+            sliceNanos = sliceBytes = null;
+        } else if (sliceNanos == null) {
+            sliceNanos = new LogHistogram();
+            sliceBytes = new LogHistogram();
+        }
+    }
+
+    /**
+     * @return the durations of the slices so far in nanoseconds, or
+     * <code>null</code> if they are not recorded. Live, so it must only be
+     * read while the planner is not running.
+     */
+    public LogHistogram getSliceNanos() {
+        return sliceNanos;
+    }
+
+    /**
+     * @return the bytes allocated by the slices so far, or <code>null</code>
+     * if they are not recorded. Empty if the virtual machine cannot measure
+     * allocations. Live, so it must only be read while the planner is not
+     * running.
+     */
+    public LogHistogram getSliceBytes() {
+        return sliceBytes;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean retVal = (com.sun.management.ThreadMXBean) bean;
+                if (retVal.isThreadAllocatedMemorySupported() && retVal.isThreadAllocatedMemoryEnabled())
+                    return retVal;
+            }
+        } catch (LinkageError e) {
+            //-- The com.sun.management API is not there.
+        }
+        return null;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if they
+     * cannot be measured.
+     */
+    private static long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * @return the profile node the next slice works on.
+     */
+    private SearchProfiler.Node profileFocus() {
+        if (stack.isEmpty())
+            return profiler.getRoot();
+
+        final Frame v = stack.peek();
+        if (v.profNode == null)
+            return profiler.getRoot();
+
+        switch (v.pc) {
+            case C_1_2_1_2_WHILE_V_P_NEXTBINDING_STATE_IS_NOT_NULL:
+            case C_1_5_1_2_2_WHILE_V_NEXTB___V_P_NEXTBINDING_STATE__IS_NULL:
+                return profiler.precondition(v.profNode);
+            default:
+                return v.profNode;
+        }
+    }
+
+    /**
+     * @return the number of plans found so far, whether they were kept or not.
+     */
+    public long getPlanCount() {
+        return plansFound;
+    }
+
+    /**
+     * To stop the search. The changes the search has made to the state of the
+     * world and the task list are undone, so they are left as they were before
+     * the search started. The plans found so far are kept.
+     * <p>
+     * Must not be called while {@link #run()} is running on another thread.
+     */
+    public void stop() {
+        unwind();
+    }
+
     /**
      * Run a single time slice.
      *
      * @return <code>true</code> if there are more slices left.
      */
     public boolean run() {
+        final PlannerEvents.Slice event = PlannerEvents.isSliceEnabled() ? new PlannerEvents.Slice() : null;
+        if (event != null)
+            event.begin();
+        final SearchProfiler.Node focus = profiler != null ? profileFocus() : null;
+        final LogHistogram nanos = sliceNanos;
+        final LogHistogram bytes = sliceBytes;
+        final long bytesBefore = nanos != null ? allocatedBytes() : -1;
+        final long start = focus != null || nanos != null ? System.nanoTime() : 0;
 //        try {
 //            state.setLoggingEnabled(true);
-            return runInternal();
+            final boolean more = runInternal();
 //        } finally {
 //            state.setLoggingEnabled(false);
 //        }
+        final long elapsed = focus != null || nanos != null ? System.nanoTime() - start : 0;
+        if (nanos != null) {
+            nanos.record(elapsed);
+            if (bytesBefore >= 0)
+                bytes.record(allocatedBytes() - bytesBefore);
+        }
+        if (focus != null) {
+            focus.nanos += elapsed;
+            if (!more)
+                profiler.finished();
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.plannerId = id;
+                event.depth = stack.size();
+                event.more = more;
+                event.commit();
+            }
+        }
+        return more;
     }
 
     /**
@@ -260,6 +560,16 @@ public class JSHOP2 {
             }
             logger.warning(buf.toString());
 
+            if (PlannerEvents.isRecursionLimitEnabled()) {
+                final PlannerEvents.RecursionLimit event = new PlannerEvents.RecursionLimit();
+                if (event.shouldCommit()) {
+                    event.plannerId = id;
+                    event.depth = stack.size();
+                    event.taskHead = stack.peek().t != null ? stack.peek().t.getHead().head : -1;
+                    event.commit();
+                }
+            }
+
             state.reset();
 
             return false;
@@ -270,6 +580,20 @@ public class JSHOP2 {
 
         switch (v.pc) {
             case A:
+                if (nogoods != null) {
+                    v.taskKey = Fingerprint.of(tasks, v.chosenTask);
+                    v.stateKey = state.getFingerprint();
+
+                    //-- If this task network has already failed from this state, it
+                    //-- will fail again.
+                    if (nogoods.contains(v.taskKey, v.stateKey)) {
+                        _return(false);
+                        break;
+                    }
+                    v.keyed = true;
+                    v.plansAtEntry = plansFound;
+                }
+
                 //-- Find all the tasks that we have the option to achieve right now. This
                 //-- equals to the first task in the current task list if it is ordered, or
                 //-- the first task in all the subtasks of the current task list if it is
@@ -309,25 +633,39 @@ public class JSHOP2 {
             //else
             //{
             case A_1_3_V_CHOSENTASK_IS_TASKS:
-                //-- Otherwise, add the current plan to the list of the plans for the
-                //-- given task network. Note that in the case where we are looking for
-                //-- more than one plan, we add a clone of the current plan to the list
-                //-- rather than the current plan itself since the current plan will be
-                //-- changed during the look for other plans.
-                //if (planNo != 1) {
-                plans.addLast((Plan) currentPlan.clone());
-                //} else {
-                //plans.addLast(currentPlan);
-                //}
+                //-- Otherwise, we have found a plan for the given task network.
+                plansFound++;
+                if (metrics != null)
+                    metrics.plansFound.increment();
 
                 if (logger.isLoggable(Level.FINE)) {
                     logger.fine(String.format("%d plans found, latest with cost %s, %d actions.",
-                            plans.size(), currentPlan.getCost().toString(), currentPlan.getOps().size()));
+                            plansFound, currentPlan.getCost().toString(), currentPlan.size()));
                 }
 
                 logPlanFoundStep();
 
-                _return(true);
+                if (PlannerEvents.isPlanFoundEnabled()) {
+                    final PlannerEvents.PlanFound planEvent = new PlannerEvents.PlanFound();
+                    if (planEvent.shouldCommit()) {
+                        planEvent.plannerId = id;
+                        planEvent.depth = stack.size();
+                        planEvent.length = currentPlan.size();
+                        planEvent.cost = currentPlan.getCost().toString();
+                        planEvent.plansFound = plansFound;
+                        planEvent.commit();
+                    }
+                }
+
+                //-- Hand the current plan to the sink. It is up to the sink to clone
+                //-- the plan if it wants to keep it, since the current plan will be
+                //-- changed during the look for other plans.
+                if (sink.planFound(currentPlan)) {
+                    _return(true);
+                } else {
+                    //-- The sink does not want any more plans, so stop the search.
+                    unwind();
+                }
                 break;
             //}
             //}
@@ -360,9 +698,18 @@ public class JSHOP2 {
 
                 v.t = v.tl.getTask();
 
+                if (profiler != null)
+                    v.profNode = v.profTask = profiler.enterTask(v.tl);
+
                 //-- Create a TRYING step for the list of plan steps
                 logTryingStep(v);
 
+                //-- Time the work on this task, in case we backtrack over it.
+                if (PlannerEvents.isBacktrackEnabled()) {
+                    v.backtrack = new PlannerEvents.Backtrack();
+                    v.backtrack.begin();
+                }
+
                 _next(v.t.isPrimitive() ? PC.C_1_1 : PC.C_1_4);
                 break;
 
@@ -375,7 +722,7 @@ public class JSHOP2 {
                 v.tl.replace(TaskList.empty);
 
                 //-- Find all the operators that achieve this primitive task.
-                v.o = domain.ops[v.t.getHead().head];
+                v.o = domain.getOperators(v.t.getHead().head);
                 v.j = 0;
 
             case C_1_2_FOR_V_J___0__V_J___V_O_LENGTH__V_J___:
@@ -389,6 +736,11 @@ public class JSHOP2 {
                 //-- Find the binding that unifies the head of the operator with the
                 //-- task.
                 v.binding = v.o[v.j].unify(v.t.getHead());
+                if (metrics != null) {
+                    metrics.operatorUnifications.increment();
+                    if (v.binding != null)
+                        metrics.operatorUnificationsSucceeded.increment();
+                }
 
                 _next(v.binding != null ? PC.C_1_2_1_1_V_BINDING_IS_NOT_NULL : PC.C_1_2_1_2_V_BINDING_IS_NULL);
                 break;
@@ -411,7 +763,10 @@ public class JSHOP2 {
                 v.p = v.o[v.j].getIterator(state, v.binding, 0);
 
             case C_1_2_1_2_WHILE_V_P_NEXTBINDING_STATE_IS_NOT_NULL:
-                _next((v.nextB = v.p.nextBinding(state)) != null ?
+                v.nextB = v.p.nextBinding(state);
+                if (profiler != null)
+                    profiler.attempted(v.profNode, v.nextB != null);
+                _next(v.nextB != null ?
                         PC.C_1_2_1_2_1_V_P_NEXTBINDING_STATE_IS_NOT_NULL :
                         PC.C_1_2_1_3);
                 break;
@@ -423,7 +778,23 @@ public class JSHOP2 {
                 //-- Merge the two bindings.
                 Term.merge(v.nextB, v.binding);
 
-                _next(v.o[v.j].apply(v.nextB, state, v.delAdd) ?
+                final PlannerEvents.OperatorApplication application = PlannerEvents.isOperatorApplicationEnabled() ?
+                        new PlannerEvents.OperatorApplication() : null;
+                if (application != null)
+                    application.begin();
+                final boolean applied = v.o[v.j].apply(v.nextB, state, v.delAdd);
+                if (application != null) {
+                    application.end();
+                    if (application.shouldCommit()) {
+                        application.plannerId = id;
+                        application.depth = stack.size();
+                        application.taskHead = v.t.getHead().head;
+                        application.applied = applied;
+                        application.commit();
+                    }
+                }
+
+                _next(applied ?
                         PC.C_1_2_1_2_1_1_V_O__V_J__APPLY_V_NEXTB__STATE__V_DELADD_ :
                         PC.C_1_2_1_2_2);
 
@@ -456,7 +827,7 @@ public class JSHOP2 {
                     logger.finest(String.format("=== %d: Removing cost %s: Total is %s.",
                             stack.size(), v.cost, currentPlan.getCost()));
                 }
-                currentPlan.removeOperator(v.cost);
+                currentPlan.removeOperator();
                 if (logger.isLoggable(Level.FINEST)) {
                     logger.finest(String.format("=== %d: Removed cost %s: Total is %s.",
                             stack.size(), v.cost, currentPlan.getCost()));
@@ -507,7 +878,7 @@ public class JSHOP2 {
             //{
             case C_1_4:
                 //-- Find all the methods that decompose this compound task.
-                v.m = domain.methods[v.t.getHead().head];
+                v.m = domain.getMethods(v.t.getHead().head);
                 v.j = 0;
 
             case C_1_5_FOR_V_J___0__V_J___V_M_LENGTH__V_J___:
@@ -521,6 +892,11 @@ public class JSHOP2 {
                 //-- Find the binding that unifies the head of the method with the
                 //-- task.
                 v.binding = v.m[v.j].unify(v.t.getHead());
+                if (metrics != null) {
+                    metrics.methodUnifications.increment();
+                    if (v.binding != null)
+                        metrics.methodUnificationsSucceeded.increment();
+                }
 
                 _next(v.binding != null ? PC.C_1_5_1_1_BINDING_IS_NOT_NULL : PC.C_1_5_1_3_BINDING_IS_NULL);
                 break;
@@ -560,8 +936,27 @@ public class JSHOP2 {
                 //-- can satisfy the precondition for this branch of this method.
                 v.p = v.m[v.j].getIterator(state, v.binding, v.k);
 
+                if (profiler != null)
+                    v.profNode = profiler.enterBranch(v.profTask, v.m[v.j], v.j, v.k);
+
             case C_1_5_1_2_2_WHILE_V_NEXTB___V_P_NEXTBINDING_STATE__IS_NULL:
+                final PlannerEvents.MethodReduction reduction = PlannerEvents.isMethodReductionEnabled() ?
+                        new PlannerEvents.MethodReduction() : null;
+                if (reduction != null)
+                    reduction.begin();
                 v.nextB = v.p.nextBinding(state);
+                if (profiler != null)
+                    profiler.attempted(v.profNode, v.nextB != null);
+                if (reduction != null) {
+                    reduction.end();
+                    if (v.nextB != null && reduction.shouldCommit()) {
+                        reduction.plannerId = id;
+                        reduction.depth = stack.size();
+                        reduction.taskHead = v.t.getHead().head;
+                        reduction.method = v.m[v.j].getLabel(v.k);
+                        reduction.commit();
+                    }
+                }
                 if (registerFailAndSuccess) {
                     if (v.nextB == null) {
                         registerPreconditionFailure(v.p);
@@ -584,6 +979,8 @@ public class JSHOP2 {
                 //-- Replace the decomposed task in task list with its
                 //-- decomposition according to this branch of this method.
                 v.tl.replace(v.m[v.j].getSubs()[v.k].bind(v.nextB));
+                if (profiler != null)
+                    profiler.reduced(v.tl.subtasks, v.profNode);
 
                 //-- Create a REDUCED step for the list of plan steps
                 logReducedStep(v);
@@ -602,6 +999,8 @@ public class JSHOP2 {
 
                 //-- Undo the changes in the task list, because this particular
                 //-- decomposition failed.
+                if (profiler != null)
+                    profiler.undone(v.tl.subtasks);
                 v.tl.undo();
 
                 // Jump to head of while loop
@@ -651,6 +1050,21 @@ public class JSHOP2 {
                 //--- Log the failed, partial plan.
                 logFailure(v);
 
+                if (metrics != null)
+                    metrics.backtracks.increment();
+
+                if (v.backtrack != null) {
+                    v.backtrack.end();
+                    if (v.backtrack.shouldCommit()) {
+                        v.backtrack.plannerId = id;
+                        v.backtrack.depth = stack.size();
+                        v.backtrack.taskHead = v.t.getHead().head;
+                        v.backtrack.primitive = v.t.isPrimitive();
+                        v.backtrack.commit();
+                    }
+                    v.backtrack = null;
+                }
+
                 // Loop to head of while block.
                 _next(PC.C_WHILE_V_E_HASNEXT__);
                 break;
@@ -666,32 +1080,48 @@ public class JSHOP2 {
     }
 
     private void registerPreconditionFailure(Precondition p) {
-        Stats s = getSummary(p.toString() + "(bound: " + p.bestMatch + " conditions)");
-        s.failed++;
+        summary.failed(p);
     }
 
     private void registerPreconditionSuccess(Precondition p) {
-        Stats s = getSummary(p.toString());
-        s.succeeded++;
+        summary.succeeded(p);
     }
 
-    private Stats getSummary(String s) {
-        Stats stats = summary.get(s);
-        if (stats == null) {
-            stats = new Stats(s);
-            summary.put(s, stats);
-        }
-        return stats;
+    /**
+     * @return <code>true</code> if this planner counts how often the
+     * preconditions of methods succeed and fail.
+     */
+    public boolean isCollectingPreconditionStats() {
+        return registerFailAndSuccess;
+    }
+
+    /**
+     * To turn counting how often the preconditions of methods succeed and fail
+     * on or off. It is off by default. The counts so far are kept.
+     *
+     * @param collect whether to count.
+     */
+    public void setCollectingPreconditionStats(boolean collect) {
+        registerFailAndSuccess = collect;
     }
 
     public void clearSummary() {
         summary.clear();
     }
 
+    /**
+     * @return how often the preconditions of methods succeeded and failed, one
+     * line per precondition and outcome, in the order of their total count.
+     * Nothing is counted unless {@link #setCollectingPreconditionStats(boolean)}
+     * turned counting on.
+     */
+    public java.util.List<String> getSummary() {
+        return summary.render();
+    }
+
     public void printSummary() {
-      TreeSet<Stats> sorted = new TreeSet<>(summary.values());
-        for (Stats s : sorted) {
-            System.out.println(String.format("%4d", s.succeeded) + " of " + String.format("%4d", s.succeeded + s.failed) + " : " + s.val);
+        for (String line : summary.render()) {
+            System.out.println(line);
         }
     }
 
@@ -707,7 +1137,12 @@ public class JSHOP2 {
 
         // We made a call, this is no longer considered a leaf.
         stack.peek().leaf = false;
-        stack.push(new Frame(param));
+        final Frame callee = new Frame(param);
+        //-- Until it picks a task, the new frame works on behalf of the caller.
+        callee.profNode = stack.peek().profNode;
+        stack.push(callee);
+        if (metrics != null)
+            metrics.framesPushed.increment();
     }
 
     /**
@@ -729,7 +1164,14 @@ public class JSHOP2 {
      * @param result Return value.
      */
     private void _return(boolean result) {
-        stack.pop();
+        final Frame returning = stack.pop();
+
+        //-- The return value is not a sign of failure, since the search goes on
+        //-- after a plan has been found. Rather, the task network has failed if
+        //-- no plan was found while working on it.
+        if (returning.keyed && nogoods != null && plansFound == returning.plansAtEntry) {
+            nogoods.add(returning.taskKey, returning.stateKey);
+        }
 
         if (!stack.isEmpty()) {
             Frame top = stack.peek();
@@ -740,6 +1182,56 @@ public class JSHOP2 {
         }
     }
 
+    /**
+     * Pop all the stack frames, undoing the changes each of them has made to
+     * the current state of the world, the task network and the current plan,
+     * so that they are left as they were before the search started.
+     */
+    private void unwind() {
+        while (!stack.isEmpty()) {
+            final Frame v = stack.pop();
+
+            switch (v.pc) {
+                //-- An operator has been applied and added to the plan.
+                case C_1_2_1_2_1_2:
+                    currentPlan.removeOperator();
+                    state.undo(v.delAdd);
+                    v.tl.undo();
+                    break;
+
+                //-- An operator has been applied.
+                case C_1_2_1_2_2:
+                    state.undo(v.delAdd);
+                    v.tl.undo();
+                    break;
+
+                //-- A primitive task has been removed from the task list.
+                case C_1_2_FOR_V_J___0__V_J___V_O_LENGTH__V_J___:
+                case C_1_2_1:
+                case C_1_2_1_1_V_BINDING_IS_NOT_NULL:
+                case C_1_2_1_2_V_BINDING_IS_NULL:
+                case C_1_2_1_2_WHILE_V_P_NEXTBINDING_STATE_IS_NOT_NULL:
+                case C_1_2_1_2_1_V_P_NEXTBINDING_STATE_IS_NOT_NULL:
+                case C_1_2_1_3:
+                case C_1_2_2_NEXT_V_J___0__V_J___V_O_LENGTH__V_J___:
+                case C_1_3:
+                    v.tl.undo();
+                    break;
+
+                //-- A compound task has been decomposed.
+                case C_1_5_1_2_1_2:
+                    v.tl.undo();
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        if (profiler != null)
+            profiler.finished();
+    }
+
     private void logPlanStep(PlanStepInfo info) {
         if (logger.isLoggable(Level.FINEST)) {
             final String msg = String.format("Plan step:\n\t%s",
@@ -804,6 +1296,8 @@ public class JSHOP2 {
     }
 
     private void logBacktrackingStep(Frame v) {
+        if (trace != null)
+            trace.backtracking(stack.size(), v.t);
         if (logger.isLoggable(Level.FINEST)) {
             PlanStepInfo newStep = new PlanStepInfo();
             newStep.action = "BACKTRACKING";
@@ -813,6 +1307,8 @@ public class JSHOP2 {
     }
 
     private void logReducedStep(InternalVars v) {
+        if (trace != null)
+            trace.reduced(stack.size(), v.t, v.j, v.k, v.nextB, v.tl.subtasks);
         if (logger.isLoggable(Level.FINEST)) {
             PlanStepInfo newStep = new PlanStepInfo();
             newStep.action = "REDUCED";
@@ -825,6 +1321,8 @@ public class JSHOP2 {
     }
 
     private void logStateChangedStep(InternalVars v) {
+        if (trace != null)
+            trace.stateChanged(stack.size(), v.t, v.j, v.nextB, v.delAdd);
         if (logger.isLoggable(Level.FINEST)) {
             PlanStepInfo newStep = new PlanStepInfo();
             newStep.action = "STATECHANGED";
@@ -837,6 +1335,8 @@ public class JSHOP2 {
     }
 
     private void logTryingStep(InternalVars v) {
+        if (trace != null)
+            trace.trying(stack.size(), v.t);
         if (logger.isLoggable(Level.FINEST)) {
             PlanStepInfo newStep = new PlanStepInfo();
             newStep.action = "TRYING";
@@ -847,6 +1347,8 @@ public class JSHOP2 {
     }
 
     private void logPlanFoundStep() {
+        if (trace != null)
+            trace.planFound(stack.size(), currentPlan.size());
         if (logger.isLoggable(Level.FINEST)) {
             PlanStepInfo newStep = new PlanStepInfo();
             newStep.planFound = true;
@@ -919,6 +1421,36 @@ public class JSHOP2 {
          * not be built further upon.
          */
         boolean leaf;
+        /**
+         * Whether {@link #taskKey} and {@link #stateKey} were calculated on
+         * entry, to be able to cache a failure of this frame.
+         */
+        boolean keyed;
+        /**
+         * The hash of the task network on entry.
+         */
+        long taskKey;
+        /**
+         * The fingerprint of the state of the world on entry.
+         */
+        long stateKey;
+        /**
+         * The number of plans found before entry.
+         */
+        long plansAtEntry;
+        /**
+         * The Flight Recorder event timing the work on the current task, if
+         * such events are enabled.
+         */
+        transient PlannerEvents.Backtrack backtrack;
+        /**
+         * The profile node of the current task, if profiling.
+         */
+        transient SearchProfiler.Node profTask;
+        /**
+         * The profile node of the current task or branch, if profiling.
+         */
+        transient SearchProfiler.Node profNode;
 
         Frame(TaskList chosenTask) {
             leaf = true;
@@ -932,22 +1464,4 @@ public class JSHOP2 {
                     pc, j, k, tlString, e);
         }
     }
-
-    private static class Stats implements Comparable<Stats> {
-        final String val;
-        int failed;
-        int succeeded;
-
-        Stats(String val) {
-            this.val = val;
-        }
-
-        public int compareTo(Stats o) {
-            if (this == o) return 0;
-            int ret = (failed + succeeded) - (o.failed + o.succeeded);
-            if (ret == 0)
-                return val.compareTo(o.val);
-            return ret;
-        }
-    }
 }
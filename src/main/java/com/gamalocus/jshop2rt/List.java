@@ -18,11 +18,11 @@ public class List extends CompileTimeObject implements Iterable<Term>, Serializa
     /**
      * The head of this list, a term.
      */
-    private final Term head;
+    final Term head;
     /**
      * The tail of this list, a term.
      */
-    private Term tail;
+    Term tail;
 
     /**
      * To initialize this list.
@@ -96,7 +96,7 @@ public class List extends CompileTimeObject implements Iterable<Term>, Serializa
      * @return the result of binding.
      */
     public List bindList(Term[] binding) {
-        return new List(head.bind(binding), tail.bind(binding));
+        return new List(Term.bind(head, binding), Term.bind(tail, binding));
     }
 
     /**
@@ -107,15 +107,15 @@ public class List extends CompileTimeObject implements Iterable<Term>, Serializa
      * otherwise.
      */
     public boolean equals(List t) {
-        return head.equals(t.head) && tail.equals(t.tail);
+        return Term.equal(head, t.head) && Term.equal(tail, t.tail);
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((head == null) ? 0 : head.hashCode());
-        result = prime * result + ((tail == null) ? 0 : tail.hashCode());
+        result = prime * result + ((head == null) ? 0 : Term.hash(head));
+        result = prime * result + ((tail == null) ? 0 : Term.hash(tail));
         return result;
     }
 
@@ -132,8 +132,8 @@ public class List extends CompileTimeObject implements Iterable<Term>, Serializa
         if (l == null)
             return false;
 
-        return head.findUnifier(l.head, binding) &&
-                tail.findUnifier(l.tail, binding);
+        return Term.unify(head, l.head, binding) &&
+                Term.unify(tail, l.tail, binding);
     }
 
     /**
@@ -201,6 +201,28 @@ public class List extends CompileTimeObject implements Iterable<Term>, Serializa
         return "new List(" + head.toCode(label) + ", " + tail.toCode(label) + ")";
     }
 
+    /**
+     * To create this list at run time.
+     *
+     * @param owner the domain this list is part of.
+     * @return the list at run time.
+     */
+    List instantiate(InterpretedDomain owner) {
+        return new List(head.instantiate(owner), tail.instantiate(owner));
+    }
+
+    /**
+     * To emit the bytecode that creates this list at run time.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(List.class);
+        head.toBytecode(e);
+        tail.toBytecode(e);
+        e.construct(List.class, Term.class, Term.class);
+    }
+
     /**
      * This function is used to print the value of this list.
      *
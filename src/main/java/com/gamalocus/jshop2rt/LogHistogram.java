@@ -0,0 +1,184 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative values with logarithmic buckets, in the manner
+ * of HdrHistogram: values below 32 are counted exactly, and every power of two
+ * above that is split into 32 buckets, so any value is known to within about
+ * 3 percent. Recording a value takes a few instructions and never allocates,
+ * so it can be done on every slice of a planner.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class LogHistogram {
+    /**
+     * The number of bits of a value that are kept.
+     */
+    private static final int SUB_BITS = 5;
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB = 1 << SUB_BITS;
+    /**
+     * Enough buckets for any non-negative long.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * To count a value. Negative values are counted as 0.
+     *
+     * @param value the value.
+     */
+    public void record(long value) {
+        final long v = Math.max(value, 0);
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        if (v < min)
+            min = v;
+        if (v > max)
+            max = v;
+    }
+
+    /**
+     * @return the index of the bucket of the given value.
+     */
+    static int index(long v) {
+        if (v < SUB)
+            return (int) v;
+        final int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift * SUB + (int) (v >>> shift);
+    }
+
+    /**
+     * @return the largest value in the bucket with the given index.
+     */
+    static long highest(int index) {
+        if (index < SUB)
+            return index;
+        final int shift = index / SUB - 1;
+        final long mantissa = index - (long) shift * SUB;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * @return the number of values counted.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest value counted, or 0 if there are none.
+     */
+    public long getMin() {
+        return count != 0 ? min : 0;
+    }
+
+    /**
+     * @return the largest value counted, or 0 if there are none.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the values counted, or 0 if there are none.
+     */
+    public double getMean() {
+        return count != 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * To find the value below which the given percentage of the values lie.
+     *
+     * @param percentile the percentage, from 0 to 100.
+     * @return the largest value of the bucket the percentile falls in, but no
+     * more than the largest value counted, or 0 if there are no values.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("Percentile must be between 0 and 100, was %f.", percentile));
+        }
+        if (count == 0)
+            return 0;
+
+        //-- The rank of the value, counting from 1.
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highest(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * @return the median.
+     */
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    /**
+     * @return the 99th percentile.
+     */
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * @return the 99.9th percentile.
+     */
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * To add the values counted by another histogram to this one.
+     *
+     * @param other the other histogram.
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * To forget all values counted so far.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return a copy of this histogram.
+     */
+    public LogHistogram copy() {
+        LogHistogram retVal = new LogHistogram();
+        retVal.add(this);
+        return retVal;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d min=%d p50=%d p99=%d p999=%d max=%d mean=%.1f",
+                count, getMin(), getP50(), getP99(), getP999(), max, getMean());
+    }
+}
@@ -43,6 +43,25 @@ public abstract class LogicalExpression extends CompileTimeObject implements Ser
      */
     public abstract String getInitCode(String label);
 
+    /**
+     * This function creates the precondition object that implements this
+     * logical expression at run time, without generating code for it, i.e.,
+     * what the code produced by <code>toCode</code> would create.
+     *
+     * @param owner   the domain this logical expression is part of.
+     * @param unifier the current unifier.
+     * @return the precondition object.
+     */
+    abstract Precondition toPrecondition(InterpretedDomain owner, Term[] unifier);
+
+    /**
+     * This function emits the bytecode that creates the precondition object
+     * that implements this logical expression at run time.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    abstract void toBytecode(BytecodeEmitter e);
+
     /**
      * This function returns the number of variables in this logical expression.
      *
@@ -73,4 +92,34 @@ public abstract class LogicalExpression extends CompileTimeObject implements Ser
      * @param varCountIn the number of variables for this logical expression.
      */
     protected abstract void propagateVarCount(int varCountIn);
+
+    /**
+     * This function records the heads of the atoms this logical expression
+     * can read from the state of the world, for {@link Reachability}.
+     *
+     * @param uses where the heads are recorded.
+     */
+    abstract void collectUses(Reachability.Uses uses);
+
+    /**
+     * This function orders the conjuncts of the conjunctions in this logical
+     * expression by the cardinality hints of the domain, see
+     * {@link Model#addCardinalityHint(String, String, int, int)}. Logical
+     * expressions that contain no conjunctions do nothing.
+     *
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head, -1 for the heads whose atoms are not to be moved.
+     */
+    void orderConjuncts(int[] hints) {
+    }
+
+    /**
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head.
+     * @return the estimated number of atoms this logical expression can match,
+     * or -1 if it is not an atom with a hint, and so is not to be moved.
+     */
+    int getCardinality(int[] hints) {
+        return -1;
+    }
 }
@@ -55,6 +55,13 @@ public class LogicalExpressionAssignment extends LogicalExpression {
     protected void propagateVarCount(int varCount) {
     }
 
+    /**
+     * This class does not read the state of the world, therefore, this
+     * function does nothing.
+     */
+    void collectUses(Reachability.Uses uses) {
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionAssign</code> object that represents this assignment
@@ -64,4 +71,17 @@ public class LogicalExpressionAssignment extends LogicalExpression {
         return "new PreconditionAssign(" + t.toCode(label) + ", unifier, " + whichVar +
                 ")";
     }
+
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionAssign(t.instantiate(owner), unifier, whichVar);
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionAssign.class);
+        t.toBytecode(e);
+        e.unifier();
+        e.push(whichVar);
+        e.construct(PreconditionAssign.class, Term.class, Term[].class, int.class);
+    }
 }
@@ -50,6 +50,25 @@ public class LogicalExpressionAtomic extends LogicalExpression {
         logicalAtom.setVarCount(varCount);
     }
 
+    /**
+     * To record that the logical atom represented by this object is read from
+     * the state of the world.
+     */
+    void collectUses(Reachability.Uses uses) {
+        uses.read(logicalAtom);
+    }
+
+    /**
+     * To return the hint of the head of the logical atom, if it is not a
+     * variable.
+     */
+    @Override
+    int getCardinality(int[] hints) {
+        if (logicalAtom.isVar() || logicalAtom.head >= hints.length)
+            return -1;
+        return hints[logicalAtom.head];
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionAtomic</code> object that represents this atomic
@@ -58,4 +77,16 @@ public class LogicalExpressionAtomic extends LogicalExpression {
     public String toCode(String label) {
         return "new PreconditionAtomic(" + logicalAtom.toCode(label) + ", unifier)";
     }
+
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionAtomic(logicalAtom.instantiate(owner), unifier);
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionAtomic.class);
+        logicalAtom.toBytecode(e);
+        e.unifier();
+        e.construct(PreconditionAtomic.class, Predicate.class, Term[].class);
+    }
 }
@@ -44,6 +44,13 @@ public class LogicalExpressionCall extends LogicalExpression {
     protected void propagateVarCount(int varCount) {
     }
 
+    /**
+     * This class does not read the state of the world, therefore, this
+     * function does nothing.
+     */
+    void collectUses(Reachability.Uses uses) {
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionCall</code> object that represents this call logical
@@ -52,4 +59,16 @@ public class LogicalExpressionCall extends LogicalExpression {
     public String toCode(String label) {
         return "new PreconditionCall(" + term.toCode(label) + ", unifier)";
     }
+
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionCall((TermCall) term.instantiate(owner), unifier);
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionCall.class);
+        term.toBytecode(e);
+        e.unifier();
+        e.construct(PreconditionCall.class, TermCall.class, Term[].class);
+    }
 }
@@ -1,5 +1,7 @@
 package com.gamalocus.jshop2rt;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Vector;
 
 /**
@@ -20,6 +22,11 @@ public class LogicalExpressionConjunction extends LogicalExpression {
      */
     private final int cnt;
 
+    /**
+     * The name of this conjunction at run time, made when it is first needed.
+     */
+    private String name;
+
     /**
      * An array of logical expressions the conjunction of which is represented
      * by this object.
@@ -62,6 +69,15 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         s.append("\t * ").append(label).append(endl);
         s.append("\t * ").append(getSourcePosForComment()).append(endl);
         s.append("\t */").append(endl);
+
+        //-- The nested loops of the 'nextBindingHelper' function grow with the
+        //-- number of conjuncts. If they would make the function too large for
+        //-- HotSpot to compile, produce a class that finds the bindings in a
+        //-- loop instead.
+        final String next = getInitCodeNext();
+        if (CodeChunks.estimate(next) > Model.getChunkSize())
+            return s + getInitCodeWide(label);
+
         s.append("\tpublic static class Precondition").append(cnt).append(" extends Precondition").append(endl);
 
         //-- Defining two arrays for storing the iterators and bindings for each
@@ -78,12 +94,16 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         s.append("\t\t{").append(endl).append("\t\t\tp = new Precondition[").append(le.length + 1).append("];").append(endl);
 
         //-- For each conjunct,
+        CodeChunks body = new CodeChunks();
         for (int i = 1; i <= le.length; i++) {
             //-- Set the corresponding element in the array to the code that produces
             //-- that conjunct.
-            s.append("\t\t\t// ").append(le[i - 1].getSourcePosForComment()).append(endl);
-            s.append("\t\t\tp[").append(i).append("] = ").append(le[i - 1].toCode(String.format("Conjunct %d of %s", i, label))).append(";").append(endl);
+            body.add("\t\t\t// " + le[i - 1].getSourcePosForComment() + endl
+                    + "\t\t\tp[" + i + "] = " + le[i - 1].toCode(String.format("Conjunct %d of %s", i, label)) + ";" + endl);
         }
+        StringBuilder helpers = new StringBuilder();
+        s.append(body.toCode("\t\tprivate void conjuncts%d(Domain owner, Term[] unifier)",
+                "\t\t\tconjuncts%d(owner, unifier);", helpers));
 
         //-- Allocate the array of bindings.
         //-- Set to one more than the number of conjuncts.  The first position
@@ -113,7 +133,7 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         s.append("\t\t{").append(endl);
 
         //-- Implement the 'nextBindingHelper' function.
-        s.append(getInitCodeNext());
+        s.append(next);
 
         //-- Define the 'resetHelper' function.
         s.append("\t\t}").append(endl).append(endl).append("\t\tprotected void resetHelper(State state)").append(endl).append("\t\t{");
@@ -125,6 +145,12 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         //-- Close the function definition
         s.append("\t\t}").append(endl);
 
+        //-- Implement the getId function, returning the unique number of this
+        //-- class.
+        s.append("\t\t@Override").append(endl).append("\t\tpublic int getId()").append(endl).append("\t\t{").append(endl);
+        s.append("\t\t\treturn ").append(cnt).append(";").append(endl);
+        s.append("\t\t}").append(endl).append(endl);
+
         //-- Implement the toString function
         s.append("\t\t@Override").append(endl).append("\t\tpublic String toString()").append(endl).append("\t\t{").append(endl);
 
@@ -134,6 +160,52 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         //-- Close the function definition
         s.append("\t\t}").append(endl);
 
+        //-- The functions that set the conjuncts, if the constructor was split.
+        s.append(helpers);
+
+        //-- Close the class definition and return the resulting string.
+        return s + "\t}" + endl + endl;
+    }
+
+    /**
+     * This function produces Java code that implements the class that
+     * represents a conjunction too wide for the nested loops of
+     * {@link #getInitCodeNext()}. The class extends
+     * <code>PreconditionConjunction</code>, which finds the same bindings in a
+     * loop.
+     *
+     * @return the produced code, from the class header on.
+     */
+    private String getInitCodeWide(String label) {
+        StringBuilder s = new StringBuilder();
+        s.append("\tpublic static class Precondition").append(cnt).append(" extends PreconditionConjunction").append(endl);
+        s.append("\t{").append(endl);
+
+        //-- The constructor of the class, which passes the conjuncts, the id of
+        //-- this conjunction and the label to the constructor of the base class.
+        s.append("\t\tpublic Precondition").append(cnt).append("(Domain owner, Term[] unifier)").append(endl);
+        s.append("\t\t{").append(endl);
+        s.append("\t\t\tsuper(conjuncts(owner, unifier), unifier, ").append(cnt).append(", \"");
+        s.append(label).append(" ").append(getSourcePosForToString()).append("\");").append(endl);
+        s.append("\t\t}").append(endl).append(endl);
+
+        //-- The function that creates the conjuncts.
+        s.append("\t\tprivate static Precondition[] conjuncts(Domain owner, Term[] unifier)").append(endl);
+        s.append("\t\t{").append(endl);
+        s.append("\t\t\tPrecondition[] p = new Precondition[").append(le.length).append("];").append(endl);
+        CodeChunks body = new CodeChunks();
+        for (int i = 1; i <= le.length; i++) {
+            body.add("\t\t\t// " + le[i - 1].getSourcePosForComment() + endl
+                    + "\t\t\tp[" + (i - 1) + "] = " + le[i - 1].toCode(String.format("Conjunct %d of %s", i, label)) + ";" + endl);
+        }
+        StringBuilder helpers = new StringBuilder();
+        s.append(body.toCode("\t\tprivate static void conjuncts%d(Precondition[] p, Domain owner, Term[] unifier)",
+                "\t\t\tconjuncts%d(p, owner, unifier);", helpers));
+        s.append("\t\t\treturn p;").append(endl);
+        s.append("\t\t}").append(endl).append(endl);
+
+        //-- The functions that set the conjuncts, if the function above was split.
+        s.append(helpers);
 
         //-- Close the class definition and return the resulting string.
         return s + "\t}" + endl + endl;
@@ -230,6 +302,41 @@ public class LogicalExpressionConjunction extends LogicalExpression {
         for (LogicalExpression logicalExpression : le) logicalExpression.setVarCount(varCount);
     }
 
+    /**
+     * To record the atoms read by all the logical expressions the conjunction
+     * of which this object represents.
+     */
+    void collectUses(Reachability.Uses uses) {
+        for (LogicalExpression logicalExpression : le) logicalExpression.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of this conjunction, and of those nested in it.
+     * Each run of consecutive conjuncts that are atoms with hints is sorted by
+     * the hints, so that the atoms with the fewest matches are tried first,
+     * and those with the same hint keep their order. Any other conjunct, e.g.,
+     * a negation or an assignment, stays where it is, and so do the conjuncts
+     * around it, as it may depend on the variables they bind.
+     */
+    @Override
+    void orderConjuncts(int[] hints) {
+        for (LogicalExpression logicalExpression : le) logicalExpression.orderConjuncts(hints);
+
+        int start = 0;
+        while (start < le.length) {
+            if (le[start].getCardinality(hints) < 0) {
+                start++;
+                continue;
+            }
+
+            int end = start + 1;
+            while (end < le.length && le[end].getCardinality(hints) >= 0)
+                end++;
+            Arrays.sort(le, start, end, Comparator.comparingInt(e -> e.getCardinality(hints)));
+            start = end;
+        }
+    }
+
     /**
      * This function produces the Java code to create an object of the class
      * that was implemented to represent this conjunction at run time.
@@ -237,4 +344,45 @@ public class LogicalExpressionConjunction extends LogicalExpression {
     public String toCode(String label) {
         return "new Precondition" + cnt + "(owner, unifier)";
     }
+
+    /**
+     * This function creates a <code>PreconditionConjunction</code>, which
+     * does what the class implemented to represent this conjunction does.
+     */
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        Precondition[] p = new Precondition[le.length];
+        for (int i = 0; i < le.length; i++)
+            p[i] = le[i].toPrecondition(owner, unifier);
+
+        return new PreconditionConjunction(p, unifier, cnt, getName());
+    }
+
+    /**
+     * This function emits the bytecode that creates a
+     * <code>PreconditionConjunction</code>.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionConjunction.class);
+        e.newArray(Precondition.class, le.length);
+        for (int i = 0; i < le.length; i++) {
+            e.element(i);
+            le[i].toBytecode(e);
+            e.store();
+        }
+        e.unifier();
+        e.push(cnt);
+        e.push((Object) getName());
+        e.construct(PreconditionConjunction.class, Precondition[].class, Term[].class, int.class, String.class);
+    }
+
+    /**
+     * To get the name of this conjunction at run time.
+     *
+     * @return the name, with the position of the conjunction in the source.
+     */
+    String getName() {
+        if (name == null)
+            name = "Conjunction " + getSourcePosForToString();
+        return name;
+    }
 }
@@ -20,6 +20,11 @@ public class LogicalExpressionDisjunction extends LogicalExpression {
      */
     private final int cnt;
 
+    /**
+     * The name of this disjunction at run time, made when it is first needed.
+     */
+    private String name;
+
     /**
      * An array of logical expressions the disjunction of which is represented
      * by this object.
@@ -117,6 +122,12 @@ public class LogicalExpressionDisjunction extends LogicalExpression {
         //-- If there are no more disjuncts left, return null.
         s.append(endl).append(endl).append("\t\t\treturn null;").append(endl).append("\t\t}").append(endl).append(endl);
 
+        //-- Implement the getId function, returning the unique number of this
+        //-- class.
+        s.append("\t\t@Override").append(endl).append("\t\tpublic int getId()").append(endl).append("\t\t{").append(endl);
+        s.append("\t\t\treturn ").append(cnt).append(";").append(endl);
+        s.append("\t\t}").append(endl).append(endl);
+
         //-- Implement the toString function
         s.append("\t\t@Override").append(endl).append("\t\tpublic String toString()").append(endl).append("\t\t{").append(endl);
 
@@ -147,6 +158,22 @@ public class LogicalExpressionDisjunction extends LogicalExpression {
         for (LogicalExpression logicalExpression : le) logicalExpression.setVarCount(varCount);
     }
 
+    /**
+     * To record the atoms read by all the logical expressions the disjunction
+     * of which this object represents.
+     */
+    void collectUses(Reachability.Uses uses) {
+        for (LogicalExpression logicalExpression : le) logicalExpression.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the conjunctions in the disjuncts.
+     */
+    @Override
+    void orderConjuncts(int[] hints) {
+        for (LogicalExpression logicalExpression : le) logicalExpression.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code to create an object of the class
      * that was implemented to represent this disjunction at run time.
@@ -155,5 +182,43 @@ public class LogicalExpressionDisjunction extends LogicalExpression {
         return "new Precondition" + cnt + "(owner, unifier) /*" + label + "*/";
     }
 
+    /**
+     * This function creates a <code>PreconditionDisjunction</code>, which
+     * does what the class implemented to represent this disjunction does.
+     */
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        Precondition[] p = new Precondition[le.length];
+        for (int i = 0; i < le.length; i++)
+            p[i] = le[i].toPrecondition(owner, unifier);
+
+        return new PreconditionDisjunction(p, cnt, getName());
+    }
+
+    /**
+     * This function emits the bytecode that creates a
+     * <code>PreconditionDisjunction</code>.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionDisjunction.class);
+        e.newArray(Precondition.class, le.length);
+        for (int i = 0; i < le.length; i++) {
+            e.element(i);
+            le[i].toBytecode(e);
+            e.store();
+        }
+        e.push(cnt);
+        e.push((Object) getName());
+        e.construct(PreconditionDisjunction.class, Precondition[].class, int.class, String.class);
+    }
 
+    /**
+     * To get the name of this disjunction at run time.
+     *
+     * @return the name, with the position of the disjunction in the source.
+     */
+    String getName() {
+        if (name == null)
+            name = "Disjunction " + getSourcePosForToString();
+        return name;
+    }
 }
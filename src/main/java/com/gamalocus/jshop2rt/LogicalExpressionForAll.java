@@ -52,6 +52,25 @@ public class LogicalExpressionForAll extends LogicalExpression {
         consequence.setVarCount(varCount);
     }
 
+    /**
+     * To record the atoms read by the premise and the consequence of the
+     * <code>ForAll</code> logical expression represented by this object.
+     */
+    void collectUses(Reachability.Uses uses) {
+        premise.collectUses(uses);
+        consequence.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the conjunctions in the premise and the
+     * consequence.
+     */
+    @Override
+    void orderConjuncts(int[] hints) {
+        premise.orderConjuncts(hints);
+        consequence.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionForAll</code> object that represents this
@@ -61,4 +80,18 @@ public class LogicalExpressionForAll extends LogicalExpression {
         return "new PreconditionForAll(" + premise.toCode("premise of " + label) + ", " +
                 consequence.toCode("consequence of " + label) + ", " + getVarCount() + ")";
     }
+
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionForAll(premise.toPrecondition(owner, unifier),
+                consequence.toPrecondition(owner, unifier), getVarCount());
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionForAll.class);
+        premise.toBytecode(e);
+        consequence.toBytecode(e);
+        e.push(getVarCount());
+        e.construct(PreconditionForAll.class, Precondition.class, Precondition.class, int.class);
+    }
 }
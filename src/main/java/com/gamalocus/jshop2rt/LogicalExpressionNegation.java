@@ -42,6 +42,23 @@ public class LogicalExpressionNegation extends LogicalExpression {
         le.setVarCount(varCount);
     }
 
+    /**
+     * To record the atoms read by the logical expression the negative of which
+     * this object represents.
+     */
+    void collectUses(Reachability.Uses uses) {
+        le.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the conjunctions in the negated logical
+     * expression.
+     */
+    @Override
+    void orderConjuncts(int[] hints) {
+        le.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionNegation</code> object that represents this negative
@@ -50,4 +67,16 @@ public class LogicalExpressionNegation extends LogicalExpression {
     public String toCode(String label) {
         return "new PreconditionNegation(" + le.toCode(label) + ", " + getVarCount() + ")";
     }
+
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionNegation(le.toPrecondition(owner, unifier), getVarCount());
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionNegation.class);
+        le.toBytecode(e);
+        e.push(getVarCount());
+        e.construct(PreconditionNegation.class, Precondition.class, int.class);
+    }
 }
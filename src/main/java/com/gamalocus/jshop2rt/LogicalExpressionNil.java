@@ -36,6 +36,14 @@ public class LogicalExpressionNil extends LogicalExpression {
     protected void propagateVarCount(int varCount) {
     }
 
+    /**
+     * This class does not read the state of the world, therefore, this
+     * function does nothing.
+     */
+    @Override
+    void collectUses(Reachability.Uses uses) {
+    }
+
     /**
      * This function produces the Java code to create a
      * <code>PreconditionNil</code> object that represents this empty logical
@@ -45,4 +53,16 @@ public class LogicalExpressionNil extends LogicalExpression {
     public String toCode(String label) {
         return "new PreconditionNil(" + getVarCount() + ")";
     }
+
+    @Override
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        return new PreconditionNil(getVarCount());
+    }
+
+    @Override
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(PreconditionNil.class);
+        e.push(getVarCount());
+        e.construct(PreconditionNil.class, int.class);
+    }
 }
@@ -1,5 +1,9 @@
 package com.gamalocus.jshop2rt;
 
+import org.objectweb.asm.Opcodes;
+
+import java.util.Comparator;
+
 /**
  * Each logical precondition at compile time is represented as an instance of
  * this class.
@@ -85,6 +89,27 @@ public class LogicalPrecondition extends CompileTimeObject {
         le.setVarCount(varCount);
     }
 
+    /**
+     * To record the heads of the atoms this logical precondition can read from
+     * the state of the world, for {@link Reachability}.
+     *
+     * @param uses where the heads are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+        le.collectUses(uses);
+    }
+
+    /**
+     * To order the conjuncts of the conjunctions in this logical precondition
+     * by the cardinality hints of the domain.
+     *
+     * @param hints the estimated number of atoms of each head, indexed by the
+     *              head, -1 for the heads whose atoms are not to be moved.
+     */
+    void orderConjuncts(int[] hints) {
+        le.orderConjuncts(hints);
+    }
+
     /**
      * This function produces the Java code to create an object that represents
      * this logical precondition at run time.
@@ -92,4 +117,53 @@ public class LogicalPrecondition extends CompileTimeObject {
     public String toCode(String label) {
         return "(" + le.toCode(label) + ").setComparator(" + func + ")";
     }
+
+    /**
+     * This function creates the object that represents this logical
+     * precondition at run time, without generating code for it.
+     *
+     * @param owner   the domain this logical precondition is part of.
+     * @param unifier the current unifier.
+     * @return the precondition object, which is yet to be reset.
+     */
+    Precondition toPrecondition(InterpretedDomain owner, Term[] unifier) {
+        Precondition retVal = le.toPrecondition(owner, unifier)
+                .setComparator(func == null ? null : owner.getComparator(func));
+
+        //-- If the logical precondition is marked ':first', set the appropriate
+        //-- flag.
+        if (first)
+            retVal.setFirst(true);
+
+        return retVal;
+    }
+
+    /**
+     * This function emits the bytecode that creates the object that
+     * represents this logical precondition at run time, i.e., the bytecode of
+     * the code produced by <code>toCode</code>, followed by that which marks
+     * it <code>:first</code> if it is.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        le.toBytecode(e);
+        if (func == null)
+            e.mv.visitInsn(Opcodes.ACONST_NULL);
+        else {
+            e.owner();
+            e.checkCast(InterpretedDomain.class);
+            e.push((Object) func);
+            e.invoke(InterpretedDomain.class, "getComparator", Comparator.class, String.class);
+        }
+        e.invoke(Precondition.class, "setComparator", Precondition.class, Comparator.class);
+
+        //-- If the logical precondition is marked ':first', set the appropriate
+        //-- flag.
+        if (first) {
+            e.mv.visitInsn(Opcodes.DUP);
+            e.push(true);
+            e.invoke(Precondition.class, "setFirst", void.class, boolean.class);
+        }
+    }
 }
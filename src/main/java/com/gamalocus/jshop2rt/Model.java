@@ -1,9 +1,11 @@
 package com.gamalocus.jshop2rt;
 
 import antlr.RecognitionException;
+import antlr.SemanticException;
 import antlr.TokenStreamException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
@@ -18,10 +20,25 @@ import java.util.*;
  */
 public class Model {
     private static final String DEFAULT_OUTPUT_PACKAGE = "net.gamalocus.cotwl2.ai.htnplanner";
+    /**
+     * The time budget of each tick of the scheduler that runs the planners in
+     * the generated problem code, in nanoseconds.
+     */
+    private static final long SCHEDULER_TICK_NANOS = 10000000L;
+    /**
+     * The default of {@link #getChunkSize()}, half of the largest method
+     * HotSpot compiles, as the size is only estimated.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4000;
     /**
      * The new line character in the platform JSHOP2 is running on.
      */
     private final static String endl = System.getProperty("line.separator");
+    /**
+     * The size, in estimated bytes of bytecode, above which the bodies of the
+     * generated methods are split into helper methods.
+     */
+    private static int chunkSize = Integer.getInteger("jshop2rt.chunkSize", DEFAULT_CHUNK_SIZE);
     public final StringBuffer src = new StringBuffer(16 * 1024);
     /**
      * A <code>List</code> of <code>String</code> names of compound tasks seen
@@ -72,7 +89,39 @@ public class Model {
      * The <code>String</code> name of the planning problem.
      */
     private String probName;
+    /**
+     * Whether the generated problem code runs its planners through a
+     * {@link PlannerScheduler}, see {@link #setScheduled(boolean)}.
+     */
+    private boolean scheduled = true;
+    /**
+     * The number of worker threads of the scheduler of the generated problem
+     * code, see {@link #setSchedulerWorkers(int)}.
+     */
+    private int schedulerWorkers;
     public int varsMaxSize;
+    /**
+     * The argument the atoms of each head are indexed by in the state of the
+     * world, from the <code>:index</code> pragmas, by the head.
+     */
+    private final Map<Integer, Integer> indexes = new HashMap<>();
+    /**
+     * The heads declared static by the <code>:static</code> pragmas, with the
+     * line and the column of each declaration.
+     */
+    private final Map<Integer, int[]> declaredStatic = new LinkedHashMap<>();
+    /**
+     * The estimated number of atoms of each head, from the
+     * <code>:cardinality-hint</code> pragmas, by the head.
+     */
+    private final Map<Integer, Integer> cardinalityHints = new HashMap<>();
+    /**
+     * The indexes of the names of the compound tasks, constant symbols and
+     * primitive tasks, for lookup by name.
+     */
+    private final SymbolIndex compoundTaskIndex = new SymbolIndex(compoundTasks);
+    private final SymbolIndex constantIndex = new SymbolIndex(constants);
+    private final SymbolIndex primitiveTaskIndex = new SymbolIndex(primitiveTasks);
 
     public Model(String input, String outputPackageIn) {
         this(new ByteArrayInputStream(input.getBytes()),
@@ -94,6 +143,56 @@ public class Model {
         parser.initialize(lexer, this);
     }
 
+    /**
+     * To initialize the part of a domain reachable from some tasks, see
+     * {@link #restrict(Reachability.Closure)}.
+     *
+     * @param source  the whole domain, already parsed.
+     * @param closure the tasks and atoms reachable from the tasks.
+     */
+    private Model(Model source, Reachability.Closure closure) {
+        outputPackage = source.outputPackage;
+        parser = source.parser;
+        name = source.name;
+        probName = source.probName;
+
+        //-- The symbols are all kept, so that the integers associated with them
+        //-- stay the same.
+        compoundTasks.addAll(source.compoundTasks);
+        constants.addAll(source.constants);
+        primitiveTasks.addAll(source.primitiveTasks);
+        constantsSize = source.constantsSize;
+        calcs.addAll(source.calcs);
+        comparators.addAll(source.comparators);
+        indexes.putAll(source.indexes);
+        declaredStatic.putAll(source.declaredStatic);
+        cardinalityHints.putAll(source.cardinalityHints);
+
+        operators.addAll(closure.getOperators());
+        methods.addAll(closure.getMethods());
+        axioms.addAll(closure.getAxioms());
+
+        close(source.varsMaxSize);
+    }
+
+    /**
+     * To restrict this domain to the part of it that is reachable from some
+     * tasks, usually those of a problem. The domain built from the result
+     * plans for those tasks just like the whole domain does, but has only the
+     * operators, methods and axioms that can be used, so it is quicker to
+     * compile and load.
+     * <p>
+     * The result shares the parser of this domain, and is not to be parsed
+     * any further.
+     *
+     * @param closure the tasks and atoms reachable from the tasks, computed by
+     *                a {@link Reachability} of this domain.
+     * @return the restricted domain, with its code produced.
+     */
+    public Model restrict(Reachability.Closure closure) {
+        return new Model(this, closure);
+    }
+
     /**
      * Replaces the file extension of the file.
      */
@@ -108,12 +207,7 @@ public class Model {
 
     public static long getSourceHash(File inputFile, String algorithm)
             throws IOException {
-        MessageDigest d;
-        try {
-            d = MessageDigest.getInstance(algorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(String.format("Digest algorithm %s was not available.", algorithm), e);
-        }
+        MessageDigest d = getDigest(algorithm);
 
         try (InputStream in = new BufferedInputStream(new FileInputStream(inputFile))) {
             ByteArrayOutputStream tmp = new ByteArrayOutputStream();
@@ -129,17 +223,44 @@ public class Model {
                 throw new AssertionError("Bug: Did not cover the entire file.");
             }
 
-            final byte[] digest = d.digest();
+            return collapseDigest(d.digest());
+        }
+    }
 
-            long collapsedDigest = 0;
-            for (int i = 0; i < digest.length; ++i) {
-                final long b = digest[i] & 255;
-                final long part = b << ((i % 8) * 8);
-                collapsedDigest ^= part;
-            }
+    /**
+     * Like {@link #getSourceHash(File, String)}, but of a domain description
+     * that is already in memory.
+     *
+     * @param source    the domain description.
+     * @param algorithm the name of the digest algorithm.
+     * @return the digest of the UTF-8 bytes of the source, collapsed to a
+     * <code>long</code>.
+     */
+    public static long getSourceHash(String source, String algorithm) {
+        return collapseDigest(getDigest(algorithm).digest(source.getBytes(StandardCharsets.UTF_8)));
+    }
 
-            return collapsedDigest;
+    private static MessageDigest getDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(String.format("Digest algorithm %s was not available.", algorithm), e);
+        }
+    }
+
+    /**
+     * To fold a digest into a <code>long</code>, by xor-ing its bytes into
+     * the eight bytes of the result in turn.
+     */
+    private static long collapseDigest(byte[] digest) {
+        long collapsedDigest = 0;
+        for (int i = 0; i < digest.length; ++i) {
+            final long b = digest[i] & 255;
+            final long part = b << ((i % 8) * 8);
+            collapsedDigest ^= part;
         }
+
+        return collapsedDigest;
     }
 
     /**
@@ -167,9 +288,131 @@ public class Model {
 
     public Model domain() throws RecognitionException, TokenStreamException, IOException {
         parser.domain();
+        checkDeclaredStatic();
         return this;
     }
 
+    /**
+     * To check that no operator explicitly deletes or adds an atom whose head
+     * is declared static. Those that delete or add atoms that are variables
+     * can not be checked here; they fail at run time instead, when they try
+     * to change a static atom, see {@link State#add(Predicate)}.
+     *
+     * @throws SemanticException if an operator changes a static head.
+     */
+    private void checkDeclaredStatic() throws SemanticException {
+        BitSet changed = new BitSet();
+        for (InternalOperator o : operators)
+            o.collectChanges(changed);
+
+        for (Map.Entry<Integer, int[]> e : declaredStatic.entrySet())
+            if (changed.get(e.getKey()))
+                throw new SemanticException(String.format("%s is declared static, but an operator deletes or adds it.",
+                        constants.get(e.getKey())), parser.getFilename(), e.getValue()[0], e.getValue()[1]);
+    }
+
+    /**
+     * To declare, by an <code>:index</code> pragma, the argument of the atoms
+     * of a head that the state of the world indexes them by. A logical atom
+     * with the head whose argument at that position is ground is then matched
+     * only against the atoms with the same argument, rather than against all
+     * the atoms with the head.
+     *
+     * @param head   the head of the atoms.
+     * @param arity  the number of arguments of the atoms, as declared.
+     * @param arg    the position of the argument, counted from 0.
+     * @param line   the line of the position, for the error messages.
+     * @param column the column of the position, for the error messages.
+     * @throws SemanticException if the position is not that of an argument,
+     *                           or the head is already indexed by another.
+     */
+    public void addIndex(String head, int arity, String arg, int line, int column) throws SemanticException {
+        final int index = parseCount(arg, line, column);
+        if (index >= arity)
+            throw new SemanticException(String.format("%s has no argument %d, it has %d.", head, index, arity),
+                    parser.getFilename(), line, column);
+
+        final Integer old = indexes.put(addConstant(head), index);
+        if (old != null && old != index)
+            throw new SemanticException(String.format("%s is already indexed by argument %d.", head, old),
+                    parser.getFilename(), line, column);
+    }
+
+    /**
+     * To declare, by a <code>:static</code> pragma, that no operator deletes
+     * or adds the atoms of a head, so that they are kept in the
+     * {@link StaticFacts} whatever {@link #getStaticHeads()} finds otherwise.
+     *
+     * @param head   the head of the atoms.
+     * @param line   the line of the head, for the error messages.
+     * @param column the column of the head, for the error messages.
+     */
+    public void addStatic(String head, int line, int column) {
+        declaredStatic.putIfAbsent(addConstant(head), new int[]{line, column});
+    }
+
+    /**
+     * To give, by a <code>:cardinality-hint</code> pragma, the estimated number
+     * of atoms of a head. Within each run of consecutive atoms with hints in
+     * a conjunction, the atoms are tried in the order of their hints, fewest
+     * first, see {@link LogicalExpressionConjunction}. As this changes the
+     * order in which the bindings are found, it can change the order in which
+     * the plans are found, though not which plans there are, but for the
+     * preconditions marked <code>:first</code>, whose first binding is the
+     * only one used.
+     * <p>
+     * Atoms whose heads have axioms are never moved, as the axioms may prove
+     * any number of them.
+     *
+     * @param head   the head of the atoms.
+     * @param count  the estimated number of atoms.
+     * @param line   the line of the number, for the error messages.
+     * @param column the column of the number, for the error messages.
+     * @throws SemanticException if the number is not a natural number.
+     */
+    public void addCardinalityHint(String head, String count, int line, int column) throws SemanticException {
+        cardinalityHints.put(addConstant(head), parseCount(count, line, column));
+    }
+
+    /**
+     * @return the natural number a pragma gives.
+     * @throws SemanticException if it is not one.
+     */
+    private int parseCount(String s, int line, int column) throws SemanticException {
+        try {
+            final int retVal = Integer.parseInt(s);
+            if (retVal >= 0)
+                return retVal;
+        } catch (NumberFormatException e) {
+            //-- Reported below.
+        }
+        throw new SemanticException(String.format("%s is not a natural number.", s), parser.getFilename(), line,
+                column);
+    }
+
+    /**
+     * To order the conjuncts of all the preconditions by the cardinality
+     * hints, see {@link #addCardinalityHint(String, String, int, int)}. The
+     * order is stable, so ordering them again changes nothing.
+     */
+    private void orderConjuncts() {
+        if (cardinalityHints.isEmpty())
+            return;
+
+        final int[] hints = new int[constants.size()];
+        Arrays.fill(hints, -1);
+        cardinalityHints.forEach((head, count) -> hints[head] = count);
+        for (InternalAxiom a : axioms)
+            hints[a.getHead().head] = -1;
+
+        for (InternalOperator o : operators)
+            o.orderConjuncts(hints);
+        for (InternalMethod m : methods)
+            m.orderConjuncts(hints);
+        for (InternalAxiom a : axioms)
+            a.orderConjuncts(hints);
+    }
+
     public Model problem() throws RecognitionException, TokenStreamException, IOException {
         parser.command();
         return this;
@@ -193,17 +436,7 @@ public class Model {
      * @return the index assigned to this name.
      */
     public int addCompoundTask(String s) {
-        int index;
-
-        //-- If this name has not been added before, add it to the end of the
-        //-- List and return its index.
-        if ((index = compoundTasks.indexOf(s)) == -1) {
-            compoundTasks.add(s);
-            return compoundTasks.size() - 1;
-        }
-
-        //-- Otherwise, just return its index.
-        return index;
+        return compoundTaskIndex.add(s);
     }
 
     /**
@@ -215,18 +448,7 @@ public class Model {
      * @return the index assigned to this name.
      */
     public int addConstant(String s) {
-        int index;
-
-        //-- If this name has not been added before, add it to the end of the
-        //-- List and return its index.
-        List<String> c = constants();
-        if ((index = c.indexOf(s)) == -1) {
-            c.add(s);
-            return c.size() - 1;
-        }
-
-        //-- Otherwise, just return its index.
-        return index;
+        return constantIndex.add(s);
     }
 
     /**
@@ -281,17 +503,7 @@ public class Model {
      * @return the index assigned to this name.
      */
     public int addPrimitiveTask(String s) {
-        int index;
-
-        //-- If this name has not been added before, add it to the end of the
-        //-- List and return its index.
-        if ((index = getPrimitiveTasks().indexOf(s)) == -1) {
-            getPrimitiveTasks().add(s);
-            return getPrimitiveTasks().size() - 1;
-        }
-
-        //-- Otherwise, just return its index.
-        return index;
+        return primitiveTaskIndex.add(s);
     }
 
     /**
@@ -305,11 +517,15 @@ public class Model {
         //-- To hold the String to be written.
         StringBuilder s;
 
+        //-- The conjuncts are put in order before any code is produced from
+        //-- them, or any object is made from them by the other backends.
+        orderConjuncts();
+
         //-- Package placement.
         s = new StringBuilder("package " + outputPackage + ';' + endl);
 
         //-- JSHOP2 classes should be imported first.
-        s.append(String.format("import %s.*;", getClass().getPackage().getName())).append(endl).append(endl);
+        s.append(String.format("import %s.*;", Model.class.getPackage().getName())).append(endl).append(endl);
 
         //-- Produce the class that represents the domain itself.
         s.append("public class ").append(name).append(" extends Domain").append(endl).append('{').append(endl);
@@ -357,134 +573,118 @@ public class Model {
         }
 
         //-- Produce the constructor for the class that represents this domain.
-        s.append("\tpublic ").append(name).append("()").append(endl).append("\t{").append(endl);
+        //-- It takes the model the domain was compiled from, like Domain does.
+        //-- Its body grows with the size of the domain, so it may be split into
+        //-- helper methods.
+        s.append("\tpublic ").append(name).append("(Model model)").append(endl).append("\t{").append(endl);
+        s.append("\t\tsuper(model);").append(endl).append(endl);
+        CodeChunks body = new CodeChunks();
 
         //-- Produce the array that maps constant symbols to integers.
-        s.append(listToCode(constants(), "constants"));
+        listToCode(constants(), "constants", body);
         //-- Produce the array that maps compound tasks to integers.
-        s.append(listToCode(compoundTasks, "compoundTasks"));
+        listToCode(compoundTasks, "compoundTasks", body);
         //-- Produce the array that maps primitive tasks to integers.
-        s.append(listToCode(getPrimitiveTasks(), "primitiveTasks"));
+        listToCode(getPrimitiveTasks(), "primitiveTasks", body);
 
         //-- To initialize an array of the variable symbols the size of which is
         //-- equal to the maximum number of variables seen in any scope in the
         //-- domain. This way, all the variable symbols that have the same index
         //-- will point to the same thing rather than pointing to duplicate copies.
-        s.append("\t\tinitializeTermVariables(").append(this.varsMaxSize = varsMaxSize).append(");").append(endl).append(endl);
+        body.add("\t\tinitializeTermVariables(" + (this.varsMaxSize = varsMaxSize) + ");" + endl);
 
         //-- Same, but for constant symbols.
-        s.append("\t\tinitializeTermConstants();").append(endl).append(endl);
-
-        //-- Allocate an array of type 'Method[]'. The size of the array is the
-        //-- number of compound tasks in the domain, and each element of the array
-        //-- represents all the methods that can be used to decompose the
-        //-- corresponding compound task.
-        s.append("\t\tmethods = new Method[").append(compoundTasks.size()).append("][];").append(endl).append(endl);
-
-        //-- For each compound task,
-        for (int i = 0; i < compoundTasks.size(); i++) {
-            //-- To store the number of methods that can decompose this compound
-            //-- task.
-            int j = 0;
-
-            //-- To iterate over the methods.
-            //-- First iterate over the methods to find out how many methods can
-            //-- decompose this compound task.
-            for (InternalMethod m : methods) {
-                if (m.getHead().head == i)
-                    j++;
-            }
+        body.add("\t\tinitializeTermConstants();" + endl);
 
-            //-- Allocate an array of right size.
-            s.append("\t\tmethods[").append(i).append("] = new Method[").append(j).append("];").append(endl);
+        //-- Allocate the arrays of methods, operators and axioms. Each element
+        //-- of an array represents all the methods that can be used to decompose
+        //-- a compound task, all the operators that can achieve a primitive task,
+        //-- or all the axioms that can be used to prove predicates which start
+        //-- with a constant symbol. The elements are created by the functions
+        //-- below the first time they are asked for.
+        body.add("\t\tmethods = new Method[" + compoundTasks.size() + "][];" + endl);
+        body.add("\t\tops = new Operator[" + getPrimitiveTasks().size() + "][];" + endl);
+        body.add("\t\taxioms = new Axiom[" + constants().size() + "][];" + endl);
 
-            j = 0;
+        StringBuilder helpers = new StringBuilder();
+        s.append(body.toCode("\tprivate void construct%d()", "\t\tconstruct%d();", helpers));
 
-            //-- Next, iterate over the methods again, this time to add the methods
-            //-- that can decompose this compound task to the array.
-            for (InternalMethod m : methods) {
-                if (m.getHead().head == i)
-                    s.append("\t\tmethods[").append(i).append("][").append(j++).append("] = new Method").append(m.getCnt()).append("(this);").append(endl);
-            }
+        s.append("\t}").append(endl).append(endl);
 
-            s.append(endl);
-        }
+        //-- Produce the functions that create the methods, operators and axioms
+        //-- of each head.
+        factoryToCode(s, helpers, "Method", "createMethods", methods, compoundTasks.size());
+        factoryToCode(s, helpers, "Operator", "createOperators", operators, getPrimitiveTasks().size());
+        factoryToCode(s, helpers, "Axiom", "createAxioms", axioms, constants().size());
 
-        //-- Allocate an array of type 'Operator[]'. The size of the array is the
-        //-- number of primitive tasks in the domain, and each element of the array
-        //-- represents all the operators that can be used to achieve the
-        //-- corresponding primitive task.
-        int size = getPrimitiveTasks().size();
-        s.append(endl).append("\t\tops = new Operator[").append(size).append("][];").append(endl).append(endl);
+        //-- Add the helper methods, if any, and close the class.
+        s.append(helpers).append('}');
 
-        //-- For each primitive task,
-        for (int i = 0; i < size; i++) {
-            //-- To store the number of operators that can achieve this primitive
-            //-- task.
-            int j = 0;
-
-            //-- To iterate over the operators.
-            //-- First iterate over the operators to find out how many operators can
-            //-- achieve this primitive task.
-            for (InternalOperator o : operators) {
-                if (o.getHead().head == i)
-                    j++;
-            }
+        src.append(s);
 
-            //-- Allocate an array of the right size.
-            s.append("\t\tops[").append(i).append("] = new Operator[").append(j).append("];").append(endl);
+        //-- The constant symbols from here on appear only in problems.
+        constantsSize = constants().size();
+    }
 
-            j = 0;
-            //-- Next, iterate over the operators again, this time to add the
-            //-- operators that can achieve this primitive task to the array.
-            for (InternalOperator o : operators) {
-                if (o.getHead().head == i)
-                    s.append("\t\tops[").append(i).append("][").append(j++).append("] = new Operator").append(o.getCnt()).append("(this);").append(endl);
+    /**
+     * This function produces the Java code of the function of the domain that
+     * creates the methods, operators or axioms of a head, which overrides the
+     * one of {@link Domain}. The function tests the head against each head
+     * that has elements, and may be split into helper methods that return
+     * <code>null</code> if the head is not theirs. Nothing is produced if
+     * there are no elements at all.
+     *
+     * @param s        where the function is to be appended.
+     * @param helpers  where the helper methods, if any, are to be appended.
+     * @param type     the class of the elements, which is also the prefix of
+     *                 the names of the classes that represent them.
+     * @param function the name of the function.
+     * @param elements the elements, in the order they appear in the domain
+     *                 description.
+     * @param size     the number of heads.
+     */
+    private static void factoryToCode(StringBuilder s, StringBuilder helpers, String type, String function,
+                                      List<? extends InternalElement> elements, int size) {
+        if (elements.isEmpty())
+            return;
+
+        //-- The elements of each head, in the order they appear.
+        List<List<InternalElement>> byHead = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            byHead.add(new ArrayList<>());
+        for (InternalElement e : elements)
+            byHead.get(e.getHead().head).add(e);
+
+        CodeChunks body = new CodeChunks();
+        for (int i = 0; i < size; i++) {
+            if (byHead.get(i).isEmpty())
+                continue;
+
+            StringBuilder create = new StringBuilder();
+            create.append("\t\tif (head == ").append(i).append(")").append(endl);
+            create.append("\t\t\treturn new ").append(type).append("[] {");
+            String sep = "";
+            for (InternalElement e : byHead.get(i)) {
+                create.append(sep).append("new ").append(type).append(e.getCnt()).append("(this)");
+                sep = ", ";
             }
-
-            s.append(endl);
+            body.add(create.append("};").append(endl).toString());
         }
 
-        //-- Allocate an array of type 'Axiom[]'. The size of the array is the
-        //-- number of constant symbols in the domain, and each element of the
-        //-- array represents all the axioms that can be used to prove predicates
-        //-- which start with the corresponding constant symbol.
-        s.append("\t\taxioms = new Axiom[").append(constants().size()).append("][];").append(endl).append(endl);
-
-        //-- For each constant symbol,
-        for (int i = 0; i < constants().size(); i++) {
-            //-- To store the number of axioms that can prove predicates that start
-            //-- with this constant symbol.
-            int j = 0;
-
-            //-- To iterate over the axioms.
-            //-- First iterate over the axioms to find out how many axioms can be
-            //-- used to prove the predicates that start with this constant symbol.
-            for (InternalAxiom a : axioms) {
-                if (a.getHead().head == i)
-                    j++;
-            }
-
-            //-- Allocate an array of the right size.
-            s.append("\t\taxioms[").append(i).append("] = new Axiom[").append(j).append("];").append(endl);
+        s.append("\t@Override").append(endl);
+        s.append("\tprotected ").append(type).append("[] ").append(function).append("(int head)").append(endl);
+        s.append("\t{").append(endl);
 
-            j = 0;
+        final int helpersLength = helpers.length();
+        final String code = body.toCode("\tprivate " + type + "[] " + function + "%d(int head)",
+                "\t\tif ((retVal = " + function + "%d(head)) != null)" + endl + "\t\t\treturn retVal;",
+                "\t\treturn null;" + endl, helpers);
+        if (helpers.length() > helpersLength)
+            s.append("\t\t").append(type).append("[] retVal;").append(endl);
+        s.append(code);
 
-            //-- Next, iterate over the axioms again, this time to add the axioms
-            //-- that can be used to prove the predicates that start with this
-            //-- constant symbol to the array.
-            for (InternalAxiom a : axioms) {
-                if (a.getHead().head == i)
-                    s.append("\t\taxioms[").append(i).append("][").append(j++).append("] = new Axiom").append(a.getCnt()).append("(this);").append(endl);
-            }
-
-            s.append(endl);
-        }
-
-        //-- Close the constructor and the class.
-        s.append("\t}").append(endl).append('}');
-
-        src.append(s);
+        s.append("\t\treturn super.").append(function).append("(head);").append(endl);
+        s.append("\t}").append(endl).append(endl);
     }
 
     /**
@@ -532,7 +732,7 @@ public class Model {
         s = new StringBuilder("package " + outputPackage + ';' + endl);
 
         //-- Import the appropriate packages.
-        s.append("import java.util.LinkedList;").append(endl).append(String.format("import %s.*;", getClass().getPackage().getName())).append(endl).append(endl);
+        s.append("import java.util.LinkedList;").append(endl).append(String.format("import %s.*;", Model.class.getPackage().getName())).append(endl).append(endl);
 
         //-- Define the class that represents this planning problem.
         s.append("public class ").append(probName).append(endl).append('{').append(endl);
@@ -543,17 +743,21 @@ public class Model {
 //    s += String.format("\tpublic static final long sourceLastModified = %dL;" + endl + endl,
 //    		inputFile.lastModified());
 
-        //-- This function defines and allocate the array that will hold the String
-        //-- names of the constant symbols that appeared in the problem description
-        //-- but not in the domain description.
-        s.append("\tprivate static String[] defineConstants()").append(endl).append("\t{").append(endl);
-        s.append("\t\tString[] problemConstants = new String[").append(constants().size() - getConstantsSize()).append("];").append(endl).append(endl);
+        //-- This function adds to the domain the constant symbols that appeared
+        //-- in the problem description but not in the domain description, so
+        //-- that they are associated with the same integers as in the model.
+        //-- The bodies of these functions grow with the size of the problem, so
+        //-- they may be split into helper functions.
+        StringBuilder helpers = new StringBuilder();
+        s.append("\tprivate static void defineConstants(Domain owner)").append(endl).append("\t{").append(endl);
 
-        //-- Set the values of elements of that array.
+        CodeChunks body = new CodeChunks();
         for (int i = getConstantsSize(); i < constants().size(); i++)
-            s.append("\t\tproblemConstants[").append(i - getConstantsSize()).append("] = \"").append(constants().get(i)).append("\";").append(endl);
+            body.add("\t\towner.addConstant(\"" + constants().get(i) + "\");" + endl);
+        s.append(body.toCode("\tprivate static void defineConstants%d(Domain owner)",
+                "\t\tdefineConstants%d(owner);", helpers));
 
-        s.append(endl).append("\t\treturn problemConstants;").append(endl).append("\t}").append(endl).append(endl);
+        s.append("\t}").append(endl).append(endl);
 
         //-- For each planning problem, initialize the current state of the world
         //-- to the initial state of the world in the problem description.
@@ -563,8 +767,9 @@ public class Model {
 
         //-- For each problem,
         for (List<Predicate> state : states) {
-            s.append("\tprivate static void createState").append(problemIdx++).append("(State s)").append("\t{").append(endl);
-
+            s.append("\tprivate static void createState").append(problemIdx).append("(Domain owner, State s)")
+                    .append(endl).append("\t{").append(endl);
+            body = new CodeChunks();
 
             //-- For each predicate, in the initial world state of the problem
             for (Predicate p : state) {
@@ -573,42 +778,35 @@ public class Model {
                 //-- a difference.
                 // FIXME Use toString method with domain and namespace.
                 if (p.head < getConstantsSize())
-                    s.append("\t\ts.add(").append(p.toCode(p.toString())).append(");").append(endl);
+                    body.add("\t\ts.add(" + p.toCode(p.toString()) + ");" + endl);
             }
+            s.append(body.toCode("\tprivate static void createState" + problemIdx + "_%d(Domain owner, State s)",
+                    "\t\tcreateState" + problemIdx + "_%d(owner, s);", helpers));
+            problemIdx++;
 
             s.append("\t}").append(endl).append(endl);
         }
 
-        //-- Define the main function.
-        s.append("\tpublic static LinkedList<Plan> getPlans()").append(endl).append("\t{").append(endl);
+        //-- Define the main function. It takes the domain, made from this model
+        //-- before or after the problems were parsed into it.
+        s.append("\tpublic static LinkedList<Plan> getPlans(Domain owner)").append(endl).append("\t{").append(endl);
         //-- List for all plans to be stored in
-        s.append("\t\tLinkedList<Plan> returnedPlans = new LinkedList<Plan>();").append(endl);
-
-        //-- To initialize an array of the constant symbols that we already know
-        //-- exist so that there will be no duplicate copies of those constant
-        //-- symbols.
-        s.append("\t\tTermConstant.initialize(").append(constants().size()).append(");").append(endl).append(endl);
-
-        //-- Instantiate an object of the class that represents the planning
-        //-- domain.
-        s.append("\t\tDomain d = new ").append(name).append("();").append(endl).append(endl);
+        s.append("\t\tLinkedList<Plan> returnedPlans = new LinkedList<Plan>();").append(endl).append(endl);
 
-        //-- Call the function that passes this array to the the object that
-        //-- represents the domain.
-        s.append("\t\td.setProblemConstants(defineConstants());").append(endl).append(endl);
+        //-- Add the constant symbols of the problems to the domain.
+        s.append("\t\tdefineConstants(owner);").append(endl).append(endl);
 
         //-- Initialize the object that will represent the current state of the
         //-- world.
-        s.append("\t\tState s = new State(").append(getConstantsSize()).append(", d.getAxioms());").append(endl);
+        s.append("\t\tState s = new State(owner);").append(endl);
 
-        //-- Pass the domain description and the initial state of the world to the
-        //-- JSHOP2 algorithm.
+        //-- Define the task list variable, the planner that solves the problems,
+        //-- and the scheduler that runs it, if any.
+        s.append(endl);
+        s.append("\t\tTaskList tl;").append(endl).append("\t\tJSHOP2 jShop2Planner;").append(endl);
+        if (scheduled)
+            s.append("\t\tPlannerScheduler scheduler = new PlannerScheduler(").append(schedulerWorkers).append(");").append(endl);
         s.append(endl);
-        s.append("\t\tJSHOP2 jShop2Planner = new JSHOP2();").append(endl);
-        s.append("\t\tjShop2Planner.initialize(d, s);").append(endl).append(endl);
-
-        //-- Define the task list variable and the thread that solves the problems.
-        s.append("\t\tTaskList tl;").append(endl).append("\t\tSolverThread thread;").append(endl).append(endl);
 
         //-- The index of the problem being solved.
         problemIdx = 0;
@@ -621,35 +819,103 @@ public class Model {
                 s.append(endl).append("\t\ts.clear();").append(endl);
 
             //-- Create the world state for this problem.
-            s.append("\t\tcreateState").append(problemIdx).append("(s);").append(endl);
+            s.append("\t\tcreateState").append(problemIdx).append("(owner, s);").append(endl);
 
             //-- Create the initial task list.
             s.append(endl).append(tl.getInitCode(String.format("Task list of problem #%d", problemIdx), "tl")).append(endl);
 
-            //-- Define the thread that will solve this planning problem.
-            s.append("\t\tthread = new SolverThread(jShop2Planner, tl, Integer.MAX_VALUE);").append(endl);
-
-            //-- Start the thread that will solve this planning problem.
-            s.append("\t\tthread.start();").append(endl).append(endl);
+            //-- Define the planner that will solve this planning problem.
+            s.append("\t\tjShop2Planner = new JSHOP2(tl, Integer.MAX_VALUE, new DoubleCost(0), owner, s);").append(endl);
 
-            //-- Wait till thread is done, since JSHOP2's data members are static and
-            //-- can handle only one problem at a time.
-            // FIXME JSHOP2 is now thread-safe.
-            s.append("\t\ttry {").append(endl).append("\t\t\twhile (thread.isAlive())").append(endl);
-            s.append("\t\t\t\tThread.sleep(500);").append(endl);
-            s.append("\t\t} catch (InterruptedException e) {").append(endl).append("\t\t}").append(endl);
-            s.append(endl).append("\t\treturnedPlans.addAll( thread.getPlans() );").append(endl).append(endl);
+            //-- Run the planner till it is done. The problems are solved one at a
+            //-- time, since they share the world state.
+            if (scheduled) {
+                s.append("\t\tscheduler.add(jShop2Planner, 1);").append(endl);
+                s.append("\t\tscheduler.runUntilIdle(").append(SCHEDULER_TICK_NANOS).append("L);").append(endl);
+            } else {
+                s.append("\t\twhile (jShop2Planner.run())").append(endl).append("\t\t\t;").append(endl);
+            }
+            s.append(endl).append("\t\treturnedPlans.addAll(jShop2Planner.getPlans());").append(endl).append(endl);
 
             problemIdx++;
         }
+        if (scheduled)
+            s.append("\t\tscheduler.close();").append(endl);
         s.append("\t\treturn returnedPlans;").append(endl);
-        s.append("\t}").append(endl).append(endl).append("\tpublic static LinkedList<Predicate> getFirstPlanOps() {");
-        s.append(endl).append("\t\treturn getPlans().getFirst().getOps();").append(endl);
-        s.append("\t}").append(endl).append('}');
+        s.append("\t}").append(endl).append(endl);
+        s.append("\tpublic static LinkedList<Predicate> getFirstPlanOps(Domain owner)").append(endl).append("\t{");
+        //-- The cast is for compilers that erase the type arguments, e.g., Janino.
+        s.append(endl).append("\t\treturn ((Plan) getPlans(owner).getFirst()).getOps();").append(endl);
+        s.append("\t}").append(endl).append(endl).append(helpers).append('}');
 
         src.append(s);
     }
 
+    /**
+     * To write the names of the constant symbols, the compound tasks and the
+     * primitive tasks of this domain, and then its <code>:index</code>,
+     * <code>:static</code> and <code>:cardinality-hint</code> pragmas, in that
+     * order, so that they can be read back with
+     * {@link #readSymbols(BufferedReader)} instead of parsing the domain
+     * description again.
+     *
+     * @param dest where the names are to be written.
+     * @throws IOException
+     */
+    public void dumpSymbols(BufferedWriter dest) throws IOException {
+        dumpStringArray(dest, constants());
+        dumpStringArray(dest, compoundTasks);
+        dumpStringArray(dest, getPrimitiveTasks());
+        dumpIntMap(dest, indexes);
+        dumpStringArray(dest, new ArrayList<>(declaredStatic.keySet()));
+        dumpIntMap(dest, cardinalityHints);
+    }
+
+    /**
+     * To read the names written by {@link #dumpSymbols(BufferedWriter)} into
+     * this model, which should not have parsed a domain description.
+     *
+     * @param src where the names are to be read from.
+     * @throws IOException
+     */
+    public void readSymbols(BufferedReader src) throws IOException {
+        readStringArray(src, constants());
+        readStringArray(src, compoundTasks);
+        readStringArray(src, getPrimitiveTasks());
+        readIntMap(src, indexes);
+
+        final List<String> heads = new ArrayList<>();
+        readStringArray(src, heads);
+        //-- Where the heads were declared is only needed to check the domain
+        //-- description, which has already been done.
+        for (String head : heads)
+            declaredStatic.put(Integer.valueOf(head), new int[]{0, 0});
+
+        readIntMap(src, cardinalityHints);
+    }
+
+    /**
+     * To write a map from integers to integers, one entry per line.
+     */
+    private static void dumpIntMap(BufferedWriter dest, Map<Integer, Integer> map) throws IOException {
+        final List<String> entries = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : map.entrySet())
+            entries.add(e.getKey() + " " + e.getValue());
+        dumpStringArray(dest, entries);
+    }
+
+    /**
+     * To read a map written by {@link #dumpIntMap(BufferedWriter, Map)}.
+     */
+    private void readIntMap(BufferedReader src, Map<Integer, Integer> map) throws IOException {
+        final List<String> entries = new ArrayList<>();
+        readStringArray(src, entries);
+        for (String entry : entries) {
+            final int space = entry.indexOf(' ');
+            map.put(Integer.valueOf(entry.substring(0, space)), Integer.valueOf(entry.substring(space + 1)));
+        }
+    }
+
     /**
      * This function returns the number of axioms in this domain.
      *
@@ -695,6 +961,46 @@ public class Model {
         return methods.size();
     }
 
+    /**
+     * This function returns the methods in this domain, in the order they
+     * appear in the domain description.
+     *
+     * @return the methods in this domain.
+     */
+    public List<InternalMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * This function returns the names of the classes that implement the
+     * user-defined external code calls in this domain.
+     *
+     * @return the names of the external code calls in this domain.
+     */
+    public List<String> getCalcs() {
+        return calcs;
+    }
+
+    /**
+     * This function returns the comparators of the <code>:sort-by</code>
+     * logical preconditions in this domain, each as the name of its class,
+     * the name of its instance and the arguments of its constructor.
+     *
+     * @return the comparators in this domain.
+     */
+    public Set<java.util.List<String>> getComparators() {
+        return comparators;
+    }
+
+    /**
+     * This function returns the package of the code produced for this domain.
+     *
+     * @return the package of the code produced for this domain.
+     */
+    public String getOutputPackage() {
+        return outputPackage;
+    }
+
     /**
      * This function returns the <code>String</code> name of this domain.
      *
@@ -738,6 +1044,60 @@ public class Model {
         return primitiveTasks;
     }
 
+    /**
+     * To classify the heads of the atoms as static or fluent. An atom whose
+     * head no operator deletes or adds is static: it stays in the state of the
+     * world from the initial state on, so it can be kept in
+     * {@link StaticFacts} shared by all the states. The other heads are
+     * fluent.
+     *
+     * @return the integers associated with the constant symbols seen so far
+     * that are static heads. If any operator deletes or adds a list that is a
+     * variable, or an atom that is a variable, no head is static but those
+     * declared so.
+     */
+    public BitSet getStaticHeads() {
+        BitSet retVal = new BitSet();
+        BitSet fluent = new BitSet();
+        boolean known = true;
+        for (InternalOperator o : operators)
+            known &= o.collectChanges(fluent);
+
+        if (known) {
+            retVal.set(0, constants.size());
+            retVal.andNot(fluent);
+        }
+        for (int head : declaredStatic.keySet())
+            retVal.set(head);
+        return retVal;
+    }
+
+    /**
+     * @return the heads declared static by the <code>:static</code> pragmas.
+     */
+    public BitSet getDeclaredStaticHeads() {
+        BitSet retVal = new BitSet();
+        for (int head : declaredStatic.keySet())
+            retVal.set(head);
+        return retVal;
+    }
+
+    /**
+     * @return the argument the atoms of each head are indexed by, from the
+     * <code>:index</code> pragmas, by the head.
+     */
+    public Map<Integer, Integer> getIndexes() {
+        return Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * @return the estimated number of atoms of each head, from the
+     * <code>:cardinality-hint</code> pragmas, by the head.
+     */
+    public Map<Integer, Integer> getCardinalityHints() {
+        return Collections.unmodifiableMap(cardinalityHints);
+    }
+
     /**
      * Retreive generated Java source code.
      */
@@ -780,6 +1140,33 @@ public class Model {
         probName = probNameIn;
     }
 
+    /**
+     * To set whether the problem code generated from then on runs its
+     * planners through a {@link PlannerScheduler}, as it does by default, or
+     * runs each planner on the calling thread until it is done.
+     *
+     * @param scheduledIn <code>true</code> to run the planners through a
+     *                    scheduler.
+     */
+    public void setScheduled(boolean scheduledIn) {
+        scheduled = scheduledIn;
+    }
+
+    /**
+     * To set the number of worker threads of the scheduler of the problem
+     * code generated from then on, see {@link PlannerScheduler#PlannerScheduler(int)}.
+     * There are none by default.
+     *
+     * @param workers the number of worker threads, or 0 to run the planners
+     *                on the thread that calls the generated code.
+     */
+    public void setSchedulerWorkers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException(String.format("Number of workers must not be negative, was %d.", workers));
+        }
+        schedulerWorkers = workers;
+    }
+
     /**
      * This function produces the Java code needed to allocate and initialize an
      * array the elements of which are drawn from a given <code>List</code> of
@@ -789,19 +1176,36 @@ public class Model {
      *             the resulting array.
      * @param name the name of the array where the elements of the
      *             <code>List</code> are to be stored.
-     * @return the produced Java code.
+     * @param body the body of the method the code is to be added to.
      */
-    private String listToCode(List<String> list, String name) {
-        StringBuilder retVal;
-
+    private void listToCode(List<String> list, String name, CodeChunks body) {
         //-- First, allocate the array.
-        retVal = new StringBuilder("\t\t" + name + " = new String[" + list.size() + "];" + endl);
+        body.add("\t\t" + name + " = new String[" + list.size() + "];" + endl);
 
         //-- Then, assign the elements of the array one by one.
         for (int i = 0; i < list.size(); i++)
-            retVal.append("\t\t").append(name).append('[').append(i).append("] = \"").append(list.get(i)).append("\";").append(endl);
+            body.add("\t\t" + name + '[' + i + "] = \"" + list.get(i) + "\";" + endl);
+    }
 
-        return retVal + endl;
+    /**
+     * @return the size, in estimated bytes of bytecode, above which the bodies
+     * of the generated methods are split into helper methods. Set by the
+     * system property <code>jshop2rt.chunkSize</code>, or by
+     * {@link #setChunkSize(int)}.
+     */
+    public static int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * To set the size above which the bodies of the methods generated from
+     * then on are split into helper methods. Wide conjunctions, whose code
+     * would be larger, are generated as loops rather than nested ones.
+     *
+     * @param chunkSizeIn the size, in estimated bytes of bytecode.
+     */
+    public static void setChunkSize(int chunkSizeIn) {
+        chunkSize = chunkSizeIn;
     }
 
     public JSHOP2Parser getParser() {
@@ -821,4 +1225,44 @@ public class Model {
 //    public void setConstantsSize(int constantsSize) {
 //        this.constantsSize = constantsSize;
 //    }
+
+    /**
+     * The index of each name in a list of names, so that a name is looked up
+     * in constant time rather than by a scan of the list. The names added to
+     * the list directly, e.g., by {@link #readSymbols(BufferedReader)}, are
+     * indexed the next time a name is looked up.
+     */
+    private static final class SymbolIndex {
+        private final List<String> names;
+        private final Map<String, Integer> indexes = new HashMap<>();
+        /**
+         * The number of names of the list indexed so far.
+         */
+        private int indexed;
+
+        SymbolIndex(List<String> namesIn) {
+            names = namesIn;
+        }
+
+        /**
+         * @param s a name.
+         * @return the index of the name in the list, to the end of which it is
+         * added if it has not been added before.
+         */
+        int add(String s) {
+            for (; indexed < names.size(); indexed++)
+                indexes.putIfAbsent(names.get(indexed), indexed);
+
+            //-- If this name has not been added before, add it to the end of the
+            //-- List and return its index.
+            Integer retVal = indexes.get(s);
+            if (retVal == null) {
+                retVal = names.size();
+                names.add(s);
+                indexes.put(s, retVal);
+                indexed++;
+            }
+            return retVal;
+        }
+    }
 }
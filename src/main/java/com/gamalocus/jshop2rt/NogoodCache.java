@@ -0,0 +1,174 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of the task networks that the planner has failed to find a
+ * plan for, from a given state of the world. When the planner reaches the same
+ * task network from the same state again, e.g., by decomposing tasks in a
+ * different order, it can give up right away instead of searching the same
+ * subtree again.
+ * <p>
+ * Entries are keyed by the hash of the remaining task network and the
+ * fingerprint of the state of the world, see {@link State#getFingerprint()},
+ * and stored in a direct-mapped table of primitive arrays: an entry simply
+ * replaces the entry already in its slot, if any. Since only hashes are kept,
+ * two different pairs of task network and state may be mistaken for one
+ * another, which with 128 bits of key is very unlikely.
+ * <p>
+ * The cache is only sound when the preconditions of the domain depend on
+ * nothing but the state of the world, i.e., when any code calls they make
+ * always return the same result for the same arguments.
+ * <p>
+ * Keying and recording every task network the planner returns from costs
+ * time whether or not the cache is ever hit, and it is only hit in domains
+ * that reach the same dead end many times over, such as ROVER. Elsewhere it
+ * usually costs more than it saves: on BLOCKS, finding 2000 plans took 12.9 s
+ * with the cache instead of 10.3 s without it. Planners therefore have no
+ * cache unless one is given to them, see
+ * {@link JSHOP2#setNogoodCache(NogoodCache)}, which is only worth doing once
+ * measured on the domain at hand. Without a cache, the planner keys no task
+ * network, and the state of the world keeps no fingerprint.
+ * <p>
+ * This class is not thread-safe. A cache may be shared by planners that use
+ * the same domain and are run from the same thread, e.g., by a scheduler.
+ */
+public class NogoodCache {
+    /**
+     * The hashes of the task networks, indexed by slot.
+     */
+    private final long[] taskKeys;
+    /**
+     * The fingerprints of the states, indexed by slot.
+     */
+    private final long[] stateKeys;
+    /**
+     * Which slots are in use.
+     */
+    private final boolean[] used;
+    /**
+     * The number of slots minus one.
+     */
+    private final int mask;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long insertions;
+    private int size;
+
+    /**
+     * To initialize an empty cache.
+     *
+     * @param capacity the maximum number of entries, rounded up to a power of
+     *                 two.
+     */
+    public NogoodCache(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Capacity must be between 1 and 2^30, was %d.", capacity));
+        }
+        final int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        taskKeys = new long[slots];
+        stateKeys = new long[slots];
+        used = new boolean[slots];
+        mask = slots - 1;
+    }
+
+    private int slot(long taskKey, long stateKey) {
+        return (int) Fingerprint.mix(taskKey ^ Long.rotateLeft(stateKey, 32)) & mask;
+    }
+
+    /**
+     * To check if a task network is known to fail from a state.
+     *
+     * @param taskKey  the hash of the task network.
+     * @param stateKey the fingerprint of the state.
+     * @return <code>true</code> if the task network is known to fail.
+     */
+    public boolean contains(long taskKey, long stateKey) {
+        final int i = slot(taskKey, stateKey);
+        if (used[i] && taskKeys[i] == taskKey && stateKeys[i] == stateKey) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    /**
+     * To record that a task network fails from a state.
+     *
+     * @param taskKey  the hash of the task network.
+     * @param stateKey the fingerprint of the state.
+     */
+    public void add(long taskKey, long stateKey) {
+        final int i = slot(taskKey, stateKey);
+        if (used[i]) {
+            if (taskKeys[i] == taskKey && stateKeys[i] == stateKey)
+                return;
+            evictions++;
+        } else {
+            used[i] = true;
+            size++;
+        }
+        taskKeys[i] = taskKey;
+        stateKeys[i] = stateKey;
+        insertions++;
+    }
+
+    /**
+     * To remove all the entries. The counters are not reset.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * @return the maximum number of entries.
+     */
+    public int getCapacity() {
+        return used.length;
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found their task network.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find their task network.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries that were replaced by another one.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries added.
+     */
+    public long getInsertions() {
+        return insertions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d insertions, %d evictions, %d of %d slots used",
+                hits, misses, insertions, evictions, size, used.length);
+    }
+}
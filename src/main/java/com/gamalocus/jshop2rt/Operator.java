@@ -1,5 +1,6 @@
 package com.gamalocus.jshop2rt;
 
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -167,6 +168,27 @@ public abstract class Operator extends DomainElement {
         return cost.bind(binding);
     }
 
+    /**
+     * To record the heads of the atoms this operator deletes or adds, for
+     * {@link StaticFacts}.
+     *
+     * @param heads where the heads are recorded.
+     * @return whether the heads of all the atoms are known, i.e., neither the
+     * delete list nor the add list, nor any atom in them, is a variable.
+     */
+    boolean collectChanges(BitSet heads) {
+        if (delVarIdx != -1 || addVarIdx != -1)
+            return false;
+
+        for (DelAddElement e : del)
+            if (!e.collectChanges(heads))
+                return false;
+        for (DelAddElement e : add)
+            if (!e.collectChanges(heads))
+                return false;
+        return true;
+    }
+
     /**
      * To set the add list.
      *
@@ -1,11 +1,20 @@
 package com.gamalocus.jshop2rt;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.LinkedList;
 
 /**
- * This class represent a plan as a <code>LinkedList</code> of ground
- * instances of operators.
+ * This class represent a plan as a sequence of ground instances of
+ * operators.
+ * <p>
+ * The operator instances are stored as a persistent chain of
+ * {@link PlanStep}s, each of which also holds the cost of the plan up to that
+ * step. Adding and removing operator instances at the end of the plan, as well
+ * as cloning the plan, therefore take constant time, and the clones share the
+ * steps they have in common.
  *
  * @author Okhtay Ilghami
  * @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
@@ -16,33 +25,42 @@ public class Plan implements Serializable {
      * The new line character in the platform JSHOP2 is running on.
      */
     private final static String endl = System.getProperty("line.separator");
-    private static final long serialVersionUID = -8781001839646254144L;
+    private static final long serialVersionUID = -3551171604940649476L;
     /**
-     * The cost of the plan.
+     * The cost of the empty plan. Must not be modified.
      */
-    private final Cost cost;
+    private final Cost initialCost;
     /**
-     * The plan as a <code>LinkedList</code> of ground instances of operators.
+     * The last step of the plan, or <code>null</code> if the plan is empty.
+     * Written by {@link #writeObject(ObjectOutputStream)}, since the default
+     * serialization would recurse once per step.
      */
-    private final LinkedList<Predicate> ops;
+    private transient PlanStep last;
+    /**
+     * The plan as a <code>LinkedList</code> of ground instances of operators,
+     * or <code>null</code> if it has not been asked for since the plan last
+     * changed.
+     */
+    private transient LinkedList<Predicate> ops;
 
     /**
      * To initialize the plan to an empty list.
      */
     public Plan(Cost initialCost) {
-        ops = new LinkedList<>();
-        cost = initialCost;
+        this(initialCost, null);
     }
 
     /**
-     * This function is used by objects of this class to clone themselves.
+     * To initialize the plan to end with a given step. This is used to
+     * share the beginning of a plan between several plans.
      *
-     * @param opsIn  the operators in the plan.
-     * @param costIn the cost of the plan.
+     * @param initialCostIn the cost of the empty plan.
+     * @param lastIn        the last step of the plan, or <code>null</code> for an empty
+     *                      plan.
      */
-    private Plan(LinkedList<Predicate> opsIn, Cost costIn) {
-        ops = opsIn;
-        cost = costIn;
+    public Plan(Cost initialCostIn, PlanStep lastIn) {
+        initialCost = initialCostIn;
+        last = lastIn;
     }
 
     /**
@@ -53,38 +71,75 @@ public class Plan implements Serializable {
      * @return the cost of the operator instance being added.
      */
     public Term addOperator(Operator op, Term[] binding) {
-        ops.addLast(op.head.applySubstitution(binding));
-
         Term groundCostTerm = op.getCost(binding);
-        cost.add(groundCostTerm);
+
+        addStep(op.head.applySubstitution(binding), groundCostTerm);
 
         return groundCostTerm;
     }
 
     /**
-     * To clone an object of this class.
+     * To add an already ground operator instance to the end of the plan.
+     *
+     * @param operator     the ground operator instance.
+     * @param operatorCost the cost of the operator instance.
+     */
+    public void addStep(Predicate operator, Term operatorCost) {
+        Cost cost = (Cost) getCost().clone();
+        cost.add(operatorCost);
+
+        last = new PlanStep(last, operator, operatorCost, cost);
+        ops = null;
+    }
+
+    /**
+     * To clone an object of this class. This takes constant time, since the
+     * steps of the plan are shared.
      */
     public Object clone() {
-        return new Plan(new LinkedList<>(ops), (Cost) cost.clone());
+        return new Plan(initialCost, last);
     }
 
     /**
-     * To get the sequence of operators represented by this object.
+     * To get the sequence of operators represented by this object. The list
+     * is built the first time it is asked for after the plan has changed.
      *
      * @return A <code>LinkedList</code> of operator instances in this plan.
+     * Changing this list does not change the plan.
      */
     public LinkedList<Predicate> getOps() {
+        if (ops == null) {
+            LinkedList<Predicate> list = new LinkedList<>();
+            for (PlanStep step = last; step != null; step = step.getPrevious())
+                list.addFirst(step.getOperator());
+            ops = list;
+        }
         return ops;
     }
 
     /**
-     * To remove the operator instance at the end of the plan.
-     *
-     * @param opCost the cost of the operator instance to be removed.
+     * @return the last step of the plan, or <code>null</code> if the plan is
+     * empty.
+     */
+    public PlanStep getLastStep() {
+        return last;
+    }
+
+    /**
+     * @return the number of operator instances in this plan.
      */
-    public void removeOperator(Term opCost) {
-        ops.removeLast();
-        cost.remove(opCost);
+    public int size() {
+        return last != null ? last.getLength() : 0;
+    }
+
+    /**
+     * To remove the operator instance at the end of the plan. The cost of the
+     * plan goes back to what it was before the operator instance was added,
+     * since every step keeps the cost of the plan up to it.
+     */
+    public void removeOperator() {
+        last = last.getPrevious();
+        ops = null;
     }
 
     /**
@@ -95,16 +150,43 @@ public class Plan implements Serializable {
      */
     public String toString(Domain domain) {
         //-- The value to be returned.
-        StringBuilder retVal = new StringBuilder("Plan cost: " + cost + endl + endl);
+        StringBuilder retVal = new StringBuilder("Plan cost: " + getCost() + endl + endl);
 
         //-- Iterate over the operator instances in the plan and print them.
-        for (Predicate p : ops)
+        for (Predicate p : getOps())
             retVal.append(p.toString(domain, Predicate.Namespace.PRIMITIVE_TASK_ATOM)).append(endl);
 
         return retVal + "--------------------" + endl;
     }
 
+    /**
+     * @return the cost of the plan. The returned object is shared, and must
+     * not be modified.
+     */
     public Cost getCost() {
-        return cost;
+        return last != null ? last.getCost() : initialCost;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        //-- Write the steps first to last, without recursion.
+        PlanStep[] steps = new PlanStep[size()];
+        for (PlanStep step = last; step != null; step = step.getPrevious())
+            steps[step.getLength() - 1] = step;
+
+        out.writeInt(steps.length);
+        for (PlanStep step : steps) {
+            out.writeObject(step.getOperator());
+            out.writeObject(step.getOperatorCost());
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            addStep((Predicate) in.readObject(), (Term) in.readObject());
     }
 }
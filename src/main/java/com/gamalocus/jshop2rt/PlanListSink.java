@@ -0,0 +1,46 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.LinkedList;
+
+/**
+ * Plan sink that keeps every plan found, and never stops the search. This is
+ * what the planner does when no other sink is given.
+ * <p>
+ * Note that an exhaustive search may find a very large number of plans, all of
+ * which are kept by this sink. Use {@link TopKPlanSink} to keep only the
+ * cheapest ones.
+ */
+public class PlanListSink implements PlanSink {
+    /**
+     * The plans found so far, in the order they were found.
+     */
+    private final LinkedList<Plan> plans;
+
+    /**
+     * To initialize this sink with an empty list of plans.
+     */
+    public PlanListSink() {
+        this(new LinkedList<>());
+    }
+
+    /**
+     * To initialize this sink.
+     *
+     * @param plansIn the list the plans are to be added to.
+     */
+    public PlanListSink(LinkedList<Plan> plansIn) {
+        plans = plansIn;
+    }
+
+    public boolean planFound(Plan plan) {
+        plans.addLast((Plan) plan.clone());
+        return true;
+    }
+
+    /**
+     * @return the plans found so far, in the order they were found.
+     */
+    public LinkedList<Plan> getPlans() {
+        return plans;
+    }
+}
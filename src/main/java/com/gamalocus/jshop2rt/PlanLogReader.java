@@ -0,0 +1,125 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads back the plans written by a {@link PlanLogWriter}, one at a time.
+ * <p>
+ * The channel is meant to be blocking, e.g., a file. A read from it that
+ * returns no bytes is taken as the end of the log, so that a non-blocking
+ * channel without data does not keep the reader spinning.
+ */
+public class PlanLogReader implements Closeable {
+    /**
+     * The default size of the buffer in bytes.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The channel the plans are read from.
+     */
+    private final ReadableByteChannel channel;
+    /**
+     * The buffer the plans are read into, ready to be read from.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * To initialize this reader with a buffer of the default size.
+     *
+     * @param channelIn the channel to read the plans from.
+     * @throws IOException if the header cannot be read or is not that of a
+     *                     plan log.
+     */
+    public PlanLogReader(ReadableByteChannel channelIn) throws IOException {
+        this(channelIn, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * To initialize this reader.
+     *
+     * @param channelIn  the channel to read the plans from.
+     * @param bufferSize the size of the buffer in bytes.
+     * @throws IOException if the header cannot be read or is not that of a
+     *                     plan log.
+     */
+    public PlanLogReader(ReadableByteChannel channelIn, int bufferSize) throws IOException {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException(String.format("Buffer size must be at least 16 bytes, was %d.", bufferSize));
+        }
+        channel = channelIn;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+
+        if (!fill() || getInt() != PlanLogWriter.MAGIC) {
+            throw new StreamCorruptedException("Not a plan log.");
+        }
+        final int version = getInt();
+        if (version != PlanLogWriter.VERSION) {
+            throw new StreamCorruptedException(String.format("Unsupported plan log version %d.", version));
+        }
+    }
+
+    /**
+     * To read the next plan from the log.
+     *
+     * @return the plan, or <code>null</code> if the end of the log has been
+     * reached.
+     * @throws IOException if reading from the channel fails, or the log ends
+     *                     in the middle of a plan.
+     */
+    public CompactPlan read() throws IOException {
+        if (!fill())
+            return null;
+
+        final int length = getInt();
+        if (length < 1) {
+            throw new StreamCorruptedException(String.format("Invalid plan length %d.", length));
+        }
+        int[] code = new int[length];
+        for (int i = 0; i < length; i++)
+            code[i] = getInt();
+
+        return new CompactPlan(code);
+    }
+
+    /**
+     * To make sure there is at least one integer in the buffer.
+     *
+     * @return <code>false</code> if the end of the channel has been reached
+     * instead, or the channel has no more bytes to give right now.
+     */
+    private boolean fill() throws IOException {
+        if (buffer.remaining() >= Integer.BYTES)
+            return true;
+
+        buffer.compact();
+        try {
+            while (buffer.position() < Integer.BYTES) {
+                if (channel.read(buffer) <= 0) {
+                    if (buffer.position() == 0)
+                        return false;
+                    throw new EOFException("Plan log ends in the middle of an integer.");
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return true;
+    }
+
+    private int getInt() throws IOException {
+        if (!fill())
+            throw new EOFException("Plan log ends in the middle of a plan.");
+        return buffer.getInt();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
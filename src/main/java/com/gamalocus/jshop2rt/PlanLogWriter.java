@@ -0,0 +1,137 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Plan sink that writes every plan found to a channel in the format of
+ * {@link CompactPlan}, so that the plans of long batch runs can be kept on
+ * disk cheaply. The search is never stopped. The plans can be read back with
+ * a {@link PlanLogReader}.
+ * <p>
+ * The log starts with {@link #MAGIC} and {@link #VERSION}. Each plan follows
+ * as the number of integers in its encoding and the integers themselves, all
+ * in big-endian order.
+ */
+public class PlanLogWriter implements PlanSink, Closeable, Flushable {
+    /**
+     * The first integer of every plan log.
+     */
+    static final int MAGIC = 0x4A535032;
+    /**
+     * The version of the format of the plan log.
+     */
+    static final int VERSION = 1;
+    /**
+     * The default size of the buffer in bytes.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The channel the plans are written to.
+     */
+    private final WritableByteChannel channel;
+    /**
+     * The buffer the plans are collected in before they are written.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The number of plans written so far.
+     */
+    private long count;
+
+    /**
+     * To initialize this sink with a buffer of the default size.
+     *
+     * @param channelIn the channel to write the plans to.
+     * @throws IOException if the header cannot be written.
+     */
+    public PlanLogWriter(WritableByteChannel channelIn) throws IOException {
+        this(channelIn, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * To initialize this sink.
+     *
+     * @param channelIn  the channel to write the plans to.
+     * @param bufferSize the size of the buffer in bytes.
+     * @throws IOException if the header cannot be written.
+     */
+    public PlanLogWriter(WritableByteChannel channelIn, int bufferSize) throws IOException {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException(String.format("Buffer size must be at least 16 bytes, was %d.", bufferSize));
+        }
+        channel = channelIn;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * Writes the plan to the log. Since the search cannot be told about
+     * errors, an <code>IOException</code> is rethrown unchecked.
+     */
+    public boolean planFound(Plan plan) {
+        try {
+            write(CompactPlan.encode(plan));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * To write an encoded plan to the log.
+     *
+     * @param plan the plan to be written.
+     * @throws IOException if writing to the channel fails.
+     */
+    public void write(CompactPlan plan) throws IOException {
+        int[] code = plan.getCode();
+        putInt(code.length);
+        for (int i : code)
+            putInt(i);
+        count++;
+    }
+
+    private void putInt(int i) throws IOException {
+        if (buffer.remaining() < Integer.BYTES)
+            drain();
+        buffer.putInt(i);
+    }
+
+    /**
+     * To write the contents of the buffer to the channel.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @return the number of plans written so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Flushes the buffer and closes the channel.
+     */
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * Receives the plans found by the {@link JSHOP2} planner, one at a time, as
+ * soon as they are found.
+ * <p>
+ * The plan passed to {@link #planFound(Plan)} is the plan the planner is
+ * currently working on, and it will change as soon as the search goes on. A
+ * sink that wants to keep a plan must therefore keep a copy of it, made by
+ * calling {@link Plan#clone()}. This way, plans that are not kept are never
+ * copied. Since plans share their steps, the copy takes constant time.
+ */
+public interface PlanSink {
+    /**
+     * This function is called every time a plan is found.
+     *
+     * @param plan the plan that was just found. Only valid for the duration of
+     *             this call.
+     * @return <code>true</code> if the search should go on looking for more
+     * plans, <code>false</code> if it should stop.
+     */
+    boolean planFound(Plan plan);
+}
@@ -0,0 +1,97 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Serializable;
+
+/**
+ * One step of a plan, i.e., a ground instance of an operator, together with
+ * the steps before it.
+ * <p>
+ * Plan steps are immutable and form a persistent, <code>LISP</code>-style
+ * list that is linked backwards: every step points to the step before it. This
+ * way, adding a step to the end of a plan or removing it again takes constant
+ * time, and all the plans that start with the same steps share them.
+ */
+public final class PlanStep implements Serializable {
+    private static final long serialVersionUID = 3180441452270187154L;
+
+    /**
+     * The step before this one, or <code>null</code> if this is the first step
+     * of the plan.
+     */
+    private final PlanStep previous;
+
+    /**
+     * The ground instance of the operator.
+     */
+    private final Predicate operator;
+
+    /**
+     * The cost of this step alone.
+     */
+    private final Term operatorCost;
+
+    /**
+     * The cost of the plan up to and including this step. Must not be
+     * modified.
+     */
+    private final Cost cost;
+
+    /**
+     * The number of steps in the plan up to and including this step.
+     */
+    private final int length;
+
+    /**
+     * To initialize this step.
+     *
+     * @param previousIn     the step before this one, or <code>null</code> if this is the
+     *                       first step of the plan.
+     * @param operatorIn     the ground instance of the operator.
+     * @param operatorCostIn the cost of this step alone.
+     * @param costIn         the cost of the plan up to and including this step.
+     */
+    PlanStep(PlanStep previousIn, Predicate operatorIn, Term operatorCostIn, Cost costIn) {
+        previous = previousIn;
+        operator = operatorIn;
+        operatorCost = operatorCostIn;
+        cost = costIn;
+        length = previousIn != null ? previousIn.length + 1 : 1;
+    }
+
+    /**
+     * @return the step before this one, or <code>null</code> if this is the
+     * first step of the plan.
+     */
+    public PlanStep getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return the ground instance of the operator.
+     */
+    public Predicate getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return the cost of this step alone.
+     */
+    public Term getOperatorCost() {
+        return operatorCost;
+    }
+
+    /**
+     * @return the cost of the plan up to and including this step. The
+     * returned object is shared, and must not be modified.
+     */
+    public Cost getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the number of steps in the plan up to and including this step.
+     */
+    public int getLength() {
+        return length;
+    }
+}
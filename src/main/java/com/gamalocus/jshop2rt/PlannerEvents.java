@@ -0,0 +1,214 @@
+package com.gamalocus.jshop2rt;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JDK Flight Recorder events emitted by the {@link JSHOP2} planner.
+ * <p>
+ * The events that happen on every step of the search, i.e., method
+ * reductions, operator applications and backtracks, are disabled by default,
+ * and slices are only recorded if they take at least a millisecond, so that a
+ * recording with the default settings costs next to nothing. They can be
+ * enabled, and the threshold changed, in the recording settings, e.g.:
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start settings=profile
+ *     +com.gamalocus.jshop2rt.MethodReduction#enabled=true
+ * </pre>
+ * All events are recorded without stack traces, since the stack of the planner
+ * is in its frames rather than on the Java stack.
+ * <p>
+ * The planner only makes an event if its type is enabled, see the
+ * <code>is...Enabled()</code> functions. Until the flight recorder has been
+ * initialized, no event class is even loaded, since that alone initializes
+ * the flight recorder, which takes a few hundred milliseconds.
+ */
+final class PlannerEvents {
+    private PlannerEvents() {
+    }
+
+    /**
+     * The types of the events, looked up the first time they are asked about
+     * once the flight recorder has been initialized.
+     */
+    private static final class Types {
+        static final EventType SLICE = EventType.getEventType(Slice.class);
+        static final EventType METHOD_REDUCTION = EventType.getEventType(MethodReduction.class);
+        static final EventType OPERATOR_APPLICATION = EventType.getEventType(OperatorApplication.class);
+        static final EventType BACKTRACK = EventType.getEventType(Backtrack.class);
+        static final EventType PLAN_FOUND = EventType.getEventType(PlanFound.class);
+        static final EventType RECURSION_LIMIT = EventType.getEventType(RecursionLimit.class);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Slice} events are recorded.
+     */
+    static boolean isSliceEnabled() {
+        return FlightRecorder.isInitialized() && Types.SLICE.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if {@link MethodReduction} events are recorded.
+     */
+    static boolean isMethodReductionEnabled() {
+        return FlightRecorder.isInitialized() && Types.METHOD_REDUCTION.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if {@link OperatorApplication} events are
+     * recorded.
+     */
+    static boolean isOperatorApplicationEnabled() {
+        return FlightRecorder.isInitialized() && Types.OPERATOR_APPLICATION.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if {@link Backtrack} events are recorded.
+     */
+    static boolean isBacktrackEnabled() {
+        return FlightRecorder.isInitialized() && Types.BACKTRACK.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if {@link PlanFound} events are recorded.
+     */
+    static boolean isPlanFoundEnabled() {
+        return FlightRecorder.isInitialized() && Types.PLAN_FOUND.isEnabled();
+    }
+
+    /**
+     * @return <code>true</code> if {@link RecursionLimit} events are recorded.
+     */
+    static boolean isRecursionLimitEnabled() {
+        return FlightRecorder.isInitialized() && Types.RECURSION_LIMIT.isEnabled();
+    }
+
+    @Name("com.gamalocus.jshop2rt.Slice")
+    @Label("Planner Slice")
+    @Category({"JSHOP2", "Planner"})
+    @Description("A call to JSHOP2.run(), i.e., one step of the search.")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Slice extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        @Description("The number of frames on the stack of the planner after the slice.")
+        int depth;
+
+        @Label("More")
+        @Description("Whether there are more slices left.")
+        boolean more;
+    }
+
+    @Name("com.gamalocus.jshop2rt.MethodReduction")
+    @Label("Method Reduction")
+    @Category({"JSHOP2", "Planner"})
+    @Description("A compound task was decomposed by a method. The duration is the time it took to find the binding.")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class MethodReduction extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Task Head")
+        @Description("The index of the compound task.")
+        int taskHead;
+
+        @Label("Method")
+        @Description("The label of the branch of the method.")
+        String method;
+    }
+
+    @Name("com.gamalocus.jshop2rt.OperatorApplication")
+    @Label("Operator Application")
+    @Category({"JSHOP2", "Planner"})
+    @Description("An operator was applied to the state of the world. The duration is the time it took to apply it.")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class OperatorApplication extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Task Head")
+        @Description("The index of the primitive task.")
+        int taskHead;
+
+        @Label("Applied")
+        @Description("Whether the operator could be applied.")
+        boolean applied;
+    }
+
+    @Name("com.gamalocus.jshop2rt.Backtrack")
+    @Label("Backtrack")
+    @Category({"JSHOP2", "Planner"})
+    @Description("The planner gave up on a task. The duration is the time spent on the task.")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Backtrack extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Task Head")
+        int taskHead;
+
+        @Label("Primitive")
+        boolean primitive;
+    }
+
+    @Name("com.gamalocus.jshop2rt.PlanFound")
+    @Label("Plan Found")
+    @Category({"JSHOP2", "Planner"})
+    @StackTrace(false)
+    static final class PlanFound extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Plan Length")
+        int length;
+
+        @Label("Cost")
+        String cost;
+
+        @Label("Plans Found")
+        @Description("The number of plans found so far, including this one.")
+        long plansFound;
+    }
+
+    @Name("com.gamalocus.jshop2rt.RecursionLimit")
+    @Label("Recursion Limit Exceeded")
+    @Category({"JSHOP2", "Planner"})
+    @StackTrace(false)
+    static final class RecursionLimit extends Event {
+        @Label("Planner Id")
+        long plannerId;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Task Head")
+        @Description("The index of the task the deepest frame works on, or -1.")
+        int taskHead;
+    }
+}
@@ -0,0 +1,272 @@
+package com.gamalocus.jshop2rt;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by any number of planners, to see how much
+ * planning a workload takes.
+ * <p>
+ * The counters are {@link LongAdder}s, so planners running on different
+ * threads can share one set of metrics without contending for it, and a
+ * planner without metrics pays nothing but a <code>null</code> check. Metrics
+ * are attached to a planner with {@link JSHOP2#setMetrics(PlannerMetrics)},
+ * and to a state of the world with {@link State#setMetrics(PlannerMetrics)}.
+ * <p>
+ * The values can be read through the getters, through JMX once the metrics
+ * are registered with {@link #register(String)}, or pushed to any number of
+ * {@link PlannerMetricsExporter}s by calling {@link #export()}, e.g.,
+ * periodically.
+ */
+public final class PlannerMetrics implements PlannerMetricsMXBean {
+    /**
+     * The domain of the JMX names the metrics are registered under.
+     */
+    public static final String JMX_DOMAIN = "com.gamalocus.jshop2rt";
+
+    final LongAdder framesPushed = new LongAdder();
+    final LongAdder methodUnifications = new LongAdder();
+    final LongAdder methodUnificationsSucceeded = new LongAdder();
+    final LongAdder operatorUnifications = new LongAdder();
+    final LongAdder operatorUnificationsSucceeded = new LongAdder();
+    final LongAdder atomsScanned = new LongAdder();
+    final LongAdder axiomInvocations = new LongAdder();
+    final LongAdder backtracks = new LongAdder();
+    final LongAdder plansFound = new LongAdder();
+    /**
+     * The number of atoms in the attached states, by the index of their head.
+     */
+    private final ConcurrentHashMap<Integer, LongAdder> atomsPerHead = new ConcurrentHashMap<>();
+    /**
+     * The exporters to push the values to.
+     */
+    private final CopyOnWriteArrayList<PlannerMetricsExporter> exporters = new CopyOnWriteArrayList<>();
+    /**
+     * The name the metrics are registered under, or <code>null</code> if they
+     * are not registered.
+     */
+    private volatile ObjectName objectName;
+
+    /**
+     * @param head the index of the head of the atoms.
+     * @return the counter of the atoms in the attached states with the given
+     * head.
+     */
+    LongAdder atoms(int head) {
+        return atomsPerHead.computeIfAbsent(head, k -> new LongAdder());
+    }
+
+    public long getFramesPushed() {
+        return framesPushed.sum();
+    }
+
+    public long getMethodUnifications() {
+        return methodUnifications.sum();
+    }
+
+    public long getMethodUnificationsSucceeded() {
+        return methodUnificationsSucceeded.sum();
+    }
+
+    public long getOperatorUnifications() {
+        return operatorUnifications.sum();
+    }
+
+    public long getOperatorUnificationsSucceeded() {
+        return operatorUnificationsSucceeded.sum();
+    }
+
+    public long getAtomsScanned() {
+        return atomsScanned.sum();
+    }
+
+    public long getAxiomInvocations() {
+        return axiomInvocations.sum();
+    }
+
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    public long getPlansFound() {
+        return plansFound.sum();
+    }
+
+    public Map<Integer, Long> getAtomsPerHead() {
+        TreeMap<Integer, Long> retVal = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> e : atomsPerHead.entrySet())
+            retVal.put(e.getKey(), e.getValue().sum());
+        return retVal;
+    }
+
+    /**
+     * @return the current values of the metrics. Since the planners keep
+     * running while the values are read, they need not be consistent with one
+     * another.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * To push the current values of the metrics to the exporters.
+     */
+    public void export() {
+        if (exporters.isEmpty())
+            return;
+
+        final Snapshot snapshot = snapshot();
+        for (PlannerMetricsExporter exporter : exporters)
+            exporter.export(snapshot);
+    }
+
+    /**
+     * @param exporter the exporter to push the values to from now on.
+     */
+    public void addExporter(PlannerMetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    /**
+     * @param exporter the exporter to stop pushing the values to.
+     * @return <code>true</code> if the exporter had been added.
+     */
+    public boolean removeExporter(PlannerMetricsExporter exporter) {
+        return exporters.remove(exporter);
+    }
+
+    /**
+     * To register the metrics with the platform MBean server, under the name
+     * <code>com.gamalocus.jshop2rt:type=PlannerMetrics,name=</code><i>name</i>.
+     *
+     * @param name the name that tells these metrics apart from others.
+     * @return the name the metrics were registered under.
+     * @throws IllegalStateException if the metrics could not be registered,
+     *                               e.g., because the name is taken.
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException(String.format("Metrics are already registered as %s.", objectName));
+        }
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName on = new ObjectName(JMX_DOMAIN, new Hashtable<>(Map.of(
+                    "type", "PlannerMetrics",
+                    "name", ObjectName.quote(name))));
+            server.registerMBean(this, on);
+            objectName = on;
+            return on;
+        } catch (JMException e) {
+            throw new IllegalStateException(String.format("Could not register metrics %s.", name), e);
+        }
+    }
+
+    /**
+     * To unregister the metrics from the platform MBean server, if they are
+     * registered.
+     */
+    public synchronized void unregister() {
+        if (objectName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException(String.format("Could not unregister metrics %s.", objectName), e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * The values of {@link PlannerMetrics} at one point in time.
+     */
+    public static final class Snapshot {
+        private final long timeMillis;
+        private final Map<String, Long> counters;
+        private final Map<Integer, Long> atomsPerHead;
+
+        private Snapshot(PlannerMetrics m) {
+            timeMillis = System.currentTimeMillis();
+
+            LinkedHashMap<String, Long> c = new LinkedHashMap<>();
+            c.put("framesPushed", m.getFramesPushed());
+            c.put("methodUnifications", m.getMethodUnifications());
+            c.put("methodUnificationsSucceeded", m.getMethodUnificationsSucceeded());
+            c.put("operatorUnifications", m.getOperatorUnifications());
+            c.put("operatorUnificationsSucceeded", m.getOperatorUnificationsSucceeded());
+            c.put("atomsScanned", m.getAtomsScanned());
+            c.put("axiomInvocations", m.getAxiomInvocations());
+            c.put("backtracks", m.getBacktracks());
+            c.put("plansFound", m.getPlansFound());
+            counters = Collections.unmodifiableMap(c);
+
+            atomsPerHead = Collections.unmodifiableMap(m.getAtomsPerHead());
+        }
+
+        /**
+         * @return when the snapshot was taken, in milliseconds since the epoch.
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * @return the counters by their name, which is the name of their getter
+         * in {@link PlannerMetricsMXBean} without the <code>get</code>, e.g.,
+         * <code>framesPushed</code>.
+         */
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        /**
+         * @param name the name of the counter.
+         * @return the value of the counter.
+         * @throws IllegalArgumentException if there is no such counter.
+         */
+        public long get(String name) {
+            final Long value = counters.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException(String.format("No counter named %s.", name));
+            }
+            return value;
+        }
+
+        /**
+         * @return the number of atoms in the attached states, by the index of
+         * their head.
+         */
+        public Map<Integer, Long> getAtomsPerHead() {
+            return atomsPerHead;
+        }
+
+        /**
+         * @param domain the domain to take the names of the heads from.
+         * @return the number of atoms in the attached states, by the name of
+         * their head.
+         */
+        public Map<String, Long> getAtomsPerHead(Domain domain) {
+            LinkedHashMap<String, Long> retVal = new LinkedHashMap<>();
+            for (Map.Entry<Integer, Long> e : atomsPerHead.entrySet())
+                retVal.put(domain.getConstant(e.getKey()), e.getValue());
+            return retVal;
+        }
+
+        @Override
+        public String toString() {
+            return counters.toString();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * Ships the values of {@link PlannerMetrics} to a monitoring system. Exporters
+ * are called by {@link PlannerMetrics#export()}, on the thread that calls it,
+ * so an exporter that blocks should hand the snapshot off to a thread of its
+ * own.
+ */
+public interface PlannerMetricsExporter {
+    /**
+     * This function is called every time the metrics are exported.
+     *
+     * @param snapshot the values of the metrics at the time of the export.
+     */
+    void export(PlannerMetrics.Snapshot snapshot);
+}
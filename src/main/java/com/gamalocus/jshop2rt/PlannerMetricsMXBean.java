@@ -0,0 +1,66 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link PlannerMetrics}, as seen through JMX.
+ * All counts are totals since the metrics were created.
+ */
+public interface PlannerMetricsMXBean {
+    /**
+     * @return the number of frames pushed on the stacks of the planners, i.e.,
+     * the number of times a planner went one level deeper into the search.
+     */
+    long getFramesPushed();
+
+    /**
+     * @return the number of times the head of a method was unified with a
+     * task.
+     */
+    long getMethodUnifications();
+
+    /**
+     * @return the number of times the head of a method could be unified with a
+     * task.
+     */
+    long getMethodUnificationsSucceeded();
+
+    /**
+     * @return the number of times the head of an operator was unified with a
+     * task.
+     */
+    long getOperatorUnifications();
+
+    /**
+     * @return the number of times the head of an operator could be unified
+     * with a task.
+     */
+    long getOperatorUnificationsSucceeded();
+
+    /**
+     * @return the number of atoms in the states of the world that were matched
+     * against logical atoms in preconditions.
+     */
+    long getAtomsScanned();
+
+    /**
+     * @return the number of times an axiom was used to prove a logical atom.
+     */
+    long getAxiomInvocations();
+
+    /**
+     * @return the number of times a planner gave up on a task.
+     */
+    long getBacktracks();
+
+    /**
+     * @return the number of plans found.
+     */
+    long getPlansFound();
+
+    /**
+     * @return the number of atoms in the states of the world the metrics are
+     * attached to, by the index of their head.
+     */
+    Map<Integer, Long> getAtomsPerHead();
+}
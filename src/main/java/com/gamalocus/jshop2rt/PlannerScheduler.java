@@ -0,0 +1,418 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many planners cooperatively, by calling {@link JSHOP2#run()} on each of
+ * them for a share of a time budget, once per tick.
+ * <p>
+ * In every tick, the planners are ordered by their weight, which is their
+ * priority times one plus their age, i.e., the number of ticks since they last
+ * got to run. Each planner in turn gets a share of what is left of the budget
+ * in proportion to its weight, so time a planner does not use, e.g., because
+ * it finishes early, goes to the planners after it. The first planner in line
+ * always gets to run for at least one slice, and a planner that does not get
+ * to run gains weight until it is first in line, so no planner starves.
+ * <p>
+ * Planners are preempted when their share runs out, between two slices. Since
+ * a slice is short but not interruptible, a tick may overrun its budget by up
+ * to one slice. For planners that record their slices, see
+ * {@link JSHOP2#setRecordingSlices(boolean)}, this is made unlikely: once such
+ * a planner has run enough slices to tell, it is preempted as soon as the
+ * rest of its share is shorter than the 99th percentile of its slices.
+ * <p>
+ * The ticks are run either on the thread that calls {@link #tick(long)}, or,
+ * if the scheduler has workers, by splitting the planners between the workers,
+ * each of which gets the whole budget for its part. Planners that may run at
+ * the same time must not share their {@link State} or {@link NogoodCache}.
+ * <p>
+ * Planners may be added and cancelled from any thread, but ticks must not be
+ * run from two threads at the same time.
+ */
+public class PlannerScheduler implements Closeable {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    /**
+     * The number of slices a planner must have recorded before their
+     * durations are used to preempt it early.
+     */
+    private static final long MIN_RECORDED_SLICES = 100;
+
+    /**
+     * The planners that are scheduled, as of the last tick.
+     */
+    private final ArrayList<Handle> handles = new ArrayList<>();
+    /**
+     * The planners added since the last tick.
+     */
+    private final ConcurrentLinkedQueue<Handle> added = new ConcurrentLinkedQueue<>();
+    /**
+     * The workers, or <code>null</code> if the ticks are run on the calling
+     * thread.
+     */
+    private final ExecutorService pool;
+    /**
+     * The number of workers, or 1 if there are none.
+     */
+    private final int parts;
+    /**
+     * Whether the CPU time of threads can be measured.
+     */
+    private final boolean measureCpu;
+    /**
+     * The number of ticks run so far.
+     */
+    private long ticks;
+
+    /**
+     * To initialize a scheduler that runs its ticks on the calling thread.
+     */
+    public PlannerScheduler() {
+        this(0);
+    }
+
+    /**
+     * To initialize a scheduler.
+     *
+     * @param workers the number of worker threads to run the planners on, or 0
+     *                to run them on the thread that calls {@link #tick(long)}.
+     */
+    public PlannerScheduler(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException(String.format("Number of workers must not be negative, was %d.", workers));
+        }
+
+        if (workers == 0) {
+            pool = null;
+            parts = 1;
+        } else {
+            final AtomicInteger count = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, String.format("%s-%d", getClass().getSimpleName(), count.incrementAndGet()));
+                t.setDaemon(true);
+                return t;
+            });
+            parts = workers;
+        }
+
+        measureCpu = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * To schedule a planner. It is first run in the next tick.
+     *
+     * @param planner  the planner.
+     * @param priority the priority of the planner. Must be positive.
+     * @return the handle to control the planner through.
+     */
+    public Handle add(JSHOP2 planner, int priority) {
+        Handle h = new Handle(planner, priority);
+        added.add(h);
+        return h;
+    }
+
+    /**
+     * @return the number of planners that are scheduled and not known to be
+     * finished.
+     */
+    public int size() {
+        return handles.size() + added.size();
+    }
+
+    /**
+     * @return <code>true</code> if there are no planners left to run.
+     */
+    public boolean isIdle() {
+        return handles.isEmpty() && added.isEmpty();
+    }
+
+    /**
+     * @return the number of ticks run so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * To run one tick.
+     *
+     * @param budgetNanos the time the planners may run for, in nanoseconds. With
+     *                    workers, every worker may run for that long.
+     * @return <code>true</code> if there are planners left to run.
+     */
+    public boolean tick(long budgetNanos) {
+        //-- Take in the new planners, and drop the finished ones.
+        Handle h;
+        while ((h = added.poll()) != null)
+            handles.add(h);
+        handles.removeIf(Handle::retire);
+
+        if (handles.isEmpty())
+            return !added.isEmpty();
+
+        for (Handle handle : handles)
+            handle.weight = (long) handle.priority * (1 + handle.age);
+        handles.sort(Comparator.comparingLong((Handle handle) -> handle.weight).reversed());
+
+        if (pool == null) {
+            runPart(0, budgetNanos);
+        } else {
+            ArrayList<Callable<Void>> tasks = new ArrayList<>(parts);
+            for (int i = 0; i < parts; i++) {
+                final int first = i;
+                tasks.add(() -> {
+                    runPart(first, budgetNanos);
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> f : pool.invokeAll(tasks))
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        ticks++;
+        handles.removeIf(Handle::retire);
+
+        return !isIdle();
+    }
+
+    /**
+     * To run ticks until there are no planners left to run.
+     *
+     * @param budgetNanos the budget of each tick, in nanoseconds.
+     */
+    public void runUntilIdle(long budgetNanos) {
+        while (tick(budgetNanos)) {
+            if (Thread.currentThread().isInterrupted())
+                return;
+        }
+    }
+
+    /**
+     * To run every <code>parts</code>th planner, starting with the given one.
+     * The planners are in the order of their weight.
+     */
+    private void runPart(int first, long budgetNanos) {
+        long weight = 0;
+        for (int i = first; i < handles.size(); i += parts)
+            weight += handles.get(i).weight;
+
+        long remaining = budgetNanos;
+        for (int i = first; i < handles.size(); i += parts) {
+            final Handle h = handles.get(i);
+            if (remaining <= 0) {
+                //-- The budget is used up. This planner will weigh more next time.
+                h.age++;
+                continue;
+            }
+
+            final long share = (long) ((double) remaining * h.weight / weight);
+            weight -= h.weight;
+            remaining -= h.runFor(share);
+        }
+    }
+
+    /**
+     * Stops the workers, if any. The planners are left as they are.
+     */
+    public void close() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    private long cpuTime() {
+        return measureCpu ? threadBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * A planner scheduled by a {@link PlannerScheduler}.
+     */
+    public final class Handle {
+        /**
+         * The planner.
+         */
+        private final JSHOP2 planner;
+        /**
+         * The priority of the planner.
+         */
+        private volatile int priority;
+        /**
+         * Whether the planner should be stopped.
+         */
+        private volatile boolean cancelled;
+        /**
+         * Whether the planner will not be run any more.
+         */
+        private volatile boolean done;
+        /**
+         * The CPU time the planner has run for, in nanoseconds.
+         */
+        private volatile long cpuTime;
+        /**
+         * The wall-clock time the planner has run for, in nanoseconds.
+         */
+        private volatile long wallTime;
+        /**
+         * The number of slices the planner has run.
+         */
+        private volatile long slices;
+        /**
+         * The number of ticks since the planner last got to run.
+         */
+        private int age;
+        /**
+         * The weight of the planner in the current tick.
+         */
+        private long weight;
+
+        private Handle(JSHOP2 plannerIn, int priorityIn) {
+            planner = plannerIn;
+            setPriority(priorityIn);
+        }
+
+        /**
+         * To run the planner until it is finished or its share runs out. It runs
+         * at least one slice.
+         *
+         * @return the time the planner ran for, in nanoseconds.
+         */
+        private long runFor(long share) {
+            final long start = System.nanoTime();
+            final long cpuStart = cpuTime();
+            final long deadline = start + share;
+
+            //-- How long the next slice will likely take, if the planner knows.
+            final LogHistogram recorded = planner.getSliceNanos();
+            final long expected = recorded != null && recorded.getCount() >= MIN_RECORDED_SLICES ?
+                    recorded.getP99() : 0;
+
+            long n = 0;
+            boolean more = true;
+            while (!cancelled) {
+                more = planner.run();
+                n++;
+                if (!more || System.nanoTime() + expected - deadline >= 0)
+                    break;
+            }
+
+            final long end = System.nanoTime();
+            cpuTime += cpuTime() - cpuStart;
+            wallTime += end - start;
+            slices += n;
+            age = 0;
+            if (!more)
+                done = true;
+
+            return end - start;
+        }
+
+        /**
+         * To stop the planner if it has been cancelled.
+         *
+         * @return <code>true</code> if the planner will not be run any more.
+         */
+        private boolean retire() {
+            if (cancelled && !done) {
+                planner.stop();
+                done = true;
+            }
+            return done;
+        }
+
+        /**
+         * @return the planner.
+         */
+        public JSHOP2 getPlanner() {
+            return planner;
+        }
+
+        /**
+         * @return the priority of the planner.
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * To change the priority of the planner, from the next tick on.
+         *
+         * @param priorityIn the new priority. Must be positive.
+         */
+        public void setPriority(int priorityIn) {
+            if (priorityIn < 1) {
+                throw new IllegalArgumentException(String.format("Priority must be positive, was %d.", priorityIn));
+            }
+            priority = priorityIn;
+        }
+
+        /**
+         * To cancel the planner. It is preempted after its current slice, and
+         * stopped with {@link JSHOP2#stop()} in the next tick, so that the
+         * changes it has made to its state and task list are undone. The plans
+         * it has found so far are kept.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return <code>true</code> if the planner has been cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return <code>true</code> if the planner will not be run any more,
+         * either because it is finished or because it has been cancelled and
+         * stopped.
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * @return the CPU time the planner has run for so far, in nanoseconds,
+         * or 0 if the CPU time of threads cannot be measured.
+         */
+        public long getCpuTimeNanos() {
+            return cpuTime;
+        }
+
+        /**
+         * @return the wall-clock time the planner has run for so far, in
+         * nanoseconds.
+         */
+        public long getWallTimeNanos() {
+            return wallTime;
+        }
+
+        /**
+         * @return the number of slices the planner has run so far.
+         */
+        public long getSlices() {
+            return slices;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs planning requests asynchronously, each on its own thread, and hands
+ * back their results as <code>CompletableFuture</code>s.
+ * <p>
+ * On Java 21 and later, every request runs on a virtual thread, so that many
+ * requests can wait for their turn without tying up a platform thread each. On
+ * older versions, a cached pool of platform threads is used instead. Either
+ * way, at most a given number of requests run at the same time. The others
+ * wait in line, in the order they were made, and are only handed to a thread
+ * when it is their turn.
+ * <p>
+ * Every request works on its own copies of the initial state of the world and
+ * the task list, so the objects in a request are never changed. The
+ * {@link Domain} is shared, and must not be changed while requests run.
+ * <p>
+ * Identical requests for the first plan that are in flight at the same time,
+ * i.e., requests with the same domain, budget, and fingerprints of the task
+ * list and state of the world, are run only once, and all get a copy of the
+ * same plan. The shared run is only stopped when all of them have been
+ * cancelled.
+ */
+public class PlanningService implements Closeable {
+    private static final Logger logger = Logger.getLogger(PlanningService.class.getName());
+
+    /**
+     * The number of slices the planners run between checks for cancellation
+     * and for their budget.
+     */
+    private static final int SLICES_PER_CHECK = 64;
+
+    /**
+     * The threads the requests run on.
+     */
+    private final ExecutorService executor;
+    /**
+     * The maximum number of requests that run at the same time.
+     */
+    private final int maxConcurrent;
+    /**
+     * The requests that wait for their turn, in the order they were made.
+     * Guarded by <code>this</code>.
+     */
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    /**
+     * The number of requests handed to a thread and not finished yet. Guarded
+     * by <code>this</code>.
+     */
+    private int running;
+    /**
+     * Whether the service has been closed. Guarded by <code>this</code>.
+     */
+    private boolean closed;
+    /**
+     * Whether the requests run on virtual threads.
+     */
+    private final boolean virtual;
+    /**
+     * The requests for the first plan that are in flight, by their key.
+     */
+    private final ConcurrentHashMap<Key, Shared> inFlight = new ConcurrentHashMap<>();
+    /**
+     * The number of requests that were coalesced with an identical one.
+     */
+    private final AtomicInteger coalesced = new AtomicInteger();
+
+    /**
+     * To initialize this service.
+     *
+     * @param maxConcurrent the maximum number of requests that run at the same
+     *                      time. The others wait for their turn.
+     */
+    public PlanningService(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException(String.format("Concurrency must be positive, was %d.", maxConcurrent));
+        }
+        this.maxConcurrent = maxConcurrent;
+
+        ExecutorService e = newVirtualThreadExecutor();
+        virtual = e != null;
+        if (e == null) {
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadFactory factory = r -> {
+                Thread t = new Thread(r, String.format("%s-%d", getClass().getSimpleName(), count.incrementAndGet()));
+                t.setDaemon(true);
+                return t;
+            };
+            e = Executors.newCachedThreadPool(factory);
+        }
+        executor = e;
+    }
+
+    /**
+     * @return an executor that runs every task on a new virtual thread, or
+     * <code>null</code> if there are no virtual threads in this version of
+     * Java.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the requests run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the number of requests so far that were coalesced with an
+     * identical request in flight.
+     */
+    public int getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * To find the first plan for a request.
+     * <p>
+     * Cancelling the returned future stops the planner, unless an identical
+     * request still waits for the same plan.
+     *
+     * @param request the request.
+     * @return the future plan. It is <code>null</code> if there is no plan, and
+     * the future completes exceptionally with a <code>TimeoutException</code>
+     * if the budget of the request runs out first.
+     */
+    public CompletableFuture<Plan> findPlan(Request request) {
+        final Key key = new Key(request);
+
+        while (true) {
+            final Shared fresh = new Shared();
+            //-- Attach before publishing, so that an identical request cannot
+            //-- cancel the run before its creator is counted.
+            final CompletableFuture<Plan> mine = fresh.attach();
+            final Shared shared = inFlight.putIfAbsent(key, fresh);
+            if (shared == null) {
+                fresh.result.whenComplete((p, t) -> inFlight.remove(key, fresh));
+                final FirstPlanSink sink = new FirstPlanSink();
+                start(request, sink, fresh.result, () -> sink.getPlan());
+                return mine;
+            }
+
+            final CompletableFuture<Plan> attached = shared.attach();
+            if (attached != null) {
+                coalesced.incrementAndGet();
+                return attached;
+            }
+            //-- The shared run has just been cancelled. Try again.
+            inFlight.remove(key, shared);
+        }
+    }
+
+    /**
+     * To find plans for a request, handing them to a sink as they are found.
+     * The sink is called on the thread of the request, and decides when to
+     * stop the search. Cancelling the returned future stops the planner.
+     *
+     * @param request the request.
+     * @param sink    receives the plans.
+     * @return the future number of plans found. The future completes
+     * exceptionally with a <code>TimeoutException</code> if the budget of the
+     * request runs out before the search is finished.
+     */
+    public CompletableFuture<Long> findPlans(Request request, PlanSink sink) {
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        final long[] count = new long[1];
+        start(request, plan -> {
+            count[0]++;
+            return sink.planFound(plan);
+        }, result, () -> count[0]);
+        return result;
+    }
+
+    /**
+     * To run a request on a thread of its own, once it is its turn.
+     *
+     * @param request the request.
+     * @param sink    receives the plans.
+     * @param result  completed with the result when the planner is finished,
+     *                cancelled to stop the planner.
+     * @param value   gives the result when the planner is finished.
+     */
+    private <T> void start(Request request, PlanSink sink, CompletableFuture<T> result, Supplier<T> value) {
+        submit(() -> {
+            try {
+                if (result.isDone())
+                    return;
+
+                JSHOP2 planner = new JSHOP2(request.tasks.clone(), request.recursionLimit,
+                        (Cost) request.initialCost.clone(), request.domain, (State) request.state.clone(), sink);
+                final long deadline = System.nanoTime() + request.budgetNanos;
+
+                boolean more = true;
+                while (more) {
+                    for (int i = 0; more && i < SLICES_PER_CHECK; i++)
+                        more = planner.run();
+
+                    if (more && result.isDone()) {
+                        //-- Cancelled.
+                        planner.stop();
+                        return;
+                    }
+                    if (more && System.nanoTime() - deadline >= 0) {
+                        planner.stop();
+                        result.completeExceptionally(new TimeoutException(
+                                String.format("Planning budget of %d ns exceeded.", request.budgetNanos)));
+                        return;
+                    }
+                }
+
+                result.complete(value.get());
+            } catch (RuntimeException | Error e) {
+                logger.log(Level.WARNING, "Planning request failed.", e);
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * To put a request in line, and run it right away if there is room.
+     *
+     * @param task the request.
+     * @throws RejectedExecutionException if the service has been closed.
+     */
+    private synchronized void submit(Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Planning service is closed.");
+        }
+        waiting.add(task);
+        runWaiting();
+    }
+
+    /**
+     * To hand the requests that wait in line to threads, as long as there is
+     * room for them. Must be called holding the lock on <code>this</code>.
+     */
+    private void runWaiting() {
+        while (running < maxConcurrent && !waiting.isEmpty()) {
+            final Runnable task = waiting.poll();
+            running++;
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            });
+        }
+
+        //-- The threads are only let go once no request waits for one.
+        if (closed && waiting.isEmpty())
+            executor.shutdown();
+    }
+
+    /**
+     * To make room for the next request in line, once a request is finished.
+     */
+    private synchronized void finished() {
+        running--;
+        runWaiting();
+    }
+
+    /**
+     * Stops accepting requests. The requests in flight, including those that
+     * wait for their turn, are left to finish.
+     */
+    public synchronized void close() {
+        closed = true;
+        runWaiting();
+    }
+
+    /**
+     * A planning request.
+     */
+    public static class Request {
+        private final Domain domain;
+        private final State state;
+        private final TaskList tasks;
+        private final long budgetNanos;
+        private final int recursionLimit;
+        private final Cost initialCost;
+
+        /**
+         * To initialize a request with no recursion limit, for plans whose cost
+         * starts at 0.
+         *
+         * @param domainIn      the planning domain.
+         * @param stateIn       the initial state of the world. Not changed.
+         * @param tasksIn       the task list to be achieved. Not changed.
+         * @param budgetNanosIn the time the planner may run for, in nanoseconds.
+         */
+        public Request(Domain domainIn, State stateIn, TaskList tasksIn, long budgetNanosIn) {
+            this(domainIn, stateIn, tasksIn, budgetNanosIn, Integer.MAX_VALUE, new DoubleCost(0));
+        }
+
+        /**
+         * To initialize a request with no recursion limit, for plans whose cost
+         * starts at 0.
+         *
+         * @param domainIn      the planning domain.
+         * @param facts         the atoms in the initial state of the world.
+         * @param tasksIn       the task list to be achieved. Not changed.
+         * @param budgetNanosIn the time the planner may run for, in nanoseconds.
+         */
+        public Request(Domain domainIn, Collection<Predicate> facts, TaskList tasksIn, long budgetNanosIn) {
+            this(domainIn, toState(domainIn, facts), tasksIn, budgetNanosIn);
+        }
+
+        /**
+         * To initialize a request.
+         *
+         * @param domainIn         the planning domain.
+         * @param stateIn          the initial state of the world. Not changed.
+         * @param tasksIn          the task list to be achieved. Not changed.
+         * @param budgetNanosIn    the time the planner may run for, in nanoseconds.
+         * @param recursionLimitIn the maximum recursion level.
+         * @param initialCostIn    the cost of the empty plan. Not changed.
+         */
+        public Request(Domain domainIn, State stateIn, TaskList tasksIn, long budgetNanosIn,
+                       int recursionLimitIn, Cost initialCostIn) {
+            if (budgetNanosIn <= 0) {
+                throw new IllegalArgumentException(String.format("Budget must be positive, was %d ns.", budgetNanosIn));
+            }
+            domain = domainIn;
+            state = stateIn;
+            tasks = tasksIn;
+            budgetNanos = budgetNanosIn;
+            recursionLimit = recursionLimitIn;
+            initialCost = initialCostIn;
+        }
+
+        private static State toState(Domain domain, Collection<Predicate> facts) {
+            State s = new State(domain);
+            for (Predicate p : facts)
+                s.add(p);
+            return s;
+        }
+    }
+
+    /**
+     * Identifies requests that give the same first plan.
+     */
+    private static final class Key {
+        private final Domain domain;
+        private final long taskKey;
+        private final long stateKey;
+        private final long budgetNanos;
+        private final int recursionLimit;
+        private final Cost initialCost;
+
+        Key(Request r) {
+            domain = r.domain;
+            taskKey = Fingerprint.of(r.tasks, r.tasks);
+            stateKey = r.state.getFingerprint();
+            budgetNanos = r.budgetNanos;
+            recursionLimit = r.recursionLimit;
+            initialCost = r.initialCost;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return domain == k.domain && taskKey == k.taskKey && stateKey == k.stateKey &&
+                    budgetNanos == k.budgetNanos && recursionLimit == k.recursionLimit &&
+                    initialCost.compareTo(k.initialCost) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) Fingerprint.mix(taskKey ^ Long.rotateLeft(stateKey, 32) ^ budgetNanos);
+        }
+    }
+
+    /**
+     * A run for the first plan, shared by identical requests.
+     */
+    private static final class Shared {
+        /**
+         * The result of the run. Cancelled when nobody waits for it any more.
+         */
+        final CompletableFuture<Plan> result = new CompletableFuture<>();
+        /**
+         * The number of requests that wait for the result.
+         */
+        private int waiting;
+
+        /**
+         * To add a request to the ones waiting for the result.
+         *
+         * @return the future for the request, or <code>null</code> if the run
+         * has been cancelled.
+         */
+        synchronized CompletableFuture<Plan> attach() {
+            if (result.isCancelled())
+                return null;
+            waiting++;
+
+            final CompletableFuture<Plan> mine = new CompletableFuture<Plan>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    final boolean cancelled = super.cancel(mayInterruptIfRunning);
+                    if (cancelled)
+                        detach();
+                    return cancelled;
+                }
+            };
+            result.whenComplete((p, t) -> {
+                //-- Every request gets its own copy of the plan.
+                if (t == null)
+                    mine.complete(p != null ? (Plan) p.clone() : null);
+                else
+                    mine.completeExceptionally(t instanceof CancellationException ? t : unwrap(t));
+            });
+            return mine;
+        }
+
+        /**
+         * To remove a request from the ones waiting for the result, and cancel
+         * the run if it was the last one.
+         */
+        private synchronized void detach() {
+            if (--waiting == 0)
+                result.cancel(false);
+        }
+
+        private static Throwable unwrap(Throwable t) {
+            return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        }
+    }
+}
@@ -46,6 +46,25 @@ public abstract class Precondition {
      * <code>reset</code> function.
      */
     private boolean firstCall;
+    /**
+     * The id of the class of this precondition, which its statistics are
+     * indexed by if it has no id of its own, see {@link PreconditionStats}.
+     * It is looked up once, when the precondition is made, rather than every
+     * time it is counted.
+     */
+    final int classId = PreconditionStats.classId(getClass());
+
+    /**
+     * To get the id of the class of this precondition, which is assigned at
+     * compile time to every class that is generated for a precondition, and
+     * unique among them. It is used to index statistics.
+     *
+     * @return the id, or -1 if the class of this precondition was not
+     * generated.
+     */
+    public int getId() {
+        return -1;
+    }
 
     /**
      * This abstract function binds the logical expression to a given binding.
@@ -170,7 +189,7 @@ public abstract class Precondition {
      * @param firstIn <code>true</code> if this logical expression is marked
      *                <code>:first</code>, <code>false</code> otherwise.
      */
-    protected void setFirst(boolean firstIn) {
+    public void setFirst(boolean firstIn) {
         first = firstIn;
     }
 }
@@ -46,7 +46,7 @@ public class PreconditionAssign extends Precondition {
         //-- pretend that this assignment logical expression is marked ':first'.
         setFirst(true);
 
-        term = termIn.bind(unifier);
+        term = Term.bind(termIn, unifier);
 
         //-- Initially, this object is not binding any variable, so set all the
         //-- elements of 'retVal' to null.
@@ -61,7 +61,7 @@ public class PreconditionAssign extends Precondition {
      * To bind the assignment logical expression to some binding.
      */
     public void bind(Term[] binding) {
-        boundT = boundT.bind(binding);
+        boundT = Term.bind(boundT, binding);
     }
 
     /**
@@ -38,7 +38,7 @@ public class PreconditionCall extends Precondition {
         //-- is marked ':first'.
         setFirst(true);
 
-        term = termIn.bind(unifier);
+        term = Term.bind(termIn, unifier);
 
         //-- Initially, this object is not binding any variable, so set all the
         //-- elements of 'retVal' to null.
@@ -51,7 +51,7 @@ public class PreconditionCall extends Precondition {
      * To bind the call logical expression to some binding.
      */
     public void bind(Term[] binding) {
-        boundT = boundT.bind(binding);
+        boundT = Term.bind(boundT, binding);
     }
 
     /**
@@ -0,0 +1,156 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * This class represents an iterator over all the possible bindings that can
+ * satisfy a conjunction at run time, for domains that are interpreted, or emitted
+ * as bytecode, rather than compiled from source. It finds the same bindings,
+ * in the same order, as the class generated for the conjunction by
+ * {@link LogicalExpressionConjunction#getInitCode(String)} does.
+ */
+public class PreconditionConjunction extends Precondition {
+    /**
+     * The iterators of the conjuncts, from index 1. Index 0 is not used, to
+     * match up with the bindings.
+     */
+    private final Precondition[] p;
+
+    /**
+     * The initial binding at index 0, and then the bindings found for each
+     * conjunct, <code>null</code> where none has been found yet.
+     */
+    private final Term[][] b;
+
+    /**
+     * Whether the binding of each conjunct changed since the next conjunct
+     * was last bound to it.
+     */
+    private final boolean[] changed;
+
+    /**
+     * The id of the conjunction, the same as that of its generated class.
+     */
+    private final int id;
+
+    /**
+     * The name of the conjunction, with its position in the source.
+     */
+    private final String name;
+
+    /**
+     * To initialize this conjunction.
+     *
+     * @param conjuncts the iterators of the conjuncts.
+     * @param unifier   the current unifier.
+     * @param idIn      the id of the conjunction.
+     * @param nameIn    the name of the conjunction.
+     */
+    public PreconditionConjunction(Precondition[] conjuncts, Term[] unifier, int idIn, String nameIn) {
+        p = new Precondition[conjuncts.length + 1];
+        System.arraycopy(conjuncts, 0, p, 1, conjuncts.length);
+
+        b = new Term[conjuncts.length + 1][];
+        b[0] = unifier;
+        b[0] = Term.merge(b, 1);
+
+        changed = new boolean[conjuncts.length + 1];
+        id = idIn;
+        name = nameIn;
+
+        //-- A conjunction can be potentially satisfied more than once, so the
+        //-- default for the 'isFirstCall' flag is false.
+        setFirst(false);
+    }
+
+    /**
+     * To bind the conjunction to some binding.
+     */
+    public void bind(Term[] binding) {
+        b[0] = binding;
+        b[0] = Term.merge(b, 1);
+        p[1].bind(binding);
+        for (int i = 1; i < b.length; i++)
+            b[i] = null;
+    }
+
+    /**
+     * To return the next satisfier for this conjunction.
+     */
+    protected Term[] nextBindingHelper(State state) {
+        final int n = p.length - 1;
+        bestMatch = 0;
+
+        if (!find(n, state))
+            return null;
+
+        //-- Return the result of the merging of the bindings found for each
+        //-- conjunct.
+        Term[] retVal = Term.merge(b, n + 1);
+        b[n] = null;
+        return retVal;
+    }
+
+    /**
+     * To find a binding for the conjuncts up to a given one, if there is none
+     * yet, backtracking over the bindings of the earlier conjuncts as needed.
+     *
+     * @param i the last conjunct to find a binding for.
+     * @return <code>false</code> if there are no more bindings for the first
+     * conjunct, <code>true</code> otherwise.
+     */
+    private boolean find(int i, State state) {
+        //-- The first conjunct.
+        if (i == 1) {
+            while (b[1] == null) {
+                b[1] = p[1].nextBinding(state);
+                if (b[1] == null)
+                    return false;
+                bestMatch = Math.max(bestMatch, 1);
+                changed[1] = true;
+            }
+            return true;
+        }
+
+        while (b[i] == null) {
+            changed[i - 1] = false;
+            if (!find(i - 1, state))
+                return false;
+
+            //-- Apply newly-found bindings for the earlier conjuncts to this one
+            //-- after resetting it.
+            if (changed[i - 1]) {
+                p[i].reset(state);
+                p[i].bind(Term.merge(b, i));
+            }
+
+            b[i] = p[i].nextBinding(state);
+            //-- If no binding found, null out the previous conjunct so we try
+            //-- another set of bindings.
+            if (b[i] == null)
+                b[i - 1] = null;
+            else
+                bestMatch = Math.max(bestMatch, i);
+            changed[i] = true;
+        }
+        return true;
+    }
+
+    /**
+     * To reset this conjunction.
+     */
+    protected void resetHelper(State state) {
+        for (int i = 1; i < p.length; i++)
+            p[i].reset(state);
+        for (int i = 1; i < b.length; i++)
+            b[i] = null;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gamalocus.jshop2rt;
+
+/**
+ * This class represents an iterator over all the possible bindings that can
+ * satisfy a disjunction at run time, for domains that are interpreted, or emitted
+ * as bytecode, rather than compiled from source. It finds the same bindings,
+ * in the same order, as the class generated for the disjunction by
+ * {@link LogicalExpressionDisjunction#getInitCode(String)} does.
+ */
+public class PreconditionDisjunction extends Precondition {
+    /**
+     * The iterators of the disjuncts.
+     */
+    private final Precondition[] p;
+
+    /**
+     * The disjunct being considered.
+     */
+    private int whichClause;
+
+    /**
+     * The id of the disjunction, the same as that of its generated class.
+     */
+    private final int id;
+
+    /**
+     * The name of the disjunction, with its position in the source.
+     */
+    private final String name;
+
+    /**
+     * To initialize this disjunction.
+     *
+     * @param disjuncts the iterators of the disjuncts.
+     * @param idIn      the id of the disjunction.
+     * @param nameIn    the name of the disjunction.
+     */
+    public PreconditionDisjunction(Precondition[] disjuncts, int idIn, String nameIn) {
+        p = disjuncts;
+        id = idIn;
+        name = nameIn;
+
+        //-- A disjunction can be potentially satisfied more than once, so the
+        //-- default for the 'isFirstCall' flag is false.
+        setFirst(false);
+    }
+
+    /**
+     * To bind each disjunct to some binding.
+     */
+    public void bind(Term[] binding) {
+        for (Precondition disjunct : p)
+            disjunct.bind(binding);
+    }
+
+    /**
+     * To return the next satisfier of the disjunct being considered, moving on
+     * to the next disjunct when there is none.
+     */
+    protected Term[] nextBindingHelper(State state) {
+        while (whichClause < p.length) {
+            final Term[] retVal = p[whichClause].nextBinding(state);
+            if (retVal != null)
+                return retVal;
+            whichClause++;
+        }
+
+        return null;
+    }
+
+    /**
+     * To reset all the disjuncts, and start over with the first one.
+     */
+    protected void resetHelper(State state) {
+        for (Precondition disjunct : p)
+            disjunct.reset(state);
+        whichClause = 0;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
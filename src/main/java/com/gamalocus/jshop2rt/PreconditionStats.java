@@ -0,0 +1,187 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts how often the preconditions of methods succeed and fail, for one
+ * planner.
+ * <p>
+ * The counters are kept in primitive arrays indexed by the id of the
+ * precondition, see {@link Precondition#getId()}, so counting takes constant
+ * time and allocates nothing. Preconditions without an id are counted per
+ * class, by the id of their class, see {@link #classId(Class)}. The names of
+ * the preconditions are only rendered when asked for.
+ */
+class PreconditionStats {
+    /**
+     * Assigns ids to the classes of preconditions without an id.
+     */
+    private static final AtomicInteger classCount = new AtomicInteger();
+    private static final ClassValue<Integer> classIds = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return classCount.getAndIncrement();
+        }
+    };
+
+    /**
+     * To get the id of a class of preconditions, which the preconditions of
+     * the class that have no id of their own are counted by.
+     *
+     * @param type the class.
+     * @return the id, unique among the classes of preconditions.
+     */
+    static int classId(Class<? extends Precondition> type) {
+        return classIds.get(type);
+    }
+
+    /**
+     * The counters of the preconditions with an id.
+     */
+    private final Counters byId = new Counters();
+    /**
+     * The counters of the preconditions without an id, indexed by the id of
+     * their class.
+     */
+    private final Counters byClass = new Counters();
+
+    /**
+     * To count a success.
+     *
+     * @param p the precondition that found a binding.
+     */
+    void succeeded(Precondition p) {
+        final int id = p.getId();
+        if (id >= 0) {
+            byId.succeeded(id, p);
+        } else {
+            byClass.succeeded(p.classId, p);
+        }
+    }
+
+    /**
+     * To count a failure.
+     *
+     * @param p the precondition that found no more bindings.
+     */
+    void failed(Precondition p) {
+        final int id = p.getId();
+        if (id >= 0) {
+            byId.failed(id, p);
+        } else {
+            byClass.failed(p.classId, p);
+        }
+    }
+
+    /**
+     * To forget all the counts.
+     */
+    void clear() {
+        byId.clear();
+        byClass.clear();
+    }
+
+    /**
+     * To render the counts, one line per precondition and outcome, in the order
+     * of their total count.
+     *
+     * @return the lines.
+     */
+    java.util.List<String> render() {
+        ArrayList<Entry> entries = new ArrayList<>();
+        byId.collect(entries, false);
+        byClass.collect(entries, true);
+        entries.sort(null);
+
+        ArrayList<String> lines = new ArrayList<>(entries.size());
+        for (Entry e : entries)
+            lines.add(String.format("%4d", e.succeeded) + " of " + String.format("%4d", e.succeeded + e.failed) + " : " + e.name);
+        return lines;
+    }
+
+    /**
+     * Counters indexed by an integer.
+     */
+    private static class Counters {
+        /**
+         * The number of successes.
+         */
+        private int[] succeeded = new int[0];
+        /**
+         * The number of failures, indexed second by how many conditions could be
+         * satisfied before giving up, see {@link Precondition#bestMatch}.
+         */
+        private int[][] failed = new int[0][];
+        /**
+         * The first precondition seen, for its name.
+         */
+        private Precondition[] samples = new Precondition[0];
+
+        private void ensure(int i, Precondition p) {
+            if (i >= samples.length) {
+                final int n = Math.max(i + 1, samples.length * 2);
+                succeeded = Arrays.copyOf(succeeded, n);
+                failed = Arrays.copyOf(failed, n);
+                samples = Arrays.copyOf(samples, n);
+            }
+            if (samples[i] == null)
+                samples[i] = p;
+        }
+
+        void succeeded(int i, Precondition p) {
+            ensure(i, p);
+            succeeded[i]++;
+        }
+
+        void failed(int i, Precondition p) {
+            ensure(i, p);
+            int[] f = failed[i];
+            final int match = p.bestMatch;
+            if (f == null || match >= f.length)
+                failed[i] = f = f == null ? new int[match + 1] : Arrays.copyOf(f, match + 1);
+            f[match]++;
+        }
+
+        void clear() {
+            Arrays.fill(succeeded, 0);
+            Arrays.fill(failed, null);
+        }
+
+        void collect(ArrayList<Entry> entries, boolean perClass) {
+            for (int i = 0; i < samples.length; i++) {
+                if (samples[i] == null)
+                    continue;
+                final String name = perClass ? samples[i].getClass().getSimpleName() : samples[i].toString();
+                if (succeeded[i] != 0)
+                    entries.add(new Entry(name, succeeded[i], 0));
+                if (failed[i] != null) {
+                    for (int match = 0; match < failed[i].length; match++) {
+                        if (failed[i][match] != 0)
+                            entries.add(new Entry(name + "(bound: " + match + " conditions)", 0, failed[i][match]));
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final String name;
+        final int succeeded;
+        final int failed;
+
+        Entry(String nameIn, int succeededIn, int failedIn) {
+            name = nameIn;
+            succeeded = succeededIn;
+            failed = failedIn;
+        }
+
+        public int compareTo(Entry o) {
+            int ret = (failed + succeeded) - (o.failed + o.succeeded);
+            if (ret == 0)
+                return name.compareTo(o.name);
+            return ret;
+        }
+    }
+}
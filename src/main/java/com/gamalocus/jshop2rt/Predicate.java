@@ -61,6 +61,23 @@ public class Predicate extends CompileTimeObject implements Serializable {
         ID = staticID.getAndIncrement();
     }
 
+    /**
+     * To initialize this predicate with the ID of a predicate that existed
+     * before, e.g., when reading it back from a {@link SearchTrace}.
+     *
+     * @param headIn     the head of the predicate.
+     * @param varCountIn number of the variables of the predicate.
+     * @param paramIn    the argument list of the predicate.
+     * @param idIn       the ID of the predicate.
+     */
+    Predicate(int headIn, int varCountIn, Term paramIn, int idIn) {
+        head = headIn;
+        varCount = varCountIn;
+        param = paramIn;
+        varIdx = -1;
+        ID = idIn;
+    }
+
     /**
      * To initialize this predicate when it is not a real predicate but a
      * variable symbol.
@@ -99,7 +116,7 @@ public class Predicate extends CompileTimeObject implements Serializable {
         }
 
         //-- Apply the binding and return the result.
-        return new Predicate(head, varCount, param.bind(bindings));
+        return new Predicate(head, varCount, Term.bind(param, bindings));
     }
 
     @Override
@@ -107,7 +124,7 @@ public class Predicate extends CompileTimeObject implements Serializable {
         final int prime = 31;
         int result = 1;
         result = prime * result + head;
-        result = prime * result + param.hashCode();
+        result = prime * result + Term.hash(param);
         return result;
     }
 
@@ -127,10 +144,10 @@ public class Predicate extends CompileTimeObject implements Serializable {
             return false;
 
         if (t instanceof Term) {
-            return param.equals(t);
+            return Term.equal(param, t);
         } else if (t instanceof Predicate) {
             return head == ((Predicate) t).head &&
-                    param.equals(((Predicate) t).param);
+                    Term.equal(param, ((Predicate) t).param);
         }
         return false;
     }
@@ -154,7 +171,7 @@ public class Predicate extends CompileTimeObject implements Serializable {
             return retVal;
         }
 
-        if (param.findUnifier(t, retVal))
+        if (Term.unify(param, t, retVal))
             return retVal;
 
         return null;
@@ -197,7 +214,7 @@ public class Predicate extends CompileTimeObject implements Serializable {
      * @return <code>true</code> if this predicate is a variable symbol,
      * <code>false</code> if it is a real predicate.
      */
-    private boolean isVar() {
+    boolean isVar() {
         return (varIdx != -1);
     }
 
@@ -211,6 +228,39 @@ public class Predicate extends CompileTimeObject implements Serializable {
         return "new Predicate(" + head + ", " + varCount + ", " + param.toCode(label) + ")";
     }
 
+    /**
+     * To create this predicate at run time, without generating code for it.
+     *
+     * @param owner the domain this predicate is part of.
+     * @return the predicate at run time.
+     */
+    Predicate instantiate(InterpretedDomain owner) {
+        if (isVar())
+            return new Predicate(varIdx, varCount);
+
+        return new Predicate(head, varCount, param.instantiate(owner));
+    }
+
+    /**
+     * To emit the bytecode that creates this predicate at run time.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(Predicate.class);
+        if (isVar()) {
+            e.push(varIdx);
+            e.push(varCount);
+            e.construct(Predicate.class, int.class, int.class);
+            return;
+        }
+
+        e.push(head);
+        e.push(varCount);
+        param.toBytecode(e);
+        e.construct(Predicate.class, int.class, int.class, Term.class);
+    }
+
     /**
      * This function returns a printable <code>String</code> representation of
      * this predicate. This function is used to print the predicates known to be
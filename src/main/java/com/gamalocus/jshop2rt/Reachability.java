@@ -0,0 +1,358 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Which parts of a domain can matter for the tasks of a problem. Starting from
+ * the heads of the tasks, a compound task can be decomposed by its methods
+ * into the tasks of their task lists, a primitive task can be achieved by its
+ * operators, and the preconditions of all of those, and of the axioms of the
+ * atoms they read, read atoms from the state of the world. Nothing else in
+ * the domain is ever used, nor are the atoms of the state under any other
+ * head.
+ * <p>
+ * The closure of each root task is computed once, and the closure of a task
+ * list is the union of those of its tasks. A closure can then be used to
+ * restrict the model to the operators, methods and axioms in it, see
+ * {@link Model#restrict(Closure)}, which makes the domain quicker to load,
+ * and to leave the atoms that can never be read out of the initial state.
+ * <p>
+ * Task atoms and logical atoms that are variables may be bound to anything at
+ * run time, so if any is reachable, so are all the tasks, or all the atoms.
+ */
+public final class Reachability {
+    private final int compoundTaskCount;
+    private final int primitiveTaskCount;
+    private final int constantCount;
+
+    /**
+     * What the elements of each head use, indexed by the head.
+     */
+    private final Uses[] methodUses;
+    private final Uses[] operatorUses;
+    private final Uses[] axiomUses;
+
+    /**
+     * The operators, methods and axioms of the model.
+     */
+    private final java.util.List<InternalOperator> operators;
+    private final java.util.List<InternalMethod> methods;
+    private final java.util.List<InternalAxiom> axioms;
+
+    /**
+     * The closures computed so far, by the head of the root task.
+     */
+    private final Map<Integer, Closure> compoundClosures = new HashMap<>();
+    private final Map<Integer, Closure> primitiveClosures = new HashMap<>();
+
+    /**
+     * To analyze a domain.
+     *
+     * @param model the domain as parsed.
+     */
+    public Reachability(Model model) {
+        compoundTaskCount = model.getCompoundTasks().size();
+        primitiveTaskCount = model.getPrimitiveTasks().size();
+        constantCount = model.constants().size();
+        operators = model.operators;
+        methods = model.getMethods();
+        axioms = model.axioms;
+
+        methodUses = new Uses[compoundTaskCount];
+        for (InternalMethod m : methods)
+            m.collectUses(uses(methodUses, m));
+
+        operatorUses = new Uses[primitiveTaskCount];
+        for (InternalOperator o : operators)
+            o.collectUses(uses(operatorUses, o));
+
+        axiomUses = new Uses[constantCount];
+        for (InternalAxiom a : axioms)
+            a.collectUses(uses(axiomUses, a));
+    }
+
+    /**
+     * @return what the elements of the head of a given element use, created
+     * if need be.
+     */
+    private static Uses uses(Uses[] byHead, InternalElement e) {
+        final int head = e.getHead().head;
+        if (byHead[head] == null)
+            byHead[head] = new Uses();
+        return byHead[head];
+    }
+
+    /**
+     * To find the closure of the tasks of a task list.
+     *
+     * @param tasks the task list, usually that of a problem.
+     * @return the closure, the union of those of the tasks.
+     */
+    public Closure closure(TaskList tasks) {
+        Uses roots = new Uses();
+        tasks.collectUses(roots);
+
+        Closure retVal = new Closure(new BitSet(), new BitSet(), new BitSet());
+        if (roots.anyTask)
+            return retVal.union(everything());
+
+        for (int i = roots.compoundTasks.nextSetBit(0); i >= 0; i = roots.compoundTasks.nextSetBit(i + 1))
+            retVal = retVal.union(compoundTask(i));
+        for (int i = roots.primitiveTasks.nextSetBit(0); i >= 0; i = roots.primitiveTasks.nextSetBit(i + 1))
+            retVal = retVal.union(primitiveTask(i));
+        return retVal;
+    }
+
+    /**
+     * To find the closure of a compound task.
+     *
+     * @param head the integer associated with the compound task.
+     * @return the closure.
+     */
+    public synchronized Closure compoundTask(int head) {
+        return compoundClosures.computeIfAbsent(head, h -> {
+            BitSet compound = new BitSet();
+            compound.set(h);
+            return close(compound, new BitSet());
+        });
+    }
+
+    /**
+     * To find the closure of a primitive task.
+     *
+     * @param head the integer associated with the primitive task.
+     * @return the closure.
+     */
+    public synchronized Closure primitiveTask(int head) {
+        return primitiveClosures.computeIfAbsent(head, h -> {
+            BitSet primitive = new BitSet();
+            primitive.set(h);
+            return close(new BitSet(), primitive);
+        });
+    }
+
+    /**
+     * @return the closure of every task, which is the whole domain.
+     */
+    private Closure everything() {
+        BitSet compound = new BitSet();
+        compound.set(0, compoundTaskCount);
+        BitSet primitive = new BitSet();
+        primitive.set(0, primitiveTaskCount);
+        return close(compound, primitive);
+    }
+
+    /**
+     * To add to some tasks all the tasks and atoms reachable from them.
+     *
+     * @param compound  the compound tasks.
+     * @param primitive the primitive tasks.
+     * @return the closure.
+     */
+    private Closure close(BitSet compound, BitSet primitive) {
+        BitSet atoms = new BitSet();
+
+        //-- The heads whose elements are yet to be looked at.
+        BitSet compoundTodo = (BitSet) compound.clone();
+        BitSet primitiveTodo = (BitSet) primitive.clone();
+        BitSet atomsTodo = new BitSet();
+
+        while (!compoundTodo.isEmpty() || !primitiveTodo.isEmpty() || !atomsTodo.isEmpty()) {
+            java.util.List<Uses> next = new ArrayList<>();
+
+            for (int i = compoundTodo.nextSetBit(0); i >= 0; i = compoundTodo.nextSetBit(i + 1))
+                if (methodUses[i] != null)
+                    next.add(methodUses[i]);
+            for (int i = primitiveTodo.nextSetBit(0); i >= 0; i = primitiveTodo.nextSetBit(i + 1))
+                if (operatorUses[i] != null)
+                    next.add(operatorUses[i]);
+            for (int i = atomsTodo.nextSetBit(0); i >= 0; i = atomsTodo.nextSetBit(i + 1))
+                if (axiomUses[i] != null)
+                    next.add(axiomUses[i]);
+            compoundTodo.clear();
+            primitiveTodo.clear();
+            atomsTodo.clear();
+
+            for (Uses uses : next) {
+                if (uses.anyTask) {
+                    compoundTodo.set(0, compoundTaskCount);
+                    primitiveTodo.set(0, primitiveTaskCount);
+                } else {
+                    compoundTodo.or(uses.compoundTasks);
+                    primitiveTodo.or(uses.primitiveTasks);
+                }
+
+                if (uses.anyAtom)
+                    atomsTodo.set(0, constantCount);
+                else
+                    atomsTodo.or(uses.atoms);
+            }
+
+            //-- Only the heads not seen before are to be looked at.
+            compoundTodo.andNot(compound);
+            primitiveTodo.andNot(primitive);
+            atomsTodo.andNot(atoms);
+            compound.or(compoundTodo);
+            primitive.or(primitiveTodo);
+            atoms.or(atomsTodo);
+        }
+
+        return new Closure(compound, primitive, atoms);
+    }
+
+    /**
+     * The tasks and atoms reachable from some root tasks.
+     */
+    public final class Closure {
+        private final BitSet compoundTasks;
+        private final BitSet primitiveTasks;
+        private final BitSet atoms;
+
+        private Closure(BitSet compoundTasksIn, BitSet primitiveTasksIn, BitSet atomsIn) {
+            compoundTasks = compoundTasksIn;
+            primitiveTasks = primitiveTasksIn;
+            atoms = atomsIn;
+        }
+
+        /**
+         * @param head the integer associated with a compound task.
+         * @return whether the compound task, and so its methods, can be
+         * reached.
+         */
+        public boolean hasCompoundTask(int head) {
+            return compoundTasks.get(head);
+        }
+
+        /**
+         * @param head the integer associated with a primitive task.
+         * @return whether the primitive task, and so its operators, can be
+         * reached.
+         */
+        public boolean hasPrimitiveTask(int head) {
+            return primitiveTasks.get(head);
+        }
+
+        /**
+         * @param head the integer associated with a constant symbol.
+         * @return whether the atoms that start with the constant symbol can be
+         * read from the state of the world, and so its axioms can be used.
+         */
+        public boolean canRead(int head) {
+            return atoms.get(head);
+        }
+
+        /**
+         * @param atom an atom of the state of the world.
+         * @return whether the atom can be read, i.e., whether it is of any use
+         * in the initial state.
+         */
+        public boolean canRead(Predicate atom) {
+            return atom.isVar() || canRead(atom.head);
+        }
+
+        /**
+         * @param other another closure of the same domain.
+         * @return the closure of the root tasks of both.
+         */
+        public Closure union(Closure other) {
+            BitSet compound = (BitSet) compoundTasks.clone();
+            compound.or(other.compoundTasks);
+            BitSet primitive = (BitSet) primitiveTasks.clone();
+            primitive.or(other.primitiveTasks);
+            BitSet read = (BitSet) atoms.clone();
+            read.or(other.atoms);
+            return new Closure(compound, primitive, read);
+        }
+
+        /**
+         * @return the operators that can be reached, in the order they appear
+         * in the domain description.
+         */
+        public java.util.List<InternalOperator> getOperators() {
+            java.util.List<InternalOperator> retVal = new ArrayList<>();
+            for (InternalOperator o : operators)
+                if (hasPrimitiveTask(o.getHead().head))
+                    retVal.add(o);
+            return retVal;
+        }
+
+        /**
+         * @return the methods that can be reached, in the order they appear in
+         * the domain description.
+         */
+        public java.util.List<InternalMethod> getMethods() {
+            java.util.List<InternalMethod> retVal = new ArrayList<>();
+            for (InternalMethod m : methods)
+                if (hasCompoundTask(m.getHead().head))
+                    retVal.add(m);
+            return retVal;
+        }
+
+        /**
+         * @return the axioms that can be reached, in the order they appear in
+         * the domain description.
+         */
+        public java.util.List<InternalAxiom> getAxioms() {
+            java.util.List<InternalAxiom> retVal = new ArrayList<>();
+            for (InternalAxiom a : axioms)
+                if (canRead(a.getHead().head))
+                    retVal.add(a);
+            return retVal;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d compound tasks, %d of %d primitive tasks, %d of %d atom heads",
+                    compoundTasks.cardinality(), compoundTaskCount, primitiveTasks.cardinality(), primitiveTaskCount,
+                    atoms.cardinality(), constantCount);
+        }
+    }
+
+    /**
+     * The tasks and atoms used by some elements of a domain: the tasks in the
+     * task lists of methods, and the atoms read by the preconditions.
+     */
+    static final class Uses {
+        final BitSet compoundTasks = new BitSet();
+        final BitSet primitiveTasks = new BitSet();
+        final BitSet atoms = new BitSet();
+        /**
+         * Whether a task that is a variable is used, which can be any task.
+         */
+        boolean anyTask;
+        /**
+         * Whether an atom that is a variable is read, which can be any atom.
+         */
+        boolean anyAtom;
+
+        /**
+         * To record a task of a task list.
+         *
+         * @param task the task.
+         */
+        void task(TaskAtom task) {
+            final Predicate p = task.getHead();
+            if (p.isVar())
+                anyTask = true;
+            else if (task.isPrimitive())
+                primitiveTasks.set(p.head);
+            else
+                compoundTasks.set(p.head);
+        }
+
+        /**
+         * To record an atom read from the state of the world.
+         *
+         * @param atom the atom.
+         */
+        void read(Predicate atom) {
+            if (atom.isVar())
+                anyAtom = true;
+            else
+                atoms.set(atom.head);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A deterministic profiler of the search of a {@link JSHOP2} planner, which
+ * attributes the time spent and the bindings found to the decomposition path
+ * the planner is working on.
+ * <p>
+ * The profile is a tree: below its root are the goal tasks, below each
+ * compound task the branches of its methods that were tried, labelled by
+ * {@link Method#getLabel(int)}, below each branch the tasks it was reduced to,
+ * and so on. Each branch and each primitive task also has a
+ * <code>[precondition]</code> node, for the time spent finding bindings for
+ * its precondition. Each node counts:
+ * <ul>
+ * <li>the time spent on it, not counting the nodes below it,</li>
+ * <li>how often it was entered,</li>
+ * <li>how often a binding was asked of its precondition, and</li>
+ * <li>how many bindings were found.</li>
+ * </ul>
+ * Since the tasks are tracked as they are decomposed, the tasks that follow a
+ * decomposed task are attributed to the branch that produced them, not to the
+ * task before them. The selectivity of the conjuncts within a precondition is
+ * counted by {@link JSHOP2#getSummary()}.
+ * <p>
+ * The planner reads the clock twice per call to {@link JSHOP2#run()} when a
+ * profiler is set, and does nothing extra otherwise, so a profiler can be set
+ * for a sample of the planning requests. Profiles of several planners can be
+ * added up with {@link #merge(SearchProfiler)}, and written in the collapsed
+ * stack format of flame graph tools with
+ * {@link #writeCollapsed(Appendable, Value)}.
+ * <p>
+ * This class is not thread-safe. A profiler must not be used by more than one
+ * planner at a time.
+ */
+public final class SearchProfiler {
+    /**
+     * What to write as the value of each stack.
+     */
+    public enum Value {
+        /**
+         * The time spent, in nanoseconds.
+         */
+        NANOS,
+        /**
+         * How often the node was entered.
+         */
+        ENTRIES,
+        /**
+         * How often a binding was asked of a precondition.
+         */
+        ATTEMPTS,
+        /**
+         * How many bindings were found for a precondition.
+         */
+        BINDINGS
+    }
+
+    /**
+     * Key of the precondition node below a branch or a primitive task.
+     */
+    private static final int PRECONDITION = Integer.MIN_VALUE;
+
+    /**
+     * The domain, to name the tasks.
+     */
+    private final Domain domain;
+    /**
+     * The root of the profile.
+     */
+    private final Node root = new Node(0, "all");
+    /**
+     * The branch, or the root, each task list that is being worked on came
+     * from. Task lists that are not in here are goal tasks.
+     */
+    private final IdentityHashMap<TaskList, Node> owners = new IdentityHashMap<>();
+
+    /**
+     * To initialize an empty profile.
+     *
+     * @param domainIn the domain of the planners to profile.
+     */
+    public SearchProfiler(Domain domainIn) {
+        domain = domainIn;
+    }
+
+    /**
+     * @return the root of the profile, whose children are the goal tasks.
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * To enter a task that is about to be achieved.
+     *
+     * @param tl the atomic task list of the task.
+     * @return the node of the task.
+     */
+    Node enterTask(TaskList tl) {
+        final Node owner = owners.getOrDefault(tl, root);
+        final TaskAtom t = tl.getTask();
+        final int head = t.getHead().head;
+        final int key = t.isPrimitive() ? -head - 1 : head;
+
+        Node retVal = owner.find(key);
+        if (retVal == null) {
+            final String name = t.isPrimitive() ? domain.primitiveTasks[head] : domain.compoundTasks[head];
+            retVal = owner.add(key, name);
+        }
+        retVal.entries++;
+        return retVal;
+    }
+
+    /**
+     * To enter a branch of a method that is about to be tried.
+     *
+     * @param task   the node of the compound task.
+     * @param m      the method.
+     * @param method the index of the method.
+     * @param branch the index of the branch.
+     * @return the node of the branch.
+     */
+    Node enterBranch(Node task, Method m, int method, int branch) {
+        final int key = method << 16 | branch;
+        Node retVal = task.find(key);
+        if (retVal == null)
+            retVal = task.add(key, m.getLabel(branch));
+        retVal.entries++;
+        return retVal;
+    }
+
+    /**
+     * @return the node for the precondition of the given branch or primitive
+     * task.
+     */
+    Node precondition(Node node) {
+        Node retVal = node.find(PRECONDITION);
+        if (retVal == null)
+            retVal = node.add(PRECONDITION, "[precondition]");
+        return retVal;
+    }
+
+    /**
+     * To count one attempt to find a binding for the precondition of a branch
+     * or a primitive task.
+     *
+     * @param node  the branch or primitive task.
+     * @param found whether a binding was found.
+     */
+    void attempted(Node node, boolean found) {
+        node.attempts++;
+        if (found)
+            node.bindings++;
+    }
+
+    /**
+     * To record that the tasks a compound task was reduced to came from the
+     * given branch.
+     */
+    void reduced(TaskList[] subtasks, Node branch) {
+        for (TaskList sub : subtasks) {
+            if (sub.subtasks == null)
+                owners.put(sub, branch);
+            else
+                reduced(sub.subtasks, branch);
+        }
+    }
+
+    /**
+     * To forget where the tasks a compound task was reduced to came from,
+     * because the reduction is being undone.
+     */
+    void undone(TaskList[] subtasks) {
+        for (TaskList sub : subtasks) {
+            if (sub.subtasks == null)
+                owners.remove(sub);
+            else
+                undone(sub.subtasks);
+        }
+    }
+
+    /**
+     * To forget where all tasks came from, once the search is over.
+     */
+    void finished() {
+        owners.clear();
+    }
+
+    /**
+     * To add the profile of another planner to this one.
+     *
+     * @param other the other profile, of the same domain.
+     */
+    public void merge(SearchProfiler other) {
+        root.merge(other.root);
+    }
+
+    /**
+     * To forget the profile so far.
+     */
+    public void clear() {
+        root.childCount = 0;
+        root.children = Node.NONE;
+        root.nanos = root.entries = root.attempts = root.bindings = 0;
+    }
+
+    /**
+     * @return the total time attributed so far, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return root.total(Value.NANOS);
+    }
+
+    /**
+     * To write the profile in the collapsed stack format: one line per node
+     * with a non-zero value, made of the names of the nodes from the root,
+     * called <code>all</code>, down to it separated by semicolons, a space,
+     * and the value of the node itself.
+     *
+     * @param out   where to write to.
+     * @param value what to write as the value of each node.
+     * @throws UncheckedIOException if the profile cannot be written.
+     */
+    public void writeCollapsed(Appendable out, Value value) {
+        try {
+            root.writeCollapsed(out, value, new StringBuilder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param value what to write as the value of each node.
+     * @return the profile in the collapsed stack format, see
+     * {@link #writeCollapsed(Appendable, Value)}.
+     */
+    public String toCollapsed(Value value) {
+        StringBuilder buf = new StringBuilder();
+        writeCollapsed(buf, value);
+        return buf.toString();
+    }
+
+    /**
+     * A node of the profile.
+     */
+    static final class Node {
+        private static final Node[] NONE = new Node[0];
+
+        private final int key;
+        private final String name;
+        private Node[] children = NONE;
+        private int childCount;
+        long nanos;
+        long entries;
+        long attempts;
+        long bindings;
+
+        Node(int keyIn, String nameIn) {
+            key = keyIn;
+            //-- Semicolons separate the frames, and line breaks the stacks.
+            name = nameIn.replace(';', ',').replace('\n', ' ');
+        }
+
+        Node find(int k) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].key == k)
+                    return children[i];
+            }
+            return null;
+        }
+
+        Node add(int k, String childName) {
+            if (childCount == children.length)
+                children = Arrays.copyOf(children, Math.max(4, childCount * 2));
+            final Node retVal = new Node(k, childName);
+            children[childCount++] = retVal;
+            return retVal;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long get(Value value) {
+            switch (value) {
+                case NANOS:
+                    return nanos;
+                case ENTRIES:
+                    return entries;
+                case ATTEMPTS:
+                    return attempts;
+                default:
+                    return bindings;
+            }
+        }
+
+        long total(Value value) {
+            long retVal = get(value);
+            for (int i = 0; i < childCount; i++)
+                retVal += children[i].total(value);
+            return retVal;
+        }
+
+        void merge(Node other) {
+            nanos += other.nanos;
+            entries += other.entries;
+            attempts += other.attempts;
+            bindings += other.bindings;
+            for (int i = 0; i < other.childCount; i++) {
+                final Node o = other.children[i];
+                Node mine = find(o.key);
+                if (mine == null)
+                    mine = add(o.key, o.name);
+                mine.merge(o);
+            }
+        }
+
+        void writeCollapsed(Appendable out, Value value, StringBuilder path) throws IOException {
+            final int length = path.length();
+            if (length != 0)
+                path.append(';');
+            path.append(name);
+
+            final long v = get(value);
+            if (v != 0)
+                out.append(path).append(' ').append(Long.toString(v)).append('\n');
+            for (int i = 0; i < childCount; i++)
+                children[i].writeCollapsed(out, value, path);
+
+            path.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * A recorder of the steps of the search of a {@link JSHOP2} planner, cheap
+ * enough to be left on in production. Where the planner only builds
+ * {@link PlanStepInfo}s and formats them when logging at <code>FINEST</code>,
+ * the trace records each step as a handful of integers in a ring buffer of
+ * fixed size, overwriting the oldest steps once it is full. The steps can be
+ * written to a file with {@link #write(Path)}, and turned back into
+ * {@link PlanStepInfo}s with a {@link SearchTraceReplay}, e.g., after a search
+ * has failed.
+ * <p>
+ * Each step is recorded as its length, its action, the depth of the stack of
+ * the planner, the action specific part, and its length again, so that the
+ * steps can be found by walking the buffer backwards from its end. Terms are
+ * encoded as in {@link CompactPlan}, with constant symbols as their index in
+ * the domain, and task atoms as the ID and head of their predicate, their
+ * flags and their argument list. The action specific parts are:
+ * <ul>
+ * <li>{@link #SET_GOAL_TASKS}: the goal task list.</li>
+ * <li>{@link #TRYING}: the task atom.</li>
+ * <li>{@link #REDUCED}: the task atom, the index of the method and of its
+ * branch, the binding it was reduced with, and the IDs of the task atoms it
+ * was reduced to, depth first. The task lists themselves are not recorded,
+ * since they are the subtasks of the branch under the binding.</li>
+ * <li>{@link #STATE_CHANGED}: the task atom, the index of the operator, the
+ * binding it was applied with, and the atoms and protections it deleted and
+ * added.</li>
+ * <li>{@link #BACKTRACKING}: the task atom.</li>
+ * <li>{@link #PLAN_FOUND}: the length of the plan.</li>
+ * </ul>
+ * The goal task list is kept apart from the ring buffer, so it is never
+ * overwritten.
+ * <p>
+ * This class is not thread-safe: it must only be read while the planner that
+ * records into it is not running.
+ */
+public final class SearchTrace {
+    static final int SET_GOAL_TASKS = 0;
+    static final int TRYING = 1;
+    static final int REDUCED = 2;
+    static final int STATE_CHANGED = 3;
+    static final int BACKTRACKING = 4;
+    static final int PLAN_FOUND = 5;
+
+    /**
+     * Tag of an atomic task list, followed by its task atom.
+     */
+    static final int TASK_ATOM = -1;
+    /**
+     * Tag of a variable that is not bound.
+     */
+    static final int UNBOUND = -7;
+
+    /**
+     * Flag of a primitive task atom.
+     */
+    static final int PRIMITIVE = 1;
+    /**
+     * Flag of an immediate task atom.
+     */
+    static final int IMMEDIATE = 2;
+
+    /**
+     * The first integer of every trace file.
+     */
+    static final int MAGIC = 0x4A535054;
+    /**
+     * The version of the format of the trace file.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * The ring buffer.
+     */
+    private final int[] ring;
+    /**
+     * The size of the ring buffer minus one.
+     */
+    private final int mask;
+    /**
+     * The step being recorded.
+     */
+    private final CompactPlan.Encoder step = new CompactPlan.Encoder(64, false);
+    /**
+     * The goal task list, or <code>null</code> if none was recorded.
+     */
+    private int[] goal;
+    /**
+     * The number of integers written to the ring buffer so far.
+     */
+    private long written;
+    /**
+     * The number of steps recorded so far.
+     */
+    private long steps;
+
+    /**
+     * To initialize an empty trace.
+     *
+     * @param capacity the size of the ring buffer in integers, rounded up to a
+     *                 power of two. A step takes about ten integers, plus the
+     *                 size of the terms in it.
+     */
+    public SearchTrace(int capacity) {
+        if (capacity < 16 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Capacity must be between 16 and 2^30, was %d.", capacity));
+        }
+        ring = new int[Integer.highestOneBit(capacity - 1) << 1];
+        mask = ring.length - 1;
+    }
+
+    /**
+     * @return the size of the ring buffer in integers.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return the number of steps recorded so far, including those that have
+     * been overwritten.
+     */
+    public long getStepCount() {
+        return steps;
+    }
+
+    /**
+     * To forget all the steps recorded so far, except the goal task list.
+     */
+    public void clear() {
+        written = 0;
+        steps = 0;
+    }
+
+    void setGoalTasks(TaskList tasks) {
+        begin(SET_GOAL_TASKS, 0);
+        putTaskList(tasks);
+        seal();
+        goal = Arrays.copyOf(step.buffer(), step.size());
+    }
+
+    void trying(int depth, TaskAtom t) {
+        begin(TRYING, depth);
+        putTaskAtom(t);
+        end();
+    }
+
+    void reduced(int depth, TaskAtom t, int method, int branch, Term[] binding, TaskList[] children) {
+        begin(REDUCED, depth);
+        putTaskAtom(t);
+        step.put(method);
+        step.put(branch);
+        putBinding(binding);
+
+        //-- Room for the number of task atoms.
+        final int count = step.size();
+        step.put(0);
+        for (TaskList child : children)
+            putIds(child);
+        step.set(count, step.size() - count - 1);
+        end();
+    }
+
+    void stateChanged(int depth, TaskAtom t, int operator, Term[] binding, Vector<?>[] delAdd) {
+        begin(STATE_CHANGED, depth);
+        putTaskAtom(t);
+        step.put(operator);
+        putBinding(binding);
+        for (Vector<?> atoms : delAdd) {
+            step.put(atoms.size());
+            for (Object o : atoms) {
+                final Predicate p = o instanceof NumberedPredicate ? ((NumberedPredicate) o).getPredicate() : (Predicate) o;
+                step.put(p.head);
+                step.putTerm(p.param);
+            }
+        }
+        end();
+    }
+
+    void backtracking(int depth, TaskAtom t) {
+        begin(BACKTRACKING, depth);
+        putTaskAtom(t);
+        end();
+    }
+
+    void planFound(int depth, int length) {
+        begin(PLAN_FOUND, depth);
+        step.put(length);
+        end();
+    }
+
+    private void begin(int action, int depth) {
+        step.reset();
+        //-- Room for the length.
+        step.put(0);
+        step.put(action);
+        step.put(depth);
+    }
+
+    /**
+     * To write the length of the step being recorded at both of its ends.
+     *
+     * @return the length.
+     */
+    private int seal() {
+        final int length = step.size() + 1;
+        step.put(length);
+        step.set(0, length);
+        return length;
+    }
+
+    /**
+     * To copy the step being recorded into the ring buffer.
+     */
+    private void end() {
+        final int length = seal();
+        final int[] buf = step.buffer();
+        if (length > ring.length) {
+            //-- The step does not fit. Drop it rather than corrupt the buffer.
+            return;
+        }
+
+        final int at = (int) (written & mask);
+        final int first = Math.min(length, ring.length - at);
+        System.arraycopy(buf, 0, ring, at, first);
+        System.arraycopy(buf, first, ring, 0, length - first);
+        written += length;
+        steps++;
+    }
+
+    private void putBinding(Term[] binding) {
+        step.put(binding.length);
+        for (Term b : binding) {
+            if (b == null)
+                step.put(UNBOUND);
+            else
+                step.putTerm(b);
+        }
+    }
+
+    /**
+     * To record the IDs of the task atoms of a task list, depth first.
+     */
+    private void putIds(TaskList tl) {
+        if (tl.subtasks == null) {
+            step.put(tl.getTask().getHead().getID());
+        } else {
+            for (TaskList sub : tl.subtasks)
+                putIds(sub);
+        }
+    }
+
+    private void putTaskAtom(TaskAtom t) {
+        final Predicate head = t.getHead();
+        step.put(head.getID());
+        step.put(head.head);
+        step.put((t.isPrimitive() ? PRIMITIVE : 0) | (t.isImmediate() ? IMMEDIATE : 0));
+        step.putTerm(head.param);
+    }
+
+    /**
+     * To record a task list as it was before any of its task atoms were
+     * decomposed.
+     */
+    private void putTaskList(TaskList tl) {
+        if (tl.subtasks == null) {
+            step.put(TASK_ATOM);
+            putTaskAtom(tl.getTask());
+        } else {
+            putTaskLists(tl.subtasks, tl.isOrdered());
+        }
+    }
+
+    private void putTaskLists(TaskList[] tls, boolean ordered) {
+        step.put(tls.length);
+        step.put(ordered ? 1 : 0);
+        for (TaskList sub : tls)
+            putTaskList(sub);
+    }
+
+    /**
+     * @return the goal task list, if any, followed by the steps still in the
+     * ring buffer, oldest first.
+     */
+    int[] toArray() {
+        //-- Walk back from the end to find the oldest step that is complete.
+        final long end = written;
+        long start = end;
+        while (start > 0 && end - start < ring.length) {
+            final int length = ring[(int) ((start - 1) & mask)];
+            if (length < 4 || end - (start - length) > ring.length)
+                break;
+            start -= length;
+        }
+
+        final int goalLength = goal != null ? goal.length : 0;
+        int[] retVal = new int[goalLength + (int) (end - start)];
+        if (goal != null)
+            System.arraycopy(goal, 0, retVal, 0, goalLength);
+        for (long i = start; i < end; i++)
+            retVal[goalLength + (int) (i - start)] = ring[(int) (i & mask)];
+        return retVal;
+    }
+
+    /**
+     * To write the trace to a channel: {@link #MAGIC}, {@link #VERSION}, the
+     * number of integers that follow, and the goal task list and the steps
+     * still in the ring buffer, oldest first, all in big-endian order.
+     *
+     * @param channel the channel to write to.
+     * @throws IOException if the trace cannot be written.
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        final int[] records = toArray();
+        ByteBuffer buffer = ByteBuffer.allocate(12 + records.length * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(records.length);
+        buffer.asIntBuffer().put(records);
+        buffer.rewind();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * To write the trace to a file, replacing it if it exists.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the trace cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel);
+        }
+    }
+
+    /**
+     * To read the records of a trace file written by {@link #write(Path)}.
+     *
+     * @param file the file to read.
+     * @return the records.
+     * @throws IOException if the file cannot be read or is not a trace.
+     */
+    static int[] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a search trace.", file));
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported search trace version %d in %s.", version, file));
+            }
+            final int length = buffer.getInt();
+            IntBuffer ints = buffer.asIntBuffer();
+            if (ints.remaining() < length) {
+                throw new IOException(String.format("Search trace %s is truncated.", file));
+            }
+            int[] retVal = new int[length];
+            ints.get(retVal);
+            return retVal;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Vector;
+
+/**
+ * Reads the steps recorded by a {@link SearchTrace} back, either as the
+ * {@link PlanStepInfo}s the planner would have logged, e.g., to browse them
+ * with {@link JSHOP2GUI#setPlanStepList(ArrayList)}, or as text.
+ * <p>
+ * The trace does not record the state of the world, so the
+ * {@link PlanStepInfo#state} of the steps is always <code>null</code>. If the
+ * ring buffer of the trace overflowed, the steps start somewhere in the middle
+ * of the search, which the GUI cannot show, since it needs every step from the
+ * goal tasks on; the text output works either way.
+ */
+public final class SearchTraceReplay {
+    private static final String[] ACTIONS = {
+            "SETGOALTASKS", "TRYING", "REDUCED", "STATECHANGED", "BACKTRACKING", "PLANFOUND"
+    };
+
+    /**
+     * The domain the trace was recorded in.
+     */
+    private final Domain domain;
+    /**
+     * The records of the trace.
+     */
+    private final int[] records;
+
+    /**
+     * To initialize this object.
+     *
+     * @param domainIn  the domain the trace was recorded in. The constant
+     *                  symbols of the problem must have been added to it with
+     *                  {@link Domain#addConstant(String)}.
+     * @param recordsIn the records of the trace. Not copied.
+     */
+    SearchTraceReplay(Domain domainIn, int[] recordsIn) {
+        domain = domainIn;
+        records = recordsIn;
+    }
+
+    /**
+     * To replay a trace in memory, e.g., one whose planner has just failed.
+     *
+     * @param domain the domain the trace was recorded in.
+     * @param trace  the trace.
+     * @return the replay.
+     */
+    public static SearchTraceReplay of(Domain domain, SearchTrace trace) {
+        return new SearchTraceReplay(domain, trace.toArray());
+    }
+
+    /**
+     * To replay a trace written by {@link SearchTrace#write(Path)}.
+     *
+     * @param domain the domain the trace was recorded in.
+     * @param file   the file the trace was written to.
+     * @return the replay.
+     * @throws IOException if the file cannot be read or is not a trace.
+     */
+    public static SearchTraceReplay read(Domain domain, Path file) throws IOException {
+        return new SearchTraceReplay(domain, SearchTrace.read(file));
+    }
+
+    /**
+     * @return the steps of the trace, oldest first.
+     */
+    public ArrayList<PlanStepInfo> getPlanSteps() {
+        ArrayList<PlanStepInfo> retVal = new ArrayList<>();
+        for (int pos = 0; pos < records.length; pos += records[pos])
+            retVal.add(step(pos));
+        return retVal;
+    }
+
+    /**
+     * To print the steps of the trace, one line per step, indented by the
+     * depth of the stack of the planner.
+     *
+     * @param out the stream to print to.
+     */
+    public void print(PrintStream out) {
+        for (int pos = 0; pos < records.length; pos += records[pos]) {
+            final PlanStepInfo step = step(pos);
+            final int depth = records[pos + 2];
+
+            StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < depth; i++)
+                buf.append(' ');
+            buf.append(ACTIONS[records[pos + 1]]);
+
+            if (step.taskAtom != null)
+                buf.append(' ').append(step.taskAtom.toString(domain));
+            if (step.method.length() != 0)
+                buf.append(" by ").append(step.method);
+            if (step.operatorInstance != null)
+                buf.append(" as ").append(step.operatorInstance);
+            if (step.children != null) {
+                buf.append(" into");
+                for (TaskList child : step.children)
+                    buf.append(' ').append(child.toString(domain));
+            }
+            if (step.planFound)
+                buf.append(String.format(" with %d steps", records[pos + 3]));
+
+            out.println(buf);
+        }
+    }
+
+    /**
+     * @return the step recorded at the given position.
+     */
+    private PlanStepInfo step(int pos) {
+        final int action = records[pos + 1];
+        if (action < 0 || action >= ACTIONS.length) {
+            throw new IllegalArgumentException(String.format("Corrupt trace: Unknown action %d at %d.", action, pos + 1));
+        }
+
+        CompactPlan.Decoder d = new CompactPlan.Decoder(domain, records, pos + 3);
+        PlanStepInfo retVal = new PlanStepInfo();
+        retVal.action = ACTIONS[action];
+
+        switch (action) {
+            case SearchTrace.SET_GOAL_TASKS: {
+                final TaskList tasks = taskList(d);
+                retVal.children = tasks.getTask() != null ? new TaskList[]{tasks} : tasks.subtasks;
+                retVal.ordered = tasks.isOrdered();
+                break;
+            }
+            case SearchTrace.TRYING:
+            case SearchTrace.BACKTRACKING:
+                retVal.taskAtom = taskAtom(d);
+                break;
+            case SearchTrace.REDUCED: {
+                retVal.taskAtom = taskAtom(d);
+                final Method method = domain.getMethods(retVal.taskAtom.getHead().head)[d.next()];
+                final int branch = d.next();
+
+                //-- The subtasks of the branch under the binding, with the IDs
+                //-- the planner gave them.
+                final TaskList tl = method.getSubs()[branch].bind(binding(d));
+                final int count = d.next();
+                final int end = d.position() + count;
+                retVal.method = method.getLabel(branch);
+                retVal.children = new TaskList[tl.subtasks.length];
+                for (int i = 0; i < retVal.children.length; i++)
+                    retVal.children[i] = withIds(tl.subtasks[i], d);
+                if (d.position() != end) {
+                    throw new IllegalArgumentException(String.format(
+                            "Corrupt trace: Wrong number of task atoms %d at %d.", count, pos));
+                }
+                retVal.ordered = tl.isOrdered();
+                break;
+            }
+            case SearchTrace.STATE_CHANGED: {
+                retVal.taskAtom = taskAtom(d);
+                final Operator op = domain.getOperators(retVal.taskAtom.getHead().head)[d.next()];
+                retVal.operatorInstance = op.head.applySubstitution(binding(d))
+                        .toString(domain, Predicate.Namespace.PRIMITIVE_TASK_ATOM);
+
+                //-- The atoms and protections deleted and added.
+                java.util.List<Vector<Object>> delAdd = new ArrayList<>(4);
+                for (int i = 0; i < 4; i++) {
+                    Vector<Object> atoms = new Vector<>();
+                    final int size = d.next();
+                    for (int j = 0; j < size; j++) {
+                        final Predicate p = new Predicate(d.next(), 0, d.term());
+                        atoms.add(i == 0 ? new NumberedPredicate(p) : p);
+                    }
+                    delAdd.add(atoms);
+                }
+                retVal.delAdd = delAdd.toArray(new Vector<?>[0]);
+                break;
+            }
+            case SearchTrace.PLAN_FOUND:
+                retVal.planFound = true;
+                break;
+        }
+
+        return retVal;
+    }
+
+    private Term[] binding(CompactPlan.Decoder d) {
+        Term[] retVal = new Term[d.next()];
+        for (int i = 0; i < retVal.length; i++) {
+            if (records[d.position()] == SearchTrace.UNBOUND)
+                d.next();
+            else
+                retVal[i] = d.term();
+        }
+        return retVal;
+    }
+
+    /**
+     * @return a copy of a task list whose task atoms have the IDs read next,
+     * depth first.
+     */
+    private TaskList withIds(TaskList tl, CompactPlan.Decoder d) {
+        if (tl.subtasks == null) {
+            final TaskAtom t = tl.getTask();
+            final Predicate p = new Predicate(t.getHead().head, 0, t.getHead().param, d.next());
+            return new TaskList(new TaskAtom(p, t.isImmediate(), t.isPrimitive()));
+        }
+
+        TaskList retVal = new TaskList(tl.subtasks.length, tl.isOrdered());
+        for (int i = 0; i < tl.subtasks.length; i++)
+            retVal.subtasks[i] = withIds(tl.subtasks[i], d);
+        return retVal;
+    }
+
+    private TaskAtom taskAtom(CompactPlan.Decoder d) {
+        final int id = d.next();
+        final int head = d.next();
+        final int flags = d.next();
+        final Predicate p = new Predicate(head, 0, d.term(), id);
+        return new TaskAtom(p, (flags & SearchTrace.IMMEDIATE) != 0, (flags & SearchTrace.PRIMITIVE) != 0);
+    }
+
+    private TaskList taskList(CompactPlan.Decoder d) {
+        final int size = d.next();
+        if (size == SearchTrace.TASK_ATOM)
+            return new TaskList(taskAtom(d));
+
+        final boolean ordered = d.next() != 0;
+        if (size == 0)
+            return TaskList.empty;
+
+        TaskList retVal = new TaskList(size, ordered);
+        for (int i = 0; i < size; i++)
+            retVal.subtasks[i] = taskList(d);
+        return retVal;
+    }
+}
@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
@@ -41,6 +42,17 @@ public class State implements Serializable {
      * and second by the axioms themselves.
      */
     private final Axiom[][] axioms;
+    /**
+     * The atoms whose heads are static, shared with the clones of this state
+     * and any other state made with them.
+     */
+    private final StaticFacts statics;
+    /**
+     * The argument the atoms of each head are indexed by, indexed by the
+     * head, see {@link Domain#getIndexedArgument(int)}. The heads beyond the
+     * end of the array are not indexed.
+     */
+    private final int[] indexes;
     /**
      * The protections in the current state of the world as an array of
      * <code>Vector</code>s. The array is indexed by the heads of protected
@@ -51,6 +63,23 @@ public class State implements Serializable {
      * If true, we will log additions and removals.
      */
     private boolean logChanges = false;
+    /**
+     * The sum of the hashes of the atoms and protections in the current state
+     * of the world, kept up to date as they are added and deleted once it has
+     * been asked for, see {@link #getFingerprint()}.
+     */
+    private long fingerprint;
+    /**
+     * Whether {@link #fingerprint} is kept up to date. States that are never
+     * fingerprinted, e.g., those of planners without a {@link NogoodCache},
+     * then do not pay for hashing every atom they add or delete.
+     */
+    private boolean fingerprinted;
+    /**
+     * The metrics to count the atoms of this state in, and the work done to
+     * match them, or <code>null</code>.
+     */
+    private transient PlannerMetrics metrics;
 
     /**
      * To initialize the state of the world.
@@ -62,7 +91,52 @@ public class State implements Serializable {
      *                 axiom can prove and second by the axioms themselves.
      */
     public State(Axiom[][] axiomsIn) {
+        this(axiomsIn, StaticFacts.NONE);
+    }
+
+    /**
+     * To initialize the state of the world with the atoms whose heads are
+     * static, which are not copied, nor ever changed. The other atoms of the
+     * initial state are then added to it.
+     *
+     * @param axiomsIn  the axioms in the domain description as a two-dimensional array.
+     *                  The array is indexed first by the head of the predicates each
+     *                  axiom can prove and second by the axioms themselves.
+     * @param staticsIn the atoms whose heads are static.
+     */
+    public State(Axiom[][] axiomsIn, StaticFacts staticsIn) {
+        this(axiomsIn, staticsIn, new int[0]);
+    }
+
+    /**
+     * To initialize the state of the world of a domain, with the axioms of
+     * the domain, whose atoms are indexed as its <code>:index</code> pragmas
+     * declare.
+     *
+     * @param domain the domain.
+     */
+    public State(Domain domain) {
+        this(domain, StaticFacts.NONE);
+    }
+
+    /**
+     * To initialize the state of the world of a domain with the atoms whose
+     * heads are static, see {@link #State(Axiom[][], StaticFacts)} and
+     * {@link #State(Domain)}.
+     *
+     * @param domain    the domain.
+     * @param staticsIn the atoms whose heads are static, usually made by
+     *                  {@link StaticFacts#StaticFacts(Domain, Iterable)} so that
+     *                  they are indexed too.
+     */
+    public State(Domain domain, StaticFacts staticsIn) {
+        this(domain.getAxioms(), staticsIn, domain.indexes);
+    }
+
+    private State(Axiom[][] axiomsIn, StaticFacts staticsIn, int[] indexesIn) {
         axioms = axiomsIn;
+        statics = staticsIn;
+        indexes = indexesIn;
     }
 
     /**
@@ -93,19 +167,71 @@ public class State implements Serializable {
 
     @Override
     public Object clone() {
-        State copy = new State(axioms);
+        State copy = new State(axioms, statics, indexes);
 
         for (Entry<Integer, SetAndList<Term>> e : atoms.entrySet()) {
             copy.atoms.put(e.getKey(), new SetAndList<>(e.getValue()));
         }
 
         for (Entry<Integer, Vector<NumberedPredicate>> e : protections.entrySet()) {
-            copy.protections.put(e.getKey(), new Vector<>(e.getValue()));
+            //-- The counters are changed in place, so they must not be shared.
+            Vector<NumberedPredicate> tails = new Vector<>();
+            for (NumberedPredicate np : e.getValue())
+                tails.add(new NumberedPredicate(np.getPredicate(), np.getNumber()));
+            copy.protections.put(e.getKey(), tails);
         }
 
         return copy;
     }
 
+    /**
+     * @return the metrics this state is counted in, or <code>null</code>.
+     */
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * To count the atoms of this state, by their head, and the atoms scanned
+     * and axioms used to match them, in the given metrics. The atoms stay
+     * counted until the state is attached to other metrics, or to none, or
+     * cleared. Clones of this state are not attached to any metrics. The
+     * static facts count in the metrics of every state they are part of.
+     *
+     * @param metricsIn the metrics, or <code>null</code> to stop counting.
+     */
+    public void setMetrics(PlannerMetrics metricsIn) {
+        for (Entry<Integer, SetAndList<Term>> e : atoms.entrySet())
+            e.getValue().count(metricsIn != null ? metricsIn.atoms(e.getKey()) : null);
+        if (metrics != null)
+            statics.count(metrics, -1);
+        if (metricsIn != null)
+            statics.count(metricsIn, 1);
+        metrics = metricsIn;
+    }
+
+    /**
+     * @return the atoms whose heads are static, shared with the clones of
+     * this state.
+     */
+    public StaticFacts getStaticFacts() {
+        return statics;
+    }
+
+    /**
+     * @return the atoms with the given head, created if there are none yet.
+     */
+    private SetAndList<Term> tails(int head) {
+        SetAndList<Term> tails = atoms.get(head);
+        if (tails == null) {
+            tails = new SetAndList<>(head < indexes.length ? indexes[head] : -1);
+            if (metrics != null)
+                tails.count(metrics.atoms(head));
+            atoms.put(head, tails);
+        }
+        return tails;
+    }
+
     public boolean isLoggingEnabled() {
         return logChanges;
     }
@@ -148,6 +274,9 @@ public class State implements Serializable {
      * @return Argument lists of all predicates with the given head.
      */
     private Collection<Term> getArguments(int head) {
+        if (statics.isStatic(head))
+            return statics.getArguments(head);
+
         final SetAndList<Term> tails = atoms.get(head);
         if (tails != null) {
             return Collections.unmodifiableCollection(tails.getList());
@@ -170,20 +299,28 @@ public class State implements Serializable {
      * @return <code>true</code> if the predicate was added (i.e., it was not
      * already in the current state of the world), <code>false</code>
      * otherwise.
+     * @throws IllegalArgumentException if the head of the predicate is static
+     *                                  but it is not one of the static facts.
      */
     public boolean add(Predicate p) {
-        //-- Find the right Vector to add this predicate to.
-        SetAndList<Term> tails = atoms.get(p.head);
-        if (tails == null) {
-            tails = new SetAndList<>();
-            atoms.put(p.head, tails);
+        if (statics.isStatic(p.head)) {
+            if (statics.contains(p))
+                return false;
+            throw new IllegalArgumentException(String.format("Atom %s has a static head, but is not a static fact.", p));
         }
 
+        //-- Find the right Vector to add this predicate to.
+        SetAndList<Term> tails = tails(p.head);
+
         //-- First look for the predicate in the Vector. If it is already there,
         //-- do nothing and return false.
         //-- Otherwise: Add the predicate and return true.
         final boolean result = tails.add(p.param);
 
+        if (result && fingerprinted) {
+            fingerprint += Fingerprint.of(p);
+        }
+
         if (logChanges && result && removedAtoms.remove(p) == null) {
             addedAtoms.put(p, getCallLocation(State.class));
         }
@@ -201,11 +338,15 @@ public class State implements Serializable {
         // -- First, find the appropriate Vector to add the protection to.
         Vector<NumberedPredicate> tails = protections.computeIfAbsent(p.head, k -> new Vector<>());
 
+        if (fingerprinted)
+            fingerprint += protectionHash(p);
+
       // -- If the predicate is already protected, just increase the protection
         // -- counter.
         for (NumberedPredicate np : tails) {
             if (p.equals(np.getParam())) {
                 np.inc();
+                return;
             }
         }
 
@@ -215,11 +356,22 @@ public class State implements Serializable {
     }
 
     /**
-     * To empty the world state.
+     * @return the hash of a protection, distinct from the hash of the atom it
+     * protects.
+     */
+    private static long protectionHash(Predicate p) {
+        return Fingerprint.mix(~Fingerprint.of(p));
+    }
+
+    /**
+     * To empty the world state, but for the static facts.
      */
     public void clear() {
+        for (SetAndList<Term> tails : atoms.values())
+            tails.count(null);
         atoms.clear();
         protections.clear();
+        fingerprint = statics.getFingerprint();
     }
 
     /**
@@ -231,9 +383,11 @@ public class State implements Serializable {
      * existed in the current state of the world), -1 otherwise. This
      * index is used in case of a backtrack to undo this deletion by
      * inserting the deleted predicate right back where it used to be.
+     * @throws IllegalArgumentException if the predicate is a static fact.
      */
     public int del(Predicate p) {
-        Term t;
+        if (statics.contains(p))
+            throw new IllegalArgumentException(String.format("Atom %s is a static fact, which cannot be deleted.", p));
 
         //-- Find the right Vector to delete this predicate from.
         SetAndList<Term> vec = atoms.get(p.head);
@@ -245,6 +399,10 @@ public class State implements Serializable {
         //-- Otherwise: There was nothing to delete, so return -1.
         final int result = vec.remove(p.param);
 
+        if (result != -1 && fingerprinted) {
+            fingerprint -= Fingerprint.of(p);
+        }
+
         if (logChanges && result != -1 && addedAtoms.remove(p) == null) {
             removedAtoms.put(p, getCallLocation(State.class));
         }
@@ -277,6 +435,9 @@ public class State implements Serializable {
 
             //-- If it is found,
             if (p.equals(np.getParam())) {
+                if (fingerprinted)
+                    fingerprint -= protectionHash(p);
+
                 //-- Decrease the protection counter for this predicate.
                 if (!np.dec())
                     //-- If the counter drops to zero, remove the protection completely.
@@ -313,6 +474,33 @@ public class State implements Serializable {
         return false;
     }
 
+    /**
+     * To get a fingerprint of the current state of the world, i.e., a hash of
+     * its atoms and protections. Equal states have equal fingerprints, no
+     * matter in what order their atoms were added.
+     * <p>
+     * The first call takes time linear in the size of the state. From then
+     * on, the fingerprint is kept up to date as the state changes, so that
+     * it takes constant time. Copies of the state start over.
+     *
+     * @return the fingerprint.
+     */
+    public long getFingerprint() {
+        if (!fingerprinted) {
+            long hash = statics.getFingerprint();
+            for (Entry<Integer, SetAndList<Term>> e : atoms.entrySet())
+                for (Term param : e.getValue())
+                    hash += Fingerprint.of(e.getKey(), param);
+            for (Vector<NumberedPredicate> tails : protections.values())
+                for (NumberedPredicate np : tails)
+                    hash += np.getNumber() * protectionHash(np.getPredicate());
+
+            fingerprint = hash;
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
     /**
      * To initialize and return the appropriate iterator when looking
      * for ways to satisfy a given predicate.
@@ -323,13 +511,21 @@ public class State implements Serializable {
      * predicate.
      */
     public MyIterator iterator(Predicate p) {
-        final int head = p.head;
-        SetAndList<Term> tails = atoms.get(head);
-        if (tails == null) {
-            tails = new SetAndList<>();
-            atoms.put(head, tails);
-        }
-        return new MyIterator(p, tails.getVector());
+        return new MyIterator(p);
+    }
+
+    /**
+     * @param p the predicate to be satisfied, with the bindings found so far
+     *          applied to it.
+     * @return the arguments of the atoms that can satisfy the predicate: if
+     * the atoms of its head are indexed, and the indexed argument of the
+     * predicate is ground, only those with the same argument, otherwise all
+     * those with its head.
+     */
+    private List<Term> candidates(Predicate p) {
+        if (statics.isStatic(p.head))
+            return statics.getArguments(p);
+        return tails(p.head).getVector(p.param);
     }
 
     /**
@@ -347,6 +543,15 @@ public class State implements Serializable {
             }
             buf.append("\n");
         }
+        final BitSet heads = statics.getHeads();
+        for (int head = heads.nextSetBit(0); head >= 0; head = heads.nextSetBit(head + 1)) {
+            if (statics.getArguments(head).isEmpty())
+                continue;
+            for (Term t : statics.getArguments(head)) {
+                buf.append(new Predicate(head, 0, t).toString(domain, Predicate.Namespace.LOGICAL_PREDICATE)).append("\n");
+            }
+            buf.append("\n");
+        }
         buf.append("------\n");
 
         return buf.toString();
@@ -365,6 +570,12 @@ public class State implements Serializable {
                 retval.add((new Predicate(e.getKey(), 0, t).toString(domain, Namespace.LOGICAL_PREDICATE)));
             }
         }
+        final BitSet heads = statics.getHeads();
+        for (int head = heads.nextSetBit(0); head >= 0; head = heads.nextSetBit(head + 1)) {
+            for (Term t : statics.getArguments(head)) {
+                retval.add((new Predicate(head, 0, t).toString(domain, Namespace.LOGICAL_PREDICATE)));
+            }
+        }
         return retval;
     }
 
@@ -399,6 +610,8 @@ public class State implements Serializable {
             // Currently, no vectors are deleted. so this is guaranteed
             // not to cause a NullPointerException.
             atoms.get(np.getHead()).add(np.getNumber(), np.getParam());
+            if (fingerprinted)
+                fingerprint += Fingerprint.of(np.getPredicate());
 
             if (logChanges && removedAtoms.remove(np.getPredicate()) == null) {
                 addedAtoms.put(np.getPredicate(), getCallLocation(State.class));
@@ -430,9 +643,14 @@ public class State implements Serializable {
     public class MyIterator {
         /**
          * The <code>Vector</code> in the current state of the world that represents
-         * the atoms for which we are trying to find satisfiers.
+         * the atoms for which we are trying to find satisfiers, or
+         * <code>null</code> until the predicate to be satisfied is first given,
+         * with the bindings found by then applied to it. The atoms are those in
+         * the state at that time: the state copies the list before it changes
+         * it, so that this iterator does not skip or repeat any atom when, e.g.,
+         * a <code>forall</code> effect deletes the atoms it is iterating over.
          */
-        private final Vector<Term> vec;
+        private List<Term> vec;
         /**
          * The predicate we are matching.
          */
@@ -478,10 +696,9 @@ public class State implements Serializable {
         /**
          * To initialize this iterator.
          *
-         * @param vecIn The <code>Vector</code> in the current state of the world that
-         *              represents the atoms for which we are trying to find satisfiers.
+         * @param pIn the predicate we are matching.
          */
-        private MyIterator(Predicate pIn, Vector<Term> vecIn) {
+        private MyIterator(Predicate pIn) {
             //-- Initially, no axiom is being considered.
             ax = null;
 
@@ -491,7 +708,7 @@ public class State implements Serializable {
             //-- Initially, no axiom precondition is being considered.
             pre = null;
 
-            vec = vecIn;
+            vec = null;
 
             //-- Initially, no axiom is being considered.
             whichAxiom = -1;
@@ -538,19 +755,25 @@ public class State implements Serializable {
             //-- we have not started looking into the axioms),
             if (whichAxiom == -1) {
                 //-- Iterate over the appropriate Vector to find atoms that can satisfy
-                //-- the given predicate.
-                // FIXME Speed up by creating map from first argument to predicate and
-                // getting the right predicate(s) in constant time whenever the first
-                // argument in p is ground.
+                //-- the given predicate, which is chosen by the predicate as it is
+                //-- the first time.
+                if (vec == null)
+                    vec = candidates(p);
+                final int start = index;
                 while (index < vec.size()) {
                     t = vec.get(index++);
                     retVal = p.findUnifier(t);
 
                     //-- If this atom can satisfy the given predicate, return the binding
                     //-- that unifies the two.
-                    if (retVal != null)
+                    if (retVal != null) {
+                        if (metrics != null)
+                            metrics.atomsScanned.add(index - start);
                         return retVal;
+                    }
                 }
+                if (metrics != null)
+                    metrics.atomsScanned.add(index - start);
 
                 //-- We have already looked at all the atoms that could possibly satisfy
                 //-- the predicate. From now on, we will look at the axioms only.
@@ -576,6 +799,9 @@ public class State implements Serializable {
                         //-- Try to look for the next axiom.
                         ax = null;
                     else {
+                        if (metrics != null)
+                            metrics.axiomInvocations.increment();
+
                         //-- Start with the first branch of this axiom.
                         index = 0;
                         //-- No branch has been satisfied yet, so set this variable to false.
@@ -634,25 +860,118 @@ public class State implements Serializable {
         }
     }
 
+    /**
+     * A set of elements in the order they were added, optionally indexed by
+     * one of their arguments.
+     * <p>
+     * The lists it hands out to be read are copied before they are next
+     * changed, so that whoever reads one, e.g., a {@link MyIterator}, sees the
+     * elements as they were when it was handed out, however the set changes
+     * in the meantime. A list that is changed without having been handed out
+     * since it was last copied is changed in place.
+     */
     static class SetAndList<T> implements Iterable<T> {
         private final HashMap<T, Integer> map;
-        private final Vector<T> list;
+        private Lendable<T> list;
+        /**
+         * The position of the argument the elements are indexed by, or -1 if
+         * they are not indexed.
+         */
+        private final int key;
+        /**
+         * The elements with each ground argument at that position, each in the
+         * order of the list, or <code>null</code> if they are not indexed.
+         */
+        private final HashMap<Term, Lendable<T>> byKey;
+        /**
+         * The counter of the elements of all the lists it is attached to, or
+         * <code>null</code>.
+         */
+        private LongAdder counter;
 
         SetAndList() {
+            this(-1);
+        }
+
+        /**
+         * @param keyIn the position of the argument the elements are indexed
+         *              by, or -1 if they are not to be indexed.
+         */
+        SetAndList(int keyIn) {
             this.map = new HashMap<>();
-            this.list = new Vector<>();
+            this.list = new Lendable<>();
+            this.key = keyIn;
+            this.byKey = keyIn >= 0 ? new HashMap<>() : null;
         }
 
         @SuppressWarnings("unchecked")
         SetAndList(SetAndList<T> other) {
             this.map = (HashMap<T, Integer>) other.map.clone();
-            this.list = (Vector<T>) other.list.clone();
+            this.list = new Lendable<>(other.list);
+            this.key = other.key;
+            if (other.byKey != null) {
+                this.byKey = new HashMap<>();
+                for (Entry<Term, Lendable<T>> e : other.byKey.entrySet())
+                    if (!e.getValue().isEmpty())
+                        this.byKey.put(e.getKey(), new Lendable<>(e.getValue()));
+            } else {
+                this.byKey = null;
+            }
+        }
+
+        /**
+         * @return the indexed argument of an element, or <code>null</code> if
+         * it is not indexed, or the argument is not ground.
+         */
+        private Term keyOf(Object e) {
+            return byKey != null ? TermList.groundElement((Term) e, key) : null;
+        }
+
+        /**
+         * @return the list of all the elements, to be changed, copied first if
+         * it has been handed out.
+         */
+        private Lendable<T> own() {
+            if (list.lent)
+                list = new Lendable<>(list);
+            return list;
+        }
+
+        /**
+         * @return the list of the elements with the given indexed argument,
+         * to be changed, created if there is none, and copied first if it has
+         * been handed out.
+         */
+        private Lendable<T> own(Term k) {
+            Lendable<T> retVal = byKey.get(k);
+            if (retVal == null || retVal.lent) {
+                retVal = retVal == null ? new Lendable<>() : new Lendable<>(retVal);
+                byKey.put(k, retVal);
+            }
+            return retVal;
+        }
+
+        /**
+         * To count the elements of this list in the given counter from now on,
+         * instead of the one they were counted in so far.
+         */
+        void count(LongAdder counterIn) {
+            if (counter != null)
+                counter.add(-list.size());
+            counter = counterIn;
+            if (counter != null)
+                counter.add(list.size());
         }
 
         boolean add(T e) {
             if (!map.containsKey(e)) {
                 map.put(e, list.size());
-                list.add(e);
+                own().add(e);
+                final Term k = keyOf(e);
+                if (k != null)
+                    own(k).add(e);
+                if (counter != null)
+                    counter.increment();
                 return true;
             }
             return false;
@@ -665,30 +984,56 @@ public class State implements Serializable {
                 // by using a linked list with dancing links rather than a vector.
                 //final int i = index.intValue();
                 final int i = list.indexOf(o);
-                list.remove(i);
+                own().remove(i);
+                final Term k = keyOf(o);
+                if (k != null)
+                    own(k).remove(o);
+                if (counter != null)
+                    counter.decrement();
                 return i;
             }
             return -1;
         }
 
+        /**
+         * @return all the elements, as they are now, not to be changed.
+         */
         List<T> getList() {
-            return list;
+            return getVector();
         }
 
+        /**
+         * @return all the elements, as they are now, not to be changed.
+         */
         Vector<T> getVector() {
-            if (list != null) {
-                return list;
-            }
-            return new Vector<>(list);
+            list.lent = true;
+            return list;
         }
 
         /**
-         * Iterator that keeps set updated on removal.
+         * @param pattern the arguments of a predicate to be satisfied.
+         * @return the elements with the same indexed argument as the pattern,
+         * if the elements are indexed and that argument of the pattern is
+         * ground, otherwise all the elements. Either way, as they are now, not
+         * to be changed.
+         */
+        Vector<T> getVector(Term pattern) {
+            final Term k = keyOf(pattern);
+            if (k == null)
+                return getVector();
+            final Lendable<T> retVal = byKey.computeIfAbsent(k, x -> new Lendable<>());
+            retVal.lent = true;
+            return retVal;
+        }
+
+        /**
+         * Iterator over the elements as they are now, which keeps the set
+         * updated on removal.
          */
         public Iterator<T> iterator() {
             return new Iterator<>() {
 
-              private final Iterator<T> listIterator = list.iterator();
+              private final Iterator<T> listIterator = getVector().iterator();
               private T lastReturned;
 
               public boolean hasNext() {
@@ -701,8 +1046,7 @@ public class State implements Serializable {
               }
 
               public void remove() {
-                map.remove(lastReturned);
-                listIterator.remove();
+                SetAndList.this.remove(lastReturned);
               }
             };
         }
@@ -710,11 +1054,45 @@ public class State implements Serializable {
         void add(int i, T e) {
             if (!map.containsKey(e)) {
                 map.put(e, i);
-                list.add(i, e);
+                own().add(i, e);
+                final Term k = keyOf(e);
+                if (k != null) {
+                    //-- Keep the elements with the same argument in the order of
+                    //-- the list, by counting those before the new one.
+                    final Lendable<T> same = own(k);
+                    int j = 0;
+                    for (int l = 0; l < i && j < same.size(); l++)
+                        if (list.get(l).equals(same.get(j)))
+                            j++;
+                    same.add(j, e);
+                }
+                if (counter != null)
+                    counter.increment();
                 return;
             }
 
             throw new IllegalArgumentException(String.format("Element %s is already in the list.", e));
         }
+
+        /**
+         * A list that remembers whether it has been handed out since it was
+         * made.
+         */
+        private static final class Lendable<T> extends Vector<T> {
+            private static final long serialVersionUID = -2834770183154315046L;
+
+            /**
+             * Whether the list has been handed out, and so must be copied
+             * rather than changed.
+             */
+            private boolean lent;
+
+            Lendable() {
+            }
+
+            Lendable(Collection<T> c) {
+                super(c);
+            }
+        }
     }
 }
@@ -0,0 +1,224 @@
+package com.gamalocus.jshop2rt;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The atoms of the initial state of the world whose heads are static, i.e.,
+ * that no operator deletes or adds, see {@link Domain#getStaticHeads()}. They
+ * stay the same throughout planning, so rather than being copied into every
+ * {@link State}, and with every clone of it, they are kept here once, indexed
+ * by their heads, and shared by all the states made with them, which may be
+ * used by any number of planners and threads at once.
+ * <p>
+ * The atoms of each head are kept in the order they were given in, which is
+ * the order the planner tries them in, just as if they were added to a state.
+ * The atoms of the heads a domain indexes, see
+ * {@link Domain#getIndexedArgument(int)}, are indexed here too.
+ */
+public final class StaticFacts implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * No static facts, for the states in which every head is fluent.
+     */
+    public static final StaticFacts NONE = new StaticFacts(new BitSet(), Collections.emptyList());
+
+    /**
+     * The static heads.
+     */
+    private final BitSet heads;
+
+    /**
+     * The arguments of the atoms, indexed by their heads, <code>null</code>
+     * for the heads that are not static.
+     */
+    private final java.util.List<Term>[] atoms;
+
+    /**
+     * The same arguments, to look them up.
+     */
+    private final Set<Term>[] sets;
+
+    /**
+     * The position of the argument the atoms of each head are indexed by,
+     * indexed by the head. The heads beyond the end of the array are not
+     * indexed.
+     */
+    private final int[] keys;
+
+    /**
+     * The same arguments by the indexed argument, <code>null</code> for the
+     * heads that are not indexed.
+     */
+    private final Map<Term, java.util.List<Term>>[] byKey;
+
+    /**
+     * The number of atoms.
+     */
+    private final int size;
+
+    /**
+     * The sum of the hashes of the atoms, see {@link State#getFingerprint()}.
+     */
+    private final long fingerprint;
+
+    /**
+     * To keep the atoms of an initial state of the world whose heads are
+     * static.
+     *
+     * @param headsIn the static heads, usually those of
+     *                {@link Domain#getStaticHeads()}.
+     * @param state   the atoms of the initial state, of which those whose
+     *                heads are not static are left out, to be added to the
+     *                {@link State} instead.
+     */
+    public StaticFacts(BitSet headsIn, Iterable<Predicate> state) {
+        this(headsIn, new int[0], state);
+    }
+
+    /**
+     * To keep the atoms of an initial state of the world whose heads are
+     * static in a domain, indexed as the domain declares.
+     *
+     * @param domain the domain, whose {@link Domain#getStaticHeads()} are
+     *               kept.
+     * @param state  the atoms of the initial state, of which those whose
+     *               heads are not static are left out, to be added to the
+     *               {@link State} instead.
+     */
+    public StaticFacts(Domain domain, Iterable<Predicate> state) {
+        this(domain.getStaticHeads(), domain.indexes, state);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private StaticFacts(BitSet headsIn, int[] keysIn, Iterable<Predicate> state) {
+        heads = (BitSet) headsIn.clone();
+        keys = keysIn;
+        atoms = new java.util.List[heads.length()];
+        sets = new Set[heads.length()];
+        byKey = new Map[heads.length()];
+
+        ArrayList<Term>[] lists = new ArrayList[heads.length()];
+        for (int i = heads.nextSetBit(0); i >= 0; i = heads.nextSetBit(i + 1)) {
+            lists[i] = new ArrayList<>();
+            sets[i] = new HashSet<>();
+        }
+
+        int count = 0;
+        long hash = 0;
+        for (Predicate p : state) {
+            if (!p.isVar() && isStatic(p.head) && sets[p.head].add(p.param)) {
+                lists[p.head].add(p.param);
+                count++;
+                hash += Fingerprint.of(p);
+            }
+        }
+
+        for (int i = heads.nextSetBit(0); i >= 0; i = heads.nextSetBit(i + 1)) {
+            atoms[i] = Collections.unmodifiableList(lists[i]);
+            sets[i] = Collections.unmodifiableSet(sets[i]);
+            if (i < keys.length && keys[i] >= 0)
+                byKey[i] = index(lists[i], keys[i]);
+        }
+        size = count;
+        fingerprint = hash;
+    }
+
+    /**
+     * @return the arguments of some atoms by their argument at a position,
+     * each in the order of the atoms, which cannot be modified.
+     */
+    private static Map<Term, java.util.List<Term>> index(java.util.List<Term> args, int key) {
+        Map<Term, java.util.List<Term>> retVal = new HashMap<>();
+        for (Term t : args) {
+            final Term k = TermList.groundElement(t, key);
+            if (k != null)
+                retVal.computeIfAbsent(k, x -> new ArrayList<>()).add(t);
+        }
+        retVal.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return retVal;
+    }
+
+    /**
+     * @param head the integer associated with a constant symbol.
+     * @return whether the atoms that start with the constant symbol are
+     * static, and so are all here.
+     */
+    public boolean isStatic(int head) {
+        return heads.get(head);
+    }
+
+    /**
+     * @return the static heads, which are not to be modified.
+     */
+    BitSet getHeads() {
+        return heads;
+    }
+
+    /**
+     * @param p an atom.
+     * @return whether the atom is one of the static facts.
+     */
+    public boolean contains(Predicate p) {
+        return !p.isVar() && isStatic(p.head) && sets[p.head].contains(p.param);
+    }
+
+    /**
+     * @return the number of atoms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the sum of the hashes of the atoms.
+     */
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param head a static head.
+     * @return the arguments of the atoms with the head, which cannot be
+     * modified.
+     */
+    java.util.List<Term> getArguments(int head) {
+        return atoms[head];
+    }
+
+    /**
+     * @param p a predicate to be satisfied, whose head is static.
+     * @return the arguments of the atoms that can satisfy the predicate: if
+     * the atoms of its head are indexed, and the indexed argument of the
+     * predicate is ground, only those with the same argument, otherwise all
+     * those with its head. They cannot be modified.
+     */
+    java.util.List<Term> getArguments(Predicate p) {
+        if (byKey[p.head] != null) {
+            final Term k = TermList.groundElement(p.param, keys[p.head]);
+            if (k != null)
+                return byKey[p.head].getOrDefault(k, Collections.emptyList());
+        }
+        return atoms[p.head];
+    }
+
+    /**
+     * To count the atoms, by their heads, in some metrics, or to stop counting
+     * them there.
+     *
+     * @param metrics the metrics.
+     * @param sign    1 to count the atoms, -1 to stop counting them.
+     */
+    void count(PlannerMetrics metrics, int sign) {
+        for (int i = heads.nextSetBit(0); i >= 0; i = heads.nextSetBit(i + 1))
+            if (!atoms[i].isEmpty())
+                metrics.atoms(i).add(sign * atoms[i].size());
+    }
+}
@@ -95,6 +95,29 @@ public class TaskAtom extends CompileTimeObject implements Serializable {
                 primitive + ")";
     }
 
+    /**
+     * To create this task atom at run time, without generating code for it.
+     *
+     * @param owner the domain this task atom is part of.
+     * @return the task atom at run time.
+     */
+    TaskAtom instantiate(InterpretedDomain owner) {
+        return new TaskAtom(head.instantiate(owner), immediate, primitive);
+    }
+
+    /**
+     * To emit the bytecode that creates this task atom at run time.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(TaskAtom.class);
+        head.toBytecode(e);
+        e.push(immediate);
+        e.push(primitive);
+        e.construct(TaskAtom.class, Predicate.class, boolean.class, boolean.class);
+    }
+
     /**
      * This function is used to produce a printable <code>String</code> showing
      * the value of this task atom.
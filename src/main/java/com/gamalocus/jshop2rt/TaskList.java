@@ -1,5 +1,7 @@
 package com.gamalocus.jshop2rt;
 
+import org.objectweb.asm.Opcodes;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -243,6 +245,65 @@ public class TaskList extends CompileTimeObject implements Serializable {
         return s.toString();
     }
 
+    /**
+     * To create this task list at run time, without generating code for it,
+     * i.e., what the code produced by <code>getInitCode</code> would create.
+     *
+     * @param owner the domain this task list is part of.
+     * @return the task list at run time.
+     */
+    TaskList instantiate(InterpretedDomain owner) {
+        //-- Empty task list.
+        if (isEmpty())
+            return empty;
+
+        //-- Atomic task list.
+        if (subtasks == null)
+            return new TaskList(task.instantiate(owner));
+
+        //-- Non-atomic task list.
+        TaskList retVal = new TaskList(subtasks.length, ordered);
+        for (int i = 0; i < subtasks.length; i++)
+            retVal.subtasks[i] = subtasks[i].instantiate(owner);
+
+        return retVal;
+    }
+
+    /**
+     * To emit the bytecode that creates this task list at run time, i.e., the
+     * bytecode of the code produced by <code>getInitCode</code>.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        //-- Empty task list.
+        if (isEmpty()) {
+            e.getStatic(TaskList.class, "empty", TaskList.class);
+            return;
+        }
+
+        //-- Atomic task list.
+        e.newObject(TaskList.class);
+        if (subtasks == null) {
+            task.toBytecode(e);
+            e.construct(TaskList.class, TaskAtom.class);
+            return;
+        }
+
+        //-- Non-atomic task list.
+        e.push(subtasks.length);
+        e.push(ordered);
+        e.construct(TaskList.class, int.class, boolean.class);
+        e.mv.visitInsn(Opcodes.DUP);
+        e.getField(TaskList.class, "subtasks", TaskList[].class);
+        for (int i = 0; i < subtasks.length; i++) {
+            e.element(i);
+            subtasks[i].toBytecode(e);
+            e.store();
+        }
+        e.mv.visitInsn(Opcodes.POP);
+    }
+
     /**
      * To return the task atom associated with this task list.
      *
@@ -308,6 +369,21 @@ public class TaskList extends CompileTimeObject implements Serializable {
             for (TaskList subtask : subtasks) subtask.setVarCount(varCountIn);
     }
 
+    /**
+     * To record the tasks in this task list, for {@link Reachability}.
+     *
+     * @param uses where the tasks are recorded.
+     */
+    void collectUses(Reachability.Uses uses) {
+        //-- If this is an atomic task list,
+        if (subtasks == null)
+            uses.task(task);
+            //-- If this is a non-atomic task list,
+        else
+            //-- Do it for each of the subtasks.
+            for (TaskList subtask : subtasks) subtask.collectUses(uses);
+    }
+
     /**
      * This function produces Java code to create this task list.
      */
@@ -16,6 +16,43 @@ import java.util.logging.Logger;
 public abstract class Term extends CompileTimeObject implements Serializable {
     private final static Logger logger = Logger.getLogger(Term.class.getName());
 
+    /**
+     * The kinds of terms, one for each class of terms of the planner, and
+     * {@link #OTHER} for any other class.
+     */
+    static final int CONSTANT = 0;
+    static final int VARIABLE = 1;
+    static final int NUMBER = 2;
+    static final int LIST = 3;
+    static final int CALL = 4;
+    static final int OTHER = 5;
+
+    /**
+     * The kind of this term. Unification, binding and comparison recurse
+     * through terms of every kind, so a virtual call there could go to any
+     * of the classes, which HotSpot does not inline. The static functions
+     * below switch on the kind instead, and the functions of the classes
+     * only call them.
+     */
+    final int kind;
+
+    /**
+     * To initialize a term of a class other than those of the planner, for
+     * which the static functions fall back on its own functions.
+     */
+    protected Term() {
+        this(OTHER);
+    }
+
+    /**
+     * To initialize a term of one of the classes of the planner.
+     *
+     * @param kindIn the kind of the term.
+     */
+    Term(int kindIn) {
+        kind = kindIn;
+    }
+
     /**
      * This function is used to merge two bindings. Bindings are represented as
      * an array of terms, each element showing what its corresponding variable
@@ -73,6 +110,194 @@ public abstract class Term extends CompileTimeObject implements Serializable {
         return retVal;
     }
 
+    /**
+     * To find a unifier that binds one term to another, i.e.,
+     * <code>t1.findUnifier(t2, binding)</code>.
+     *
+     * @param t1      the term being unified.
+     * @param t2      the term with which we are finding a unifier.
+     * @param binding the unifier to be returned.
+     * @return <code>false</code> if the two terms can not be unified,
+     * <code>true</code> otherwise.
+     */
+    static boolean unify(Term t1, Term t2, Term[] binding) {
+        //-- The tails of lists are unified in a loop rather than by recursion.
+        while (true) {
+            switch (t1.kind) {
+                case CONSTANT:
+                    return t2.kind == VARIABLE
+                            || (t2.kind == CONSTANT && ((TermConstant) t1).index == ((TermConstant) t2).index);
+
+                case NUMBER:
+                    return t2.kind == VARIABLE
+                            || (t2.kind == NUMBER && ((TermNumber) t1).number == ((TermNumber) t2).number);
+
+                case VARIABLE: {
+                    //-- If 't2' is a variable symbol, skip it.
+                    if (t2.kind == VARIABLE)
+                        return true;
+
+                    //-- If the variable has not already been mapped to something,
+                    //-- map it. Otherwise, check if it is unified with the same
+                    //-- thing again.
+                    final int index = ((TermVariable) t1).index;
+                    if (binding[index] == null) {
+                        binding[index] = t2;
+                        return true;
+                    }
+                    return equal(t2, binding[index]);
+                }
+
+                case LIST: {
+                    //-- If 't2' is a variable symbol, ignore it. If it is not a
+                    //-- list, it can not be unified with a list.
+                    if (t2.kind == VARIABLE)
+                        return true;
+                    if (t2.kind != LIST)
+                        return false;
+
+                    //-- NIL only unifies with NIL.
+                    final List l1 = ((TermList) t1).list;
+                    final List l2 = ((TermList) t2).list;
+                    if (l1 == null)
+                        return l2 == null;
+                    if (l2 == null || !unify(l1.head, l2.head, binding))
+                        return false;
+
+                    t1 = l1.tail;
+                    t2 = l2.tail;
+                    break;
+                }
+
+                case CALL:
+                    t1 = ((TermCall) t1).call();
+                    break;
+
+                default:
+                    return t1.findUnifier(t2, binding);
+            }
+        }
+    }
+
+    /**
+     * To apply a given binding to a term, i.e., <code>t.bind(binding)</code>.
+     *
+     * @param t       the term.
+     * @param binding an array of terms, indexed by the integers associated with
+     *                variable symbols.
+     * @return the result of binding.
+     */
+    static Term bind(Term t, Term[] binding) {
+        switch (t.kind) {
+            case CONSTANT:
+            case NUMBER:
+                return t;
+
+            case VARIABLE: {
+                final Term retVal = binding[((TermVariable) t).index];
+                return retVal != null ? retVal : t;
+            }
+
+            case LIST: {
+                final List l = ((TermList) t).list;
+                if (l == null)
+                    return TermList.NIL;
+                return new TermList(bind(l.head, binding), bind(l.tail, binding));
+            }
+
+            case CALL:
+                return ((TermCall) t).bindCall(binding);
+
+            default:
+                return t.bind(binding);
+        }
+    }
+
+    /**
+     * Whether or not an object is equivalent to a term, i.e.,
+     * <code>t.equals(o)</code>.
+     *
+     * @param t the term.
+     * @param o the object being compared to the term.
+     * @return <code>true</code> if the two are equal, <code>false</code>
+     * otherwise.
+     */
+    static boolean equal(Term t, Object o) {
+        //-- The tails of lists are compared in a loop rather than by recursion.
+        while (true) {
+            switch (t.kind) {
+                case CONSTANT:
+                    return o instanceof TermConstant && ((TermConstant) t).index == ((TermConstant) o).index;
+
+                case VARIABLE:
+                    return o == t;
+
+                case NUMBER:
+                    return o == t || (o != null && o.getClass() == t.getClass()
+                            && Double.doubleToLongBits(((TermNumber) t).number)
+                            == Double.doubleToLongBits(((TermNumber) o).number));
+
+                case LIST: {
+                    if (!(o instanceof TermList))
+                        return false;
+
+                    //-- NIL only equals NIL.
+                    final List l1 = ((TermList) t).list;
+                    final List l2 = ((TermList) o).list;
+                    if (l1 == null || l2 == null)
+                        return l1 == l2;
+                    if (!equal(l1.head, l2.head))
+                        return false;
+
+                    t = l1.tail;
+                    o = l2.tail;
+                    break;
+                }
+
+                case CALL:
+                    if (!(o instanceof Term))
+                        return false;
+                    t = ((TermCall) t).call();
+                    break;
+
+                default:
+                    return t.equals(o);
+            }
+        }
+    }
+
+    /**
+     * To compute the hash code of a term, i.e., <code>t.hashCode()</code>.
+     *
+     * @param t the term.
+     * @return the hash code.
+     */
+    static int hash(Term t) {
+        switch (t.kind) {
+            case CONSTANT:
+                return ((TermConstant) t).index;
+
+            case VARIABLE:
+                return System.identityHashCode(t);
+
+            case NUMBER: {
+                final long bits = Double.doubleToLongBits(((TermNumber) t).number);
+                return 31 + (int) (bits ^ (bits >>> 32));
+            }
+
+            case LIST: {
+                final List l = ((TermList) t).list;
+                return l != null ? l.hashCode() : 0;
+            }
+
+            case CALL:
+                return hash(((TermCall) t).call());
+
+            default:
+                return t.hashCode();
+        }
+    }
+
     /**
      * To apply a given binding to this term.
      *
@@ -109,6 +334,24 @@ public abstract class Term extends CompileTimeObject implements Serializable {
      */
     public abstract boolean isGround();
 
+    /**
+     * To create the term this term represents at run time, without generating
+     * code for it, i.e., what the code produced by <code>toCode</code> would
+     * create.
+     *
+     * @param owner the domain this term is part of.
+     * @return the term at run time.
+     */
+    abstract Term instantiate(InterpretedDomain owner);
+
+    /**
+     * To emit the bytecode that creates the term this term represents at run
+     * time, i.e., the bytecode of the code produced by <code>toCode</code>.
+     *
+     * @param e the method the bytecode is emitted to.
+     */
+    abstract void toBytecode(BytecodeEmitter e);
+
     /**
      * Is this a <code>NIL</code> term?
      *
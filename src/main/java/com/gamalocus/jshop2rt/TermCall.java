@@ -37,6 +37,7 @@ public class TermCall extends Term {
      * @param funcIn the name of the function to be applied.
      */
     public TermCall(List argsIn, String funcIn) {
+        super(CALL);
         args = argsIn;
         func = funcIn;
 
@@ -50,16 +51,39 @@ public class TermCall extends Term {
      * @param calculateIn the Java implementation of the function to be applied.
      * @param funcIn      the name of the function to be applied.
      */
-    private TermCall(List argsIn, Calculate calculateIn, String funcIn) {
+    TermCall(List argsIn, Calculate calculateIn, String funcIn) {
+        super(CALL);
         args = argsIn;
         calculate = calculateIn;
         func = funcIn;
     }
 
+    /**
+     * @return the list of arguments of the function call.
+     */
+    List getArgs() {
+        return args;
+    }
+
+    /**
+     * @return the name of the function that is called.
+     */
+    String getFunc() {
+        return func;
+    }
+
     /**
      * To apply a given binding to the list of arguments of the function call.
      */
     public Term bind(Term[] binding) {
+        return bind(this, binding);
+    }
+
+    /**
+     * To apply a given binding to the list of arguments of the function call,
+     * for {@link Term#bind(Term, Term[])}.
+     */
+    Term bindCall(Term[] binding) {
         List boundArgs = args.bindList(binding);
 
         //-- As soon as all the variables are bound, replace the call term with
@@ -77,12 +101,12 @@ public class TermCall extends Term {
      * term.
      */
     public boolean equals(Object t) {
-        return t instanceof Term && calculate.call(args).equals(t);
+        return equal(this, t);
     }
 
     @Override
     public int hashCode() {
-        return calculate.call(args).hashCode();
+        return hash(this);
     }
 
     /**
@@ -90,7 +114,16 @@ public class TermCall extends Term {
      * term.
      */
     public boolean findUnifier(Term t, Term[] binding) {
-        return calculate.call(args).findUnifier(t, binding);
+        return unify(this, t, binding);
+    }
+
+    /**
+     * To execute the code call.
+     *
+     * @return the result of the call.
+     */
+    Term call() {
+        return calculate.call(args);
     }
 
     /**
@@ -108,6 +141,26 @@ public class TermCall extends Term {
                 + "\"" + ")";
     }
 
+    /**
+     * To create this call term at run time, with the implementation of its
+     * function looked up in the domain.
+     */
+    Term instantiate(InterpretedDomain owner) {
+        return owner.newTermCall(args.instantiate(owner), func);
+    }
+
+    /**
+     * The implementation of the function is looked up in the domain, as it is
+     * not accessible to the generated classes.
+     */
+    void toBytecode(BytecodeEmitter e) {
+        e.owner();
+        e.checkCast(InterpretedDomain.class);
+        args.toBytecode(e);
+        e.push((Object) func);
+        e.invoke(InterpretedDomain.class, "newTermCall", TermCall.class, List.class, String.class);
+    }
+
     /**
      * This function is used to print this call term.
      */
@@ -17,7 +17,7 @@ public class TermConstant extends Term implements Serializable {
      * Constant symbols are mapped to integers at compile time, and these
      * integers are used thereafter to represent the constant symbols.
      */
-    private final int index;
+    final int index;
 
     /**
      * Name, for debugging and mapping purposes.
@@ -30,6 +30,7 @@ public class TermConstant extends Term implements Serializable {
      * @param indexIn the integer associated with this constant symbol.
      */
     public TermConstant(int indexIn, String nameIn) {
+        super(CONSTANT);
         index = indexIn;
         name = nameIn;
     }
@@ -46,12 +47,7 @@ public class TermConstant extends Term implements Serializable {
      * Whether or not another term is equivalent to this constant symbol.
      */
     public boolean equals(Object t) {
-        //-- 't' is not a constant symbol.
-        if (!(t instanceof TermConstant))
-            return false;
-
-        //-- Check if 't' is the same constant symbol.
-        return (index == ((TermConstant) t).index);
+        return equal(this, t);
     }
 
     @Override
@@ -65,7 +61,7 @@ public class TermConstant extends Term implements Serializable {
      * other given term is equal to this one.
      */
     public boolean findUnifier(Term t, Term[] binding) {
-        return ((t instanceof TermVariable) || equals(t));
+        return unify(this, t, binding);
     }
 
     /**
@@ -97,6 +93,20 @@ public class TermConstant extends Term implements Serializable {
         return "owner.getTermConstant(" + index + ") /*" + name + "*/";
     }
 
+    /**
+     * Constant symbols are shared at run time, so this function returns the
+     * one of the domain.
+     */
+    Term instantiate(InterpretedDomain owner) {
+        return owner.getTermConstant(index);
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        e.owner();
+        e.push(index);
+        e.invoke(Domain.class, "getTermConstant", TermConstant.class, int.class);
+    }
+
     /**
      * Constant symbols are mapped at compile time to integers, this function,
      * for printing purposes, maps them back to the strings they were before.
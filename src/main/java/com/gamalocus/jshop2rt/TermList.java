@@ -19,7 +19,7 @@ public class TermList extends Term implements Iterable<Term> {
     /**
      * The list this term is representing.
      */
-    private final List list;
+    final List list;
 
     /**
      * To initialize this list term.
@@ -27,6 +27,7 @@ public class TermList extends Term implements Iterable<Term> {
      * @param listIn the list this term represents.
      */
     public TermList(List listIn) {
+        super(LIST);
         list = listIn;
     }
 
@@ -37,6 +38,7 @@ public class TermList extends Term implements Iterable<Term> {
      * @param tailIn the tail of the list this term represents.
      */
     public TermList(Term headIn, Term tailIn) {
+        super(LIST);
         list = new List(headIn, tailIn);
     }
 
@@ -44,56 +46,26 @@ public class TermList extends Term implements Iterable<Term> {
      * To apply a given binding to the list this term represents.
      */
     public Term bind(Term[] binding) {
-        if (list != null)
-            return new TermList(list.bindList(binding));
-        else
-            return NIL;
+        return bind(this, binding);
     }
 
     /**
      * Whether or not another term is equivalent to this list term.
      */
     public boolean equals(Object t) {
-        //-- 't' is not a list.
-        if (!(t instanceof TermList))
-            return false;
-
-        //-- Both terms are representing NIL, so they are equal.
-        if (list == null && ((TermList) t).list == null)
-            return true;
-
-        //-- Only one of the terms represents NIL, so they are not equal.
-        if (list == null || ((TermList) t).list == null)
-            return false;
-
-        //-- Compare the lists.
-        return (list.equals(((TermList) t).list));
+        return equal(this, t);
     }
 
     @Override
     public int hashCode() {
-        return list != null ? list.hashCode() : 0;
+        return hash(this);
     }
 
     /**
      * Find a unifier between this list and another given term.
      */
     public boolean findUnifier(Term t, Term[] binding) {
-        //-- If 't' is a variable symbol, ignore it.
-        if (t instanceof TermVariable)
-            return true;
-
-        //-- If 't' is not a list, it can not be unified with this term.
-        if (!(t instanceof TermList))
-            return false;
-
-        //-- If this list represents NIL, the only way to unify 't' with it would
-        //-- be for 't' to represent NIL too.
-        if (list == null)
-            return (((TermList) t).list == null);
-
-        //-- Unify the lists.
-        return list.findUnifierList(((TermList) t).list, binding);
+        return unify(this, t, binding);
     }
 
     /**
@@ -120,6 +92,25 @@ public class TermList extends Term implements Iterable<Term> {
         return (list == null || list.isGroundList());
     }
 
+    /**
+     * To find an element of a list, such as an argument of an atom, to index
+     * the atom by.
+     *
+     * @param t     a term, usually the arguments of an atom.
+     * @param index the position of the element, counted from 0.
+     * @return the element at the position, if the term is a list that long
+     * and the element is ground, <code>null</code> otherwise.
+     */
+    static Term groundElement(Term t, int index) {
+        for (int i = 0; t instanceof TermList && ((TermList) t).list != null; i++) {
+            final List l = ((TermList) t).list;
+            if (i == index)
+                return l.head.isGround() ? l.head : null;
+            t = l.tail;
+        }
+        return null;
+    }
+
     /**
      * This function produces Java code to create this list term.
      */
@@ -131,6 +122,28 @@ public class TermList extends Term implements Iterable<Term> {
                 list.getTail().toCode(label) + ")";
     }
 
+    /**
+     * To create this list term at run time.
+     */
+    Term instantiate(InterpretedDomain owner) {
+        if (list == null)
+            return NIL;
+
+        return new TermList(list.getHead().instantiate(owner), list.getTail().instantiate(owner));
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        if (list == null) {
+            e.getStatic(TermList.class, "NIL", TermList.class);
+            return;
+        }
+
+        e.newObject(TermList.class);
+        list.getHead().toBytecode(e);
+        list.getTail().toBytecode(e);
+        e.construct(TermList.class, Term.class, Term.class);
+    }
+
     /**
      * This function converts this list term to a predicate.
      *
@@ -14,7 +14,7 @@ public class TermNumber extends Term {
     /**
      * The value of the numerical term.
      */
-    private final double number;
+    final double number;
 
     /**
      * To initialize this numerical term.
@@ -22,6 +22,7 @@ public class TermNumber extends Term {
      * @param numberIn the value this numerical term is set to have.
      */
     public TermNumber(double numberIn) {
+        super(NUMBER);
         number = numberIn;
     }
 
@@ -33,34 +34,14 @@ public class TermNumber extends Term {
         return this;
     }
 
-    /**
-     * Whether or not another term is equivalent to this numerical term.
-     */
-    private boolean equals(Term t) {
-        //-- 't' is not a numerical term.
-        if (!(t instanceof TermNumber))
-            return false;
-
-        //-- Check if 't' has the same numerical value.
-        return (number == ((TermNumber) t).number);
-    }
-
     @Override
     public int hashCode() {
-        long temp = Double.doubleToLongBits(number);
-        return 31 + (int) (temp ^ (temp >>> 32));
+        return hash(this);
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (this == obj)
-            return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
-            return false;
-        final TermNumber other = (TermNumber) obj;
-        return Double.doubleToLongBits(number) == Double.doubleToLongBits(other.number);
+        return equal(this, obj);
     }
 
     /**
@@ -69,7 +50,7 @@ public class TermNumber extends Term {
      * term is equal to this one.
      */
     public boolean findUnifier(Term t, Term[] binding) {
-        return ((t instanceof TermVariable) || equals(t));
+        return unify(this, t, binding);
     }
 
     /**
@@ -108,6 +89,19 @@ public class TermNumber extends Term {
         return "new TermNumber(" + number + ")";
     }
 
+    /**
+     * To create a copy of this numerical term.
+     */
+    Term instantiate(InterpretedDomain owner) {
+        return new TermNumber(number);
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        e.newObject(TermNumber.class);
+        e.push((Object) number);
+        e.construct(TermNumber.class, double.class);
+    }
+
     /**
      * This function returns the <code>String</code> representation of the value
      * of this numerical term.
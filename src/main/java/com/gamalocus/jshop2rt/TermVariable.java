@@ -15,7 +15,7 @@ public class TermVariable extends Term {
      * Variable symbols are mapped to integers at compile time, and these
      * integers are used thereafter to represent the variable symbols.
      */
-    private final int index;
+    final int index;
 
     /**
      * To initialize this variable symbol.
@@ -23,6 +23,7 @@ public class TermVariable extends Term {
      * @param indexIn the integer associated with this variable symbol.
      */
     public TermVariable(int indexIn) {
+        super(VARIABLE);
         index = indexIn;
     }
 
@@ -32,13 +33,7 @@ public class TermVariable extends Term {
      * input, and if so, returning the value this variable is mapped to.
      */
     public Term bind(Term[] binding) {
-        //-- If this variable is already mapped to something in the input:
-        if (binding[index] != null)
-            return binding[index];
-
-        //-- If this variable is not mapped to anything in the input, just return
-        //-- the variable symbol itself.
-        return this;
+        return bind(this, binding);
     }
 
     /**
@@ -62,19 +57,7 @@ public class TermVariable extends Term {
      * Find a unifier between this variable symbol and another given term.
      */
     public boolean findUnifier(Term t, Term[] binding) {
-        //-- If 't' is a variable symbol, skip it.
-        if (t instanceof TermVariable)
-            return true;
-
-        //-- If the variable has not already been mapped to something, map it:
-        if (binding[index] == null) {
-            binding[index] = t;
-            return true;
-        }
-
-        //-- If the variable has already been mapped to something, check if it is
-        //-- unified with the same thing again.
-        return t.equals(binding[index]);
+        return unify(this, t, binding);
     }
 
     /**
@@ -102,6 +85,20 @@ public class TermVariable extends Term {
         return "owner.getTermVariable(" + index + ")";
     }
 
+    /**
+     * Variable symbols are shared at run time, and only equal to themselves,
+     * so this function returns the one of the domain.
+     */
+    Term instantiate(InterpretedDomain owner) {
+        return owner.getTermVariable(index);
+    }
+
+    void toBytecode(BytecodeEmitter e) {
+        e.owner();
+        e.push(index);
+        e.invoke(Domain.class, "getTermVariable", TermVariable.class, int.class);
+    }
+
     /**
      * This function is used to print this variable symbol.
      */
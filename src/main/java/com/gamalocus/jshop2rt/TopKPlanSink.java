@@ -0,0 +1,71 @@
+package com.gamalocus.jshop2rt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * Plan sink that keeps the <code>k</code> cheapest plans found, as ordered by
+ * their {@link Cost}. The search is never stopped.
+ * <p>
+ * The plans are kept in a bounded heap with the most expensive kept plan on
+ * top, so a plan that is not cheaper than that one is rejected in constant
+ * time, without being copied.
+ */
+public class TopKPlanSink implements PlanSink {
+    /**
+     * The maximum number of plans to keep.
+     */
+    private final int k;
+
+    /**
+     * The plans kept so far, most expensive first.
+     */
+    private final PriorityQueue<Plan> heap;
+
+    /**
+     * To initialize this sink.
+     *
+     * @param kIn the maximum number of plans to keep.
+     */
+    public TopKPlanSink(int kIn) {
+        if (kIn < 1) {
+            throw new IllegalArgumentException(String.format("Number of plans to keep must be positive, was %d.", kIn));
+        }
+        k = kIn;
+        heap = new PriorityQueue<>(kIn, (a, b) -> b.getCost().compareTo(a.getCost()));
+    }
+
+    public boolean planFound(Plan plan) {
+        if (heap.size() < k) {
+            heap.add((Plan) plan.clone());
+        } else if (plan.getCost().compareTo(heap.peek().getCost()) < 0) {
+            heap.poll();
+            heap.add((Plan) plan.clone());
+        }
+        return true;
+    }
+
+    /**
+     * @return the plans kept so far, cheapest first.
+     */
+    public java.util.List<Plan> getPlans() {
+        ArrayList<Plan> sorted = new ArrayList<>(heap);
+        sorted.sort((a, b) -> a.getCost().compareTo(b.getCost()));
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return the cheapest plan found so far, or <code>null</code> if no plan
+     * has been found.
+     */
+    public Plan getBest() {
+        Plan best = null;
+        for (Plan p : heap) {
+            if (best == null || p.getCost().compareTo(best.getCost()) < 0) {
+                best = p;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,273 @@
+package com.gamalocus.jshop2rt.util;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import com.gamalocus.jshop2rt.Domain;
+import com.gamalocus.jshop2rt.Model;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.Java;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.SimpleCompiler;
+import org.codehaus.janino.UnitCompiler;
+import org.codehaus.janino.util.ClassFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Turns domain descriptions into runnable {@link Domain}s in this process:
+ * the description is parsed, the Java code for it generated, and that code
+ * compiled in memory with Janino, so that neither <code>javac</code> nor
+ * generated files on the class path are needed.
+ * <p>
+ * Given a cache directory, the class files of every domain compiled are kept
+ * there, together with the names of its symbols, in a directory named after
+ * the {@link Model#getSourceHash(String, String) hash} of its description.
+ * Loading the same description again, in this process or a later one, then
+ * skips both the parsing and the compiling, and only defines the classes.
+ * An entry that cannot be read is deleted and compiled anew.
+ * <p>
+ * Each loaded domain gets a class loader of its own, so loading a changed
+ * description replaces the domain without restarting.
+ * <p>
+ * The methods of the compiled classes that are too large for HotSpot to
+ * compile are logged as warnings, see {@link MethodSizeCheck}.
+ */
+public class DomainLoader {
+    private static final Logger logger = Logger.getLogger(DomainLoader.class.getName());
+
+    /**
+     * Part of the key of every cache entry. To be increased whenever the code
+     * generated for a domain, or what is written with its symbols, changes,
+     * so that older entries are not used.
+     */
+    private static final int CACHE_VERSION = 4;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    /**
+     * The file of a cache entry with the name of the domain and its symbols.
+     */
+    private static final String SYMBOLS_FILE = "symbols.txt";
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Where the compiled domains are kept, or <code>null</code> if they are
+     * not.
+     */
+    private final File cacheDir;
+    /**
+     * The package of the generated classes.
+     */
+    private final String outputPackage;
+    /**
+     * The class loader of the classes the generated code refers to, i.e., the
+     * planner itself, and any external code calls and comparators.
+     */
+    private final ClassLoader parent;
+
+    /**
+     * To initialize this loader.
+     *
+     * @param cacheDirIn      where the compiled domains are to be kept, or
+     *                        <code>null</code> to compile them every time.
+     * @param outputPackageIn the package of the generated classes.
+     * @param parentIn        the class loader of the classes the generated
+     *                        code refers to.
+     */
+    public DomainLoader(File cacheDirIn, String outputPackageIn, ClassLoader parentIn) {
+        cacheDir = cacheDirIn;
+        outputPackage = outputPackageIn;
+        parent = parentIn;
+    }
+
+    /**
+     * To initialize this loader, for domains that refer to no classes other
+     * than those of the planner and of the loader's class path.
+     *
+     * @param cacheDirIn      where the compiled domains are to be kept, or
+     *                        <code>null</code> to compile them every time.
+     * @param outputPackageIn the package of the generated classes.
+     */
+    public DomainLoader(File cacheDirIn, String outputPackageIn) {
+        this(cacheDirIn, outputPackageIn, DomainLoader.class.getClassLoader());
+    }
+
+    /**
+     * To load the domain described in a file.
+     *
+     * @param domainFile the file with the <code>defdomain</code>, in UTF-8.
+     * @return the domain.
+     * @see #load(String)
+     */
+    public Domain load(File domainFile) throws IOException, RecognitionException, TokenStreamException, CompileException {
+        return load(new String(Files.readAllBytes(domainFile.toPath()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * To load a domain, from the cache if it has been compiled before.
+     *
+     * @param source the <code>defdomain</code>.
+     * @return the domain.
+     * @throws IOException          if the cache directory cannot be created.
+     * @throws RecognitionException if the description cannot be parsed.
+     * @throws TokenStreamException if the description cannot be parsed.
+     * @throws CompileException     if the generated code does not compile,
+     *                              e.g. because it refers to external code
+     *                              that is not there.
+     */
+    public Domain load(String source) throws IOException, RecognitionException, TokenStreamException, CompileException {
+        final File entry = cacheDir == null ? null : new File(cacheDir, String.format("%016x",
+                Model.getSourceHash(String.format("%d\n%s\n%s", CACHE_VERSION, outputPackage, source), HASH_ALGORITHM)));
+
+        if (entry != null && entry.isDirectory()) {
+            try {
+                return readEntry(entry);
+            } catch (IOException | RuntimeException | LinkageError e) {
+                logger.log(Level.WARNING, String.format("Discarding unreadable domain cache entry %s.", entry), e);
+                delete(entry.toPath());
+            }
+        }
+
+        Model model = new Model(source, outputPackage).domain();
+        final Map<String, byte[]> classes = compile(model.getOutput());
+        MethodSizeCheck.report(model.getName(), classes);
+
+        if (entry != null) {
+            try {
+                writeEntry(entry, model, classes);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, String.format("Cannot write domain cache entry %s.", entry), e);
+            }
+        }
+
+        return instantiate(model, classes, false);
+    }
+
+    /**
+     * To compile generated code.
+     *
+     * @param code the code of one compilation unit.
+     * @return the bytes of the class files, by the binary names of the classes.
+     */
+    private Map<String, byte[]> compile(String code) throws IOException, CompileException {
+        final Java.AbstractCompilationUnit unit = new Parser(new Scanner(null, new StringReader(code)))
+                .parseAbstractCompilationUnit();
+        final ClassFile[] classFiles = new UnitCompiler(unit, new ClassLoaderIClassLoader(parent))
+                .compileUnit(true, true, true);
+
+        Map<String, byte[]> retVal = new HashMap<>();
+        for (ClassFile classFile : classFiles)
+            retVal.put(classFile.getThisClassName(), classFile.toByteArray());
+        return retVal;
+    }
+
+    /**
+     * To define the classes of a domain, and construct it.
+     *
+     * @param loadAll whether to load all the classes now, rather than as the
+     *                domain first needs them, so that a class file that
+     *                cannot be defined fails this call rather than planning.
+     */
+    private Domain instantiate(Model model, Map<String, byte[]> classes, boolean loadAll) {
+        final String className = outputPackage + "." + model.getName();
+
+        SimpleCompiler definer = new SimpleCompiler();
+        definer.setParentClassLoader(parent);
+        definer.cook(classes);
+        try {
+            final ClassLoader loader = definer.getClassLoader();
+            if (loadAll) {
+                for (String name : classes.keySet())
+                    loader.loadClass(name);
+            }
+            return (Domain) loader.loadClass(className).getConstructor(Model.class).newInstance(model);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(String.format("Cannot construct domain %s.", className), e);
+        }
+    }
+
+    /**
+     * To load a domain from its cache entry. The model it is constructed with
+     * has the names of its symbols, but has not parsed anything.
+     */
+    private Domain readEntry(File entry) throws IOException {
+        Model model = new Model("", outputPackage);
+        try (BufferedReader in = Files.newBufferedReader(new File(entry, SYMBOLS_FILE).toPath(), StandardCharsets.UTF_8)) {
+            final String name = in.readLine();
+            if (name == null) {
+                throw new IOException(String.format("Domain cache entry %s has no name.", entry));
+            }
+            model.setName(name);
+            model.readSymbols(in);
+        }
+
+        Map<String, byte[]> classes = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry.toPath(), "*" + CLASS_SUFFIX)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                classes.put(fileName.substring(0, fileName.length() - CLASS_SUFFIX.length()), Files.readAllBytes(file));
+            }
+        }
+
+        return instantiate(model, classes, true);
+    }
+
+    /**
+     * To write the cache entry of a domain. The entry is written under a
+     * temporary name and then renamed, so that no other loader ever sees it
+     * half written.
+     */
+    private void writeEntry(File entry, Model model, Map<String, byte[]> classes) throws IOException {
+        Files.createDirectories(cacheDir.toPath());
+        final Path tmp = Files.createTempDirectory(cacheDir.toPath(), entry.getName() + "-");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp.resolve(SYMBOLS_FILE), StandardCharsets.UTF_8)) {
+                out.write(model.getName());
+                out.newLine();
+                model.dumpSymbols(out);
+            }
+            for (Map.Entry<String, byte[]> c : classes.entrySet())
+                Files.write(tmp.resolve(c.getKey() + CLASS_SUFFIX), c.getValue());
+
+            try {
+                Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                //-- Another loader wrote the same entry first, which is fine.
+            }
+        } finally {
+            delete(tmp);
+        }
+    }
+
+    /**
+     * To delete a file or a directory with everything in it, as far as
+     * possible.
+     */
+    private static void delete(Path path) {
+        if (!Files.exists(path))
+            return;
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Cannot delete %s.", path), e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.gamalocus.jshop2rt.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reports the methods of generated classes whose bytecode is too large for
+ * HotSpot to compile them. Methods larger than {@value #HUGE_METHOD_LIMIT}
+ * bytes (<code>-XX:HugeMethodLimit</code>) are only ever interpreted, and
+ * large methods are not inlined either, so a domain with such methods plans
+ * far slower than it could.
+ * <p>
+ * The code generated for a domain splits its large bodies into smaller
+ * methods, see {@link com.gamalocus.jshop2rt.Model#setChunkSize(int)}; this
+ * check tells whether that was enough. It is run on every domain compiled by
+ * {@link DomainLoader}, and can be run on the class files compiled from
+ * generated code by other means:
+ * <p>
+ * Usage: <code>MethodSizeCheck [-limit bytes] (class-file | directory)...</code>
+ */
+public final class MethodSizeCheck {
+    private static final Logger logger = Logger.getLogger(MethodSizeCheck.class.getName());
+
+    /**
+     * The default of <code>-XX:HugeMethodLimit</code>.
+     */
+    public static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String CLASS_SUFFIX = ".class";
+
+    private MethodSizeCheck() {
+    }
+
+    /**
+     * To find the methods of a class that are larger than a given size.
+     *
+     * @param classFile the class file.
+     * @param limit     the largest size allowed, in bytes of bytecode.
+     * @return a description of each method that is larger, with its size.
+     * @throws IOException if the class file cannot be read.
+     */
+    public static List<String> check(byte[] classFile, int limit) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a class file.");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        //-- The constant pool, of which only the UTF-8 entries, and the names
+        //-- of the classes, are kept.
+        final int poolSize = in.readUnsignedShort();
+        String[] utf8 = new String[poolSize];
+        int[] classes = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    //-- Longs and doubles take two entries.
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                case 7:
+                    classes[i] = in.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown constant pool tag %d.", tag));
+            }
+        }
+
+        in.readUnsignedShort();
+        final String className = utf8[classes[in.readUnsignedShort()]];
+        in.readUnsignedShort();
+        in.skipBytes(2 * in.readUnsignedShort());
+
+        //-- The fields, which are skipped.
+        final int fields = in.readUnsignedShort();
+        for (int i = 0; i < fields; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        //-- The methods, with the length of their code.
+        List<String> retVal = new ArrayList<>();
+        final int methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            in.readUnsignedShort();
+            final String name = utf8[in.readUnsignedShort()];
+            final String descriptor = utf8[in.readUnsignedShort()];
+            final int attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                final String attribute = utf8[in.readUnsignedShort()];
+                final int length = in.readInt();
+                if (!"Code".equals(attribute)) {
+                    in.skipBytes(length);
+                    continue;
+                }
+
+                in.skipBytes(4);
+                final int codeLength = in.readInt();
+                if (codeLength > limit)
+                    retVal.add(String.format("%s.%s%s: %d bytes", className.replace('/', '.'), name, descriptor, codeLength));
+                in.skipBytes(length - 8);
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * To find the methods of compiled classes that are larger than a given
+     * size.
+     *
+     * @param classes the class files, by the names of the classes.
+     * @param limit   the largest size allowed, in bytes of bytecode.
+     * @return a description of each method that is larger, with its size.
+     * @throws IOException if a class file cannot be read.
+     */
+    public static List<String> check(Map<String, byte[]> classes, int limit) throws IOException {
+        List<String> retVal = new ArrayList<>();
+        for (byte[] classFile : classes.values())
+            retVal.addAll(check(classFile, limit));
+        return retVal;
+    }
+
+    /**
+     * To skip the attributes of a field.
+     */
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        final int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            in.readUnsignedShort();
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /**
+     * To log a warning for each method of compiled classes that is too large
+     * to be compiled by HotSpot.
+     *
+     * @param domain  the name of the domain the classes are generated for.
+     * @param classes the class files, by the names of the classes.
+     */
+    public static void report(String domain, Map<String, byte[]> classes) {
+        try {
+            for (String method : check(classes, HUGE_METHOD_LIMIT))
+                logger.warning(String.format("Method of domain %s larger than %d bytes, which HotSpot does not compile: %s.",
+                        domain, HUGE_METHOD_LIMIT, method));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Cannot check the class files of domain %s.", domain), e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int limit = HUGE_METHOD_LIMIT;
+        int first = 0;
+        if (args.length >= 2 && args[0].equals("-limit")) {
+            limit = Integer.parseInt(args[1]);
+            first = 2;
+        }
+
+        int count = 0;
+        for (int i = first; i < args.length; i++) {
+            final List<Path> files;
+            try (Stream<Path> paths = Files.walk(new File(args[i]).toPath())) {
+                files = paths.filter(p -> p.toString().endsWith(CLASS_SUFFIX)).sorted().collect(Collectors.toList());
+            }
+
+            for (Path file : files) {
+                for (String method : check(Files.readAllBytes(file), limit)) {
+                    System.out.println(method);
+                    count++;
+                }
+            }
+        }
+
+        System.out.printf("%d methods larger than %d bytes.%n", count, limit);
+        if (count > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,170 @@
+package com.gamalocus.jshop2rt;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BackendTest {
+    /**
+     * The number of plans compared for each example.
+     */
+    private static final int MAX_PLANS = 50;
+
+    /**
+     * The examples that can be planned for without any external code, as the
+     * directory, the domain file and the problem file of each.
+     */
+    private static final String[][] EXAMPLES = {
+            {"basic", "basic", "problem"},
+            {"blocks", "blocks", "problem"},
+            {"blocks", "blocks", "smallproblem"},
+            {"forall", "forall", "problem"},
+            {"logistics", "logistics", "problem"},
+            {"madrts", "madrts", "problem"},
+            {"oldblocks", "oldblocks", "problem"},
+            {"propagation", "propagation", "problem"},
+    };
+
+    /**
+     * The interpreted domain finds the same plans, with the same costs, as
+     * the one compiled from the generated code.
+     */
+    @Test
+    public void interpreterFindsThePlans() throws Exception {
+        check(Backend.INTERPRETED);
+    }
+
+    /**
+     * The domain whose class files are emitted straight from the model finds
+     * the same plans, with the same costs, as the one compiled from the
+     * generated code.
+     */
+    @Test
+    public void bytecodeFindsThePlans() throws Exception {
+        check(Backend.BYTECODE);
+    }
+
+    /**
+     * The domains whose code is split into a helper method for every
+     * statement, and whose conjunctions are all generated as loops, find the
+     * same plans as the ones generated with the default chunk size.
+     */
+    @Test
+    public void chunkedCodeFindsThePlans() throws Exception {
+        check(Backend.SOURCE, 1);
+        check(Backend.BYTECODE, 1);
+    }
+
+    /**
+     * The domains restricted to what the tasks of the problem can reach find
+     * the same plans as the whole domain does, whichever way they are built.
+     */
+    @Test
+    public void slicesFindThePlans() throws Exception {
+        for (String[] example : EXAMPLES) {
+            final String domainSource = TestProblem.example(example[0], example[1]);
+            final String problemSource = TestProblem.example(example[0], example[2]);
+            final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource, Backend.SOURCE)
+                    .plans(MAX_PLANS);
+            for (Backend backend : Backend.values()) {
+                assertEquals(String.format("%s/%s sliced, with %s.", example[0], example[2], backend),
+                        expected, TestProblem.slice(domainSource, problemSource, backend).plans(MAX_PLANS));
+            }
+        }
+    }
+
+    /**
+     * The states whose atoms with static heads are kept in
+     * {@link StaticFacts} find the same plans as those that keep all the
+     * atoms, for the whole domains and for the restricted ones.
+     */
+    @Test
+    public void staticFactsFindThePlans() throws Exception {
+        for (String[] example : EXAMPLES) {
+            final String domainSource = TestProblem.example(example[0], example[1]);
+            final String problemSource = TestProblem.example(example[0], example[2]);
+            final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource, Backend.SOURCE)
+                    .plans(MAX_PLANS);
+            for (Backend backend : Backend.values()) {
+                assertEquals(String.format("%s/%s with static facts, with %s.", example[0], example[2], backend),
+                        expected, TestProblem.parse(domainSource, problemSource, backend).withStaticFacts()
+                                .plans(MAX_PLANS));
+            }
+            assertEquals(String.format("%s/%s sliced, with static facts.", example[0], example[2]),
+                    expected, TestProblem.slice(domainSource, problemSource, Backend.INTERPRETED).withStaticFacts()
+                            .plans(MAX_PLANS));
+        }
+    }
+
+    /**
+     * To check that a backend finds the same plans for every example as the
+     * domain compiled from the generated code does.
+     */
+    private static void check(Backend backend) throws Exception {
+        check(backend, Model.getChunkSize());
+    }
+
+    /**
+     * To check that a backend, with the generated methods split at a given
+     * size, finds the same plans for every example as the domain compiled
+     * from the code generated with the default size does.
+     */
+    private static void check(Backend backend, int chunkSize) throws Exception {
+        for (String[] example : EXAMPLES) {
+            final String domainSource = TestProblem.example(example[0], example[1]);
+            final String problemSource = TestProblem.example(example[0], example[2]);
+            final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource, Backend.SOURCE)
+                    .plans(MAX_PLANS);
+
+            final int defaultChunkSize = Model.getChunkSize();
+            final TestProblem problem;
+            Model.setChunkSize(chunkSize);
+            try {
+                problem = TestProblem.parse(domainSource, problemSource, backend);
+            } finally {
+                Model.setChunkSize(defaultChunkSize);
+            }
+            assertEquals(String.format("%s/%s with %s, chunk size %d.", example[0], example[2], backend, chunkSize),
+                    expected, problem.plans(MAX_PLANS));
+        }
+    }
+
+    /**
+     * The ways a parsed domain can be turned into one to plan with.
+     */
+    private enum Backend implements TestProblem.Builder {
+        /**
+         * The Java code produced for the domain, compiled in memory.
+         */
+        SOURCE {
+            @Override
+            public Domain build(Model model) throws Exception {
+                final SimpleCompiler compiler = new SimpleCompiler();
+                compiler.setParentClassLoader(BackendTest.class.getClassLoader());
+                compiler.cook(model.getOutput());
+                return (Domain) compiler.getClassLoader().loadClass("test.domains." + model.getName())
+                        .getConstructor(Model.class).newInstance(model);
+            }
+        },
+        /**
+         * The domain interpreted from the model, see {@link InterpretedDomain}.
+         */
+        INTERPRETED {
+            @Override
+            public Domain build(Model model) {
+                return new InterpretedDomain(model);
+            }
+        },
+        /**
+         * The class files emitted straight from the model, see
+         * {@link BytecodeCompiler}.
+         */
+        BYTECODE {
+            @Override
+            public Domain build(Model model) {
+                return BytecodeCompiler.compile(model);
+            }
+        }
+    }
+}
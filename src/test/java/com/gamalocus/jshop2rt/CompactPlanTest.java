@@ -0,0 +1,98 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactPlanTest {
+    /**
+     * The plans of a problem are the same after they are written to a plan
+     * log, read back and decoded.
+     */
+    @Test
+    public void planLogRoundTrip() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final java.util.List<Plan> plans = new ArrayList<>();
+        final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> plans.add((Plan) plan.clone()));
+        while (planner.run()) ;
+        assertTrue(plans.size() > 1);
+        plans.add(numbers(problem.domain));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PlanLogWriter writer = new PlanLogWriter(Channels.newChannel(bytes), 16)) {
+            for (Plan plan : plans)
+                writer.planFound(plan);
+            assertEquals(plans.size(), writer.getCount());
+        }
+
+        try (PlanLogReader reader = new PlanLogReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 16)) {
+            for (Plan plan : plans) {
+                final CompactPlan compact = reader.read();
+                assertEquals(CompactPlan.encode(plan), compact);
+                assertEquals(plan.size(), compact.size());
+
+                final Plan decoded = compact.decode(problem.domain, new DoubleCost(0));
+                assertEquals(plan.toString(problem.domain), decoded.toString(problem.domain));
+                assertEquals(0, plan.getCost().compareTo(decoded.getCost()));
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    /**
+     * A channel that has no bytes to give ends the log, rather than keeping
+     * the reader waiting.
+     */
+    @Test
+    public void emptyReadEndsTheLog() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PlanLogWriter(Channels.newChannel(bytes)).close();
+        final byte[] header = bytes.toByteArray();
+
+        final ReadableByteChannel channel = new ReadableByteChannel() {
+            private int pos;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                final int n = Math.min(dst.remaining(), header.length - pos);
+                dst.put(header, pos, n);
+                pos += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertNull(new PlanLogReader(channel).read());
+    }
+
+    /**
+     * @return a plan whose steps have numbers, nested and dotted lists as
+     * arguments.
+     */
+    private static Plan numbers(Domain domain) {
+        final Term a = domain.getTermConstant(0);
+        Plan retVal = new Plan(new DoubleCost(0));
+        retVal.addStep(new Predicate(0, 0, new TermList(new TermNumber(-3), new TermList(new TermNumber(2.5),
+                TermList.NIL))), new TermNumber(1));
+        retVal.addStep(new Predicate(0, 0, new TermList(new TermList(a, new TermNumber(-0.0)),
+                new TermList(TermList.NIL, TermList.NIL))), new TermNumber(0.25));
+        return retVal;
+    }
+}
@@ -0,0 +1,100 @@
+package com.gamalocus.jshop2rt;
+
+import com.gamalocus.jshop2rt.util.DomainLoader;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class DomainLoaderTest {
+    private static final int MAX_PLANS = 50;
+
+    /**
+     * A domain loaded from the cache, by a loader that did not compile it,
+     * finds the same plans as the interpreted one.
+     */
+    @Test
+    public void cachedDomainFindsThePlans() throws Exception {
+        final String domainSource = TestProblem.example("blocks", "blocks");
+        final String problemSource = TestProblem.example("blocks", "smallproblem");
+        final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource).plans(MAX_PLANS);
+        assertTrue(expected.size() > 1);
+
+        final Path cache = Files.createTempDirectory("domains");
+        try {
+            for (int i = 0; i < 2; i++) {
+                final DomainLoader loader = new DomainLoader(cache.toFile(), "test.domains");
+                assertEquals(String.format("Load %d.", i), expected,
+                        TestProblem.parse(domainSource, problemSource, model -> loader.load(domainSource)).plans(MAX_PLANS));
+                assertEquals(1, entries(cache).length);
+            }
+        } finally {
+            delete(cache);
+        }
+    }
+
+    /**
+     * A cache entry with a class file that cannot be defined is compiled and
+     * written anew, rather than failing the load, or the planning once the
+     * domain needs that class.
+     */
+    @Test
+    public void corruptEntryIsReplaced() throws Exception {
+        final String domainSource = TestProblem.example("blocks", "blocks");
+        final String problemSource = TestProblem.example("blocks", "smallproblem");
+        final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource).plans(MAX_PLANS);
+
+        final Path cache = Files.createTempDirectory("domains");
+        final Logger logger = Logger.getLogger(DomainLoader.class.getName());
+        final Level level = logger.getLevel();
+        try {
+            final DomainLoader loader = new DomainLoader(cache.toFile(), "test.domains");
+            loader.load(domainSource);
+            final File[] entries = entries(cache);
+            assertEquals(1, entries.length);
+            final File[] classes = entries[0].listFiles((dir, name) -> name.endsWith(".class"));
+            assertNotNull(classes);
+            assertTrue(classes.length > 0);
+            Files.write(classes[0].toPath(), new byte[]{0, 1, 2, 3});
+
+            //-- The entry is discarded with a warning.
+            logger.setLevel(Level.SEVERE);
+            assertEquals(expected,
+                    TestProblem.parse(domainSource, problemSource, model -> loader.load(domainSource)).plans(MAX_PLANS));
+            final byte[] bytes = Files.readAllBytes(classes[0].toPath());
+            assertTrue(bytes.length > 4);
+            assertEquals(0xcafebabe, ByteBuffer.wrap(bytes).getInt());
+        } finally {
+            logger.setLevel(level);
+            delete(cache);
+        }
+    }
+
+    /**
+     * @return the entries in a cache directory.
+     */
+    private static File[] entries(Path cache) {
+        final File[] retVal = cache.toFile().listFiles(File::isDirectory);
+        assertNotNull(retVal);
+        return retVal;
+    }
+
+    /**
+     * To delete a directory with everything in it.
+     */
+    private static void delete(Path path) throws java.io.IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
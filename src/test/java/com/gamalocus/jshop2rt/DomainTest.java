@@ -0,0 +1,146 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class DomainTest {
+    /**
+     * The number of threads that ask for the operators, methods and axioms at
+     * the same time.
+     */
+    private static final int THREADS = 8;
+    /**
+     * The number of domains they ask of.
+     */
+    private static final int ROUNDS = 20;
+
+    /**
+     * Threads that ask a new domain for its operators, methods and axioms all
+     * at once, each in an order of its own, get the same arrays, fully
+     * created, and the arrays of each head are created only once.
+     */
+    @Test
+    public void concurrentFirstUse() throws Exception {
+        final String domainSource = TestProblem.example("blocks", "blocks");
+        final String problemSource = TestProblem.example("blocks", "smallproblem");
+        final java.util.List<String> expected = TestProblem.parse(domainSource, problemSource).plans(Integer.MAX_VALUE);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                final CountingDomain[] domain = new CountingDomain[1];
+                final TestProblem problem = TestProblem.parse(domainSource, problemSource,
+                        model -> domain[0] = new CountingDomain(model));
+                final CountingDomain d = domain[0];
+
+                final CyclicBarrier start = new CyclicBarrier(THREADS);
+                final java.util.List<Future<Object[]>> seen = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    final long seed = round * THREADS + t;
+                    seen.add(executor.submit(() -> {
+                        //-- The operators of every primitive task, then the
+                        //-- methods of every compound task, then the axioms of
+                        //-- every constant symbol, each in a shuffled order.
+                        final int p = d.primitiveTasks.length;
+                        final int c = d.compoundTasks.length;
+                        final java.util.List<Integer> order = new ArrayList<>();
+                        for (int i = 0; i < p + c + d.constants.length; i++)
+                            order.add(i);
+                        Collections.shuffle(order, new java.util.Random(seed));
+
+                        final Object[] retVal = new Object[order.size()];
+                        start.await();
+                        for (int i : order) {
+                            if (i < p)
+                                retVal[i] = d.getOperators(i);
+                            else if (i < p + c)
+                                retVal[i] = d.getMethods(i - p);
+                            else
+                                retVal[i] = d.getAxioms(i - p - c);
+                        }
+                        return retVal;
+                    }));
+                }
+
+                final Object[] first = seen.get(0).get();
+                for (Future<Object[]> f : seen) {
+                    final Object[] arrays = f.get();
+                    for (int i = 0; i < arrays.length; i++) {
+                        assertNotNull(arrays[i]);
+                        assertSame(String.format("Round %d, head %d.", round, i), first[i], arrays[i]);
+                        for (Object element : (Object[]) arrays[i])
+                            assertNotNull(element);
+                    }
+                }
+                for (AtomicIntegerArray created : new AtomicIntegerArray[]{d.operators, d.methods, d.axioms}) {
+                    for (int i = 0; i < created.length(); i++)
+                        assertEquals(String.format("Round %d, head %d.", round, i), 1, created.get(i));
+                }
+                assertEquals(expected, problem.plans(Integer.MAX_VALUE));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * An interpreted domain that counts how often it creates the operators,
+     * methods and axioms of each head, and is slow to do so.
+     */
+    private static final class CountingDomain extends InterpretedDomain {
+        final AtomicIntegerArray operators;
+        final AtomicIntegerArray methods;
+        final AtomicIntegerArray axioms;
+
+        CountingDomain(Model model) {
+            super(model);
+            operators = new AtomicIntegerArray(primitiveTasks.length);
+            methods = new AtomicIntegerArray(compoundTasks.length);
+            axioms = new AtomicIntegerArray(constants.length);
+        }
+
+        @Override
+        protected Operator[] createOperators(int head) {
+            operators.incrementAndGet(head);
+            pause();
+            return super.createOperators(head);
+        }
+
+        @Override
+        protected Method[] createMethods(int head) {
+            methods.incrementAndGet(head);
+            pause();
+            return super.createMethods(head);
+        }
+
+        @Override
+        protected Axiom[] createAxioms(int head) {
+            axioms.incrementAndGet(head);
+            pause();
+            return super.createAxioms(head);
+        }
+
+        /**
+         * To take a while to create the elements of a head, so that other
+         * threads ask for them in the meantime.
+         */
+        private static void pause() {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
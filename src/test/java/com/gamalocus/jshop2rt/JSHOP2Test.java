@@ -0,0 +1,92 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JSHOP2Test {
+    /**
+     * The number of places the search is stopped at in each test.
+     */
+    private static final int STOPS = 200;
+
+    /**
+     * Stopping the search after any number of steps leaves the state of the
+     * world and the task list as they were before it started.
+     */
+    @Test
+    public void stopUndoesTheSearch() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final String before = problem.snapshot();
+
+        long steps = 0;
+        final int[] plans = {0};
+        JSHOP2 planner = planner(problem, plan -> ++plans[0] > 0);
+        while (planner.run())
+            steps++;
+        assertTrue(plans[0] > 0);
+        assertEquals(before, problem.snapshot());
+
+        for (long stop = 1; stop < steps; stop += Math.max(1, steps / STOPS)) {
+            planner = planner(problem, plan -> true);
+            for (long i = 0; i < stop; i++)
+                planner.run();
+            planner.stop();
+            assertEquals(String.format("Stopped after %d steps.", stop), before, problem.snapshot());
+        }
+    }
+
+    /**
+     * A sink that stops the search after any number of plans leaves the state
+     * of the world and the task list as they were before it started.
+     */
+    @Test
+    public void sinkStopUndoesTheSearch() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final String before = problem.snapshot();
+
+        final int[] plans = {0};
+        JSHOP2 planner = planner(problem, plan -> ++plans[0] > 0);
+        while (planner.run()) ;
+        assertTrue(plans[0] > 1);
+
+        for (int n = 1; n <= plans[0]; n++) {
+            final int wanted = n;
+            final int[] found = {0};
+            planner = planner(problem, plan -> ++found[0] < wanted);
+            while (planner.run()) ;
+            assertEquals(wanted, found[0]);
+            assertEquals(String.format("Stopped after %d plans.", n), before, problem.snapshot());
+        }
+    }
+
+    /**
+     * The preconditions of methods are only counted when asked for, and the
+     * ones without an id of their own are counted by their class.
+     */
+    @Test
+    public void preconditionStatsOnlyWhenAsked() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        JSHOP2 planner = planner(problem, plan -> true);
+        assertFalse(planner.isCollectingPreconditionStats());
+        while (planner.run()) ;
+        assertTrue(planner.getSummary().isEmpty());
+
+        planner = planner(problem, plan -> true);
+        planner.setCollectingPreconditionStats(true);
+        while (planner.run()) ;
+        final java.util.List<String> summary = planner.getSummary();
+        assertFalse(summary.isEmpty());
+        assertTrue(summary.toString(), summary.stream().anyMatch(line -> line.endsWith(" : PreconditionAtomic")));
+    }
+
+    /**
+     * @return a planner for a problem, which hands the plans it finds to a
+     * sink.
+     */
+    private static JSHOP2 planner(TestProblem problem, PlanSink sink) {
+        return new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain, problem.state, sink);
+    }
+}
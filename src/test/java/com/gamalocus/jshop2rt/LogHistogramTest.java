@@ -0,0 +1,84 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogHistogramTest {
+    /**
+     * The percentiles are within about 3 percent of, and never below, the
+     * exact ones, small values are counted exactly, and adding and copying
+     * keep the counts.
+     */
+    @Test
+    public void percentiles() {
+        final Random random = new Random(42);
+        final long[] values = new long[10000];
+        final LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+        for (double percentile : new double[]{0, 1, 25, 50, 90, 99, 99.9}) {
+            final long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            final long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(String.format("%f: %d < %d.", percentile, value, exact), value >= exact);
+            assertTrue(String.format("%f: %d > %d.", percentile, value, exact), value <= exact + exact / 32);
+        }
+
+        final LogHistogram small = new LogHistogram();
+        for (long v = -1; v < 32; v++)
+            small.record(v);
+        assertEquals(0, small.getMin());
+        assertEquals(0, small.getValueAtPercentile(0));
+        assertEquals(15, small.getP50());
+        assertEquals(31, small.getMax());
+
+        final LogHistogram sum = histogram.copy();
+        sum.add(small);
+        assertEquals(histogram.getCount() + small.getCount(), sum.getCount());
+        assertEquals(0, sum.getMin());
+        assertEquals(histogram.getMax(), sum.getMax());
+        assertEquals(values.length, histogram.getCount());
+
+        sum.clear();
+        assertEquals(0, sum.getCount());
+        assertEquals(0, sum.getMin());
+        assertEquals(0, sum.getP99());
+    }
+
+    /**
+     * A planner that records its slices counts one duration for each call to
+     * {@link JSHOP2#run()}, and none once it stops recording.
+     */
+    @Test
+    public void plannerRecordsItsSlices() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> true);
+        assertNull(planner.getSliceNanos());
+        planner.setRecordingSlices(true);
+
+        long slices = 1;
+        while (planner.run())
+            slices++;
+        final LogHistogram nanos = planner.getSliceNanos();
+        assertEquals(slices, nanos.getCount());
+        assertTrue(nanos.getMax() > 0);
+        assertTrue(nanos.getP50() <= nanos.getP999());
+
+        planner.setRecordingSlices(false);
+        assertNull(planner.getSliceNanos());
+    }
+}
@@ -0,0 +1,96 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NogoodCacheTest {
+    /**
+     * The examples to plan for, as the directory, the domain file and the
+     * problem file of each.
+     */
+    private static final String[][] EXAMPLES = {
+            {"basic", "basic", "problem"},
+            {"blocks", "blocks", "smallproblem"},
+            {"forall", "forall", "problem"},
+            {"oldblocks", "oldblocks", "problem"},
+            {"propagation", "propagation", "problem"},
+            {"madrts", "madrts", "problem"},
+    };
+
+    /**
+     * A domain in which the three tasks can be done in any order, but only
+     * the orders that do <code>!c</code> last have a plan. The orders that do
+     * it first or second reach the same failing task network from the same
+     * state more than once.
+     */
+    private static final String ORDER = String.join("\n",
+            "(defdomain order (",
+            "  (:operator (!a) () ((last c)) ((a)))",
+            "  (:operator (!b) () ((last c)) ((b)))",
+            "  (:operator (!c) () () ((c) (last c)))",
+            "  (:method (check) ((last c)) ())))");
+    private static final String ORDER_PROBLEM = "(defproblem problem order () (((:unordered (!a) (!b) (!c)) (check))))";
+
+    /**
+     * A planner with a cache finds the same plans, in the same order, as one
+     * without, i.e., the cache never prunes a task network that has a plan.
+     */
+    @Test
+    public void samePlansWithCache() throws Exception {
+        for (String[] example : EXAMPLES)
+            assertSamePlans(example[0], TestProblem.load(example[0], example[1], example[2]));
+    }
+
+    /**
+     * The same, where the cache is hit.
+     */
+    @Test
+    public void samePlansWithHits() throws Exception {
+        final NogoodCache cache = assertSamePlans("order", TestProblem.parse(ORDER, ORDER_PROBLEM));
+        assertTrue(cache.getHits() > 0);
+    }
+
+    /**
+     * To check that a problem has the same plans with a cache as without.
+     *
+     * @return the cache.
+     */
+    private static NogoodCache assertSamePlans(String name, TestProblem problem) {
+        final java.util.List<String> plans = plans(problem, null);
+        assertFalse(name, plans.isEmpty());
+        final NogoodCache retVal = new NogoodCache(1 << 12);
+        assertEquals(name, plans, plans(problem, retVal));
+        return retVal;
+    }
+
+    /**
+     * Equal call terms have equal fingerprints, even when they are different
+     * objects.
+     */
+    @Test
+    public void callsHashByValue() {
+        final Term a = new TermCall(new List(new TermNumber(1), new TermList(new TermNumber(2), TermList.NIL)), "StdLib.plus");
+        final Term b = new TermCall(new List(new TermNumber(1), new TermList(new TermNumber(2), TermList.NIL)), "StdLib.plus");
+        final Term c = new TermCall(new List(new TermNumber(1), new TermList(new TermNumber(2), TermList.NIL)), "StdLib.minus");
+        assertEquals(Fingerprint.of(a), Fingerprint.of(b));
+        assertNotEquals(Fingerprint.of(a), Fingerprint.of(c));
+    }
+
+    /**
+     * @return the plans found, each with its cost, with a given cache.
+     */
+    private static java.util.List<String> plans(TestProblem problem, NogoodCache cache) {
+        final java.util.List<String> retVal = new ArrayList<>();
+        final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> retVal.add(plan.toString(problem.domain)));
+        planner.setNogoodCache(cache);
+        while (planner.run()) ;
+        return retVal;
+    }
+}
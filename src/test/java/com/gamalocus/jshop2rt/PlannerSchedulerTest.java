@@ -0,0 +1,141 @@
+package com.gamalocus.jshop2rt;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlannerSchedulerTest {
+    /**
+     * The number of ticks the planners are run for in the starvation test.
+     */
+    private static final int TICKS = 400;
+
+    /**
+     * With a budget too small for more than the first planner in line, a
+     * planner of low priority still gets to run once its age makes up for
+     * its priority, i.e., at least once every <code>high / low + 1</code>
+     * ticks.
+     */
+    @Test
+    public void lowPriorityIsNotStarved() throws Exception {
+        final int high = 10;
+        try (PlannerScheduler scheduler = new PlannerScheduler()) {
+            final PlannerScheduler.Handle first = scheduler.add(planner(TestProblem.load("blocks", "blocks", "smallproblem")), high);
+            final PlannerScheduler.Handle second = scheduler.add(planner(TestProblem.load("blocks", "blocks", "smallproblem")), 1);
+
+            long lastRun = 0;
+            for (int tick = 1; tick <= TICKS; tick++) {
+                final long slices = second.getSlices();
+                assertTrue(scheduler.tick(1));
+                assertFalse(first.isDone() || second.isDone());
+
+                //-- One slice per tick, for one planner or the other.
+                assertEquals(tick, first.getSlices() + second.getSlices());
+                if (second.getSlices() > slices)
+                    lastRun = tick;
+                assertTrue(String.format("Not run since tick %d, at tick %d.", lastRun, tick), tick - lastRun <= high + 1);
+            }
+            assertTrue(second.getSlices() >= TICKS / (high + 1));
+            assertTrue(first.getSlices() > second.getSlices());
+        }
+    }
+
+    /**
+     * A planner cancelled in the middle of its share runs no slice after the
+     * one it was cancelled in, is stopped by the end of the tick, and keeps
+     * the plans it found.
+     */
+    @Test
+    public void cancelStopsMidSlice() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final String before = problem.snapshot();
+
+        //-- The number of slices up to and including the one the first plan
+        //-- is found in.
+        final int[] plans = {0};
+        JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> ++plans[0] > 0);
+        long slices = 0;
+        while (plans[0] == 0 && planner.run())
+            slices++;
+        while (planner.run()) ;
+        assertTrue(plans[0] > 1);
+
+        try (PlannerScheduler scheduler = new PlannerScheduler()) {
+            final PlannerScheduler.Handle[] handle = new PlannerScheduler.Handle[1];
+            final int[] found = {0};
+            planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                    problem.state, plan -> {
+                        found[0]++;
+                        handle[0].cancel();
+                        return true;
+                    });
+            handle[0] = scheduler.add(planner, 1);
+
+            assertFalse(scheduler.tick(Long.MAX_VALUE / 2));
+            assertTrue(handle[0].isCancelled());
+            assertTrue(handle[0].isDone());
+            assertEquals(slices, handle[0].getSlices());
+            assertEquals(1, found[0]);
+            assertEquals(before, problem.snapshot());
+        }
+    }
+
+    /**
+     * The problem code generated with and without a scheduler, and with and
+     * without workers, compiles and finds the same plans as the interpreter.
+     */
+    @Test
+    public void generatedCodeFindsThePlans() throws Exception {
+        final String domainSource = TestProblem.example("blocks", "blocks");
+        final String problemSource = TestProblem.example("blocks", "smallproblem");
+
+        final TestProblem problem = TestProblem.parse(domainSource, problemSource);
+        final java.util.List<String> expected = new ArrayList<>();
+        final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> expected.add(plan.toString(problem.domain)));
+        while (planner.run()) ;
+        assertTrue(expected.size() > 1);
+
+        for (int workers = -1; workers <= 2; workers++) {
+            final Model model = new Model(domainSource + "\n" + problemSource, "test.domains");
+            model.domain();
+            final String domainCode = model.getOutput();
+            model.setScheduled(workers >= 0);
+            model.setSchedulerWorkers(Math.max(0, workers));
+            model.problem();
+            final String problemCode = model.getOutput().substring(domainCode.length());
+
+            final SimpleCompiler domainCompiler = new SimpleCompiler();
+            domainCompiler.setParentClassLoader(getClass().getClassLoader());
+            domainCompiler.cook(domainCode);
+            final Domain domain = (Domain) domainCompiler.getClassLoader().loadClass("test.domains." + model.getName())
+                    .getConstructor(Model.class).newInstance(model);
+
+            final SimpleCompiler problemCompiler = new SimpleCompiler();
+            problemCompiler.setParentClassLoader(domainCompiler.getClassLoader());
+            problemCompiler.cook(problemCode);
+            final LinkedList<?> plans = (LinkedList<?>) problemCompiler.getClassLoader()
+                    .loadClass("test.domains.smallproblem").getMethod("getPlans", Domain.class).invoke(null, domain);
+
+            final java.util.List<String> actual = new ArrayList<>();
+            for (Object plan : plans)
+                actual.add(((Plan) plan).toString(domain));
+            assertEquals(String.format("Workers: %d.", workers), expected, actual);
+        }
+    }
+
+    /**
+     * @return a planner for a problem, which keeps no plans.
+     */
+    private static JSHOP2 planner(TestProblem problem) {
+        return new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain, problem.state,
+                plan -> true);
+    }
+}
@@ -0,0 +1,140 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlanningServiceTest {
+    private static final int ROUNDS = 200;
+    private static final int CALLERS = 8;
+
+    /**
+     * Identical requests that are cancelled as soon as they are made must
+     * never leave one that waits for the plan without a future, or with a
+     * cancelled one.
+     */
+    @Test
+    public void concurrentAttachAndCancel() throws Exception {
+        final Model model = new Model("(defdomain one ((:operator (!noop) () () ())))", "test.domains");
+        model.domain();
+        //-- A domain with nothing to plan with, as the empty task list needs
+        //-- none.
+        final Domain domain = new Domain(model) {
+            {
+                ops = new Operator[0][];
+                methods = new Method[0][];
+                axioms = new Axiom[0][];
+            }
+        };
+        final PlanningService.Request request = new PlanningService.Request(
+                domain, Collections.<Predicate>emptyList(), new TaskList(0, true), TimeUnit.SECONDS.toNanos(10));
+
+        final PlanningService service = new PlanningService(CALLERS);
+        final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                final CyclicBarrier barrier = new CyclicBarrier(CALLERS);
+                final java.util.List<Future<CompletableFuture<Plan>>> calls = new java.util.ArrayList<>();
+                for (int i = 0; i < CALLERS; i++) {
+                    final boolean cancel = i % 2 == 0;
+                    calls.add(callers.submit(() -> {
+                        barrier.await();
+                        final CompletableFuture<Plan> f = service.findPlan(request);
+                        if (cancel && f != null)
+                            f.cancel(false);
+                        return f;
+                    }));
+                }
+
+                for (int i = 0; i < CALLERS; i++) {
+                    final CompletableFuture<Plan> f = calls.get(i).get(10, TimeUnit.SECONDS);
+                    assertNotNull(String.format("Round %d, caller %d got no future.", round, i), f);
+                    if (i % 2 != 0) {
+                        final Plan plan = f.get(10, TimeUnit.SECONDS);
+                        assertFalse(f.isCancelled());
+                        assertNotNull(String.format("Round %d, caller %d got no plan.", round, i), plan);
+                    }
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+            service.close();
+        }
+    }
+
+    /**
+     * Requests that wait for their turn are not handed a thread each, and
+     * no more of them run at the same time than the service allows.
+     */
+    @Test
+    public void waitingRequestsHoldNoThread() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final PlanningService.Request request = new PlanningService.Request(problem.domain, problem.state,
+                problem.tasks, TimeUnit.SECONDS.toNanos(60));
+
+        final int before = threads();
+        final PlanningService service = new PlanningService(1);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final CompletableFuture<Long> first = service.findPlans(request, plan -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger most = new AtomicInteger();
+            final java.util.List<CompletableFuture<Long>> rest = new java.util.ArrayList<>();
+            for (int i = 0; i < CALLERS * 4; i++) {
+                rest.add(service.findPlans(request, plan -> {
+                    most.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    running.decrementAndGet();
+                    return false;
+                }));
+            }
+
+            //-- On platform threads, only the one of the first request is new.
+            if (!service.isVirtual())
+                assertTrue(threads() <= before + 1);
+
+            release.countDown();
+            assertEquals(Long.valueOf(1), first.get(10, TimeUnit.SECONDS));
+            for (CompletableFuture<Long> f : rest)
+                assertEquals(Long.valueOf(1), f.get(10, TimeUnit.SECONDS));
+            assertEquals(1, most.get());
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * @return the number of live threads of planning services.
+     */
+    private static int threads() {
+        int retVal = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.isAlive() && t.getName().startsWith(PlanningService.class.getSimpleName() + "-"))
+                retVal++;
+        }
+        return retVal;
+    }
+}
@@ -0,0 +1,114 @@
+package com.gamalocus.jshop2rt;
+
+import antlr.SemanticException;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PragmaTest {
+    private static final String OPERATOR =
+            "  (:operator (!drive ?x ?y) ((road ?x ?y) (at ?x)) ((at ?x)) ((at ?y)))";
+    private static final String PROBLEM = String.join("\n",
+            "(defproblem problem roads",
+            "  ((at a) (road a b) (road a c) (road b c) (road c d))",
+            "  ((!drive a b) (!drive b c) (!drive c d)))");
+
+    /**
+     * The pragmas are kept by the model, by the integer of their heads, and
+     * passed on to the domain built from it.
+     */
+    @Test
+    public void pragmasAreParsed() throws Exception {
+        final Model model = domain(
+                "  (:index (road ?x ?y) 1)",
+                "  (:index (road ?x ?y) 1)",
+                "  (:static road)",
+                "  (:cardinality-hint road 4)",
+                "  (:cardinality-hint at 1)",
+                OPERATOR);
+        final int road = model.constants().indexOf("road");
+        final int at = model.constants().indexOf("at");
+        assertTrue(road >= 0);
+        assertTrue(at >= 0);
+
+        assertEquals(Collections.singletonMap(road, 1), model.getIndexes());
+        final BitSet declared = new BitSet();
+        declared.set(road);
+        assertEquals(declared, model.getDeclaredStaticHeads());
+        assertEquals(2, model.getCardinalityHints().size());
+        assertEquals(Integer.valueOf(4), model.getCardinalityHints().get(road));
+        assertEquals(Integer.valueOf(1), model.getCardinalityHints().get(at));
+
+        final Domain domain = new InterpretedDomain(model);
+        assertEquals(1, domain.getIndexedArgument(road));
+        assertEquals(-1, domain.getIndexedArgument(at));
+        assertTrue(domain.getStaticHeads().get(road));
+        assertFalse(domain.getStaticHeads().get(at));
+    }
+
+    /**
+     * The pragmas change how the plans are searched for, but not which plans
+     * are found.
+     */
+    @Test
+    public void pragmasKeepThePlans() throws Exception {
+        final String plain = source(OPERATOR);
+        final String annotated = source(
+                "  (:index (road ?x ?y) 0)",
+                "  (:static road)",
+                "  (:cardinality-hint road 4)",
+                "  (:cardinality-hint at 1)",
+                OPERATOR);
+        final java.util.List<String> expected = TestProblem.parse(plain, PROBLEM).plans(Integer.MAX_VALUE);
+        assertEquals(1, expected.size());
+        assertEquals(expected, TestProblem.parse(annotated, PROBLEM).plans(Integer.MAX_VALUE));
+        assertEquals(expected, TestProblem.parse(annotated, PROBLEM).withStaticFacts().plans(Integer.MAX_VALUE));
+    }
+
+    /**
+     * The pragmas that cannot hold are reported with the position they are
+     * at.
+     */
+    @Test
+    public void wrongPragmasAreReported() throws Exception {
+        check("road has no argument 2, it has 2.", "  (:index (road ?x ?y) 2)", OPERATOR);
+        check("road is already indexed by argument 0.",
+                "  (:index (road ?x ?y) 0)", "  (:index (road ?x ?y) 1)", OPERATOR);
+        check("-1 is not a natural number.", "  (:cardinality-hint road -1)", OPERATOR);
+        check("1.5 is not a natural number.", "  (:index (road ?x ?y) 1.5)", OPERATOR);
+        check("at is declared static, but an operator deletes or adds it.", "  (:static at)", OPERATOR);
+    }
+
+    /**
+     * To check that a domain is refused with a given message.
+     */
+    private static void check(String message, String... lines) throws Exception {
+        try {
+            domain(lines);
+            fail(String.format("Accepted %s.", String.join(" ", lines)));
+        } catch (SemanticException e) {
+            assertEquals(message, e.getMessage());
+            assertTrue(e.getLine() > 1);
+        }
+    }
+
+    /**
+     * @return the model of a domain made of the given lines, parsed.
+     */
+    private static Model domain(String... lines) throws Exception {
+        return new Model(source(lines), "test.domains").domain();
+    }
+
+    /**
+     * @return the description of a domain made of the given lines.
+     */
+    private static String source(String... lines) {
+        return "(defdomain roads (\n" + String.join("\n", lines) + "\n))";
+    }
+}
@@ -0,0 +1,59 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchProfilerTest {
+    /**
+     * A profiled planner finds the same plans, and its profile is rooted at
+     * the goal tasks, finds no more bindings than it asks for, and adds up
+     * when merged.
+     */
+    @Test
+    public void profileOfTheSearch() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+        final java.util.List<String> expected = plans(problem, null);
+
+        final SearchProfiler profiler = new SearchProfiler(problem.domain);
+        assertEquals(expected, plans(problem, profiler));
+        assertTrue(profiler.getTotalNanos() > 0);
+
+        final String entries = profiler.toCollapsed(SearchProfiler.Value.ENTRIES);
+        assertTrue(entries, entries.startsWith("all;achieve-goals 1\n"));
+        for (String line : entries.split("\n"))
+            assertTrue(line, line.startsWith("all;achieve-goals"));
+
+        final SearchProfiler.Node root = profiler.getRoot();
+        final long attempts = root.total(SearchProfiler.Value.ATTEMPTS);
+        final long bindings = root.total(SearchProfiler.Value.BINDINGS);
+        assertTrue(bindings > 0);
+        assertTrue(attempts >= bindings);
+
+        final SearchProfiler merged = new SearchProfiler(problem.domain);
+        merged.merge(profiler);
+        merged.merge(profiler);
+        assertEquals(2 * profiler.getTotalNanos(), merged.getTotalNanos());
+        assertEquals(2 * attempts, merged.getRoot().total(SearchProfiler.Value.ATTEMPTS));
+        assertEquals(entries.split("\n").length, merged.toCollapsed(SearchProfiler.Value.ENTRIES).split("\n").length);
+
+        merged.clear();
+        assertEquals(0, merged.getTotalNanos());
+        assertEquals("", merged.toCollapsed(SearchProfiler.Value.ENTRIES));
+    }
+
+    /**
+     * @return the plans of a problem, found with the given profiler.
+     */
+    private static java.util.List<String> plans(TestProblem problem, SearchProfiler profiler) {
+        final java.util.List<String> retVal = new ArrayList<>();
+        final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                problem.state, plan -> retVal.add(plan.toString(problem.domain)));
+        planner.setProfiler(profiler);
+        while (planner.run()) ;
+        return retVal;
+    }
+}
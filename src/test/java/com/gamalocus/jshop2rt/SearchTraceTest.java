@@ -0,0 +1,99 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchTraceTest {
+    /**
+     * The steps replayed from a trace, in memory and from a file, are the
+     * ones the planner logs, and every task atom tried was recorded as the
+     * child of an earlier step, with the same ID, as the GUI needs it to be.
+     */
+    @Test
+    public void replayMatchesTheLog() throws Exception {
+        final TestProblem problem = TestProblem.load("blocks", "blocks", "smallproblem");
+
+        final java.util.List<String> logged = new ArrayList<>();
+        final Logger logger = Logger.getLogger(JSHOP2.class.getName());
+        final Level level = logger.getLevel();
+        final Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getMessage().startsWith("Plan step:"))
+                    logged.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.setLevel(Level.FINEST);
+        logger.addHandler(handler);
+        final SearchTrace trace = new SearchTrace(1 << 20);
+        try {
+            final JSHOP2 planner = new JSHOP2(problem.tasks, Integer.MAX_VALUE, new DoubleCost(0), problem.domain,
+                    problem.state, plan -> true);
+            planner.setTrace(trace);
+            while (planner.run()) ;
+        } finally {
+            logger.removeHandler(handler);
+            logger.setLevel(level);
+        }
+        assertEquals(logged.size(), trace.getStepCount() + 1);
+
+        final Path file = Files.createTempFile("trace", ".bin");
+        try {
+            trace.write(file);
+            for (SearchTraceReplay replay : new SearchTraceReplay[]{
+                    SearchTraceReplay.of(problem.domain, trace), SearchTraceReplay.read(problem.domain, file)}) {
+                final java.util.List<PlanStepInfo> steps = replay.getPlanSteps();
+                assertEquals(logged.size(), steps.size());
+
+                final Set<Integer> ids = new HashSet<>();
+                for (int i = 0; i < steps.size(); i++) {
+                    final PlanStepInfo step = steps.get(i);
+                    //-- The trace does not record the state of the world, and the
+                    //-- planner logs no action with the plans it finds.
+                    final String expected = logged.get(i).replaceAll("State: (\n\t\t[^\n]*)*\n\t", "")
+                            .replace("Action: \n", "Action: PLANFOUND\n");
+                    assertEquals(expected, String.format("Plan step:\n\t%s",
+                            step.toString(problem.domain).replace("\n", "\n\t")));
+
+                    if (step.action.equals("TRYING"))
+                        assertTrue(String.format("Step %d.", i), ids.contains(step.taskAtom.getHead().getID()));
+                    if (step.children != null) {
+                        for (TaskList child : step.children)
+                            addIds(child, ids);
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void addIds(TaskList tl, Set<Integer> ids) {
+        if (tl.subtasks == null) {
+            ids.add(tl.getTask().getHead().getID());
+        } else {
+            for (TaskList sub : tl.subtasks)
+                addIds(sub, ids);
+        }
+    }
+}
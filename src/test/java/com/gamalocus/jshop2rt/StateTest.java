@@ -0,0 +1,155 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StateTest {
+    /**
+     * @return the atom <code>(0 n)</code>.
+     */
+    private static Predicate atom(int n) {
+        return new Predicate(0, 0, new TermList(new TermNumber(n), TermList.NIL));
+    }
+
+    /**
+     * A predicate protected twice is unprotected after two deletions, no
+     * sooner and no later.
+     */
+    @Test
+    public void protectionsAreCounted() {
+        State state = new State(new Axiom[1][0]);
+        state.addProtection(atom(1));
+        state.addProtection(atom(1));
+
+        assertTrue(state.delProtection(atom(1)));
+        assertTrue(state.isProtected(atom(1)));
+        assertTrue(state.delProtection(atom(1)));
+        assertFalse(state.isProtected(atom(1)));
+        assertFalse(state.delProtection(atom(1)));
+    }
+
+    /**
+     * Protecting or unprotecting a predicate in a copy of a state leaves the
+     * state itself as it was.
+     */
+    @Test
+    public void cloneHasItsOwnProtections() {
+        State state = new State(new Axiom[1][0]);
+        state.addProtection(atom(1));
+        final long fingerprint = state.getFingerprint();
+
+        State copy = (State) state.clone();
+        copy.addProtection(atom(1));
+        assertTrue(state.delProtection(atom(1)));
+        assertFalse(state.isProtected(atom(1)));
+        assertTrue(copy.isProtected(atom(1)));
+
+        state.addProtection(atom(1));
+        assertTrue(copy.delProtection(atom(1)));
+        assertTrue(copy.delProtection(atom(1)));
+        assertFalse(copy.isProtected(atom(1)));
+        assertTrue(state.isProtected(atom(1)));
+        assertEquals(fingerprint, state.getFingerprint());
+    }
+
+    /**
+     * The fingerprint a state keeps up to date is the one it would have if it
+     * was computed from scratch, and does not depend on the order the atoms
+     * were added in.
+     */
+    @Test
+    public void fingerprintIsKeptUpToDate() {
+        State state = new State(new Axiom[1][0]);
+        state.add(atom(1));
+        state.addProtection(atom(1));
+        state.getFingerprint();
+        state.add(atom(2));
+        state.add(atom(3));
+        state.del(atom(1));
+        state.addProtection(atom(2));
+        state.addProtection(atom(2));
+
+        State other = new State(new Axiom[1][0]);
+        other.addProtection(atom(2));
+        other.add(atom(3));
+        other.addProtection(atom(1));
+        other.add(atom(2));
+        other.addProtection(atom(2));
+        assertEquals(state.getFingerprint(), other.getFingerprint());
+        assertEquals(state.getFingerprint(), ((State) state.clone()).getFingerprint());
+
+        other.delProtection(atom(2));
+        assertNotEquals(state.getFingerprint(), other.getFingerprint());
+    }
+
+    /**
+     * An iterator finds the atoms that were in the state when it was first
+     * asked for a binding, even if atoms are deleted and added in between,
+     * as a <code>forall</code> effect does while it iterates.
+     */
+    @Test
+    public void iteratorSeesTheAtomsAsTheyWere() {
+        State state = new State(new Axiom[1][0]);
+        for (int n = 1; n <= 3; n++)
+            state.add(atom(n));
+        final Predicate pattern = new Predicate(0, 1, new TermList(new TermVariable(0), TermList.NIL));
+
+        final State.MyIterator iterator = state.iterator(pattern);
+        assertEquals(new TermNumber(1), iterator.nextBinding()[0]);
+        state.del(atom(1));
+        state.add(atom(4));
+        assertEquals(Arrays.asList(new TermNumber(2), new TermNumber(3)), bindings(iterator));
+        assertEquals(Arrays.asList(new TermNumber(2), new TermNumber(3), new TermNumber(4)),
+                bindings(state.iterator(pattern)));
+    }
+
+    /**
+     * The same goes for the atoms of a head indexed by one of its arguments.
+     */
+    @Test
+    public void indexedIteratorSeesTheAtomsAsTheyWere() throws Exception {
+        final TestProblem problem = TestProblem.parse(String.join("\n",
+                "(defdomain indexed (",
+                "  (:index (at ?x ?y) 1)",
+                "  (:operator (!move ?x ?y ?z) ((at ?x ?y)) ((at ?x ?y)) ((at ?x ?z)))",
+                "))"), String.join("\n",
+                "(defproblem problem indexed",
+                "  ((at a l1) (at b l1) (at c l2) (at d l1))",
+                "  ((!move a l1 l2)))"));
+        final Domain domain = problem.domain;
+        final int at = ((TermConstant) domain.getTermConstant("at")).getIndex();
+        final Term l1 = domain.getTermConstant("l1");
+        final Term a = domain.getTermConstant("a");
+        final Term b = domain.getTermConstant("b");
+        final Term c = domain.getTermConstant("c");
+        final Term d = domain.getTermConstant("d");
+        final State state = problem.state;
+        final Predicate pattern = new Predicate(at, 1, new TermList(new TermVariable(0), new TermList(l1, TermList.NIL)));
+
+        final State.MyIterator iterator = state.iterator(pattern);
+        assertEquals(a, iterator.nextBinding()[0]);
+        state.del(new Predicate(at, 0, new TermList(a, new TermList(l1, TermList.NIL))));
+        state.add(new Predicate(at, 0, new TermList(c, new TermList(l1, TermList.NIL))));
+        assertEquals(Arrays.asList(b, d), bindings(iterator));
+        assertEquals(Arrays.asList(b, d, c), bindings(state.iterator(pattern)));
+    }
+
+    /**
+     * @return the first variable of each of the remaining bindings of an
+     * iterator.
+     */
+    private static java.util.List<Term> bindings(State.MyIterator iterator) {
+        final java.util.List<Term> retVal = new ArrayList<>();
+        Term[] binding;
+        while ((binding = iterator.nextBinding()) != null)
+            retVal.add(binding[0]);
+        return retVal;
+    }
+}
@@ -0,0 +1,75 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StaticFactsTest {
+    private static final String DOMAIN = String.join("\n",
+            "(defdomain roads (",
+            "  (:static road)",
+            "  (:operator (!drive ?x ?y) ((at ?x) (road ?x ?y)) ((at ?x)) ((at ?y)))",
+            "))");
+    private static final String PROBLEM = String.join("\n",
+            "(defproblem problem roads",
+            "  ((at a) (road a b) (road b c))",
+            "  ((!drive a b) (!drive b c)))");
+
+    /**
+     * A state with static facts holds them, and refuses to add an atom with
+     * a static head that is not one of them, or to delete one of them, while
+     * the other atoms come and go as usual.
+     */
+    @Test
+    public void staticFactsCannotChange() throws Exception {
+        final TestProblem problem = TestProblem.parse(DOMAIN, PROBLEM).withStaticFacts();
+        final Domain domain = problem.domain;
+        final State state = problem.state;
+        final StaticFacts statics = state.getStaticFacts();
+        assertEquals(2, statics.size());
+
+        final Predicate ab = atom(domain, "road", "a", "b");
+        final Predicate ac = atom(domain, "road", "a", "c");
+        assertTrue(statics.isStatic(ab.head));
+        assertTrue(statics.contains(ab));
+        assertFalse(statics.contains(ac));
+
+        //-- Adding a static fact again changes nothing.
+        final long fingerprint = state.getFingerprint();
+        assertFalse(state.add(ab));
+        assertEquals(fingerprint, state.getFingerprint());
+
+        try {
+            state.add(ac);
+            fail("Added an atom with a static head that is not a static fact.");
+        } catch (IllegalArgumentException e) {
+            //-- As expected.
+        }
+        try {
+            state.del(ab);
+            fail("Deleted a static fact.");
+        } catch (IllegalArgumentException e) {
+            //-- As expected.
+        }
+        assertEquals(fingerprint, state.getFingerprint());
+
+        final Predicate atB = atom(domain, "at", "b");
+        assertTrue(state.add(atB));
+        assertTrue(state.del(atB) >= 0);
+        assertEquals(fingerprint, state.getFingerprint());
+        assertEquals(1, problem.plans(Integer.MAX_VALUE).size());
+    }
+
+    /**
+     * @return the ground atom with the given head and constant arguments.
+     */
+    private static Predicate atom(Domain domain, String head, String... args) {
+        TermList param = TermList.NIL;
+        for (int i = args.length - 1; i >= 0; i--)
+            param = new TermList(domain.getTermConstant(args[i]), param);
+        return new Predicate(((TermConstant) domain.getTermConstant(head)).getIndex(), 0, param);
+    }
+}
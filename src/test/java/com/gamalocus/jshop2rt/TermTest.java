@@ -0,0 +1,188 @@
+package com.gamalocus.jshop2rt;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TermTest {
+    /**
+     * The number of pairs of random terms compared.
+     */
+    private static final int PAIRS = 200000;
+    /**
+     * The number of variables of the random terms.
+     */
+    private static final int VARIABLES = 3;
+    /**
+     * The length of the list used to check that the tails of lists are not
+     * walked by recursion.
+     */
+    private static final int LONG_LIST = 100000;
+
+    private static final TermVariable[] VARS = new TermVariable[VARIABLES];
+
+    static {
+        for (int i = 0; i < VARIABLES; i++)
+            VARS[i] = new TermVariable(i);
+    }
+
+    /**
+     * The call used in the random terms, which returns its first argument.
+     */
+    private static final Calculate FIRST = args -> args.getHead();
+
+    /**
+     * Unification, equality and hashing dispatched on the kind of the terms
+     * give the same results, and the same bindings, as the virtual functions
+     * of the term classes did, written out here as they were.
+     */
+    @Test
+    public void sameAsTheTermClasses() {
+        final Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            final Term t1 = random(random, 3);
+            final Term t2 = random(random, 3);
+            final Term[] binding = prefix(random);
+            final Term[] expected = binding.clone();
+            final String message = String.format("%s with %s, %s.", t1, t2, Arrays.toString(binding));
+
+            assertEquals(message, unify(t1, t2, expected), t1.findUnifier(t2, binding));
+            assertArrayEquals(message, expected, binding);
+            assertEquals(message, equal(t1, t2), t1.equals(t2));
+            if (t1.equals(t2))
+                assertEquals(message, t1.hashCode(), t2.hashCode());
+        }
+    }
+
+    /**
+     * Long lists are unified and compared without running out of stack.
+     */
+    @Test
+    public void longLists() {
+        Term l1 = TermList.NIL;
+        Term l2 = TermList.NIL;
+        for (int i = 0; i < LONG_LIST; i++) {
+            l1 = new TermList(i == 0 ? VARS[0] : new TermNumber(i), l1);
+            l2 = new TermList(new TermNumber(i == 0 ? -1 : i), l2);
+        }
+
+        final Term[] binding = new Term[VARIABLES];
+        assertTrue(l1.findUnifier(l2, binding));
+        assertEquals(new TermNumber(-1), binding[0]);
+        assertTrue(l2.equals(new TermList(new TermNumber(LONG_LIST - 1), ((TermList) l2).getList().getTail())));
+    }
+
+    /**
+     * @return a random term of at most the given depth, from a few constants,
+     * numbers and variables, so that pairs of them often unify.
+     */
+    private static Term random(Random random, int depth) {
+        switch (random.nextInt(depth > 0 ? 6 : 3)) {
+            case 0:
+                return new TermConstant(random.nextInt(2), "c");
+            case 1:
+                return new TermNumber(new double[]{0.0, -0.0, 1.0}[random.nextInt(3)]);
+            case 2:
+                return VARS[random.nextInt(VARIABLES)];
+            case 3:
+                return TermList.NIL;
+            case 4:
+                //-- The tail is a list or, now and then, a dotted pair.
+                return new TermList(random(random, depth - 1),
+                        random.nextInt(4) == 0 ? random(random, depth - 1) : list(random, depth - 1));
+            default:
+                return new TermCall(new List(random(random, depth - 1), TermList.NIL), FIRST, "first");
+        }
+    }
+
+    /**
+     * @return a random proper list of at most the given depth.
+     */
+    private static Term list(Random random, int depth) {
+        Term retVal = TermList.NIL;
+        for (int n = random.nextInt(3); n > 0; n--)
+            retVal = new TermList(random(random, Math.max(0, depth - 1)), retVal);
+        return retVal;
+    }
+
+    /**
+     * @return a binding with some of the variables already bound.
+     */
+    private static Term[] prefix(Random random) {
+        final Term[] retVal = new Term[VARIABLES];
+        for (int i = 0; i < VARIABLES; i++) {
+            if (random.nextInt(3) == 0)
+                retVal[i] = random(random, 1);
+        }
+        return retVal;
+    }
+
+    /**
+     * <code>t1.findUnifier(t2, binding)</code>, as the term classes did it.
+     */
+    private static boolean unify(Term t1, Term t2, Term[] binding) {
+        if (t1 instanceof TermConstant || t1 instanceof TermNumber)
+            return t2 instanceof TermVariable || same(t1, t2);
+        if (t1 instanceof TermVariable) {
+            if (t2 instanceof TermVariable)
+                return true;
+            final int index = ((TermVariable) t1).getIndex();
+            if (binding[index] == null) {
+                binding[index] = t2;
+                return true;
+            }
+            return equal(t2, binding[index]);
+        }
+        if (t1 instanceof TermList) {
+            if (t2 instanceof TermVariable)
+                return true;
+            if (!(t2 instanceof TermList))
+                return false;
+            final List l1 = ((TermList) t1).getList();
+            final List l2 = ((TermList) t2).getList();
+            if (l1 == null)
+                return l2 == null;
+            return l2 != null && unify(l1.getHead(), l2.getHead(), binding) && unify(l1.getTail(), l2.getTail(), binding);
+        }
+        return unify(((TermCall) t1).call(), t2, binding);
+    }
+
+    /**
+     * Whether a constant or a number unifies with another term that is not a
+     * variable: numbers compare as numbers, so that 0 and -0 unify.
+     */
+    private static boolean same(Term t1, Term t2) {
+        if (t1 instanceof TermConstant)
+            return t2 instanceof TermConstant && ((TermConstant) t1).getIndex() == ((TermConstant) t2).getIndex();
+        return t2 instanceof TermNumber && ((TermNumber) t1).getNumber() == ((TermNumber) t2).getNumber();
+    }
+
+    /**
+     * <code>t.equals(o)</code>, as the term classes did it: numbers compare
+     * by their bits, so that 0 and -0 differ.
+     */
+    private static boolean equal(Term t, Object o) {
+        if (t instanceof TermConstant)
+            return o instanceof TermConstant && ((TermConstant) t).getIndex() == ((TermConstant) o).getIndex();
+        if (t instanceof TermVariable)
+            return o == t;
+        if (t instanceof TermNumber)
+            return o instanceof TermNumber && Double.doubleToLongBits(((TermNumber) t).getNumber())
+                    == Double.doubleToLongBits(((TermNumber) o).getNumber());
+        if (t instanceof TermList) {
+            if (!(o instanceof TermList))
+                return false;
+            final List l1 = ((TermList) t).getList();
+            final List l2 = ((TermList) o).getList();
+            if (l1 == null || l2 == null)
+                return l1 == l2;
+            return equal(l1.getHead(), l2.getHead()) && equal(l1.getTail(), l2.getTail());
+        }
+        return o instanceof Term && equal(((TermCall) t).call(), o);
+    }
+}
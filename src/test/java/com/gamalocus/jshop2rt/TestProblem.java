@@ -0,0 +1,196 @@
+package com.gamalocus.jshop2rt;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+
+/**
+ * A domain and the first of its problems, parsed from one of the examples
+ * under <code>examples/</code>, to plan for in tests.
+ */
+final class TestProblem {
+    final Domain domain;
+    final State state;
+    final TaskList tasks;
+    /**
+     * The atoms the initial state was made of.
+     */
+    private final java.util.List<Predicate> facts;
+
+    private TestProblem(Domain domainIn, State stateIn, TaskList tasksIn, java.util.List<Predicate> factsIn) {
+        domain = domainIn;
+        state = stateIn;
+        tasks = tasksIn;
+        facts = factsIn;
+    }
+
+    /**
+     * To parse an example and interpret its domain.
+     *
+     * @param directory   the directory of the example under
+     *                    <code>examples/</code>.
+     * @param domainFile  the name of the file of the domain.
+     * @param problemFile the name of the file of the problem.
+     * @return the domain, with the initial state and the goal tasks of the
+     * first problem.
+     * @throws Exception if the example cannot be read or parsed.
+     */
+    static TestProblem load(String directory, String domainFile, String problemFile) throws Exception {
+        return parse(example(directory, domainFile), example(directory, problemFile));
+    }
+
+    /**
+     * To parse a domain and a problem for it, and interpret the domain.
+     *
+     * @param domainSource  the description of the domain.
+     * @param problemSource the description of the problem.
+     * @return the domain, with the initial state and the goal tasks of the
+     * first problem.
+     * @throws Exception if the domain or the problem cannot be parsed.
+     */
+    static TestProblem parse(String domainSource, String problemSource) throws Exception {
+        return parse(domainSource, problemSource, InterpretedDomain::new);
+    }
+
+    /**
+     * To parse a domain and a problem for it, and build the domain in a given
+     * way.
+     *
+     * @param domainSource  the description of the domain.
+     * @param problemSource the description of the problem.
+     * @param builder       how to build the domain.
+     * @return the domain, with the initial state and the goal tasks of the
+     * first problem.
+     * @throws Exception if the domain or the problem cannot be parsed, or the
+     *                   domain cannot be built.
+     */
+    static TestProblem parse(String domainSource, String problemSource, Builder builder) throws Exception {
+        final ProblemModel model = new ProblemModel(domainSource + "\n" + problemSource);
+        model.domain();
+        final Domain domain = builder.build(model);
+        model.problem();
+
+        //-- The constant symbols of the problem.
+        for (String name : model.constants)
+            domain.addConstant(name);
+
+        State state = new State(domain);
+        for (Predicate p : model.states.getFirst())
+            state.add(p);
+        return new TestProblem(domain, state, model.taskLists.getFirst(), model.states.getFirst());
+    }
+
+    /**
+     * To parse a domain and a problem for it, and build in a given way only
+     * the part of the domain reachable from the tasks of the problem, see
+     * {@link Reachability}.
+     *
+     * @param domainSource  the description of the domain.
+     * @param problemSource the description of the problem.
+     * @param builder       how to build the restricted domain.
+     * @return the restricted domain, with the atoms of the initial state of
+     * the first problem it can read, and the goal tasks of the problem.
+     * @throws Exception if the domain or the problem cannot be parsed, or the
+     *                   domain cannot be built.
+     */
+    static TestProblem slice(String domainSource, String problemSource, Builder builder) throws Exception {
+        final ProblemModel model = new ProblemModel(domainSource + "\n" + problemSource);
+        model.domain();
+        model.problem();
+
+        //-- The restricted model has all the constant symbols, those of the
+        //-- problem included.
+        final TaskList tasks = model.taskLists.getFirst();
+        final Reachability.Closure closure = new Reachability(model).closure(tasks);
+        final Domain domain = builder.build(model.restrict(closure));
+
+        State state = new State(domain);
+        java.util.List<Predicate> facts = new ArrayList<>();
+        for (Predicate p : model.states.getFirst()) {
+            if (closure.canRead(p)) {
+                facts.add(p);
+                state.add(p);
+            }
+        }
+        return new TestProblem(domain, state, tasks, facts);
+    }
+
+    /**
+     * @return the same problem, with a new initial state in which the atoms
+     * whose heads are static are kept in {@link StaticFacts}.
+     */
+    TestProblem withStaticFacts() {
+        final StaticFacts statics = new StaticFacts(domain, facts);
+        State s = new State(domain, statics);
+        for (Predicate p : facts) {
+            if (!statics.isStatic(p.head))
+                s.add(p);
+        }
+        return new TestProblem(domain, s, tasks, facts);
+    }
+
+    /**
+     * @return the atoms and the fingerprint of the state of the world, and the
+     * task list, as a <code>String</code>.
+     */
+    String snapshot() {
+        final java.util.List<String> atoms = new ArrayList<>(state.getState(domain));
+        Collections.sort(atoms);
+        return String.format("%s %x %s", atoms, state.getFingerprint(), tasks.toString(domain));
+    }
+
+    /**
+     * @return the contents of a file of an example.
+     */
+    static String example(String directory, String file) throws java.io.IOException {
+        return new String(Files.readAllBytes(Paths.get("examples", directory, file)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the plans found for this problem, each with its cost, up to a
+     * given number.
+     */
+    java.util.List<String> plans(int maxPlans) {
+        final java.util.List<String> retVal = new ArrayList<>();
+        final JSHOP2 planner = new JSHOP2(tasks, Integer.MAX_VALUE, new DoubleCost(0), domain, state, plan -> {
+            retVal.add(plan.toString(domain) + " " + plan.getCost());
+            return retVal.size() < maxPlans;
+        });
+        while (planner.run()) ;
+        return retVal;
+    }
+
+    /**
+     * A way to turn a parsed domain into one to plan with.
+     */
+    interface Builder {
+        /**
+         * @param model the model, after {@link Model#domain()}.
+         * @return the domain to plan with.
+         * @throws Exception if the domain cannot be built.
+         */
+        Domain build(Model model) throws Exception;
+    }
+
+    /**
+     * A model that keeps the problems it parses rather than generating code
+     * for them.
+     */
+    private static final class ProblemModel extends Model {
+        private LinkedList<java.util.List<Predicate>> states;
+        private LinkedList<TaskList> taskLists;
+
+        ProblemModel(String input) {
+            super(input, "test.domains");
+        }
+
+        @Override
+        public void commandToCode(LinkedList<java.util.List<Predicate>> statesIn, LinkedList<TaskList> taskListsIn) {
+            states = statesIn;
+            taskLists = taskListsIn;
+        }
+    }
+}